@@ -0,0 +1,119 @@
+package com.ruoyi;
+
+import cn.hutool.crypto.SecureUtil;
+import com.ruoyi.domain.ChatFileSegment;
+import com.ruoyi.service.IChatFileSegmentService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 文件分片写入基准：逐条 insert 与多行 insert 的写入速度（行/秒）对比
+ *
+ * 需要可连接的 MySQL（使用 application 中的数据源），与上传一样在事务中写入，结束后回滚不留数据。
+ * 默认不执行：mvn -pl ruoyi-admin test -Dtest=ChatFileSegmentInsertBenchmarkTest -Dbenchmark=true
+ * 可通过 -Dbenchmark.rows、-Dbenchmark.rounds 调整分片数、轮数，-Dbenchmark.min-speedup 调整多行insert至少应达到的提升倍数
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ChatFileSegmentInsertBenchmarkTest {
+
+    // 每轮写入的分片数
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 3000);
+
+    // 计时的轮数，取平均值
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 5);
+
+    // 多行insert相对逐条insert至少应达到的提升倍数
+    private static final double MIN_SPEEDUP = Double.parseDouble(System.getProperty("benchmark.min-speedup", "2"));
+
+    // 单个分片的内容长度（字符），与默认切分大小相近
+    private static final int CONTENT_LENGTH = 800;
+
+    @Autowired
+    private IChatFileSegmentService chatFileSegmentService;
+
+    @Autowired
+    @Qualifier("transactionManager")
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void compareSingleAndBatchInsert() {
+        // 预热连接池、语句缓存及 JIT
+        insertInRolledBackTransaction(Math.min(ROWS, 200), this::insertOneByOne);
+        insertInRolledBackTransaction(Math.min(ROWS, 200), chatFileSegmentService::batchInsertChatFileSegment);
+
+        double singleRowsPerSecond = measure("逐条insert", this::insertOneByOne);
+        double batchRowsPerSecond = measure("多行insert", chatFileSegmentService::batchInsertChatFileSegment);
+        double speedup = batchRowsPerSecond / singleRowsPerSecond;
+        log.info("分片数: {}，轮数: {}，提升: {}倍", ROWS, ROUNDS, String.format("%.1f", speedup));
+
+        assertTrue(speedup >= MIN_SPEEDUP,
+                String.format("多行insert应至少快 %.1f 倍，实际 %.1f 倍", MIN_SPEEDUP, speedup));
+    }
+
+    private double measure(String name, Consumer<List<ChatFileSegment>> insert) {
+        long totalNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            totalNanos += insertInRolledBackTransaction(ROWS, insert);
+        }
+        double rowsPerSecond = (double) ROWS * ROUNDS / (totalNanos / 1_000_000_000.0);
+        log.info("{}: 平均每轮 {} ms，{} 行/秒", name, String.format("%.1f", totalNanos / 1_000_000.0 / ROUNDS),
+                String.format("%.0f", rowsPerSecond));
+        return rowsPerSecond;
+    }
+
+    /**
+     * 在事务中写入分片后回滚
+     * @return 写入耗时（纳秒）
+     */
+    private long insertInRolledBackTransaction(int rows, Consumer<List<ChatFileSegment>> insert) {
+        List<ChatFileSegment> segments = segments(rows);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long elapsed = transactionTemplate.execute(status -> {
+            long start = System.nanoTime();
+            insert.accept(segments);
+            long nanos = System.nanoTime() - start;
+            assertEquals(rows, chatFileSegmentService.selectChatFileSegmentHashByFileId(segments.get(0).getFileId()).size());
+            status.setRollbackOnly();
+            return nanos;
+        });
+        return elapsed;
+    }
+
+    private void insertOneByOne(List<ChatFileSegment> segments) {
+        for (ChatFileSegment segment : segments) {
+            chatFileSegmentService.insertChatFileSegment(segment);
+        }
+    }
+
+    private static List<ChatFileSegment> segments(int rows) {
+        String fileId = "benchmark-" + UUID.randomUUID();
+        String text = "知识库文件分片写入基准测试内容。".repeat(CONTENT_LENGTH / 16 + 1).substring(0, CONTENT_LENGTH);
+        List<ChatFileSegment> segments = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            ChatFileSegment segment = new ChatFileSegment();
+            segment.setSegmentId(UUID.randomUUID().toString());
+            segment.setFileId(fileId);
+            segment.setFileName("benchmark.txt");
+            segment.setContent(i + text);
+            segment.setContentHash(SecureUtil.sha256(segment.getContent()));
+            segments.add(segment);
+        }
+        return segments;
+    }
+}
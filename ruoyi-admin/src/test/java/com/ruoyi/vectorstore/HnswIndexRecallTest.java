@@ -0,0 +1,133 @@
+package com.ruoyi.vectorstore;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HnswIndex 召回率与检索延迟：以 bruteForce 的精确结果为基准计算 recall@k，并对比两者的单次检索耗时
+ *
+ * 数据为带簇结构的随机向量（接近文本向量的分布），参数与 application-chat.yml 中 chat.hnsw 的默认值一致。
+ * 默认规模较小以便随 mvn test 执行；评估更大规模时：
+ * mvn -pl ruoyi-admin test -Dtest=HnswIndexRecallTest -Dhnsw.size=100000 -Dhnsw.dimension=768
+ */
+@Slf4j
+public class HnswIndexRecallTest {
+
+    private static final int SIZE = Integer.getInteger("hnsw.size", 5000);
+
+    private static final int DIMENSION = Integer.getInteger("hnsw.dimension", 64);
+
+    private static final int QUERIES = Integer.getInteger("hnsw.queries", 200);
+
+    private static final int M = 16;
+
+    private static final int EF_CONSTRUCTION = 200;
+
+    private static final int EF_SEARCH = 128;
+
+    private static final int K = 10;
+
+    // 簇的数量及簇内偏移的标准差
+    private static final int CLUSTERS = 50;
+
+    private static final double SPREAD = 0.3;
+
+    private static HnswIndex index;
+
+    private static float[][] queries;
+
+    @BeforeAll
+    public static void build() {
+        Random random = new Random(42);
+        float[][] centers = new float[CLUSTERS][];
+        for (int c = 0; c < CLUSTERS; c++) {
+            centers[c] = gaussian(random, null, 1.0);
+        }
+        index = new HnswIndex(DIMENSION, M, EF_CONSTRUCTION);
+        long start = System.nanoTime();
+        for (int i = 0; i < SIZE; i++) {
+            index.add(gaussian(random, centers[random.nextInt(CLUSTERS)], SPREAD));
+        }
+        log.info("构建HNSW索引：{}条 {}维，耗时 {} ms", SIZE, DIMENSION, (System.nanoTime() - start) / 1_000_000);
+
+        queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = gaussian(random, centers[random.nextInt(CLUSTERS)], SPREAD);
+        }
+    }
+
+    @Test
+    public void recallAndLatency() {
+        // 预热 JIT
+        evaluate(EF_SEARCH, null);
+
+        for (int ef : new int[]{K, 32, 64, EF_SEARCH, 256}) {
+            Result result = evaluate(ef, null);
+            log.info(String.format("ef=%-4d recall@%d=%.4f  HNSW平均 %.3f ms，p99 %.3f ms；暴力检索平均 %.3f ms",
+                    ef, K, result.recall(), result.meanMs(), result.p99Ms(), result.bruteForceMeanMs()));
+        }
+        Result result = evaluate(EF_SEARCH, null);
+        assertTrue(result.recall() >= 0.95, "默认 ef-search 下 recall@" + K + " 过低: " + result.recall());
+    }
+
+    /**
+     * 检索时过滤掉一半节点（对应已删除、不满足元数据条件的分片），过滤后的召回率不应明显下降
+     */
+    @Test
+    public void recallWithFilter() {
+        IntPredicate accept = node -> node % 2 == 0;
+        Result result = evaluate(EF_SEARCH, accept);
+        log.info(String.format("过滤一半节点：ef=%d recall@%d=%.4f  HNSW平均 %.3f ms", EF_SEARCH, K, result.recall(), result.meanMs()));
+        assertTrue(result.recall() >= 0.9, "过滤后 recall@" + K + " 过低: " + result.recall());
+    }
+
+    private static Result evaluate(int ef, IntPredicate accept) {
+        long[] hnswNanos = new long[QUERIES];
+        long bruteForceNanos = 0;
+        long hits = 0;
+        long expected = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            long start = System.nanoTime();
+            List<HnswIndex.Candidate> approximate = index.search(queries[q], K, ef, accept);
+            hnswNanos[q] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<HnswIndex.Candidate> exact = index.bruteForce(queries[q], K, accept);
+            bruteForceNanos += System.nanoTime() - start;
+
+            Set<Integer> exactNodes = new HashSet<>();
+            exact.forEach(candidate -> exactNodes.add(candidate.node()));
+            for (HnswIndex.Candidate candidate : approximate) {
+                if (exactNodes.contains(candidate.node())) {
+                    hits++;
+                }
+            }
+            expected += exact.size();
+        }
+        Arrays.sort(hnswNanos);
+        double meanMs = Arrays.stream(hnswNanos).average().orElse(0) / 1_000_000.0;
+        double p99Ms = hnswNanos[Math.min(QUERIES - 1, (int) Math.ceil(QUERIES * 0.99) - 1)] / 1_000_000.0;
+        return new Result((double) hits / expected, meanMs, p99Ms, bruteForceNanos / 1_000_000.0 / QUERIES);
+    }
+
+    private static float[] gaussian(Random random, float[] center, double spread) {
+        float[] vector = new float[DIMENSION];
+        for (int d = 0; d < DIMENSION; d++) {
+            vector[d] = (float) ((center == null ? 0 : center[d]) + random.nextGaussian() * spread);
+        }
+        return vector;
+    }
+
+    private record Result(double recall, double meanMs, double p99Ms, double bruteForceMeanMs) {
+    }
+}
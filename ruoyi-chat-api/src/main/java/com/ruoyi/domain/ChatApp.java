@@ -53,6 +53,9 @@ public class ChatApp extends BaseEntity {
      */
     private Integer isWebSearch;
 
+    /** 会话记忆的token预算，为空时使用默认值 */
+    private Integer memoryTokenBudget;
+
 
     private List<String> knowledgeIds;
 
@@ -139,6 +142,14 @@ public class ChatApp extends BaseEntity {
         this.isWebSearch = isWebSearch;
     }
 
+    public Integer getMemoryTokenBudget() {
+        return memoryTokenBudget;
+    }
+
+    public void setMemoryTokenBudget(Integer memoryTokenBudget) {
+        this.memoryTokenBudget = memoryTokenBudget;
+    }
+
     public String getAppId() {
         return appId;
     }
@@ -177,6 +188,7 @@ public class ChatApp extends BaseEntity {
                 ", systemPrompt='" + systemPrompt + '\'' +
                 ", isKnowledgeSearch=" + isKnowledgeSearch +
                 ", isWebSearch=" + isWebSearch +
+                ", memoryTokenBudget=" + memoryTokenBudget +
                 ", userId=" + userId +
                 '}';
     }
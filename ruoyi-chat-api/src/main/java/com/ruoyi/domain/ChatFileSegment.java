@@ -25,6 +25,9 @@ public class ChatFileSegment extends BaseEntity {
     /** 文件内容 */
     private String content;
 
+    /** 内容哈希（sha256） */
+    private String contentHash;
+
     public void setSegmentId(String segmentId) 
     {
         this.segmentId = segmentId;
@@ -54,6 +57,14 @@ public class ChatFileSegment extends BaseEntity {
         return content;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public String getFileId() {
         return fileId;
     }
@@ -69,6 +80,7 @@ public class ChatFileSegment extends BaseEntity {
             .append("fileId",getFileId())
             .append("fileName", getFileName())
             .append("content", getContent())
+            .append("contentHash", getContentHash())
             .append("createBy", getCreateBy())
             .append("createTime", getCreateTime())
             .append("updateBy", getUpdateBy())
@@ -0,0 +1,240 @@
+package com.ruoyi.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.ruoyi.common.core.domain.BaseEntity;
+
+import java.util.Date;
+
+/**
+ * 文件入库任务
+ *
+ * 上传、替换文件时创建，由后台工作线程分阶段执行（parse 读取切分入库 → embed 向量化 → done），
+ * 每个阶段的进度持久化，进程重启后从最近的检查点继续
+ */
+public class ChatIngestJob extends BaseEntity {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 任务id */
+    private String jobId;
+
+    /** 任务类型（upload 上传 replace 替换） */
+    private String jobType;
+
+    /** 文件id */
+    private String fileId;
+
+    /** 知识库id */
+    private String knowledgeId;
+
+    /** 文件名 */
+    private String fileName;
+
+    /** 文件大小 */
+    private Long fileSize;
+
+    /** 上传文件的落盘路径 */
+    @JsonIgnore
+    private String sourcePath;
+
+    /** 状态（pending 等待 running 执行中 succeeded 成功 failed 失败） */
+    private String status;
+
+    /** 当前阶段（parse 读取切分 embed 向量化 done 完成） */
+    private String stage;
+
+    /** 待向量化的分片数 */
+    private Integer totalSegments;
+
+    /** 已向量化的分片数 */
+    private Integer processedSegments;
+
+    /** 向量化检查点 */
+    @JsonIgnore
+    private String checkpoint;
+
+    /** 阶段间传递的数据（JSON） */
+    @JsonIgnore
+    private String payload;
+
+    /** 已执行次数 */
+    private Integer attempts;
+
+    /** 下次执行时间 */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date nextRunTime;
+
+    /** 执行中的工作节点 */
+    private String workerId;
+
+    /** 最近心跳时间 */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date heartbeatTime;
+
+    /** 最近一次失败原因 */
+    private String lastError;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getJobType() {
+        return jobType;
+    }
+
+    public void setJobType(String jobType) {
+        this.jobType = jobType;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public void setFileId(String fileId) {
+        this.fileId = fileId;
+    }
+
+    public String getKnowledgeId() {
+        return knowledgeId;
+    }
+
+    public void setKnowledgeId(String knowledgeId) {
+        this.knowledgeId = knowledgeId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    public void setSourcePath(String sourcePath) {
+        this.sourcePath = sourcePath;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public Integer getTotalSegments() {
+        return totalSegments;
+    }
+
+    public void setTotalSegments(Integer totalSegments) {
+        this.totalSegments = totalSegments;
+    }
+
+    public Integer getProcessedSegments() {
+        return processedSegments;
+    }
+
+    public void setProcessedSegments(Integer processedSegments) {
+        this.processedSegments = processedSegments;
+    }
+
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(String checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getNextRunTime() {
+        return nextRunTime;
+    }
+
+    public void setNextRunTime(Date nextRunTime) {
+        this.nextRunTime = nextRunTime;
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public Date getHeartbeatTime() {
+        return heartbeatTime;
+    }
+
+    public void setHeartbeatTime(Date heartbeatTime) {
+        this.heartbeatTime = heartbeatTime;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    @Override
+    public String toString() {
+        return "ChatIngestJob{" +
+                "jobId='" + jobId + '\'' +
+                ", jobType='" + jobType + '\'' +
+                ", fileId='" + fileId + '\'' +
+                ", knowledgeId='" + knowledgeId + '\'' +
+                ", fileName='" + fileName + '\'' +
+                ", status='" + status + '\'' +
+                ", stage='" + stage + '\'' +
+                ", totalSegments=" + totalSegments +
+                ", processedSegments=" + processedSegments +
+                ", attempts=" + attempts +
+                ", nextRunTime=" + nextRunTime +
+                ", workerId='" + workerId + '\'' +
+                ", lastError='" + lastError + '\'' +
+                '}';
+    }
+}
@@ -30,6 +30,20 @@ public class ChatKnowledge extends BaseEntity
     @Excel(name = "用户id")
     private Long userId;
 
+    /** 向量存储类型（milvus Milvus服务 hnsw 内嵌HNSW索引），创建后不可修改 */
+    @Excel(name = "向量存储类型")
+    private String vectorStoreType;
+
+    /** Milvus索引类型（FLAT、IVF_FLAT、IVF_SQ8、IVF_PQ、HNSW、DISKANN），为空时使用IVF_FLAT */
+    @Excel(name = "索引类型")
+    private String indexType;
+
+    /** 索引构建参数（JSON），为空时使用索引类型的默认参数 */
+    private String indexParams;
+
+    /** 检索参数（JSON），为空时使用索引类型的默认参数 */
+    private String searchParams;
+
     public void setKnowledgeId(String knowledgeId) 
     {
         this.knowledgeId = knowledgeId;
@@ -66,6 +80,42 @@ public class ChatKnowledge extends BaseEntity
     {
         return userId;
     }
+    public void setVectorStoreType(String vectorStoreType)
+    {
+        this.vectorStoreType = vectorStoreType;
+    }
+
+    public String getVectorStoreType()
+    {
+        return vectorStoreType;
+    }
+    public void setIndexType(String indexType)
+    {
+        this.indexType = indexType;
+    }
+
+    public String getIndexType()
+    {
+        return indexType;
+    }
+    public void setIndexParams(String indexParams)
+    {
+        this.indexParams = indexParams;
+    }
+
+    public String getIndexParams()
+    {
+        return indexParams;
+    }
+    public void setSearchParams(String searchParams)
+    {
+        this.searchParams = searchParams;
+    }
+
+    public String getSearchParams()
+    {
+        return searchParams;
+    }
 
     @Override
     public String toString() {
@@ -74,6 +124,10 @@ public class ChatKnowledge extends BaseEntity
             .append("knowledgeName", getKnowledgeName())
             .append("knowledgeDesc", getKnowledgeDesc())
             .append("userId", getUserId())
+            .append("vectorStoreType", getVectorStoreType())
+            .append("indexType", getIndexType())
+            .append("indexParams", getIndexParams())
+            .append("searchParams", getSearchParams())
             .append("createBy", getCreateBy())
             .append("createTime", getCreateTime())
             .append("updateBy", getUpdateBy())
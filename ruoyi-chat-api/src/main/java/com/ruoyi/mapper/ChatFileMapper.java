@@ -28,6 +28,14 @@ public interface ChatFileMapper
      */
     public List<ChatFile> selectChatFileByKnowledgeId(String knowledgeId);
 
+    /**
+     * 查询知识库文件的版本（文件数_最近更新时间），文件增删及入库完成时变化
+     *
+     * @param knowledgeId 知识库id
+     * @return 版本
+     */
+    public String selectChatFileVersionByKnowledgeId(String knowledgeId);
+
     /**
      * 查询文件列表
      * 
@@ -2,6 +2,7 @@ package com.ruoyi.mapper;
 
 import java.util.List;
 import com.ruoyi.domain.ChatFileSegment;
+import org.apache.ibatis.annotations.Param;
 
 /**
  * 文件分片Mapper接口
@@ -27,6 +28,22 @@ public interface ChatFileSegmentMapper
      */
     public List<ChatFileSegment> selectChatFileSegmentList(ChatFileSegment chatFileSegment);
 
+    /**
+     * 查询文件全部分片的ID和内容哈希（不含内容）
+     *
+     * @param fileId 文件ID
+     * @return 文件分片集合
+     */
+    public List<ChatFileSegment> selectChatFileSegmentHashByFileId(String fileId);
+
+    /**
+     * 根据分片ID批量查询文件分片
+     *
+     * @param segmentIds 分片ID集合
+     * @return 文件分片集合
+     */
+    public List<ChatFileSegment> selectChatFileSegmentBySegmentIds(String[] segmentIds);
+
     /**
      * 新增文件分片
      * 
@@ -35,6 +52,14 @@ public interface ChatFileSegmentMapper
      */
     public int insertChatFileSegment(ChatFileSegment chatFileSegment);
 
+    /**
+     * 批量新增文件分片
+     *
+     * @param chatFileSegmentList 文件分片列表
+     * @return 结果
+     */
+    public int batchChatFileSegment(List<ChatFileSegment> chatFileSegmentList);
+
     /**
      * 修改文件分片
      * 
@@ -66,4 +91,14 @@ public interface ChatFileSegmentMapper
      * @return 结果
      */
     public int deleteChatFileSegmentByFileId(String fileId);
+
+    /**
+     * 按分片ID顺序分批查询文件分片
+     *
+     * @param fileId 文件ID
+     * @param lastSegmentId 上一批最后一个分片ID，首批传null
+     * @param limit 每批数量
+     * @return 文件分片集合
+     */
+    public List<ChatFileSegment> selectChatFileSegmentPageByFileId(@Param("fileId") String fileId, @Param("lastSegmentId") String lastSegmentId, @Param("limit") int limit);
 }
@@ -27,6 +27,22 @@ public interface IChatFileSegmentService
      */
     public List<ChatFileSegment> selectChatFileSegmentList(ChatFileSegment chatFileSegment);
 
+    /**
+     * 查询文件全部分片的ID和内容哈希（不含内容）
+     *
+     * @param fileId 文件ID
+     * @return 文件分片集合
+     */
+    public List<ChatFileSegment> selectChatFileSegmentHashByFileId(String fileId);
+
+    /**
+     * 根据分片ID批量查询文件分片
+     *
+     * @param segmentIds 分片ID集合
+     * @return 文件分片集合
+     */
+    public List<ChatFileSegment> selectChatFileSegmentBySegmentIds(String[] segmentIds);
+
     /**
      * 新增文件分片
      * 
@@ -35,6 +51,14 @@ public interface IChatFileSegmentService
      */
     public int insertChatFileSegment(ChatFileSegment chatFileSegment);
 
+    /**
+     * 批量新增文件分片，按 chat.segment.insert-batch-size 拆分为多条多行insert
+     *
+     * @param chatFileSegmentList 文件分片列表
+     * @return 结果
+     */
+    public int batchInsertChatFileSegment(List<ChatFileSegment> chatFileSegmentList);
+
     /**
      * 修改文件分片
      * 
@@ -67,4 +91,14 @@ public interface IChatFileSegmentService
      * @return 结果
      */
     public int deleteChatFileSegmentByFileId(String fileId);
+
+    /**
+     * 按分片ID顺序分批查询文件分片
+     *
+     * @param fileId 文件ID
+     * @param lastSegmentId 上一批最后一个分片ID，首批传null
+     * @param limit 每批数量
+     * @return 文件分片集合
+     */
+    public List<ChatFileSegment> selectChatFileSegmentPageByFileId(String fileId, String lastSegmentId, int limit);
 }
@@ -0,0 +1,108 @@
+package com.ruoyi.service;
+
+import com.ruoyi.domain.ChatIngestJob;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 文件入库任务Service接口
+ */
+public interface IChatIngestJobService
+{
+    /**
+     * 查询入库任务
+     *
+     * @param jobId 任务主键
+     * @return 入库任务
+     */
+    public ChatIngestJob selectChatIngestJobByJobId(String jobId);
+
+    /**
+     * 批量查询入库任务
+     *
+     * @param jobIds 任务主键集合
+     * @return 入库任务集合
+     */
+    public List<ChatIngestJob> selectChatIngestJobByJobIds(String[] jobIds);
+
+    /**
+     * 查询入库任务列表
+     *
+     * @param chatIngestJob 入库任务
+     * @return 入库任务集合
+     */
+    public List<ChatIngestJob> selectChatIngestJobList(ChatIngestJob chatIngestJob);
+
+    /**
+     * 查询可执行的任务
+     *
+     * @param now 当前时间
+     * @param leaseExpiredBefore 心跳早于该时间的执行中任务视为中断
+     * @param excludeCreateBy 排除的提交人（并发已达上限）
+     * @param limit 数量
+     * @return 入库任务集合
+     */
+    public List<ChatIngestJob> selectRunnableChatIngestJobs(Date now, Date leaseExpiredBefore, Collection<String> excludeCreateBy, int limit);
+
+    /**
+     * 查询执行中任务的提交人，每个任务一行
+     *
+     * @param leaseExpiredBefore 心跳早于该时间的执行中任务视为中断
+     * @return 提交人集合
+     */
+    public List<String> selectRunningChatIngestJobCreateBy(Date leaseExpiredBefore);
+
+    /**
+     * 领取任务
+     *
+     * @param jobId 任务主键
+     * @param workerId 工作节点
+     * @param now 当前时间
+     * @param leaseExpiredBefore 心跳早于该时间的执行中任务视为中断
+     * @return 是否领取成功
+     */
+    public boolean claimChatIngestJob(String jobId, String workerId, Date now, Date leaseExpiredBefore);
+
+    /**
+     * 刷新执行中任务的心跳
+     *
+     * @param workerId 工作节点
+     * @param jobIds 任务主键集合
+     * @return 结果
+     */
+    public int updateChatIngestJobHeartbeat(String workerId, List<String> jobIds);
+
+    /**
+     * 新增入库任务
+     *
+     * @param chatIngestJob 入库任务
+     * @return 结果
+     */
+    public int insertChatIngestJob(ChatIngestJob chatIngestJob);
+
+    /**
+     * 修改入库任务
+     *
+     * @param chatIngestJob 入库任务
+     * @return 结果
+     */
+    public int updateChatIngestJob(ChatIngestJob chatIngestJob);
+
+    /**
+     * 修改执行中的入库任务，仅当任务仍由该节点执行时生效
+     *
+     * @param chatIngestJob 入库任务（workerId 为执行节点）
+     * @return 结果，0表示任务已删除或已由其他节点领取
+     */
+    public int updateRunningChatIngestJob(ChatIngestJob chatIngestJob);
+
+    /**
+     * 删除文件的入库任务
+     *
+     * @param fileId 文件id
+     * @return 结果
+     */
+    public int deleteChatIngestJobByFileId(String fileId);
+}
@@ -19,6 +19,14 @@ public interface IChatKnowledgeService
      */
     public ChatKnowledge selectChatKnowledgeByKnowledgeId(String knowledgeId);
 
+    /**
+     * 根据名称查询知识库
+     * 
+     * @param knowledgeName 知识库名称
+     * @return 知识库
+     */
+    public ChatKnowledge selectChatKnowledgeByKnowledgeName(String knowledgeName);
+
     /**
      * 查询知识库列表
      * 
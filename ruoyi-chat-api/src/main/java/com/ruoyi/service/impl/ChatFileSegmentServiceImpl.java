@@ -3,10 +3,12 @@ package com.ruoyi.service.impl;
 import java.util.List;
 import com.ruoyi.common.utils.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import com.ruoyi.mapper.ChatFileSegmentMapper;
 import com.ruoyi.domain.ChatFileSegment;
 import com.ruoyi.service.IChatFileSegmentService;
+import org.springframework.util.CollectionUtils;
 
 /**
  * 文件分片Service业务层处理
@@ -20,6 +22,10 @@ public class ChatFileSegmentServiceImpl implements IChatFileSegmentService
     @Autowired
     private ChatFileSegmentMapper chatFileSegmentMapper;
 
+    /** 单条insert语句包含的最大行数 */
+    @Value("${chat.segment.insert-batch-size:200}")
+    private int insertBatchSize;
+
     /**
      * 查询文件分片
      * 
@@ -44,6 +50,30 @@ public class ChatFileSegmentServiceImpl implements IChatFileSegmentService
         return chatFileSegmentMapper.selectChatFileSegmentList(chatFileSegment);
     }
 
+    /**
+     * 查询文件全部分片的ID和内容哈希（不含内容）
+     * 
+     * @param fileId 文件ID
+     * @return 文件分片集合
+     */
+    @Override
+    public List<ChatFileSegment> selectChatFileSegmentHashByFileId(String fileId)
+    {
+        return chatFileSegmentMapper.selectChatFileSegmentHashByFileId(fileId);
+    }
+
+    /**
+     * 根据分片ID批量查询文件分片
+     * 
+     * @param segmentIds 分片ID集合
+     * @return 文件分片集合
+     */
+    @Override
+    public List<ChatFileSegment> selectChatFileSegmentBySegmentIds(String[] segmentIds)
+    {
+        return chatFileSegmentMapper.selectChatFileSegmentBySegmentIds(segmentIds);
+    }
+
     /**
      * 新增文件分片
      * 
@@ -57,6 +87,35 @@ public class ChatFileSegmentServiceImpl implements IChatFileSegmentService
         return chatFileSegmentMapper.insertChatFileSegment(chatFileSegment);
     }
 
+    /**
+     * 批量新增文件分片
+     * 
+     * @param chatFileSegmentList 文件分片列表
+     * @return 结果
+     */
+    @Override
+    public int batchInsertChatFileSegment(List<ChatFileSegment> chatFileSegmentList)
+    {
+        if (CollectionUtils.isEmpty(chatFileSegmentList))
+        {
+            return 0;
+        }
+        int rows = 0;
+        for (int from = 0; from < chatFileSegmentList.size(); from += insertBatchSize)
+        {
+            List<ChatFileSegment> batch = chatFileSegmentList.subList(from, Math.min(from + insertBatchSize, chatFileSegmentList.size()));
+            for (ChatFileSegment chatFileSegment : batch)
+            {
+                if (chatFileSegment.getCreateTime() == null)
+                {
+                    chatFileSegment.setCreateTime(DateUtils.getNowDate());
+                }
+            }
+            rows += chatFileSegmentMapper.batchChatFileSegment(batch);
+        }
+        return rows;
+    }
+
     /**
      * 修改文件分片
      * 
@@ -104,4 +163,16 @@ public class ChatFileSegmentServiceImpl implements IChatFileSegmentService
     public int deleteChatFileSegmentByFileId(String fileId) {
         return chatFileSegmentMapper.deleteChatFileSegmentByFileId(fileId);
     }
+
+    /**
+     * 按分片ID顺序分批查询文件分片
+     * @param fileId 文件ID
+     * @param lastSegmentId 上一批最后一个分片ID，首批传null
+     * @param limit 每批数量
+     * @return
+     */
+    @Override
+    public List<ChatFileSegment> selectChatFileSegmentPageByFileId(String fileId, String lastSegmentId, int limit) {
+        return chatFileSegmentMapper.selectChatFileSegmentPageByFileId(fileId, lastSegmentId, limit);
+    }
 }
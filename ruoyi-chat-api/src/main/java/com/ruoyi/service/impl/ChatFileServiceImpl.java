@@ -48,6 +48,18 @@ public class ChatFileServiceImpl implements IChatFileService {
         return chatFileMapper.selectChatFileByKnowledgeId(knowledgeId);
     }
 
+    /**
+     * 查询知识库文件的版本（文件数_最近更新时间），文件增删及入库完成时变化
+     *
+     * @param knowledgeId 知识库id
+     * @return 版本
+     */
+    @Override
+    public String selectChatFileVersionByKnowledgeId(String knowledgeId)
+    {
+        return chatFileMapper.selectChatFileVersionByKnowledgeId(knowledgeId);
+    }
+
     /**
      * 查询文件列表
      *
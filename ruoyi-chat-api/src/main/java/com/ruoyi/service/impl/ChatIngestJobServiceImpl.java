@@ -0,0 +1,168 @@
+package com.ruoyi.service.impl;
+
+import com.ruoyi.common.utils.DateUtils;
+import com.ruoyi.domain.ChatIngestJob;
+import com.ruoyi.mapper.ChatIngestJobMapper;
+import com.ruoyi.service.IChatIngestJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 文件入库任务Service业务层处理
+ */
+@Service
+public class ChatIngestJobServiceImpl implements IChatIngestJobService
+{
+    @Autowired
+    private ChatIngestJobMapper chatIngestJobMapper;
+
+    /**
+     * 查询入库任务
+     *
+     * @param jobId 任务主键
+     * @return 入库任务
+     */
+    @Override
+    public ChatIngestJob selectChatIngestJobByJobId(String jobId)
+    {
+        return chatIngestJobMapper.selectChatIngestJobByJobId(jobId);
+    }
+
+    /**
+     * 批量查询入库任务
+     *
+     * @param jobIds 任务主键集合
+     * @return 入库任务集合
+     */
+    @Override
+    public List<ChatIngestJob> selectChatIngestJobByJobIds(String[] jobIds)
+    {
+        return chatIngestJobMapper.selectChatIngestJobByJobIds(jobIds);
+    }
+
+    /**
+     * 查询入库任务列表
+     *
+     * @param chatIngestJob 入库任务
+     * @return 入库任务
+     */
+    @Override
+    public List<ChatIngestJob> selectChatIngestJobList(ChatIngestJob chatIngestJob)
+    {
+        return chatIngestJobMapper.selectChatIngestJobList(chatIngestJob);
+    }
+
+    /**
+     * 查询可执行的任务
+     *
+     * @param now 当前时间
+     * @param leaseExpiredBefore 心跳早于该时间的执行中任务视为中断
+     * @param excludeCreateBy 排除的提交人
+     * @param limit 数量
+     * @return 入库任务集合
+     */
+    @Override
+    public List<ChatIngestJob> selectRunnableChatIngestJobs(Date now, Date leaseExpiredBefore, Collection<String> excludeCreateBy, int limit)
+    {
+        return chatIngestJobMapper.selectRunnableChatIngestJobs(now, leaseExpiredBefore, excludeCreateBy, limit);
+    }
+
+    /**
+     * 查询执行中任务的提交人
+     *
+     * @param leaseExpiredBefore 心跳早于该时间的执行中任务视为中断
+     * @return 提交人集合
+     */
+    @Override
+    public List<String> selectRunningChatIngestJobCreateBy(Date leaseExpiredBefore)
+    {
+        return chatIngestJobMapper.selectRunningChatIngestJobCreateBy(leaseExpiredBefore);
+    }
+
+    /**
+     * 领取任务
+     *
+     * @param jobId 任务主键
+     * @param workerId 工作节点
+     * @param now 当前时间
+     * @param leaseExpiredBefore 心跳早于该时间的执行中任务视为中断
+     * @return 是否领取成功
+     */
+    @Override
+    public boolean claimChatIngestJob(String jobId, String workerId, Date now, Date leaseExpiredBefore)
+    {
+        return chatIngestJobMapper.claimChatIngestJob(jobId, workerId, now, leaseExpiredBefore) == 1;
+    }
+
+    /**
+     * 刷新执行中任务的心跳
+     *
+     * @param workerId 工作节点
+     * @param jobIds 任务主键集合
+     * @return 结果
+     */
+    @Override
+    public int updateChatIngestJobHeartbeat(String workerId, List<String> jobIds)
+    {
+        if (jobIds.isEmpty())
+        {
+            return 0;
+        }
+        return chatIngestJobMapper.updateChatIngestJobHeartbeat(workerId, jobIds, DateUtils.getNowDate());
+    }
+
+    /**
+     * 新增入库任务
+     *
+     * @param chatIngestJob 入库任务
+     * @return 结果
+     */
+    @Override
+    public int insertChatIngestJob(ChatIngestJob chatIngestJob)
+    {
+        chatIngestJob.setCreateTime(DateUtils.getNowDate());
+        return chatIngestJobMapper.insertChatIngestJob(chatIngestJob);
+    }
+
+    /**
+     * 修改入库任务
+     *
+     * @param chatIngestJob 入库任务
+     * @return 结果
+     */
+    @Override
+    public int updateChatIngestJob(ChatIngestJob chatIngestJob)
+    {
+        chatIngestJob.setUpdateTime(DateUtils.getNowDate());
+        return chatIngestJobMapper.updateChatIngestJob(chatIngestJob);
+    }
+
+    /**
+     * 修改执行中的入库任务，仅当任务仍由该节点执行时生效
+     *
+     * @param chatIngestJob 入库任务（workerId 为执行节点）
+     * @return 结果，0表示任务已删除或已由其他节点领取
+     */
+    @Override
+    public int updateRunningChatIngestJob(ChatIngestJob chatIngestJob)
+    {
+        chatIngestJob.setUpdateTime(DateUtils.getNowDate());
+        return chatIngestJobMapper.updateRunningChatIngestJob(chatIngestJob);
+    }
+
+    /**
+     * 删除文件的入库任务
+     *
+     * @param fileId 文件id
+     * @return 结果
+     */
+    @Override
+    public int deleteChatIngestJobByFileId(String fileId)
+    {
+        return chatIngestJobMapper.deleteChatIngestJobByFileId(fileId);
+    }
+}
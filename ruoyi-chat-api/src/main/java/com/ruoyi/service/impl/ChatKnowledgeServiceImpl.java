@@ -32,6 +32,18 @@ public class ChatKnowledgeServiceImpl implements IChatKnowledgeService
         return chatKnowledgeMapper.selectChatKnowledgeByKnowledgeId(knowledgeId);
     }
 
+    /**
+     * 根据名称查询知识库
+     * 
+     * @param knowledgeName 知识库名称
+     * @return 知识库
+     */
+    @Override
+    public ChatKnowledge selectChatKnowledgeByKnowledgeName(String knowledgeName)
+    {
+        return chatKnowledgeMapper.selectChatKnowledgeByKnowledgeName(knowledgeName);
+    }
+
     /**
      * 查询知识库列表
      * 
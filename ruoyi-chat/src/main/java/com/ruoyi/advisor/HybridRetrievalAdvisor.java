@@ -0,0 +1,28 @@
+package com.ruoyi.advisor;
+
+import com.ruoyi.component.KnowledgeRetriever;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * 混合检索问答Advisor
+ *
+ * 向量检索与 BM25 关键词检索并行执行，按倒数排名融合（RRF）后取 topK，
+ * 产品编号、错误码、专有名词等向量检索容易漏掉的精确匹配也能召回；提示词与 KnowledgeRetrievalAdvisor 相同
+ */
+public class HybridRetrievalAdvisor extends KnowledgeRetrievalAdvisor {
+
+    private final List<String> knowledgeIds;
+
+    public HybridRetrievalAdvisor(KnowledgeRetriever knowledgeRetriever, List<String> knowledgeIds,
+                                  List<String> collectionNames, int topK, double similarityThreshold) {
+        super(knowledgeRetriever, collectionNames, topK, similarityThreshold);
+        this.knowledgeIds = knowledgeIds;
+    }
+
+    @Override
+    protected List<Document> retrieve(String query) {
+        return knowledgeRetriever.retrieveHybrid(knowledgeIds, collectionNames, query, topK, similarityThreshold);
+    }
+}
@@ -0,0 +1,102 @@
+package com.ruoyi.advisor;
+
+import com.ruoyi.component.KnowledgeRetriever;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.document.Document;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 多知识库问答Advisor，替代每个知识库一个 QuestionAnswerAdvisor 的做法
+ *
+ * 各知识库并行检索并合并为全局 topK 后，只增强一次用户问题；提示词与 QuestionAnswerAdvisor 保持一致，
+ * 检索到的文档同样放在 QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS 中
+ */
+public class KnowledgeRetrievalAdvisor implements BaseAdvisor {
+
+    private static final PromptTemplate DEFAULT_PROMPT_TEMPLATE = new PromptTemplate("""
+            {query}
+
+            Context information is below, surrounded by ---------------------
+
+            ---------------------
+            {question_answer_context}
+            ---------------------
+
+            Given the context and provided history information and not prior knowledge,
+            reply to the user comment. If the answer is not in the context, inform
+            the user that you can't answer the question.
+            """);
+
+    protected final KnowledgeRetriever knowledgeRetriever;
+
+    protected final List<String> collectionNames;
+
+    protected final int topK;
+
+    protected final double similarityThreshold;
+
+    public KnowledgeRetrievalAdvisor(KnowledgeRetriever knowledgeRetriever, List<String> collectionNames,
+                                     int topK, double similarityThreshold) {
+        this.knowledgeRetriever = knowledgeRetriever;
+        this.collectionNames = collectionNames;
+        this.topK = topK;
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+        UserMessage userMessage = chatClientRequest.prompt().getUserMessage();
+        List<Document> documents = retrieve(userMessage.getText());
+
+        Map<String, Object> context = new HashMap<>(chatClientRequest.context());
+        context.put(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS, documents);
+
+        String documentContext = documents.stream()
+                .map(Document::getText)
+                .collect(Collectors.joining(System.lineSeparator()));
+        String augmentedUserText = DEFAULT_PROMPT_TEMPLATE.render(
+                Map.of("query", userMessage.getText(), "question_answer_context", documentContext));
+
+        return chatClientRequest.mutate()
+                .prompt(chatClientRequest.prompt().augmentUserMessage(augmentedUserText))
+                .context(context)
+                .build();
+    }
+
+    /**
+     * 检索问题相关的文档
+     * @param query 问题
+     * @return 按相关度降序排列的文档
+     */
+    protected List<Document> retrieve(String query) {
+        return knowledgeRetriever.retrieve(collectionNames, query, topK, similarityThreshold);
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+        ChatResponse.Builder chatResponseBuilder = chatClientResponse.chatResponse() == null
+                ? ChatResponse.builder() : ChatResponse.builder().from(chatClientResponse.chatResponse());
+        chatResponseBuilder.metadata(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS,
+                chatClientResponse.context().get(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS));
+        return ChatClientResponse.builder()
+                .chatResponse(chatResponseBuilder.build())
+                .context(chatClientResponse.context())
+                .build();
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+}
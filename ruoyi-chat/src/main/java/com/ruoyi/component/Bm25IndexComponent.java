@@ -0,0 +1,241 @@
+package com.ruoyi.component;
+
+import com.ruoyi.domain.ChatFile;
+import com.ruoyi.domain.ChatFileSegment;
+import com.ruoyi.lexical.Bm25Index;
+import com.ruoyi.service.IChatFileSegmentService;
+import com.ruoyi.service.IChatFileService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 知识库 BM25 索引组件
+ *
+ * 每个知识库一个内存倒排索引，首次检索时从 chat_file_segment 构建，之后随分片的写入、替换、删除增量更新；
+ * 索引未构建前的增量更新直接忽略，构建时会读到最新的分片。
+ * 增量更新只发生在执行入库任务的节点，多节点部署时其他节点的索引会过期：检索时每隔 stale-check-ms 比对一次知识库文件版本
+ * （文件数、最近更新时间，文件增删及入库完成时变化），版本变化则在 bm25BuildExecutor 中后台重新构建，
+ * 每个知识库同时只有一个构建，构建期间检索线程不等待，继续使用旧索引
+ */
+@Component
+@Slf4j
+public class Bm25IndexComponent {
+
+    // 构建索引时每批读取的分片数
+    @Value("${chat.retrieval.hybrid.build-batch-size:500}")
+    private int buildBatchSize;
+
+    // 比对知识库文件版本的间隔（毫秒），0 表示不检查（单节点部署）
+    @Value("${chat.retrieval.hybrid.stale-check-ms:30000}")
+    private long staleCheckMs;
+
+    @Autowired
+    private IChatFileService chatFileService;
+
+    @Autowired
+    private IChatFileSegmentService chatFileSegmentService;
+
+    @Autowired
+    @Qualifier("bm25BuildExecutor")
+    private ExecutorService bm25BuildExecutor;
+
+    // 知识库ID -> 索引
+    private final Map<String, LoadableIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 在多个知识库中检索
+     * @param knowledgeIds 知识库ID
+     * @param query 问题
+     * @param topK 返回数量
+     * @return 按 BM25 得分降序排列的文档，文档ID为分片ID
+     */
+    public List<Document> search(List<String> knowledgeIds, String query, int topK) {
+        List<Bm25Index.Hit> hits = new ArrayList<>();
+        Map<String, String> hitKnowledgeIds = new HashMap<>();
+        for (String knowledgeId : knowledgeIds) {
+            for (Bm25Index.Hit hit : getIndex(knowledgeId).search(query, topK)) {
+                hits.add(hit);
+                hitKnowledgeIds.put(hit.segmentId(), knowledgeId);
+            }
+        }
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        hits.sort(Comparator.comparingDouble(Bm25Index.Hit::score).reversed());
+        List<Bm25Index.Hit> topHits = hits.size() > topK ? hits.subList(0, topK) : hits;
+
+        // 索引不保存原文，按分片ID回表取内容
+        Map<String, String> contents = new HashMap<>();
+        String[] segmentIds = topHits.stream().map(Bm25Index.Hit::segmentId).toArray(String[]::new);
+        for (ChatFileSegment segment : chatFileSegmentService.selectChatFileSegmentBySegmentIds(segmentIds)) {
+            contents.put(segment.getSegmentId(), segment.getContent());
+        }
+        List<Document> documents = new ArrayList<>(topHits.size());
+        for (Bm25Index.Hit hit : topHits) {
+            String content = contents.get(hit.segmentId());
+            if (content == null) {
+                continue;
+            }
+            documents.add(Document.builder()
+                                  .id(hit.segmentId())
+                                  .text(content)
+                                  .metadata(Map.of("fileId", hit.fileId(), "knowledgeId", hitKnowledgeIds.get(hit.segmentId())))
+                                  .score(hit.score())
+                                  .build());
+        }
+        return documents;
+    }
+
+    /**
+     * 分片写入后更新索引
+     */
+    public void add(String knowledgeId, String fileId, List<ChatFileSegment> segmentList) {
+        LoadableIndex index = indexes.get(knowledgeId);
+        if (index == null || CollectionUtils.isEmpty(segmentList)) {
+            return;
+        }
+        synchronized (index) {
+            if (index.index != null) {
+                segmentList.forEach(segment -> index.index.add(segment.getSegmentId(), fileId, segment.getContent()));
+            }
+        }
+    }
+
+    /**
+     * 分片删除后更新索引
+     */
+    public void remove(String knowledgeId, List<String> segmentIds) {
+        LoadableIndex index = indexes.get(knowledgeId);
+        if (index == null || CollectionUtils.isEmpty(segmentIds)) {
+            return;
+        }
+        synchronized (index) {
+            if (index.index != null) {
+                index.index.remove(segmentIds);
+            }
+        }
+    }
+
+    /**
+     * 文件删除后更新索引
+     */
+    public void removeFile(String knowledgeId, String fileId) {
+        LoadableIndex index = indexes.get(knowledgeId);
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            if (index.index != null) {
+                index.index.removeFile(fileId);
+            }
+        }
+    }
+
+    /**
+     * 知识库删除后移除索引
+     */
+    public void evict(String knowledgeId) {
+        indexes.remove(knowledgeId);
+    }
+
+    private Bm25Index getIndex(String knowledgeId) {
+        LoadableIndex index = indexes.computeIfAbsent(knowledgeId, id -> new LoadableIndex());
+        if (index.index == null) {
+            synchronized (index) {
+                if (index.index == null) {
+                    // 先读版本再构建，构建期间的变化在下次检查时发现
+                    index.version = chatFileService.selectChatFileVersionByKnowledgeId(knowledgeId);
+                    index.checkTime = System.currentTimeMillis();
+                    index.index = load(knowledgeId);
+                }
+            }
+            return index.index;
+        }
+        if (staleCheckMs > 0 && System.currentTimeMillis() - index.checkTime >= staleCheckMs
+                && index.refreshing.compareAndSet(false, true)) {
+            // 比对失败时也等到下个间隔再重试，避免每次检索都查询数据库
+            index.checkTime = System.currentTimeMillis();
+            try {
+                bm25BuildExecutor.execute(() -> {
+                    try {
+                        refreshIfStale(knowledgeId, index);
+                    } catch (Exception e) {
+                        log.warn("知识库{}重新构建BM25索引失败: {}", knowledgeId, e.getMessage());
+                    } finally {
+                        index.refreshing.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                index.refreshing.set(false);
+            }
+        }
+        return index.index;
+    }
+
+    /**
+     * 知识库文件版本变化时重新构建索引（后台线程执行），检索线程继续使用旧索引
+     */
+    private void refreshIfStale(String knowledgeId, LoadableIndex index) {
+        String version = chatFileService.selectChatFileVersionByKnowledgeId(knowledgeId);
+        index.checkTime = System.currentTimeMillis();
+        if (Objects.equals(version, index.version)) {
+            return;
+        }
+        log.info("知识库{}文件版本变化（{} -> {}），重新构建BM25索引", knowledgeId, index.version, version);
+        Bm25Index rebuilt = load(knowledgeId);
+        // 构建期间的增量更新写入了旧索引，已包含在新读取的分片中或在下次版本变化时补上
+        synchronized (index) {
+            index.index = rebuilt;
+            index.version = version;
+        }
+    }
+
+    private Bm25Index load(String knowledgeId) {
+        long start = System.currentTimeMillis();
+        Bm25Index index = new Bm25Index();
+        for (ChatFile chatFile : chatFileService.selectChatFileByKnowledgeId(knowledgeId)) {
+            String lastSegmentId = null;
+            List<ChatFileSegment> segmentList;
+            do {
+                segmentList = chatFileSegmentService.selectChatFileSegmentPageByFileId(chatFile.getFileId(), lastSegmentId, buildBatchSize);
+                if (!CollectionUtils.isEmpty(segmentList)) {
+                    segmentList.forEach(segment -> index.add(segment.getSegmentId(), chatFile.getFileId(), segment.getContent()));
+                    lastSegmentId = segmentList.get(segmentList.size() - 1).getSegmentId();
+                }
+            } while (segmentList != null && segmentList.size() == buildBatchSize);
+        }
+        log.info("知识库{}构建BM25索引完成，分片数: {}，耗时: {}ms", knowledgeId, index.size(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    /**
+     * 索引（未构建时为null）及构建时的知识库文件版本；首次构建、替换索引与增量更新在该对象上互斥，保证增量更新不会早于构建
+     */
+    private static class LoadableIndex {
+
+        private volatile Bm25Index index;
+
+        private volatile String version;
+
+        private volatile long checkTime;
+
+        // 同一时间只有一个后台任务比对版本、重新构建
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+    }
+}
@@ -0,0 +1,71 @@
+package com.ruoyi.component;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 带内容哈希缓存的嵌入模型，只有缓存未命中的文本才会请求真实的嵌入模型
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    private final String modelName;
+
+    private final EmbeddingDiskCache cache;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, String modelName, EmbeddingDiskCache cache) {
+        this.delegate = delegate;
+        this.modelName = modelName;
+        this.cache = cache;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        float[][] outputs = new float[texts.size()][];
+        String[] keys = new String[texts.size()];
+        List<String> missTexts = new ArrayList<>();
+        List<Integer> missIndexes = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            keys[i] = cache.key(modelName, texts.get(i));
+            outputs[i] = cache.get(keys[i]);
+            if (outputs[i] == null) {
+                missTexts.add(texts.get(i));
+                missIndexes.add(i);
+            }
+        }
+
+        if (!missTexts.isEmpty()) {
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(missTexts, request.getOptions()));
+            List<Embedding> results = response.getResults();
+            for (int i = 0; i < results.size(); i++) {
+                int index = missIndexes.get(i);
+                outputs[index] = results.get(i).getOutput();
+                cache.put(keys[index], outputs[index]);
+            }
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < outputs.length; i++) {
+            embeddings.add(new Embedding(outputs[i], i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,92 @@
+package com.ruoyi.component;
+
+import com.ruoyi.domain.ChatApp;
+import com.ruoyi.domain.ChatKnowledge;
+import com.ruoyi.service.IChatAppService;
+import com.ruoyi.service.IChatKnowledgeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 流式问答使用的应用配置缓存：应用、关联的知识库ID及向量集合名称
+ *
+ * 首次查询在 chatBlockingScheduler 上执行，同一应用的并发请求共用一次查询；
+ * 应用修改、删除时按应用失效，知识库改名、删除时全部失效，过期时间兜底其他途径的修改
+ */
+@Component
+@Slf4j
+public class ChatAppConfigCache {
+
+    // 缓存过期时间
+    @Value("${chat.stream.app-cache-ttl-ms:300000}")
+    private long ttlMs;
+
+    @Autowired
+    private IChatAppService chatAppService;
+
+    @Autowired
+    private IChatKnowledgeService chatKnowledgeService;
+
+    @Autowired
+    @Qualifier("chatBlockingScheduler")
+    private Scheduler chatBlockingScheduler;
+
+    private final Map<String, Mono<AppConfig>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param chatApp 应用
+     * @param knowledgeIds 关联的知识库ID
+     * @param collectionNames 与 knowledgeIds 一一对应的向量集合名称（知识库名称）
+     */
+    public record AppConfig(ChatApp chatApp, List<String> knowledgeIds, List<String> collectionNames) {
+    }
+
+    /**
+     * 获取应用配置，应用不存在时返回错误
+     */
+    public Mono<AppConfig> get(String appId) {
+        return cache.computeIfAbsent(appId, this::load);
+    }
+
+    public void invalidate(String appId) {
+        cache.remove(appId);
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private Mono<AppConfig> load(String appId) {
+        Duration ttl = Duration.ofMillis(ttlMs);
+        return Mono.fromCallable(() -> {
+                    ChatApp chatApp = chatAppService.selectChatAppByAppId(appId);
+                    if (chatApp == null) {
+                        throw new RuntimeException("应用不存在: " + appId);
+                    }
+                    List<String> knowledgeIds = new ArrayList<>();
+                    List<String> collectionNames = new ArrayList<>();
+                    for (String knowledgeId : chatAppService.selectKnowledgeIdListByAppId(appId)) {
+                        ChatKnowledge chatKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeId(knowledgeId);
+                        if (chatKnowledge != null) {
+                            knowledgeIds.add(knowledgeId);
+                            collectionNames.add(chatKnowledge.getKnowledgeName());
+                        }
+                    }
+                    return new AppConfig(chatApp, List.copyOf(knowledgeIds), List.copyOf(collectionNames));
+                })
+                .subscribeOn(chatBlockingScheduler)
+                // 失败不缓存，下次请求重新查询
+                .cache(config -> ttl, error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+}
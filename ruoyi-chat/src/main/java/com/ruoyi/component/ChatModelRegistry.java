@@ -0,0 +1,219 @@
+package com.ruoyi.component;
+
+import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatModel;
+import com.ruoyi.domain.ChatApp;
+import com.ruoyi.enums.AiTypeEnum;
+import com.ruoyi.utils.ChatModelUtil;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.zhipuai.ZhiPuAiChatModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.ReactorNettyClientRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 聊天模型注册表
+ *
+ * 按（类型、baseUrl、apiKey、模型）缓存聊天模型，所有模型共用一个有界的 Reactor Netty 连接池（HTTP/1.1 keep-alive，
+ * 空闲连接定时回收），请求不再每次新建 HttpClient、重新握手TLS。
+ * 应用修改或删除时调用 invalidate，长时间未使用的模型定时移除
+ */
+@Component
+@Slf4j
+public class ChatModelRegistry {
+
+    // 每个目标地址的最大连接数
+    @Value("${chat.model-client.max-connections:200}")
+    private int maxConnections;
+
+    // 连接池已满时等待空闲连接的时间
+    @Value("${chat.model-client.pending-acquire-timeout-ms:30000}")
+    private long pendingAcquireTimeoutMs;
+
+    // 空闲连接保留时间，超过后关闭
+    @Value("${chat.model-client.max-idle-time-ms:60000}")
+    private long maxIdleTimeMs;
+
+    // 连接最长使用时间，到期后不再复用（便于服务端地址变化后切换）
+    @Value("${chat.model-client.max-life-time-ms:600000}")
+    private long maxLifeTimeMs;
+
+    // 后台检查空闲、过期连接的间隔
+    @Value("${chat.model-client.evict-interval-ms:30000}")
+    private long evictIntervalMs;
+
+    // 建立连接超时时间
+    @Value("${chat.model-client.connect-timeout-ms:10000}")
+    private int connectTimeoutMs;
+
+    // 缓存的模型超过该时间未使用则移除
+    @Value("${chat.model-client.model-idle-ms:1800000}")
+    private long modelIdleMs;
+
+    // 用于解决http2 不兼容问题
+    @Autowired
+    private ObjectProvider<RestClient.Builder> restClientBuilderProvider;
+
+    @Autowired
+    private ObjectProvider<WebClient.Builder> webClientBuilderProvider;
+
+    private final Map<ModelKey, CachedModel> models = new ConcurrentHashMap<>();
+
+    private ConnectionProvider connectionProvider;
+
+    private ReactorClientHttpConnector clientConnector;
+
+    private ReactorNettyClientRequestFactory requestFactory;
+
+    /**
+     * 缓存键，apiKey 不出现在日志中
+     */
+    public record ModelKey(String type, String baseUrl, String apiKey, String model) {
+
+        public static ModelKey of(ChatApp chatApp) {
+            return new ModelKey(chatApp.getType(), chatApp.getBaseUrl(),
+                    AiTypeEnum.OLLAMA.getType().equals(chatApp.getType()) ? null : chatApp.getApiKey(), chatApp.getModel());
+        }
+
+        @Override
+        public String toString() {
+            return type + "|" + baseUrl + "|" + model;
+        }
+    }
+
+    private static final class CachedModel {
+
+        private final ChatModel chatModel;
+
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private CachedModel(ChatModel chatModel) {
+            this.chatModel = chatModel;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        connectionProvider = ConnectionProvider.builder("chat-model")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeTimeMs))
+                .evictInBackground(Duration.ofMillis(evictIntervalMs))
+                .build();
+        // 强制使用 HTTP/1.1，部分兼容OpenAI协议的服务不支持HTTP/2
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .protocol(HttpProtocol.HTTP11)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs);
+        clientConnector = new ReactorClientHttpConnector(httpClient);
+        requestFactory = new ReactorNettyClientRequestFactory(httpClient);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        models.clear();
+        connectionProvider.disposeLater().block(Duration.ofSeconds(10));
+    }
+
+    public OpenAiChatModel getOpenAiChatModel(String baseUrl, String apiKey, String model, ToolCallback... toolCallbacks) {
+        return get(new ModelKey(AiTypeEnum.OPENAI.getType(), baseUrl, apiKey, model),
+                () -> ChatModelUtil.getOpenAiChatModel(baseUrl, apiKey, model, restClientBuilder(), webClientBuilder(), toolCallbacks));
+    }
+
+    public OllamaChatModel getOllamaChatModel(String baseUrl, String model, ToolCallback... toolCallbacks) {
+        return get(new ModelKey(AiTypeEnum.OLLAMA.getType(), baseUrl, null, model),
+                () -> ChatModelUtil.getOllamaChatModel(baseUrl, model, restClientBuilder(), webClientBuilder(), toolCallbacks));
+    }
+
+    public ZhiPuAiChatModel getZhiPuAiChatModel(String baseUrl, String apiKey, String model, ToolCallback... toolCallbacks) {
+        return get(new ModelKey(AiTypeEnum.ZHIPUAI.getType(), baseUrl, apiKey, model),
+                () -> ChatModelUtil.getZhiPuAiChatModel(baseUrl, apiKey, model, restClientBuilder(), webClientBuilder(), toolCallbacks));
+    }
+
+    public DashScopeChatModel getDashScopeChatModel(String baseUrl, String apiKey, String model, ToolCallback... toolCallbacks) {
+        return get(new ModelKey(AiTypeEnum.DASHSCOPE.getType(), baseUrl, apiKey, model),
+                () -> ChatModelUtil.getDashScopeChatModel(baseUrl, apiKey, model, restClientBuilder(), webClientBuilder(), Arrays.asList(toolCallbacks)));
+    }
+
+    /**
+     * 应用配置对应的聊天模型，与问答共用缓存，toolCallbacks 需与问答时一致
+     */
+    public ChatModel getChatModel(ChatApp chatApp, ToolCallback... toolCallbacks) {
+        String type = chatApp.getType();
+        if (AiTypeEnum.OPENAI.getType().equals(type)) {
+            return getOpenAiChatModel(chatApp.getBaseUrl(), chatApp.getApiKey(), chatApp.getModel(), toolCallbacks);
+        }
+        if (AiTypeEnum.OLLAMA.getType().equals(type)) {
+            return getOllamaChatModel(chatApp.getBaseUrl(), chatApp.getModel(), toolCallbacks);
+        }
+        if (AiTypeEnum.ZHIPUAI.getType().equals(type)) {
+            return getZhiPuAiChatModel(chatApp.getBaseUrl(), chatApp.getApiKey(), chatApp.getModel(), toolCallbacks);
+        }
+        if (AiTypeEnum.DASHSCOPE.getType().equals(type)) {
+            return getDashScopeChatModel(chatApp.getBaseUrl(), chatApp.getApiKey(), chatApp.getModel(), toolCallbacks);
+        }
+        throw new IllegalArgumentException("不支持的模型类型: " + type);
+    }
+
+    /**
+     * 移除应用当前配置对应的模型，应用修改（模型、地址、密钥变化）或删除时调用
+     * 使用相同配置的其他应用下次请求时重新创建，连接池不受影响
+     */
+    public void invalidate(ChatApp chatApp) {
+        if (chatApp != null && models.remove(ModelKey.of(chatApp)) != null) {
+            log.info("移除缓存的聊天模型：{}", ModelKey.of(chatApp));
+        }
+    }
+
+    /**
+     * 定时移除长时间未使用的模型
+     */
+    @Scheduled(fixedDelayString = "${chat.model-client.evict-interval-ms:30000}")
+    public void evictIdle() {
+        long expireBefore = System.currentTimeMillis() - modelIdleMs;
+        models.entrySet().removeIf(entry -> entry.getValue().lastAccess < expireBefore);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends ChatModel> T get(ModelKey key, Supplier<T> factory) {
+        CachedModel cached = models.computeIfAbsent(key, k -> {
+            log.info("创建聊天模型：{}", k);
+            return new CachedModel(factory.get());
+        });
+        cached.lastAccess = System.currentTimeMillis();
+        return (T) cached.chatModel;
+    }
+
+    /**
+     * Builder会被各模型的Api设置baseUrl、请求头，每次创建新的实例，只共用连接池
+     */
+    private RestClient.Builder restClientBuilder() {
+        return restClientBuilderProvider.getIfAvailable(RestClient::builder).requestFactory(requestFactory);
+    }
+
+    private WebClient.Builder webClientBuilder() {
+        return webClientBuilderProvider.getIfAvailable(WebClient::builder).clientConnector(clientConnector);
+    }
+}
@@ -0,0 +1,89 @@
+package com.ruoyi.component;
+
+import cn.hutool.core.util.IdUtil;
+import com.ruoyi.domain.ChatApp;
+import com.ruoyi.enums.MessageTypeEnum;
+import com.ruoyi.pojo.Chat;
+import com.ruoyi.pojo.Message;
+import com.ruoyi.searxng.SearXNGService;
+import com.ruoyi.utils.MongoUtil;
+import com.ruoyi.vo.QueryVo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 流式问答调用大模型前的准备：新建会话、记录用户提问、联网搜索、查询关联知识库
+ *
+ * 全部为非阻塞操作（响应式Mongo、WebClient、应用配置缓存），并行执行，不占用请求线程
+ */
+@Component
+public class ChatStreamPreparer {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private SearXNGService searXNGService;
+
+    @Autowired
+    private ChatAppConfigCache chatAppConfigCache;
+
+    /**
+     * @param chatId 会话ID（新建会话时为新会话的ID）
+     * @param webSearchContext 联网搜索提示词，未开启联网搜索时为null
+     * @param knowledgeIds 需要检索的知识库ID，未开启知识库搜索时为空
+     * @param collectionNames 与 knowledgeIds 一一对应的向量集合名称
+     */
+    public record PreparedChat(Long chatId, String webSearchContext, List<String> knowledgeIds, List<String> collectionNames) {
+    }
+
+    public Mono<PreparedChat> prepare(ChatApp chatApp, QueryVo queryVo) {
+        Mono<Long> chatIdMono = (queryVo.getChatId() != null ? Mono.just(queryVo.getChatId()) : createChat(chatApp, queryVo))
+                .flatMap(chatId -> saveUserMessage(chatId, queryVo.getMsg()).thenReturn(chatId));
+
+        Mono<String> webSearchMono = Objects.equals(chatApp.getIsWebSearch(), 1)
+                ? searXNGService.searchV2Reactive(queryVo.getMsg())
+                : Mono.just("");
+
+        Mono<ChatAppConfigCache.AppConfig> knowledgeMono = Objects.equals(chatApp.getIsKnowledgeSearch(), 1)
+                ? chatAppConfigCache.get(chatApp.getAppId())
+                : Mono.just(new ChatAppConfigCache.AppConfig(chatApp, Collections.emptyList(), Collections.emptyList()));
+
+        return Mono.zip(chatIdMono, webSearchMono, knowledgeMono)
+                .map(tuple -> {
+                    // 新建的会话ID回写，后续记录回答时使用
+                    queryVo.setChatId(tuple.getT1());
+                    String webSearchContext = tuple.getT2().isEmpty() ? null : tuple.getT2();
+                    return new PreparedChat(tuple.getT1(), webSearchContext,
+                            tuple.getT3().knowledgeIds(), tuple.getT3().collectionNames());
+                });
+    }
+
+    private Mono<Long> createChat(ChatApp chatApp, QueryVo queryVo) {
+        Chat chat = new Chat();
+        chat.setAppId(chatApp.getAppId());
+        chat.setUserId(queryVo.getUserId());
+        chat.setTitle("新会话" + String.valueOf(Math.random()).substring(2, 7));
+        chat.setCreateTime(new Date());
+        Long chatId = IdUtil.getSnowflake().nextId();
+        chat.setChatId(chatId);
+        return reactiveMongoTemplate.insert(chat, MongoUtil.CHAT_COLLECTION).thenReturn(chatId);
+    }
+
+    private Mono<Message> saveUserMessage(Long chatId, String content) {
+        Message msg = new Message();
+        msg.setChatId(chatId);
+        msg.setType(MessageTypeEnum.USER.getType());
+        msg.setContent(content);
+        msg.setCreateTime(new Date());
+        msg.setId(IdUtil.getSnowflake().nextId());
+        return reactiveMongoTemplate.insert(msg, MongoUtil.MESSAGE_COLLECTION);
+    }
+}
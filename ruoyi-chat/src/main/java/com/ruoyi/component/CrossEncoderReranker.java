@@ -0,0 +1,247 @@
+package com.ruoyi.component;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.djl.util.PairList;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.ruoyi.utils.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 交叉编码器重排序
+ *
+ * 使用本地 ONNX 交叉编码器（如 bge-reranker）对 (问题, 分片) 打分，候选按批在有界线程池中并行推理，
+ * 只保留得分最高的几个分片放入提示词。模型目录与 resources/onnx/bge-small-zh-v1.5 的布局相同（tokenizer.json + model.onnx），
+ * 仓库不包含该模型，默认从 ${ruoyi.profile}/onnx/bge-reranker-base 加载，目录中没有 model.onnx 时不启用，检索结果原样返回。
+ * 线程池已满、推理失败或超时时取消未完成的批次，返回检索的原始顺序
+ */
+@Component
+@Slf4j
+public class CrossEncoderReranker {
+
+    @Value("${chat.rerank.enabled:true}")
+    private boolean enabled;
+
+    // 模型目录，包含 tokenizer.json 和 model.onnx
+    @Value("${chat.rerank.model-dir:file:${ruoyi.profile}/onnx/bge-reranker-base}")
+    private String modelDir;
+
+    // 重排序前从检索结果中取的候选数
+    @Value("${chat.rerank.candidates:30}")
+    private int candidates;
+
+    // 重排序后放入提示词的分片数
+    @Value("${chat.rerank.top-n:5}")
+    private int topN;
+
+    // 每批推理的 (问题, 分片) 数
+    @Value("${chat.rerank.batch-size:8}")
+    private int batchSize;
+
+    // 问题+分片截断后的最大 token 数
+    @Value("${chat.rerank.max-length:512}")
+    private int maxLength;
+
+    // 整个重排序的超时时间，超时返回检索的原始顺序
+    @Value("${chat.rerank.timeout-ms:3000}")
+    private long timeoutMs;
+
+    @Autowired
+    @Qualifier("rerankExecutor")
+    private ExecutorService rerankExecutor;
+
+    private HuggingFaceTokenizer tokenizer;
+
+    private OrtEnvironment environment;
+
+    private OrtSession session;
+
+    private boolean tokenTypeIds;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LongAdder failures = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+        Resource modelResource = resourceLoader.getResource(modelDir + "/model.onnx");
+        if (!modelResource.exists()) {
+            log.warn("重排序模型{}不存在，不启用重排序；启用需将 BAAI/bge-reranker-base 的 tokenizer.json 及导出的 model.onnx 放入该目录",
+                    modelDir + "/model.onnx");
+            enabled = false;
+            return;
+        }
+        try (InputStream tokenizerStream = resourceLoader.getResource(modelDir + "/tokenizer.json").getInputStream();
+             InputStream modelStream = modelResource.getInputStream()) {
+            tokenizer = HuggingFaceTokenizer.newInstance(tokenizerStream, Map.of(
+                    "padding", "true",
+                    "truncation", "true",
+                    "maxLength", String.valueOf(maxLength)));
+            environment = OrtEnvironment.getEnvironment();
+            OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+            // 并行度由线程池控制，单次推理只用一个线程，避免线程数相乘后争抢CPU
+            options.setIntraOpNumThreads(1);
+            session = environment.createSession(modelStream.readAllBytes(), options);
+            tokenTypeIds = session.getInputNames().contains("token_type_ids");
+            log.info("重排序模型{}加载完成", modelDir);
+        } catch (Exception e) {
+            log.error("重排序模型{}加载失败，不启用重排序", modelDir, e);
+            enabled = false;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws OrtException {
+        if (session != null) {
+            session.close();
+        }
+        if (tokenizer != null) {
+            tokenizer.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 重排序前需要检索的候选数
+     * @param topK 最终需要的数量
+     */
+    public int candidates(int topK) {
+        return Math.max(topK, candidates);
+    }
+
+    /**
+     * 重排序
+     * @param query 问题
+     * @param documents 检索到的候选分片
+     * @param topK 调用方需要的数量，实际返回 min(topK, top-n)
+     * @return 按重排序得分降序排列的分片，未启用或失败时为候选的前 topK 个
+     */
+    public List<Document> rerank(String query, List<Document> documents, int topK) {
+        int limit = Math.min(topK, topN);
+        if (!enabled || documents.size() <= 1) {
+            return documents.size() > limit ? documents.subList(0, limit) : documents;
+        }
+        long start = System.nanoTime();
+        List<Future<float[]>> futures = new ArrayList<>();
+        try {
+            // 线程池队列满时拒绝提交（RejectedExecutionException），不在检索线程中推理
+            for (int from = 0; from < documents.size(); from += batchSize) {
+                List<Document> batch = documents.subList(from, Math.min(from + batchSize, documents.size()));
+                futures.add(rerankExecutor.submit(() -> score(query, batch)));
+            }
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            Map<Document, Double> scores = new IdentityHashMap<>();
+            int i = 0;
+            for (Future<float[]> future : futures) {
+                for (float score : future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    scores.put(documents.get(i++), (double) score);
+                }
+            }
+            return documents.stream()
+                    .sorted(Comparator.comparingDouble(scores::get).reversed())
+                    .limit(limit)
+                    .map(document -> Document.builder()
+                            .id(document.getId())
+                            .text(document.getText())
+                            .metadata(document.getMetadata())
+                            .score(scores.get(document))
+                            .build())
+                    .toList();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            failures.increment();
+            log.warn("重排序失败，使用检索的原始顺序: {}", e.toString());
+            return documents.size() > limit ? documents.subList(0, limit) : documents;
+        } finally {
+            // 超时或失败时取消排队中的批次，不再占用推理线程
+            futures.forEach(future -> future.cancel(true));
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 重排序统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>(latency.snapshot());
+        stats.put("enabled", enabled);
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+
+    /**
+     * 推理一批 (问题, 分片)，得分为相关性 logit 经 sigmoid 后的值
+     */
+    private float[] score(String query, List<Document> batch) {
+        PairList<String, String> pairs = new PairList<>(batch.size());
+        for (Document document : batch) {
+            pairs.add(query, document.getText());
+        }
+        Encoding[] encodings = tokenizer.batchEncode(pairs);
+        int sequenceLength = encodings[0].getIds().length;
+        long[][] inputIds = new long[encodings.length][];
+        long[][] attentionMask = new long[encodings.length][];
+        long[][] typeIds = new long[encodings.length][];
+        for (int i = 0; i < encodings.length; i++) {
+            inputIds[i] = encodings[i].getIds();
+            attentionMask[i] = encodings[i].getAttentionMask();
+            typeIds[i] = encodings[i].getTypeIds();
+        }
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, inputIds));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, attentionMask));
+            if (tokenTypeIds) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, typeIds));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                Object output = result.get(0).getValue();
+                float[] scores = new float[batch.size()];
+                for (int i = 0; i < scores.length; i++) {
+                    // 输出形状为 [batch, 1] 或 [batch]
+                    float logit = output instanceof float[][] matrix ? matrix[i][0] : ((float[]) output)[i];
+                    scores[i] = (float) (1 / (1 + Math.exp(-logit)));
+                }
+                log.debug("重排序推理{}条，序列长度{}", scores.length, sequenceLength);
+                return scores;
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("重排序推理失败", e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+}
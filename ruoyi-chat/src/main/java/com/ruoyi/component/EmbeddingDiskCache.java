@@ -0,0 +1,251 @@
+package com.ruoyi.component;
+
+import cn.hutool.crypto.SecureUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 文档向量的磁盘缓存
+ *
+ * key 为 sha256(嵌入模型名 + 文本)，每个向量一个文件，按 key 前两位分目录；
+ * 内存中保留最近使用的一部分向量，磁盘上的条目按最近使用顺序淘汰（启动时按文件修改时间恢复顺序）
+ */
+@Component
+@Slf4j
+public class EmbeddingDiskCache {
+
+    @Value("${chat.embedding.cache.enabled:true}")
+    private boolean enabled;
+
+    // 缓存需跨重启保留，默认放在应用数据目录下而不是会被系统清理的临时目录
+    @Value("${chat.embedding.cache.dir:${ruoyi.profile}/embedding-cache}")
+    private String dir;
+
+    // 磁盘最多保留的向量数
+    @Value("${chat.embedding.cache.max-entries:200000}")
+    private int maxEntries;
+
+    // 内存最多保留的向量数
+    @Value("${chat.embedding.cache.memory-entries:10000}")
+    private int memoryEntries;
+
+    private Path root;
+
+    // 内存LRU：key -> 向量
+    private Map<String, float[]> memory;
+
+    // 磁盘LRU索引：key -> 占位
+    private LinkedHashMap<String, Boolean> diskIndex;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        this.root = Paths.get(dir);
+        Files.createDirectories(root);
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+        this.diskIndex = new LinkedHashMap<>(16, 0.75f, true);
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            files.filter(Files::isRegularFile)
+                 .filter(EmbeddingDiskCache::isEntry)
+                 .sorted(Comparator.comparing(EmbeddingDiskCache::lastModified))
+                 .forEach(path -> {
+                     String name = path.getFileName().toString();
+                     diskIndex.put(name.substring(0, name.length() - 4), Boolean.TRUE);
+                 });
+        }
+        evictIfNecessary();
+        log.info("向量缓存目录: {}，已缓存{}条", root, diskIndex.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 计算缓存key
+     */
+    public String key(String model, String text) {
+        return SecureUtil.sha256(model + '\u0000' + text);
+    }
+
+    /**
+     * 查询缓存
+     * @return 向量，不存在时返回null
+     */
+    public float[] get(String key) {
+        float[] embedding;
+        synchronized (this) {
+            embedding = memory.get(key);
+            if (embedding == null && diskIndex.get(key) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        if (embedding == null) {
+            embedding = read(key);
+            if (embedding == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            synchronized (this) {
+                memory.put(key, embedding);
+            }
+        }
+        hits.incrementAndGet();
+        return embedding;
+    }
+
+    /**
+     * 写入缓存
+     */
+    public void put(String key, float[] embedding) {
+        try {
+            write(key, embedding);
+        } catch (IOException e) {
+            log.warn("写入向量缓存失败: {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            memory.put(key, embedding);
+            diskIndex.put(key, Boolean.TRUE);
+        }
+        evictIfNecessary();
+    }
+
+    /**
+     * 命中统计
+     */
+    public Map<String, Object> stats() {
+        long hit = hits.get();
+        long miss = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("hits", hit);
+        stats.put("misses", miss);
+        stats.put("hitRate", hit + miss == 0 ? 0D : (double) hit / (hit + miss));
+        synchronized (this) {
+            stats.put("memoryEntries", memory == null ? 0 : memory.size());
+            stats.put("diskEntries", diskIndex == null ? 0 : diskIndex.size());
+        }
+        return stats;
+    }
+
+    private void evictIfNecessary() {
+        while (true) {
+            String eldest;
+            synchronized (this) {
+                if (diskIndex.size() <= maxEntries) {
+                    return;
+                }
+                Iterator<String> iterator = diskIndex.keySet().iterator();
+                eldest = iterator.next();
+                iterator.remove();
+                memory.remove(eldest);
+            }
+            try {
+                Files.deleteIfExists(path(eldest));
+            } catch (IOException e) {
+                log.warn("删除向量缓存失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private float[] read(String key) {
+        Path path = path(key);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int dimensions = in.readInt();
+            float[] embedding = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                embedding[i] = in.readFloat();
+            }
+            // 记录最近使用时间，重启后按此恢复淘汰顺序
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return embedding;
+        } catch (NoSuchFileException e) {
+            synchronized (this) {
+                diskIndex.remove(key);
+            }
+            return null;
+        } catch (IOException e) {
+            log.warn("读取向量缓存失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(String key, float[] embedding) throws IOException {
+        Path path = path(key);
+        Files.createDirectories(path.getParent());
+        Path temp = Files.createTempFile(path.getParent(), key, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(embedding.length);
+                for (float value : embedding) {
+                    out.writeFloat(value);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // 写入或改名失败（如磁盘已满）时不留下临时文件
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 缓存文件；进程在写入中途退出留下的临时文件在启动时删除
+     */
+    private static boolean isEntry(Path path) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(".tmp")) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("删除向量缓存临时文件失败: {}", e.getMessage());
+            }
+            return false;
+        }
+        return name.endsWith(".bin");
+    }
+
+    private Path path(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key + ".bin");
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.ruoyi.component;
+
+import cn.hutool.crypto.SecureUtil;
+import com.ruoyi.vectorstore.HnswVectorStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内嵌HNSW向量存储组件
+ *
+ * 每个知识库一个 HnswVectorStore，首次访问时从快照加载；有写入的存储定时写快照，停止时全部写快照，
+ * 入库任务记录检查点、标记文件已向量化前通过 flush 立即写快照。
+ * 向量只保存在本节点内存及本地快照中，仅支持单节点部署：需显式配置 chat.hnsw.enabled=true 及持久化的 chat.hnsw.dir，
+ * 启动时对快照目录加文件锁，防止多个实例共用同一目录；多节点部署时知识库应使用 Milvus
+ */
+@Component
+@Slf4j
+public class HnswVectorStoreComponent {
+
+    // 是否启用（仅单节点部署时启用）
+    @Value("${chat.hnsw.enabled:false}")
+    private boolean enabled;
+
+    // 快照目录，启用时必须配置为持久化目录
+    @Value("${chat.hnsw.dir:}")
+    private String dir;
+
+    // 每层邻居数
+    @Value("${chat.hnsw.m:16}")
+    private int m;
+
+    // 构建时的候选集大小
+    @Value("${chat.hnsw.ef-construction:200}")
+    private int efConstruction;
+
+    // 检索时的候选集大小
+    @Value("${chat.hnsw.ef-search:128}")
+    private int efSearch;
+
+    @Autowired
+    @Qualifier("knowledgeEmbeddingModel")
+    private EmbeddingModel embeddingModel;
+
+    // 集合名称 -> 向量存储
+    private final Map<String, HnswVectorStore> vectorStores = new ConcurrentHashMap<>();
+
+    // 快照目录的文件锁
+    private FileChannel lockChannel;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (!StringUtils.hasText(dir)) {
+            throw new IllegalStateException("启用内嵌HNSW时必须配置持久化的快照目录 chat.hnsw.dir");
+        }
+        Path directory = Files.createDirectories(Paths.get(dir));
+        lockChannel = FileChannel.open(directory.resolve(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (lockChannel.tryLock() == null) {
+            lockChannel.close();
+            throw new IllegalStateException("HNSW快照目录已被其他实例使用，内嵌HNSW仅支持单节点部署: " + directory);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取向量存储，不存在时从快照加载或新建
+     * @param collectionName 集合名称
+     * @return HnswVectorStore
+     */
+    public HnswVectorStore getVectorStore(String collectionName) {
+        if (!enabled) {
+            throw new IllegalStateException("内嵌HNSW未启用（chat.hnsw.enabled），无法访问集合: " + collectionName);
+        }
+        return vectorStores.computeIfAbsent(collectionName, name -> {
+            HnswVectorStore vectorStore = new HnswVectorStore(name, embeddingModel, m, efConstruction, efSearch);
+            Path snapshot = snapshotPath(name);
+            if (Files.exists(snapshot)) {
+                try {
+                    vectorStore.load(snapshot);
+                    log.info("集合{}从快照加载{}条向量", name, vectorStore.size());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("加载HNSW快照失败: " + snapshot, e);
+                }
+            }
+            return vectorStore;
+        });
+    }
+
+    /**
+     * 写入已向量化的文档
+     */
+    public void insert(String collectionName, List<Document> documents, List<float[]> embeddings) {
+        getVectorStore(collectionName).add(documents, embeddings);
+    }
+
+    /**
+     * 使用已计算好的查询向量检索
+     */
+    public List<Document> search(String collectionName, float[] embedding, int topK, double similarityThreshold) {
+        return getVectorStore(collectionName).search(embedding, topK, similarityThreshold, null);
+    }
+
+    /**
+     * 写快照后卸载，下次获取时重新加载
+     * @param collectionName 集合名称
+     */
+    public void evict(String collectionName) {
+        HnswVectorStore vectorStore = vectorStores.remove(collectionName);
+        if (vectorStore != null) {
+            save(collectionName, vectorStore);
+        }
+    }
+
+    /**
+     * 知识库删除时移除向量存储并删除快照，同名知识库重新创建时不会加载已删除的向量
+     * @param collectionName 集合名称
+     */
+    public synchronized void drop(String collectionName) {
+        vectorStores.remove(collectionName);
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(snapshotPath(collectionName));
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除HNSW快照失败", e);
+        }
+        log.info("集合{}的HNSW向量及快照已删除", collectionName);
+    }
+
+    /**
+     * 知识库改名时重命名快照
+     * @param oldCollectionName 原集合名称
+     * @param newCollectionName 新集合名称
+     */
+    public void renameCollection(String oldCollectionName, String newCollectionName) {
+        evict(oldCollectionName);
+        vectorStores.remove(newCollectionName);
+        if (!enabled) {
+            return;
+        }
+        Path source = snapshotPath(oldCollectionName);
+        if (!Files.exists(source)) {
+            return;
+        }
+        try {
+            // 目标快照已存在时抛出 FileAlreadyExistsException，不覆盖其他集合的数据
+            Files.move(source, snapshotPath(newCollectionName));
+        } catch (IOException e) {
+            throw new UncheckedIOException("重命名HNSW快照失败", e);
+        }
+    }
+
+    /**
+     * 有未保存的写入时立即写快照，写入失败时抛出异常
+     * @param collectionName 集合名称
+     */
+    public synchronized void flush(String collectionName) {
+        HnswVectorStore vectorStore = vectorStores.get(collectionName);
+        if (vectorStore == null || !vectorStore.isDirty()) {
+            return;
+        }
+        try {
+            vectorStore.save(snapshotPath(collectionName));
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入HNSW快照失败: " + collectionName, e);
+        }
+    }
+
+    /**
+     * 定时保存有写入的向量存储
+     */
+    @Scheduled(fixedDelayString = "${chat.hnsw.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        vectorStores.forEach((name, vectorStore) -> {
+            if (vectorStore.isDirty()) {
+                saveIfPresent(name, vectorStore);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        snapshot();
+        vectorStores.clear();
+        if (lockChannel != null) {
+            lockChannel.close();
+        }
+    }
+
+    /**
+     * 定时快照与 drop 互斥，已删除的存储不再写快照
+     */
+    private synchronized void saveIfPresent(String collectionName, HnswVectorStore vectorStore) {
+        if (vectorStores.get(collectionName) == vectorStore) {
+            save(collectionName, vectorStore);
+        }
+    }
+
+    private void save(String collectionName, HnswVectorStore vectorStore) {
+        try {
+            vectorStore.save(snapshotPath(collectionName));
+            log.debug("集合{}写入HNSW快照，共{}条向量", collectionName, vectorStore.size());
+        } catch (IOException e) {
+            log.error("集合{}写入HNSW快照失败", collectionName, e);
+        }
+    }
+
+    /**
+     * 集合名称可能包含中文及特殊字符，快照文件按名称的摘要命名
+     */
+    private Path snapshotPath(String collectionName) {
+        return Paths.get(dir).resolve(SecureUtil.md5(collectionName) + ".hnsw");
+    }
+}
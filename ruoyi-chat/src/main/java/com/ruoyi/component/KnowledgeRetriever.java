@@ -0,0 +1,199 @@
+package com.ruoyi.component;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 多知识库检索
+ *
+ * 问题只向量化一次，然后并行检索各知识库对应的集合，按相似度合并为全局 topK；
+ * 检索耗时取决于最慢的集合而不是各集合耗时之和，单个集合失败或超时只跳过该集合。
+ * 混合检索时 BM25 与向量检索并行，两路结果按倒数排名融合（RRF），启用重排序时融合结果再经交叉编码器重排序
+ */
+@Component
+@Slf4j
+public class KnowledgeRetriever {
+
+    // 单个集合的检索超时时间
+    @Value("${chat.retrieval.timeout-ms:5000}")
+    private long timeoutMs;
+
+    // 是否启用混合检索
+    @Value("${chat.retrieval.hybrid.enabled:true}")
+    private boolean hybridEnabled;
+
+    // 每路检索的候选数量，融合后再取 topK
+    @Value("${chat.retrieval.hybrid.candidates:30}")
+    private int hybridCandidates;
+
+    // RRF 的平滑常数，越大排名靠后的结果权重越高
+    @Value("${chat.retrieval.hybrid.rrf-k:60}")
+    private int rrfK;
+
+    @Autowired
+    private QueryEmbeddingCache queryEmbeddingCache;
+
+    @Autowired
+    private KnowledgeVectorStoreComponent knowledgeVectorStoreComponent;
+
+    @Autowired
+    private Bm25IndexComponent bm25IndexComponent;
+
+    @Autowired
+    private CrossEncoderReranker crossEncoderReranker;
+
+    @Autowired
+    @Qualifier("retrievalExecutor")
+    private ExecutorService retrievalExecutor;
+
+    /**
+     * 检索多个集合
+     * @param collectionNames 集合名称
+     * @param query 问题
+     * @param topK 合并后返回的数量
+     * @param similarityThreshold 相似度阈值
+     * @return 按相似度降序排列的文档
+     */
+    public List<Document> retrieve(List<String> collectionNames, String query, int topK, double similarityThreshold) {
+        if (CollectionUtils.isEmpty(collectionNames)) {
+            return List.of();
+        }
+        float[] embedding = embedQuery(query);
+        return retrieve(collectionNames, embedding, topK, similarityThreshold);
+    }
+
+    /**
+     * 使用已计算好的查询向量检索多个集合
+     * @param collectionNames 集合名称
+     * @param embedding 查询向量
+     * @param topK 合并后返回的数量
+     * @param similarityThreshold 相似度阈值
+     * @return 按相似度降序排列的文档
+     */
+    public List<Document> retrieve(List<String> collectionNames, float[] embedding, int topK, double similarityThreshold) {
+        // 只有一个集合时同样经检索线程池执行，受超时限制，失败时返回空结果而不是让整个问答失败
+        List<CompletableFuture<List<Document>>> futures = new ArrayList<>(collectionNames.size());
+        for (String collectionName : collectionNames) {
+            // 每个集合各取 topK，保证合并后的全局 topK 不会遗漏
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> knowledgeVectorStoreComponent.search(collectionName, embedding, topK, similarityThreshold),
+                    retrievalExecutor));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<Document> merged = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                merged.addAll(futures.get(i).get(remaining, TimeUnit.NANOSECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                log.warn("知识库{}检索失败: {}", collectionNames.get(i), e.getCause().getMessage());
+            } catch (TimeoutException e) {
+                futures.get(i).cancel(true);
+                log.warn("知识库{}检索超时", collectionNames.get(i));
+            }
+        }
+
+        return merged.stream()
+                .sorted(Comparator.comparing(Document::getScore, Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(topK)
+                .toList();
+    }
+
+    /**
+     * 混合检索：向量检索与 BM25 并行，按倒数排名融合；启用重排序时多取候选，重排序后只返回得分最高的几个
+     * 关键词检索失败或超时（如首次检索时索引还在构建）只使用向量检索的结果
+     * @param knowledgeIds 知识库ID
+     * @param collectionNames 集合名称
+     * @param query 问题
+     * @param topK 返回的数量
+     * @param similarityThreshold 向量检索的相似度阈值
+     * @return 按融合得分（或重排序得分）降序排列的文档
+     */
+    public List<Document> retrieveHybrid(List<String> knowledgeIds, List<String> collectionNames, String query,
+                                         int topK, double similarityThreshold) {
+        boolean rerank = crossEncoderReranker.isEnabled();
+        int fusedTopK = rerank ? crossEncoderReranker.candidates(topK) : topK;
+        List<Document> documents = !hybridEnabled || CollectionUtils.isEmpty(knowledgeIds)
+                ? retrieve(collectionNames, query, fusedTopK, similarityThreshold)
+                : retrieveFused(knowledgeIds, collectionNames, query, fusedTopK, similarityThreshold);
+        return rerank ? crossEncoderReranker.rerank(query, documents, topK) : documents;
+    }
+
+    /**
+     * 向量检索与 BM25 并行，两路结果按倒数排名融合为 topK
+     */
+    private List<Document> retrieveFused(List<String> knowledgeIds, List<String> collectionNames, String query,
+                                         int topK, double similarityThreshold) {
+        int candidates = Math.max(topK, hybridCandidates);
+        CompletableFuture<List<Document>> lexicalFuture = CompletableFuture.supplyAsync(
+                () -> bm25IndexComponent.search(knowledgeIds, query, candidates), retrievalExecutor);
+        List<Document> dense = retrieve(collectionNames, query, candidates, similarityThreshold);
+
+        List<Document> lexical = List.of();
+        try {
+            lexical = lexicalFuture.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("BM25检索失败: {}", e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            log.warn("BM25检索超时，只使用向量检索结果");
+        }
+        return fuse(List.of(dense, lexical), topK);
+    }
+
+    /**
+     * 倒数排名融合：score = Σ 1 / (k + rank)，同一分片在多路结果中出现时得分累加
+     */
+    private List<Document> fuse(List<List<Document>> rankings, int topK) {
+        Map<String, Document> documents = new LinkedHashMap<>();
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (List<Document> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document document = ranking.get(rank);
+                documents.putIfAbsent(document.getId(), document);
+                scores.merge(document.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(topK)
+                .map(entry -> {
+                    Document document = documents.get(entry.getKey());
+                    return Document.builder()
+                            .id(document.getId())
+                            .text(document.getText())
+                            .metadata(document.getMetadata())
+                            .score(entry.getValue())
+                            .build();
+                })
+                .toList();
+    }
+
+    /**
+     * 问题向量化，相同问题在缓存有效期内只请求一次嵌入模型
+     */
+    public float[] embedQuery(String query) {
+        return queryEmbeddingCache.embed(query);
+    }
+}
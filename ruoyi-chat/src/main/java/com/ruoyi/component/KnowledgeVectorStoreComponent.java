@@ -0,0 +1,233 @@
+package com.ruoyi.component;
+
+import com.ruoyi.domain.ChatKnowledge;
+import com.ruoyi.enums.SystemConstant;
+import com.ruoyi.service.IChatKnowledgeService;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 知识库向量存储组件
+ *
+ * 按知识库的向量存储类型（ChatKnowledge.vectorStoreType）分发到 Milvus 或内嵌HNSW，Milvus 集合按知识库的索引配置创建和检索；
+ * 集合以知识库名称命名，名称对应的知识库在首次访问时查询并缓存，知识库改名、删除或修改索引配置时需调用 evict/refresh
+ */
+@Component
+public class KnowledgeVectorStoreComponent {
+
+    @Autowired
+    private MilvusVectorStoreComponent milvusVectorStoreComponent;
+
+    @Autowired
+    private HnswVectorStoreComponent hnswVectorStoreComponent;
+
+    @Autowired
+    private IChatKnowledgeService chatKnowledgeService;
+
+    // 集合名称 -> 知识库
+    private final Map<String, ChatKnowledge> collectionKnowledges = new ConcurrentHashMap<>();
+
+    /**
+     * 获取知识库对应的向量存储
+     * @param collectionName 集合名称
+     * @return VectorStore
+     */
+    public VectorStore getVectorStore(String collectionName) throws Exception {
+        return isHnsw(collectionName)
+                ? hnswVectorStoreComponent.getVectorStore(collectionName)
+                : milvusVectorStoreComponent.getVectorStore(collectionName, indexConfig(collectionName));
+    }
+
+    /**
+     * 集合不存在时创建
+     * @param collectionName 集合名称
+     */
+    public void ensureCollection(String collectionName) {
+        if (isHnsw(collectionName)) {
+            hnswVectorStoreComponent.getVectorStore(collectionName);
+        } else {
+            milvusVectorStoreComponent.ensureCollection(collectionName, indexConfig(collectionName));
+        }
+    }
+
+    /**
+     * 写入已向量化的文档
+     */
+    public void insert(String collectionName, List<Document> documents, List<float[]> embeddings) {
+        if (isHnsw(collectionName)) {
+            hnswVectorStoreComponent.insert(collectionName, documents, embeddings);
+        } else {
+            milvusVectorStoreComponent.insert(collectionName, documents, embeddings);
+        }
+    }
+
+    /**
+     * 使用已计算好的查询向量检索
+     */
+    public List<Document> search(String collectionName, float[] embedding, int topK, double similarityThreshold) {
+        return isHnsw(collectionName)
+                ? hnswVectorStoreComponent.search(collectionName, embedding, topK, similarityThreshold)
+                : milvusVectorStoreComponent.search(collectionName, embedding, topK, similarityThreshold, indexConfig(collectionName));
+    }
+
+    /**
+     * 只在指定文件的分片中检索，Milvus新结构的集合按 file_id 标量索引过滤
+     * @param fileIds 文件ID，为空时不过滤
+     */
+    public List<Document> search(String collectionName, float[] embedding, int topK, double similarityThreshold,
+                                 Collection<String> fileIds) {
+        if (!isHnsw(collectionName)) {
+            return milvusVectorStoreComponent.search(collectionName, embedding, topK, similarityThreshold,
+                    indexConfig(collectionName), fileIds);
+        }
+        return hnswVectorStoreComponent.getVectorStore(collectionName).search(embedding, topK, similarityThreshold,
+                fileIds == null || fileIds.isEmpty() ? null
+                        : new FilterExpressionBuilder().in("fileId", new ArrayList<Object>(fileIds)).build());
+    }
+
+    /**
+     * 删除文件的全部向量
+     * @param collectionName 集合名称
+     * @param fileId 文件ID
+     */
+    public void deleteByFileId(String collectionName, String fileId) {
+        if (isHnsw(collectionName)) {
+            hnswVectorStoreComponent.getVectorStore(collectionName)
+                    .delete(new FilterExpressionBuilder().eq("fileId", fileId).build());
+        } else {
+            milvusVectorStoreComponent.ensureCollection(collectionName, indexConfig(collectionName));
+            milvusVectorStoreComponent.deleteByFileId(collectionName, fileId);
+        }
+    }
+
+    /**
+     * 按文档ID删除向量
+     * @param collectionName 集合名称
+     * @param ids 文档ID
+     */
+    public void delete(String collectionName, List<String> ids) {
+        if (isHnsw(collectionName)) {
+            hnswVectorStoreComponent.getVectorStore(collectionName).delete(ids);
+        } else {
+            milvusVectorStoreComponent.ensureCollection(collectionName, indexConfig(collectionName));
+            milvusVectorStoreComponent.delete(collectionName, ids);
+        }
+    }
+
+    /**
+     * 已写入的向量落盘：内嵌HNSW立即写快照（Milvus写入返回时已持久化，无需处理），
+     * 入库任务在记录检查点、标记文件已向量化前调用，重启后不会丢失检查点之前的向量
+     * @param collectionName 集合名称
+     */
+    public void flush(String collectionName) {
+        if (isHnsw(collectionName)) {
+            hnswVectorStoreComponent.flush(collectionName);
+        }
+    }
+
+    /**
+     * 文档向量化使用的嵌入模型
+     */
+    public EmbeddingModel getEmbeddingModel() {
+        return milvusVectorStoreComponent.getEmbeddingModel();
+    }
+
+    /**
+     * 移除集合相关的缓存
+     * @param collectionName 集合名称
+     */
+    public void evict(String collectionName) {
+        collectionKnowledges.remove(collectionName);
+        milvusVectorStoreComponent.evict(collectionName);
+        hnswVectorStoreComponent.evict(collectionName);
+    }
+
+    /**
+     * 知识库删除后移除集合相关的缓存，内嵌HNSW的向量及快照一并删除（Milvus集合保留）
+     * @param chatKnowledge 已删除的知识库
+     */
+    public void drop(ChatKnowledge chatKnowledge) {
+        String collectionName = chatKnowledge.getKnowledgeName();
+        collectionKnowledges.remove(collectionName);
+        milvusVectorStoreComponent.evict(collectionName);
+        if (SystemConstant.VECTOR_STORE_HNSW.equals(chatKnowledge.getVectorStoreType())) {
+            hnswVectorStoreComponent.drop(collectionName);
+        } else {
+            hnswVectorStoreComponent.evict(collectionName);
+        }
+    }
+
+    /**
+     * 知识库改名时重命名集合
+     * @param chatKnowledge 改名前的知识库
+     * @param newCollectionName 新集合名称
+     */
+    public void renameCollection(ChatKnowledge chatKnowledge, String newCollectionName) {
+        String oldCollectionName = chatKnowledge.getKnowledgeName();
+        collectionKnowledges.remove(oldCollectionName);
+        collectionKnowledges.remove(newCollectionName);
+        if (SystemConstant.VECTOR_STORE_HNSW.equals(chatKnowledge.getVectorStoreType())) {
+            hnswVectorStoreComponent.renameCollection(oldCollectionName, newCollectionName);
+        } else {
+            milvusVectorStoreComponent.renameCollection(oldCollectionName, newCollectionName);
+        }
+    }
+
+    /**
+     * 知识库修改后刷新缓存的配置，索引类型或构建参数变化时重建Milvus索引
+     * @param oldKnowledge 修改前的知识库
+     * @param newKnowledge 修改后的知识库
+     */
+    public void refresh(ChatKnowledge oldKnowledge, ChatKnowledge newKnowledge) {
+        String collectionName = newKnowledge.getKnowledgeName();
+        collectionKnowledges.remove(collectionName);
+        if (SystemConstant.VECTOR_STORE_HNSW.equals(newKnowledge.getVectorStoreType())) {
+            return;
+        }
+        MilvusVectorStoreComponent.IndexConfig oldConfig = MilvusVectorStoreComponent.IndexConfig.of(oldKnowledge);
+        MilvusVectorStoreComponent.IndexConfig newConfig = MilvusVectorStoreComponent.IndexConfig.of(newKnowledge);
+        if (oldConfig.indexType() != newConfig.indexType() || !oldConfig.indexParams().equals(newConfig.indexParams())) {
+            milvusVectorStoreComponent.rebuildIndex(collectionName, newConfig);
+        } else {
+            milvusVectorStoreComponent.evict(collectionName);
+        }
+    }
+
+    /**
+     * 集合对应的Milvus索引配置
+     */
+    public MilvusVectorStoreComponent.IndexConfig indexConfig(String collectionName) {
+        return MilvusVectorStoreComponent.IndexConfig.of(knowledgeOf(collectionName));
+    }
+
+    private boolean isHnsw(String collectionName) {
+        return SystemConstant.VECTOR_STORE_HNSW.equals(knowledgeOf(collectionName).getVectorStoreType());
+    }
+
+    private ChatKnowledge knowledgeOf(String collectionName) {
+        ChatKnowledge cached = collectionKnowledges.get(collectionName);
+        if (cached != null) {
+            return cached;
+        }
+        ChatKnowledge chatKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeName(collectionName);
+        if (chatKnowledge == null) {
+            // 未登记为知识库的集合按默认配置使用Milvus；不缓存，之后创建的同名知识库按其配置使用
+            chatKnowledge = new ChatKnowledge();
+            chatKnowledge.setKnowledgeName(collectionName);
+            chatKnowledge.setVectorStoreType(SystemConstant.VECTOR_STORE_MILVUS);
+            return chatKnowledge;
+        }
+        ChatKnowledge existing = collectionKnowledges.putIfAbsent(collectionName, chatKnowledge);
+        return existing != null ? existing : chatKnowledge;
+    }
+}
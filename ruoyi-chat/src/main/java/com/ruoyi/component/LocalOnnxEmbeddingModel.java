@@ -0,0 +1,362 @@
+package com.ruoyi.component;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.json.JSONUtil;
+import com.ruoyi.utils.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地 ONNX 嵌入模型（CPU 推理）
+ *
+ * 模型目录与 resources/onnx/bge-small-zh-v1.5 相同（config.json、tokenizer.json、model.onnx），
+ * 仓库中不包含 model.onnx（约100MB），需自行下载放入该目录，缺少时启动失败。
+ * 并发调用方提交的文本进入同一个有界队列（队列满时等待至超时），由调度线程按 maxBatchSize 或 maxWaitMs 动态组批后交给有界推理线程池，
+ * 调用方最多等待 timeoutMs；
+ * 分词结果按文本缓存，批内按最长序列补齐；输出取 [CLS] 向量（或平均池化）并归一化，与 bge 系列的用法一致
+ */
+@Slf4j
+public class LocalOnnxEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final String modelName;
+
+    private final int maxBatchSize;
+
+    private final long maxWaitMs;
+
+    private final String outputName;
+
+    private final boolean meanPooling;
+
+    private final int dimensions;
+
+    private final long timeoutMs;
+
+    private final ExecutorService inferenceExecutor;
+
+    private final HuggingFaceTokenizer tokenizer;
+
+    private final OrtEnvironment environment;
+
+    private final OrtSession session;
+
+    private final boolean tokenTypeIds;
+
+    // 文本 -> 分词结果
+    private final LRUCache<String, Encoding> encodingCache;
+
+    private final BlockingQueue<Pending> queue;
+
+    private final Thread dispatcher;
+
+    private volatile boolean running = true;
+
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder texts = new LongAdder();
+
+    private final LongAdder encodingHits = new LongAdder();
+
+    /**
+     * @param modelDir 模型目录
+     * @param maxLength 最大 token 数
+     * @param maxBatchSize 每批最多的文本数
+     * @param maxWaitMs 组批的最长等待时间
+     * @param outputName 模型输出名称
+     * @param pooling 池化方式：cls 或 mean
+     * @param encodingCacheSize 分词结果缓存数
+     * @param queueCapacity 等待组批的文本数上限
+     * @param timeoutMs 单次调用等待入队及推理结果的最长时间
+     * @param inferenceExecutor 推理线程池
+     */
+    public LocalOnnxEmbeddingModel(String modelDir, int maxLength, int maxBatchSize, long maxWaitMs, String outputName,
+                                   String pooling, int encodingCacheSize, int queueCapacity, long timeoutMs,
+                                   ExecutorService inferenceExecutor) throws IOException, OrtException {
+        DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+        Resource modelResource = resourceLoader.getResource(modelDir + "/model.onnx");
+        if (!modelResource.exists()) {
+            throw new IllegalStateException("本地嵌入模型文件不存在: " + modelDir + "/model.onnx，"
+                    + "请从 Hugging Face 下载对应模型的 ONNX 文件（如 BAAI/bge-small-zh-v1.5 的 onnx/model.onnx）放入该目录，"
+                    + "或将 chat.embedding.provider 设置为 openai");
+        }
+        this.timeoutMs = timeoutMs;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.modelName = "local/" + modelDir.substring(modelDir.lastIndexOf('/') + 1);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitMs = maxWaitMs;
+        this.outputName = outputName;
+        this.meanPooling = "mean".equalsIgnoreCase(pooling);
+        this.inferenceExecutor = inferenceExecutor;
+        this.encodingCache = CacheUtil.newLRUCache(encodingCacheSize);
+        try (InputStream configStream = resourceLoader.getResource(modelDir + "/config.json").getInputStream();
+             InputStream tokenizerStream = resourceLoader.getResource(modelDir + "/tokenizer.json").getInputStream();
+             InputStream modelStream = modelResource.getInputStream()) {
+            this.dimensions = JSONUtil.parseObj(new String(configStream.readAllBytes(), StandardCharsets.UTF_8)).getInt("hidden_size");
+            this.tokenizer = HuggingFaceTokenizer.newInstance(tokenizerStream, Map.of(
+                    "padding", "false",
+                    "truncation", "true",
+                    "maxLength", String.valueOf(maxLength)));
+            this.environment = OrtEnvironment.getEnvironment();
+            OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+            // 并行度由推理线程池控制
+            options.setIntraOpNumThreads(1);
+            this.session = environment.createSession(modelStream.readAllBytes(), options);
+        }
+        this.tokenTypeIds = session.getInputNames().contains("token_type_ids");
+        this.dispatcher = new Thread(this::dispatch, "local-embedding-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+        log.info("本地嵌入模型{}加载完成，维度: {}", modelDir, dimensions);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> instructions = request.getInstructions();
+        List<CompletableFuture<float[]>> futures = new ArrayList<>(instructions.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            for (String text : instructions) {
+                Pending pending = new Pending(text, new CompletableFuture<>());
+                if (!queue.offer(pending, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    throw new IllegalStateException("本地嵌入模型请求队列已满，等待超时");
+                }
+                futures.add(pending.future());
+            }
+            List<Embedding> embeddings = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                embeddings.add(new Embedding(futures.get(i).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("本地嵌入模型调用被中断", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("本地嵌入模型推理超时（" + timeoutMs + "ms）", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("本地嵌入模型推理失败", e.getCause());
+        } finally {
+            // 已入队但不再等待的文本在组批时跳过
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 作为向量缓存键的模型名称
+     */
+    public String getModelName() {
+        return modelName;
+    }
+
+    /**
+     * 推理统计：批次数、文本数、平均批大小、分词缓存命中数及每批推理耗时
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long batchCount = batches.sum();
+        stats.put("batches", batchCount);
+        stats.put("texts", texts.sum());
+        stats.put("avgBatchSize", batchCount == 0 ? 0 : (double) texts.sum() / batchCount);
+        stats.put("encodingCacheHits", encodingHits.sum());
+        stats.put("queued", queue.size());
+        stats.put("batchLatency", batchLatency.snapshot());
+        return stats;
+    }
+
+    @Override
+    public void close() throws OrtException {
+        running = false;
+        dispatcher.interrupt();
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future().completeExceptionally(new IllegalStateException("本地嵌入模型已关闭"));
+        }
+        session.close();
+        tokenizer.close();
+    }
+
+    /**
+     * 调度线程：取到第一条后在 maxWaitMs 内继续收集，满批或超时即提交推理；
+     * 推理线程池满时由调度线程自己推理，队列中的请求自然积累成更大的批。调用方已放弃（超时）的文本不再推理，
+     * 提交推理失败时该批全部以异常结束，调用方不会一直等待
+     */
+    private void dispatch() {
+        while (running) {
+            List<Pending> batch = new ArrayList<>(maxBatchSize);
+            try {
+                Pending first = queue.take();
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+                batch.removeIf(pending -> pending.future().isDone());
+                if (!batch.isEmpty()) {
+                    inferenceExecutor.execute(() -> infer(batch));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.future().completeExceptionally(new IllegalStateException("本地嵌入模型已关闭")));
+                return;
+            } catch (Exception e) {
+                log.error("本地嵌入模型调度失败", e);
+                batch.forEach(pending -> pending.future().completeExceptionally(e));
+            }
+        }
+    }
+
+    private void infer(List<Pending> batch) {
+        long start = System.nanoTime();
+        try {
+            float[][] outputs = embedBatch(batch.stream().map(Pending::text).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(outputs[i]);
+            }
+        } catch (Exception e) {
+            batch.forEach(pending -> pending.future().completeExceptionally(e));
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            batchLatency.record(elapsed);
+            batches.increment();
+            texts.add(batch.size());
+            log.debug("本地嵌入模型推理{}条，耗时{}ms", batch.size(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    private float[][] embedBatch(List<String> batchTexts) throws OrtException {
+        Encoding[] encodings = new Encoding[batchTexts.size()];
+        int sequenceLength = 0;
+        for (int i = 0; i < encodings.length; i++) {
+            encodings[i] = encode(batchTexts.get(i));
+            sequenceLength = Math.max(sequenceLength, encodings[i].getIds().length);
+        }
+        // 补齐到批内最长序列
+        long[][] inputIds = new long[encodings.length][sequenceLength];
+        long[][] attentionMask = new long[encodings.length][sequenceLength];
+        long[][] typeIds = new long[encodings.length][sequenceLength];
+        for (int i = 0; i < encodings.length; i++) {
+            long[] ids = encodings[i].getIds();
+            System.arraycopy(ids, 0, inputIds[i], 0, ids.length);
+            System.arraycopy(encodings[i].getAttentionMask(), 0, attentionMask[i], 0, ids.length);
+            System.arraycopy(encodings[i].getTypeIds(), 0, typeIds[i], 0, ids.length);
+        }
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, inputIds));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, attentionMask));
+            if (tokenTypeIds) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, typeIds));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                // [batch, sequence, hidden]
+                float[][][] hidden = (float[][][]) result.get(outputName)
+                        .orElseThrow(() -> new IllegalStateException("模型没有输出: " + outputName))
+                        .getValue();
+                float[][] outputs = new float[encodings.length][];
+                for (int i = 0; i < encodings.length; i++) {
+                    outputs[i] = normalize(meanPooling ? meanPool(hidden[i], attentionMask[i]) : hidden[i][0]);
+                }
+                return outputs;
+            }
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    private Encoding encode(String text) {
+        Encoding encoding = encodingCache.get(text);
+        if (encoding != null) {
+            encodingHits.increment();
+            return encoding;
+        }
+        encoding = tokenizer.encode(text);
+        encodingCache.put(text, encoding);
+        return encoding;
+    }
+
+    private static float[] meanPool(float[][] tokens, long[] attentionMask) {
+        float[] pooled = new float[tokens[0].length];
+        int count = 0;
+        for (int t = 0; t < tokens.length; t++) {
+            if (attentionMask[t] == 0) {
+                continue;
+            }
+            for (int d = 0; d < pooled.length; d++) {
+                pooled[d] += tokens[t][d];
+            }
+            count++;
+        }
+        for (int d = 0; d < pooled.length; d++) {
+            pooled[d] /= Math.max(count, 1);
+        }
+        return pooled;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private record Pending(String text, CompletableFuture<float[]> future) {
+    }
+}
@@ -1,36 +1,98 @@
 package com.ruoyi.component;
 
+import cn.hutool.json.JSONUtil;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import io.milvus.client.MilvusServiceClient;
 import io.milvus.common.clientenum.ConsistencyLevelEnum;
 import io.milvus.grpc.DataType;
-import io.milvus.param.IndexType;
+import io.milvus.grpc.DescribeCollectionResponse;
+import io.milvus.grpc.DescribeIndexResponse;
+import io.milvus.grpc.GetCollectionStatisticsResponse;
+import io.milvus.grpc.QueryResults;
+import io.milvus.grpc.IndexDescription;
+import io.milvus.grpc.MutationResult;
+import io.milvus.grpc.SearchResults;
+import io.milvus.orm.iterator.QueryIterator;
 import io.milvus.param.MetricType;
 import io.milvus.param.R;
 import io.milvus.param.RpcStatus;
+import io.milvus.param.IndexType;
+import io.milvus.param.alias.CreateAliasParam;
+import io.milvus.param.alias.DropAliasParam;
+import io.milvus.param.collection.AlterCollectionParam;
 import io.milvus.param.collection.CreateCollectionParam;
+import io.milvus.param.collection.DescribeCollectionParam;
+import io.milvus.param.collection.DropCollectionParam;
 import io.milvus.param.collection.FieldType;
 import io.milvus.param.collection.HasCollectionParam;
 import io.milvus.param.collection.LoadCollectionParam;
+import io.milvus.param.collection.ReleaseCollectionParam;
+import io.milvus.param.collection.RenameCollectionParam;
+import io.milvus.param.dml.DeleteParam;
+import io.milvus.param.dml.InsertParam;
+import io.milvus.param.dml.QueryIteratorParam;
+import io.milvus.param.dml.QueryParam;
+import io.milvus.param.collection.GetCollectionStatisticsParam;
+import io.milvus.response.GetCollStatResponseWrapper;
+import io.milvus.param.dml.SearchParam;
 import io.milvus.param.index.CreateIndexParam;
-import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import io.milvus.param.index.DescribeIndexParam;
+import io.milvus.param.index.DropIndexParam;
+import io.milvus.response.DescribeCollResponseWrapper;
+import io.milvus.response.QueryResultsWrapper;
+import io.milvus.response.SearchResultsWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.DocumentMetadata;
+import com.ruoyi.domain.ChatKnowledge;
+import com.ruoyi.enums.MilvusIndexTypeEnum;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Milvus向量存储组件
+ *
+ * 新建的集合除 MilvusVectorStore 的字段外，将 fileId、knowledgeId 写入带倒排索引的 VarChar 标量字段，
+ * 按文件删除、过滤检索走标量索引而不是扫描 JSON 元数据；旧结构的集合仍按 JSON 元数据过滤，可通过 MilvusSchemaMigrationService 迁移。
+ * 写入只能通过 insert，MilvusVectorStore.add 不会填充标量字段
  */
 @Component
+@Slf4j
 public class MilvusVectorStoreComponent {
 
     @Autowired
     private MilvusServiceClient milvusClient;
 
     @Autowired
-    private OpenAiEmbeddingModel openAiEmbeddingModel;
+    @Qualifier("knowledgeEmbeddingModel")
+    private EmbeddingModel embeddingModel;
 
     @Value("${spring.ai.vectorstore.milvus.database-name:default}")
     private String databaseName;
@@ -38,35 +100,801 @@ public class MilvusVectorStoreComponent {
     @Value("${spring.ai.vectorstore.milvus.collection-name:rag}")
     private String collectionName;
 
+    @Value("${spring.ai.openai.embedding.options.model:}")
+    private String embeddingModelName;
+
+    @Autowired
+    private EmbeddingDiskCache embeddingDiskCache;
+
+    // 文档向量化使用的带缓存嵌入模型
+    private EmbeddingModel documentEmbeddingModel;
+
     // 向量维度，与embedding模型bge-small-zh-v1.5匹配
     private static final int EMBEDDING_DIMENSION = 512;
 
+    private static final Gson GSON = new Gson();
+
+    // 检索结果中的距离字段
+    private static final String DISTANCE_FIELD_NAME = "distance";
+
+    // 文件ID标量字段
+    public static final String FILE_ID_FIELD_NAME = "file_id";
+
+    // 知识库ID标量字段
+    public static final String KNOWLEDGE_ID_FIELD_NAME = "knowledge_id";
+
+    // 元数据中的文件ID、知识库ID
+    private static final String FILE_ID_METADATA = "fileId";
+
+    private static final String KNOWLEDGE_ID_METADATA = "knowledgeId";
+
+    // 标量字段最大长度
+    private static final int ID_MAX_LENGTH = 64;
+
+    // 迁移后新结构集合的名称后缀，知识库名称成为指向该集合的别名
+    private static final String MIGRATION_SUFFIX = "_v2";
+
+    // 是否以 file_id 作为分区键，按文件删除、过滤时只访问对应分区
+    @Value("${chat.milvus.partition-key:false}")
+    private boolean partitionKey;
+
+    // 启用分区键时的分区数
+    @Value("${chat.milvus.partitions-num:16}")
+    private int partitionsNum;
+
+    // 量化索引检索时按原始向量重新打分的候选倍数，1为不重新打分
+    @Value("${chat.milvus.quantization.refine-factor:4}")
+    private int refineFactor;
+
+    // 量化索引的集合是否开启 mmap：原始向量只在重新打分时按需读取，不常驻查询节点内存
+    @Value("${chat.milvus.quantization.mmap-raw-data:true}")
+    private boolean quantizedMmap;
+
+    // 查询节点是否开启 mmap（全局配置）
+    @Value("${chat.milvus.mmap-enabled:false}")
+    private boolean mmapEnabled;
+
+    // 集合名称 -> 向量存储
+    private final Map<String, MilvusVectorStore> vectorStores = new ConcurrentHashMap<>();
+
+    // 已确认存在的集合
+    private final Set<String> existingCollections = ConcurrentHashMap.newKeySet();
+
+    // 集合名称 -> 检查、创建集合时的锁
+    private final Map<String, Object> collectionLocks = new ConcurrentHashMap<>();
+
+    // 集合名称 -> 是否包含 fileId、knowledgeId 标量字段
+    private final Map<String, Boolean> scalarSchemas = new ConcurrentHashMap<>();
+
     /**
      * 获取Milvus向量存储组件
+     * 同一集合的向量存储只创建一次，集合是否存在也只检查一次；知识库改名、删除或修改索引配置时需调用 evict
      * @param collectionName 集合名称
+     * @param indexConfig 索引配置
      * @return MilvusVectorStore
      */
-    public MilvusVectorStore getVectorStore(String collectionName) throws Exception {
-        // 1. 检查集合是否存在
+    public MilvusVectorStore getVectorStore(String collectionName, IndexConfig indexConfig) throws Exception {
+        MilvusVectorStore vectorStore = vectorStores.get(collectionName);
+        if (vectorStore != null) {
+            return vectorStore;
+        }
+        // 检查、创建集合的请求在 computeIfAbsent 之外执行，不会长时间占用 ConcurrentHashMap 的桶锁
+        ensureCollection(collectionName, indexConfig);
+        return vectorStores.computeIfAbsent(collectionName, name -> MilvusVectorStore.builder(milvusClient, embeddingModel)
+                                                                                     .collectionName(name)
+                                                                                     .indexType(indexConfig.indexType().getIndexType())
+                                                                                     .indexParameters(indexConfig.indexParams())
+                                                                                     .metricType(MetricType.COSINE) // 对应 Qdrant 的 Cosine
+                                                                                     .build());
+    }
+
+    /**
+     * 集合不存在时按索引配置创建集合及索引，已确认存在的集合不再请求Milvus
+     * 按集合名称加锁，一个集合的创建不会阻塞其他集合的检索、写入
+     * @param collectionName 集合名称
+     * @param indexConfig 索引配置
+     */
+    public void ensureCollection(String collectionName, IndexConfig indexConfig) {
+        if (existingCollections.contains(collectionName)) {
+            return;
+        }
+        synchronized (collectionLocks.computeIfAbsent(collectionName, name -> new Object())) {
+            if (existingCollections.contains(collectionName)) {
+                return;
+            }
+            R<Boolean> response = milvusClient.hasCollection(
+                    HasCollectionParam.newBuilder()
+                                      .withCollectionName(collectionName)
+                                      .build()
+            );
+
+            boolean exists = response.getData();
+            if(!exists){
+                // 不存在则创建集合
+                createCollection(collectionName,embeddingModel.dimensions());
+                createIndex(collectionName, indexConfig);
+            }
+            existingCollections.add(collectionName);
+        }
+    }
+
+    /**
+     * 索引类型或构建参数变化时重建索引：释放集合、删除旧索引、创建新索引后重新加载
+     * @param collectionName 集合名称
+     * @param indexConfig 新的索引配置
+     */
+    public void rebuildIndex(String knowledgeCollectionName, IndexConfig indexConfig) {
+        evict(knowledgeCollectionName);
+        // 迁移过的知识库名称是别名，索引及集合属性按实际集合操作
+        String collectionName = physicalName(knowledgeCollectionName);
+        if (collectionName == null) {
+            return;
+        }
+        milvusClient.releaseCollection(ReleaseCollectionParam.newBuilder()
+                                                             .withDatabaseName(databaseName)
+                                                             .withCollectionName(collectionName)
+                                                             .build());
+        // 新结构的集合还有标量索引，只删除向量字段的索引
+        DropIndexParam.Builder dropIndexParam = DropIndexParam.newBuilder()
+                                                              .withDatabaseName(databaseName)
+                                                              .withCollectionName(collectionName);
+        String vectorIndexName = vectorIndexName(collectionName);
+        if (vectorIndexName != null) {
+            dropIndexParam.withIndexName(vectorIndexName);
+        }
+        R<RpcStatus> dropStatus = milvusClient.dropIndex(dropIndexParam.build());
+        if (dropStatus.getException() != null) {
+            throw new RuntimeException("Failed to drop index", dropStatus.getException());
+        }
+        createVectorIndex(collectionName, indexConfig);
+        configureMmap(collectionName, indexConfig);
+        loadCollection(collectionName);
+    }
+
+    /**
+     * 移除集合对应的缓存，下次获取时重新检查并创建
+     * @param collectionName 集合名称
+     */
+    public void evict(String collectionName) {
+        vectorStores.remove(collectionName);
+        existingCollections.remove(collectionName);
+        scalarSchemas.remove(collectionName);
+    }
+
+    /**
+     * 知识库改名时重命名集合，保证已有向量数据随知识库保留
+     * @param oldCollectionName 原集合名称
+     * @param newCollectionName 新集合名称
+     */
+    public void renameCollection(String oldCollectionName, String newCollectionName) {
+        evict(oldCollectionName);
+        evict(newCollectionName);
+        String physicalName = physicalName(oldCollectionName);
+        if (physicalName == null) {
+            return;
+        }
+        if (!physicalName.equals(oldCollectionName)) {
+            // 迁移过的知识库名称是别名：先建新别名再删旧别名，改名过程中检索不中断
+            createAlias(physicalName, newCollectionName);
+            R<RpcStatus> dropStatus = milvusClient.dropAlias(DropAliasParam.newBuilder()
+                                                                           .withDatabaseName(databaseName)
+                                                                           .withAlias(oldCollectionName)
+                                                                           .build());
+            if (dropStatus.getException() != null) {
+                throw new RuntimeException("Failed to drop alias", dropStatus.getException());
+            }
+            return;
+        }
+        R<RpcStatus> renameStatus = milvusClient.renameCollection(RenameCollectionParam.newBuilder()
+                                                                                      .withDatabaseName(databaseName)
+                                                                                      .withOldCollectionName(oldCollectionName)
+                                                                                      .withNewCollectionName(newCollectionName)
+                                                                                      .build());
+        if (renameStatus.getException() != null) {
+            throw new RuntimeException("Failed to rename collection", renameStatus.getException());
+        }
+    }
+
+    /**
+     * 将旧结构（fileId、knowledgeId 只在 JSON 元数据中）的集合迁移到带标量字段的新结构：
+     * 按新结构创建集合（原名称加 _v2），分批读出原集合的向量写入新集合，完成后删除原集合并把原名称创建为指向新集合的别名，
+     * 检索、写入、删除继续使用知识库名称，只有删除原集合到创建别名之间的一次请求内不可用。
+     * 迁移期间写入原集合的数据不会被复制，需在知识库没有入库任务时执行；复制期间删除的文件，其删除请求落在原集合上，
+     * 切换后按 liveFileIds 删除新集合中已不存在的文件的向量。复制失败时删除新集合，原集合不受影响。
+     * 删除原集合后创建别名失败时向量只在新集合中，再次执行会完成切换（原名称已被重新创建为集合时先合并其中的向量），不会删除新集合
+     * @param collectionName 集合名称
+     * @param indexConfig 索引配置
+     * @param batchSize 每批读取的数量
+     * @param busy 删除原集合前再次检查，返回 true 时放弃迁移（如复制期间有了入库任务）
+     * @param liveFileIds 知识库当前的文件ID，在切换后读取
+     * @return 复制的向量数，集合已是新结构时为 -1
+     */
+    public long migrateSchema(String collectionName, IndexConfig indexConfig, int batchSize, BooleanSupplier busy,
+                              Supplier<Set<String>> liveFileIds) {
+        String targetCollectionName = collectionName + MIGRATION_SUFFIX;
+        evict(collectionName);
+        evict(targetCollectionName);
+        String physicalName = physicalName(collectionName);
+        if (targetCollectionName.equals(physicalName)) {
+            // 已迁移，知识库名称是指向新集合的别名
+            return -1;
+        }
+        boolean sourceExists = physicalName != null;
+        if (hasCollection(targetCollectionName) && (!sourceExists || hasScalarFields(collectionName))) {
+            // 上次迁移已删除原集合但未创建别名，向量在新集合中
+            return finishMigration(collectionName, targetCollectionName, sourceExists, batchSize, liveFileIds);
+        }
+        if (!sourceExists) {
+            throw new IllegalArgumentException("集合不存在: " + collectionName);
+        }
+        if (hasScalarFields(collectionName)) {
+            return -1;
+        }
+        if (hasCollection(targetCollectionName)) {
+            // 上次迁移在复制阶段中断留下的新集合，原集合完整
+            dropCollection(targetCollectionName);
+        }
+        createCollection(targetCollectionName, embeddingModel.dimensions());
+        createIndex(targetCollectionName, indexConfig);
+        loadCollection(collectionName);
+
+        long copied;
+        try {
+            copied = copyRows(collectionName, targetCollectionName, batchSize);
+            if (busy.getAsBoolean()) {
+                throw new IllegalStateException("迁移期间知识库有新的入库任务，已放弃迁移，请稍后重试");
+            }
+        } catch (RuntimeException e) {
+            dropCollection(targetCollectionName);
+            evict(targetCollectionName);
+            throw e;
+        }
+        dropCollection(collectionName);
+        aliasMigratedCollection(targetCollectionName, collectionName);
+        long removed = removeDeletedFiles(collectionName, liveFileIds.get(), batchSize);
+        log.info("集合{}迁移到标量字段结构完成，共{}条向量，清理了复制期间删除的文件的{}条向量", collectionName, copied, removed);
+        return copied;
+    }
+
+    /**
+     * 完成中断的迁移：原名称已被重新创建为集合（新结构）时先把其中的向量合并到新集合再删除，然后创建别名
+     * @return 合并的向量数
+     */
+    private long finishMigration(String collectionName, String targetCollectionName, boolean sourceExists, int batchSize,
+                                 Supplier<Set<String>> liveFileIds) {
+        log.warn("集合{}上次迁移未完成别名切换，继续完成迁移", collectionName);
+        long merged = 0;
+        if (sourceExists) {
+            loadCollection(collectionName);
+            merged = copyRows(collectionName, targetCollectionName, batchSize);
+            dropCollection(collectionName);
+        }
+        aliasMigratedCollection(targetCollectionName, collectionName);
+        removeDeletedFiles(collectionName, liveFileIds.get(), batchSize);
+        log.info("集合{}迁移完成，合并了切换失败后写入的{}条向量", collectionName, merged);
+        return merged;
+    }
+
+    private void aliasMigratedCollection(String targetCollectionName, String collectionName) {
+        try {
+            createAlias(targetCollectionName, collectionName);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("集合" + targetCollectionName + "创建别名失败，向量保留在该集合中，请重新执行迁移完成切换", e);
+        } finally {
+            evict(targetCollectionName);
+            evict(collectionName);
+        }
+    }
+
+    private void createAlias(String collectionName, String alias) {
+        R<RpcStatus> status = milvusClient.createAlias(CreateAliasParam.newBuilder()
+                                                                       .withDatabaseName(databaseName)
+                                                                       .withCollectionName(collectionName)
+                                                                       .withAlias(alias)
+                                                                       .build());
+        if (status.getException() != null) {
+            throw new RuntimeException("Failed to create alias", status.getException());
+        }
+    }
+
+    /**
+     * 删除集合中文件已不在知识库中的向量
+     * @param liveFileIds 知识库当前的文件ID
+     * @return 删除的向量数
+     */
+    private long removeDeletedFiles(String collectionName, Set<String> liveFileIds, int batchSize) {
+        Set<String> deletedFileIds = new HashSet<>();
+        long[] removed = {0};
+        queryRows(collectionName, FILE_ID_FIELD_NAME + " != \"\"", List.of(FILE_ID_FIELD_NAME), batchSize, rows -> {
+            for (QueryResultsWrapper.RowRecord row : rows) {
+                String fileId = String.valueOf(row.get(FILE_ID_FIELD_NAME));
+                if (!liveFileIds.contains(fileId)) {
+                    deletedFileIds.add(fileId);
+                    removed[0]++;
+                }
+            }
+        });
+        if (!deletedFileIds.isEmpty()) {
+            delete(collectionName, fileIdExpression(collectionName, deletedFileIds));
+        }
+        return removed[0];
+    }
+
+    /**
+     * 集合的实际名称：名称是别名时为其指向的集合，集合不存在时为null
+     */
+    private String physicalName(String collectionName) {
+        R<DescribeCollectionResponse> response = milvusClient.describeCollection(DescribeCollectionParam.newBuilder()
+                                                                                                      .withDatabaseName(databaseName)
+                                                                                                      .withCollectionName(collectionName)
+                                                                                                      .build());
+        if (response.getException() != null || response.getData() == null) {
+            return null;
+        }
+        return response.getData().getCollectionName();
+    }
+
+    private long copyRows(String sourceCollectionName, String targetCollectionName, int batchSize) {
+        long[] copied = {0};
+        queryRows(sourceCollectionName, MilvusVectorStore.DOC_ID_FIELD_NAME + " != \"\"",
+                List.of(MilvusVectorStore.DOC_ID_FIELD_NAME,
+                        MilvusVectorStore.CONTENT_FIELD_NAME,
+                        MilvusVectorStore.METADATA_FIELD_NAME,
+                        MilvusVectorStore.EMBEDDING_FIELD_NAME),
+                batchSize, rows -> {
+                    List<String> docIdArray = new ArrayList<>(rows.size());
+                    List<String> contentArray = new ArrayList<>(rows.size());
+                    List<JsonObject> metadataArray = new ArrayList<>(rows.size());
+                    List<List<Float>> embeddingArray = new ArrayList<>(rows.size());
+                    for (QueryResultsWrapper.RowRecord row : rows) {
+                        docIdArray.add(String.valueOf(row.get(MilvusVectorStore.DOC_ID_FIELD_NAME)));
+                        contentArray.add((String) row.get(MilvusVectorStore.CONTENT_FIELD_NAME));
+                        Object metadata = row.get(MilvusVectorStore.METADATA_FIELD_NAME);
+                        metadataArray.add(metadata instanceof JsonObject jsonObject
+                                ? jsonObject : JsonParser.parseString(String.valueOf(metadata)).getAsJsonObject());
+                        embeddingArray.add((List<Float>) row.get(MilvusVectorStore.EMBEDDING_FIELD_NAME));
+                    }
+                    insertRows(targetCollectionName, docIdArray, contentArray, metadataArray, embeddingArray);
+                    copied[0] += rows.size();
+                    log.debug("集合{}已迁移{}条向量", sourceCollectionName, copied[0]);
+                });
+        return copied[0];
+    }
+
+    /**
+     * 分批读取集合中已存储的全部向量（索引调优计算精确 topK 时使用，不需要重新向量化）
+     * @param collectionName 集合名称
+     * @param batchSize 每批读取的数量
+     * @param consumer 文档ID及对应的向量
+     */
+    public void forEachVector(String collectionName, int batchSize, BiConsumer<List<String>, List<float[]>> consumer) {
+        queryRows(collectionName, MilvusVectorStore.DOC_ID_FIELD_NAME + " != \"\"",
+                List.of(MilvusVectorStore.DOC_ID_FIELD_NAME, MilvusVectorStore.EMBEDDING_FIELD_NAME),
+                batchSize, rows -> {
+                    List<String> ids = new ArrayList<>(rows.size());
+                    List<float[]> embeddings = new ArrayList<>(rows.size());
+                    for (QueryResultsWrapper.RowRecord row : rows) {
+                        ids.add(String.valueOf(row.get(MilvusVectorStore.DOC_ID_FIELD_NAME)));
+                        embeddings.add(toFloatArray((List<Float>) row.get(MilvusVectorStore.EMBEDDING_FIELD_NAME)));
+                    }
+                    consumer.accept(ids, embeddings);
+                });
+    }
+
+    /**
+     * 用 queryIterator 分批读取满足条件的行，不受单次 query 的条数上限限制
+     */
+    private void queryRows(String collectionName, String expr, List<String> outFields, int batchSize,
+                           Consumer<List<QueryResultsWrapper.RowRecord>> consumer) {
+        R<QueryIterator> response = milvusClient.queryIterator(QueryIteratorParam.newBuilder()
+                                                                                 .withDatabaseName(databaseName)
+                                                                                 .withCollectionName(collectionName)
+                                                                                 .withExpr(expr)
+                                                                                 .withOutFields(outFields)
+                                                                                 .withBatchSize((long) batchSize)
+                                                                                 .withConsistencyLevel(ConsistencyLevelEnum.STRONG)
+                                                                                 .build());
+        if (response.getException() != null) {
+            throw new RuntimeException("Failed to query collection", response.getException());
+        }
+        QueryIterator iterator = response.getData();
+        try {
+            List<QueryResultsWrapper.RowRecord> rows;
+            while (!(rows = iterator.next()).isEmpty()) {
+                consumer.accept(rows);
+            }
+        } finally {
+            iterator.close();
+        }
+    }
+
+    private boolean hasCollection(String collectionName) {
         R<Boolean> response = milvusClient.hasCollection(
                 HasCollectionParam.newBuilder()
                                   .withCollectionName(collectionName)
                                   .build()
         );
+        return Boolean.TRUE.equals(response.getData());
+    }
+
+    private void dropCollection(String collectionName) {
+        milvusClient.releaseCollection(ReleaseCollectionParam.newBuilder()
+                                                             .withDatabaseName(databaseName)
+                                                             .withCollectionName(collectionName)
+                                                             .build());
+        R<RpcStatus> dropStatus = milvusClient.dropCollection(DropCollectionParam.newBuilder()
+                                                                                 .withDatabaseName(databaseName)
+                                                                                 .withCollectionName(collectionName)
+                                                                                 .build());
+        if (dropStatus.getException() != null) {
+            throw new RuntimeException("Failed to drop collection", dropStatus.getException());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        vectorStores.clear();
+        existingCollections.clear();
+        scalarSchemas.clear();
+        collectionLocks.clear();
+    }
+
+    @PostConstruct
+    public void init() {
+        // 本地模型与远程模型的向量不通用，缓存键使用各自的模型名称
+        String modelName = embeddingModel instanceof LocalOnnxEmbeddingModel localEmbeddingModel
+                ? localEmbeddingModel.getModelName() : embeddingModelName;
+        this.documentEmbeddingModel = embeddingDiskCache.isEnabled()
+                ? new CachingEmbeddingModel(embeddingModel, modelName, embeddingDiskCache)
+                : embeddingModel;
+    }
+
+    /**
+     * 文档向量化使用的嵌入模型，内容未变化的分片直接从缓存获取向量
+     */
+    public EmbeddingModel getEmbeddingModel() {
+        return documentEmbeddingModel;
+    }
+
+    /**
+     * 写入已向量化的文档，字段与 MilvusVectorStore 保持一致，新结构的集合同时写入 fileId、knowledgeId 标量字段
+     * @param collectionName 集合名称
+     * @param documents 文档
+     * @param embeddings 与文档一一对应的向量
+     */
+    public void insert(String collectionName, List<Document> documents, List<float[]> embeddings) {
+        List<String> docIdArray = new ArrayList<>(documents.size());
+        List<String> contentArray = new ArrayList<>(documents.size());
+        List<JsonObject> metadataArray = new ArrayList<>(documents.size());
+        List<List<Float>> embeddingArray = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            docIdArray.add(document.getId());
+            contentArray.add(document.getText());
+            metadataArray.add(GSON.toJsonTree(document.getMetadata()).getAsJsonObject());
+            embeddingArray.add(toFloatList(embeddings.get(i)));
+        }
+        insertRows(collectionName, docIdArray, contentArray, metadataArray, embeddingArray);
+    }
+
+    /**
+     * 按列写入，新结构的集合从元数据中取出 fileId、knowledgeId 写入标量字段（迁移集合时也使用）
+     */
+    void insertRows(String collectionName, List<String> docIdArray, List<String> contentArray,
+                    List<JsonObject> metadataArray, List<List<Float>> embeddingArray) {
+        List<InsertParam.Field> fields = new ArrayList<>();
+        fields.add(new InsertParam.Field(MilvusVectorStore.DOC_ID_FIELD_NAME, docIdArray));
+        fields.add(new InsertParam.Field(MilvusVectorStore.CONTENT_FIELD_NAME, contentArray));
+        fields.add(new InsertParam.Field(MilvusVectorStore.METADATA_FIELD_NAME, metadataArray));
+        fields.add(new InsertParam.Field(MilvusVectorStore.EMBEDDING_FIELD_NAME, embeddingArray));
+        if (hasScalarFields(collectionName)) {
+            List<String> fileIdArray = new ArrayList<>(metadataArray.size());
+            List<String> knowledgeIdArray = new ArrayList<>(metadataArray.size());
+            for (JsonObject metadata : metadataArray) {
+                fileIdArray.add(metadataString(metadata, FILE_ID_METADATA));
+                knowledgeIdArray.add(metadataString(metadata, KNOWLEDGE_ID_METADATA));
+            }
+            fields.add(new InsertParam.Field(FILE_ID_FIELD_NAME, fileIdArray));
+            fields.add(new InsertParam.Field(KNOWLEDGE_ID_FIELD_NAME, knowledgeIdArray));
+        }
+
+        R<MutationResult> status = this.milvusClient.insert(InsertParam.newBuilder()
+                                                                       .withDatabaseName(databaseName)
+                                                                       .withCollectionName(collectionName)
+                                                                       .withFields(fields)
+                                                                       .build());
+        if (status.getException() != null) {
+            throw new RuntimeException("Failed to insert:", status.getException());
+        }
+    }
+
+    /**
+     * 使用已计算好的查询向量检索，返回结果与 MilvusVectorStore.similaritySearch 一致（score 为余弦相似度）
+     * 多个集合共用一次查询向量时使用，避免每个集合重复向量化
+     * @param collectionName 集合名称
+     * @param embedding 查询向量
+     * @param topK 返回数量
+     * @param similarityThreshold 相似度阈值
+     * @param indexConfig 索引配置
+     * @return 按相似度降序排列的文档
+     */
+    public List<Document> search(String collectionName, float[] embedding, int topK, double similarityThreshold,
+                                 IndexConfig indexConfig) {
+        return search(collectionName, embedding, topK, similarityThreshold, indexConfig, indexConfig.searchParams());
+    }
+
+    /**
+     * 使用指定的检索参数检索（索引调优时使用）
+     * @param searchParams 检索参数（JSON）
+     */
+    public List<Document> search(String collectionName, float[] embedding, int topK, double similarityThreshold,
+                                 IndexConfig indexConfig, String searchParams) {
+        return search(collectionName, embedding, topK, similarityThreshold, indexConfig, searchParams, null);
+    }
+
+    /**
+     * 只在指定文件的分片中检索
+     * @param fileIds 文件ID，为空时不过滤
+     */
+    public List<Document> search(String collectionName, float[] embedding, int topK, double similarityThreshold,
+                                 IndexConfig indexConfig, Collection<String> fileIds) {
+        ensureCollection(collectionName, indexConfig);
+        String expr = fileIds == null || fileIds.isEmpty() ? null : fileIdExpression(collectionName, fileIds);
+        return search(collectionName, embedding, topK, similarityThreshold, indexConfig, indexConfig.searchParams(), expr);
+    }
+
+    /**
+     * 量化索引（IVF_SQ8、IVF_PQ）的距离是近似值：多取 refineFactor 倍候选并带回原始向量，按全精度余弦相似度重新打分后取 topK，
+     * 相似度阈值按重新打分后的结果判断；量化索引的集合默认开启 mmap（configureMmap），原始向量按需读取不常驻内存
+     */
+    private List<Document> search(String collectionName, float[] embedding, int topK, double similarityThreshold,
+                                  IndexConfig indexConfig, String searchParams, String expr) {
+        ensureCollection(collectionName, indexConfig);
+        boolean rescore = indexConfig.indexType().isQuantized() && refineFactor > 1;
+        List<String> outFields = new ArrayList<>(List.of(MilvusVectorStore.DOC_ID_FIELD_NAME,
+                MilvusVectorStore.CONTENT_FIELD_NAME,
+                MilvusVectorStore.METADATA_FIELD_NAME));
+        if (rescore) {
+            outFields.add(MilvusVectorStore.EMBEDDING_FIELD_NAME);
+        }
+        SearchParam.Builder searchParam = SearchParam.newBuilder()
+                                             .withDatabaseName(databaseName)
+                                             .withCollectionName(collectionName)
+                                             .withConsistencyLevel(ConsistencyLevelEnum.STRONG)
+                                             .withMetricType(MetricType.COSINE)
+                                             .withOutFields(outFields)
+                                             .withTopK(rescore ? topK * refineFactor : topK)
+                                             .withVectors(List.of(toFloatList(embedding)))
+                                             .withVectorFieldName(MilvusVectorStore.EMBEDDING_FIELD_NAME)
+                                             .withParams(searchParams);
+        if (expr != null) {
+            searchParam.withExpr(expr);
+        }
+        R<SearchResults> response = milvusClient.search(searchParam.build());
+        if (response.getException() != null) {
+            throw new RuntimeException("Search failed!", response.getException());
+        }
+
+        SearchResultsWrapper wrapper = new SearchResultsWrapper(response.getData().getResults());
+        List<Document> documents = new ArrayList<>();
+        for (QueryResultsWrapper.RowRecord rowRecord : wrapper.getRowRecords(0)) {
+            double similarity = rescore
+                    ? cosine(embedding, (List<Float>) rowRecord.get(MilvusVectorStore.EMBEDDING_FIELD_NAME))
+                    : ((Number) rowRecord.get(DISTANCE_FIELD_NAME)).doubleValue();
+            if (similarity < similarityThreshold) {
+                continue;
+            }
+            Map<String, Object> metadata = new HashMap<>();
+            Object metadataJson = rowRecord.get(MilvusVectorStore.METADATA_FIELD_NAME);
+            if (metadataJson instanceof JsonObject jsonObject) {
+                metadata.putAll(GSON.fromJson(jsonObject, Map.class));
+            }
+            metadata.put(DocumentMetadata.DISTANCE.value(), 1 - similarity);
+            documents.add(Document.builder()
+                                  .id(String.valueOf(rowRecord.get(MilvusVectorStore.DOC_ID_FIELD_NAME)))
+                                  .text((String) rowRecord.get(MilvusVectorStore.CONTENT_FIELD_NAME))
+                                  .metadata(metadata)
+                                  .score(similarity)
+                                  .build());
+        }
+        if (rescore) {
+            documents.sort(Comparator.comparingDouble(Document::getScore).reversed());
+            return documents.size() > topK ? new ArrayList<>(documents.subList(0, topK)) : documents;
+        }
+        return documents;
+    }
+
+    private static double cosine(float[] query, List<Float> vector) {
+        double dot = 0;
+        double queryNorm = 0;
+        double vectorNorm = 0;
+        for (int i = 0; i < query.length; i++) {
+            float value = vector.get(i);
+            dot += query[i] * value;
+            queryNorm += query[i] * query[i];
+            vectorNorm += value * value;
+        }
+        return queryNorm == 0 || vectorNorm == 0 ? 0 : dot / Math.sqrt(queryNorm * vectorNorm);
+    }
+
+    /**
+     * 集合的行数、向量维度及抽样得到的平均标量字段大小，用于估算内存占用
+     * @param collectionName 集合名称
+     * @param sampleSize 抽样行数
+     */
+    public CollectionStats stats(String collectionName, int sampleSize) {
+        R<GetCollectionStatisticsResponse> statistics = milvusClient.getCollectionStatistics(
+                GetCollectionStatisticsParam.newBuilder()
+                                            .withDatabaseName(databaseName)
+                                            .withCollectionName(collectionName)
+                                            .build());
+        if (statistics.getException() != null) {
+            throw new RuntimeException("Failed to get collection statistics", statistics.getException());
+        }
+        long rowCount = new GetCollStatResponseWrapper(statistics.getData()).getRowCount();
+
+        R<DescribeCollectionResponse> description = milvusClient.describeCollection(DescribeCollectionParam.newBuilder()
+                                                                                                         .withDatabaseName(databaseName)
+                                                                                                         .withCollectionName(collectionName)
+                                                                                                         .build());
+        if (description.getException() != null) {
+            throw new RuntimeException("Failed to describe collection", description.getException());
+        }
+        FieldType embeddingField = new DescribeCollResponseWrapper(description.getData())
+                .getFieldByName(MilvusVectorStore.EMBEDDING_FIELD_NAME);
+        int dimension = embeddingField == null ? embeddingModel.dimensions() : embeddingField.getDimension();
+        // 集合未设置 mmap 属性时按查询节点的全局配置
+        boolean mmap = description.getData().getPropertiesList().stream()
+                                  .filter(property -> "mmap.enabled".equals(property.getKey()))
+                                  .map(property -> Boolean.parseBoolean(property.getValue()))
+                                  .findFirst()
+                                  .orElse(mmapEnabled);
+
+        long sampled = 0;
+        long scalarBytes = 0;
+        if (rowCount > 0 && sampleSize > 0) {
+            List<String> scalarFields = new ArrayList<>(List.of(MilvusVectorStore.DOC_ID_FIELD_NAME,
+                    MilvusVectorStore.CONTENT_FIELD_NAME,
+                    MilvusVectorStore.METADATA_FIELD_NAME));
+            if (hasScalarFields(collectionName)) {
+                scalarFields.add(FILE_ID_FIELD_NAME);
+                scalarFields.add(KNOWLEDGE_ID_FIELD_NAME);
+            }
+            R<QueryResults> sample = milvusClient.query(QueryParam.newBuilder()
+                                                                  .withDatabaseName(databaseName)
+                                                                  .withCollectionName(collectionName)
+                                                                  .withExpr(MilvusVectorStore.DOC_ID_FIELD_NAME + " != \"\"")
+                                                                  .withOutFields(scalarFields)
+                                                                  .withLimit((long) sampleSize)
+                                                                  .build());
+            if (sample.getException() != null) {
+                throw new RuntimeException("Failed to sample collection", sample.getException());
+            }
+            for (QueryResultsWrapper.RowRecord row : new QueryResultsWrapper(sample.getData()).getRowRecords()) {
+                sampled++;
+                for (String field : scalarFields) {
+                    scalarBytes += utf8Length(row.get(field));
+                }
+            }
+        }
+        double avgScalarBytes = sampled == 0 ? 0 : (double) scalarBytes / sampled;
+        return new CollectionStats(rowCount, dimension, avgScalarBytes, mmap);
+    }
+
+    private static long utf8Length(Object value) {
+        return value == null ? 0 : String.valueOf(value).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * 删除文件的全部向量，新结构的集合按 file_id 标量索引（及分区键）定位，旧集合按 JSON 元数据过滤
+     * @param collectionName 集合名称
+     * @param fileId 文件ID
+     */
+    public void deleteByFileId(String collectionName, String fileId) {
+        delete(collectionName, fileIdExpression(collectionName, List.of(fileId)));
+    }
+
+    /**
+     * 按主键删除向量
+     * @param collectionName 集合名称
+     * @param ids 文档ID
+     */
+    public void delete(String collectionName, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        delete(collectionName, MilvusVectorStore.DOC_ID_FIELD_NAME + " in " + stringList(ids));
+    }
+
+    private void delete(String collectionName, String expr) {
+        R<MutationResult> status = milvusClient.delete(DeleteParam.newBuilder()
+                                                                  .withDatabaseName(databaseName)
+                                                                  .withCollectionName(collectionName)
+                                                                  .withExpr(expr)
+                                                                  .build());
+        if (status.getException() != null) {
+            throw new RuntimeException("Failed to delete", status.getException());
+        }
+    }
+
+    /**
+     * 文件ID过滤表达式
+     */
+    private String fileIdExpression(String collectionName, Collection<String> fileIds) {
+        String field = hasScalarFields(collectionName)
+                ? FILE_ID_FIELD_NAME
+                : MilvusVectorStore.METADATA_FIELD_NAME + "[\"" + FILE_ID_METADATA + "\"]";
+        return fileIds.size() == 1
+                ? field + " == " + quote(fileIds.iterator().next())
+                : field + " in " + stringList(fileIds);
+    }
+
+    /**
+     * 集合是否包含 fileId、knowledgeId 标量字段，首次查询集合结构后缓存
+     */
+    public boolean hasScalarFields(String collectionName) {
+        Boolean cached = scalarSchemas.get(collectionName);
+        if (cached != null) {
+            return cached;
+        }
+        // 请求在 computeIfAbsent 之外执行，并发的首次查询可能重复请求，结果相同
+        R<DescribeCollectionResponse> response = milvusClient.describeCollection(DescribeCollectionParam.newBuilder()
+                                                                                                      .withDatabaseName(databaseName)
+                                                                                                      .withCollectionName(collectionName)
+                                                                                                      .build());
+        if (response.getException() != null) {
+            throw new RuntimeException("Failed to describe collection", response.getException());
+        }
+        boolean scalar = new DescribeCollResponseWrapper(response.getData()).getFieldByName(FILE_ID_FIELD_NAME) != null;
+        scalarSchemas.putIfAbsent(collectionName, scalar);
+        return scalar;
+    }
 
-        boolean exists = response.getData();
-        if(!exists){
-            // 不存在则创建集合
-            createCollection(collectionName,openAiEmbeddingModel.dimensions());
-            createIndex(collectionName);
+    /**
+     * 向量字段的索引名称，集合没有索引时为null
+     */
+    private String vectorIndexName(String collectionName) {
+        R<DescribeIndexResponse> response = milvusClient.describeIndex(DescribeIndexParam.newBuilder()
+                                                                                         .withDatabaseName(databaseName)
+                                                                                         .withCollectionName(collectionName)
+                                                                                         .withFieldName(MilvusVectorStore.EMBEDDING_FIELD_NAME)
+                                                                                         .build());
+        if (response.getException() != null || response.getData() == null) {
+            return null;
         }
+        return response.getData().getIndexDescriptionsList().stream()
+                       .filter(index -> MilvusVectorStore.EMBEDDING_FIELD_NAME.equals(index.getFieldName()))
+                       .map(IndexDescription::getIndexName)
+                       .findFirst()
+                       .orElse(null);
+    }
+
+    private static String metadataString(JsonObject metadata, String key) {
+        return metadata.has(key) && !metadata.get(key).isJsonNull() ? metadata.get(key).getAsString() : "";
+    }
 
-        MilvusVectorStore vectorStore = MilvusVectorStore.builder(milvusClient, openAiEmbeddingModel)
-                                                         .collectionName(collectionName)
-                                                         .indexType(IndexType.IVF_FLAT) // 可选：指定索引类型
-                                                         .metricType(MetricType.COSINE) // 对应 Qdrant 的 Cosine
-                                                         .build();
-        return vectorStore;
+    private static String stringList(Collection<String> values) {
+        return values.stream().map(MilvusVectorStoreComponent::quote).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static float[] toFloatArray(List<Float> embedding) {
+        float[] array = new float[embedding.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = embedding.get(i);
+        }
+        return array;
+    }
+
+    private static List<Float> toFloatList(float[] embedding) {
+        List<Float> list = new ArrayList<>(embedding.length);
+        for (float value : embedding) {
+            list.add(value);
+        }
+        return list;
     }
 
     /**
@@ -75,7 +903,7 @@ public class MilvusVectorStoreComponent {
     @Bean
     @Primary
     public MilvusVectorStore customMilvusVectorStore() {
-        return MilvusVectorStore.builder(milvusClient, openAiEmbeddingModel)
+        return MilvusVectorStore.builder(milvusClient, embeddingModel)
                                 .databaseName(databaseName)
                                 .collectionName(collectionName)
                                 .embeddingDimension(EMBEDDING_DIMENSION)
@@ -109,8 +937,19 @@ public class MilvusVectorStoreComponent {
                                                 .withDataType(DataType.FloatVector)
                                                 .withDimension(embeddingDimensions)
                                                 .build();
+        FieldType fileIdFieldType = FieldType.newBuilder()
+                                             .withName(FILE_ID_FIELD_NAME)
+                                             .withDataType(DataType.VarChar)
+                                             .withMaxLength(ID_MAX_LENGTH)
+                                             .withPartitionKey(partitionKey)
+                                             .build();
+        FieldType knowledgeIdFieldType = FieldType.newBuilder()
+                                                  .withName(KNOWLEDGE_ID_FIELD_NAME)
+                                                  .withDataType(DataType.VarChar)
+                                                  .withMaxLength(ID_MAX_LENGTH)
+                                                  .build();
 
-        CreateCollectionParam createCollectionReq = CreateCollectionParam.newBuilder()
+        CreateCollectionParam.Builder createCollectionReq = CreateCollectionParam.newBuilder()
                                                                          .withDatabaseName(databaseName)
                                                                          .withCollectionName(collectionName)
                                                                          .withDescription("Spring AI Vector Store")
@@ -120,30 +959,125 @@ public class MilvusVectorStoreComponent {
                                                                          .addFieldType(contentFieldType)
                                                                          .addFieldType(metadataFieldType)
                                                                          .addFieldType(embeddingFieldType)
-                                                                         .build();
+                                                                         .addFieldType(fileIdFieldType)
+                                                                         .addFieldType(knowledgeIdFieldType);
+        if (partitionKey) {
+            createCollectionReq.withPartitionsNum(partitionsNum);
+        }
 
-        R<RpcStatus> collectionStatus = this.milvusClient.createCollection(createCollectionReq);
+        R<RpcStatus> collectionStatus = this.milvusClient.createCollection(createCollectionReq.build());
         if (collectionStatus.getException() != null) {
             throw new RuntimeException("Failed to create collection", collectionStatus.getException());
         }
+        scalarSchemas.put(collectionName, Boolean.TRUE);
+    }
 
+    /**
+     * 创建向量索引及标量索引后加载集合
+     */
+    void createIndex(String collectionName, IndexConfig indexConfig) {
+        createVectorIndex(collectionName, indexConfig);
+        if (hasScalarFields(collectionName)) {
+            createScalarIndex(collectionName, FILE_ID_FIELD_NAME);
+            createScalarIndex(collectionName, KNOWLEDGE_ID_FIELD_NAME);
+        }
+        configureMmap(collectionName, indexConfig);
+        loadCollection(collectionName);
     }
 
-    void createIndex(String collectionName) {
+    /**
+     * 集合的原始数据（向量及标量字段）是否以 mmap 方式加载：量化索引的集合默认开启，其余按查询节点的全局配置
+     * @param indexType 向量索引类型
+     */
+    public boolean isMmapEnabled(MilvusIndexTypeEnum indexType) {
+        return mmapEnabled || quantizedMmap && indexType.isQuantized();
+    }
+
+    /**
+     * 按索引类型设置集合级 mmap，须在集合加载前（或释放后）设置；已有的量化索引集合在重建索引或迁移时生效
+     */
+    private void configureMmap(String collectionName, IndexConfig indexConfig) {
+        R<RpcStatus> status = milvusClient.alterCollection(AlterCollectionParam.newBuilder()
+                                                                               .withDatabaseName(databaseName)
+                                                                               .withCollectionName(collectionName)
+                                                                               .withProperty("mmap.enabled", String.valueOf(isMmapEnabled(indexConfig.indexType())))
+                                                                               .build());
+        if (status.getException() != null) {
+            throw new RuntimeException("Failed to alter collection mmap", status.getException());
+        }
+    }
+
+    private void createVectorIndex(String collectionName, IndexConfig indexConfig) {
+        if (indexConfig.indexType() == MilvusIndexTypeEnum.IVF_PQ) {
+            int m = JSONUtil.parseObj(indexConfig.indexParams()).getInt("m", 0);
+            int dimensions = embeddingModel.dimensions();
+            if (m <= 0 || dimensions % m != 0) {
+                throw new IllegalArgumentException("IVF_PQ 的 m 需能整除向量维度 " + dimensions + ": " + indexConfig.indexParams());
+            }
+        }
         R<RpcStatus> indexStatus = this.milvusClient.createIndex(CreateIndexParam.newBuilder()
                                                                                  .withDatabaseName(databaseName)
                                                                                  .withCollectionName(collectionName)
                                                                                  .withFieldName(MilvusVectorStore.EMBEDDING_FIELD_NAME)
-                                                                                 .withIndexType(IndexType.IVF_FLAT)
+                                                                                 .withIndexType(indexConfig.indexType().getIndexType())
                                                                                  .withMetricType(MetricType.COSINE)
-                                                                                 .withExtraParam("{\"nlist\":1024}")
+                                                                                 .withExtraParam(indexConfig.indexParams())
+                                                                                 .withSyncMode(Boolean.FALSE)
+                                                                                 .build());
+        if (indexStatus.getException() != null) {
+            throw new RuntimeException("Failed to create index", indexStatus.getException());
+        }
+    }
+
+    private void createScalarIndex(String collectionName, String fieldName) {
+        R<RpcStatus> indexStatus = this.milvusClient.createIndex(CreateIndexParam.newBuilder()
+                                                                                 .withDatabaseName(databaseName)
+                                                                                 .withCollectionName(collectionName)
+                                                                                 .withFieldName(fieldName)
+                                                                                 .withIndexName(fieldName)
+                                                                                 .withIndexType(IndexType.INVERTED)
                                                                                  .withSyncMode(Boolean.FALSE)
                                                                                  .build());
+        if (indexStatus.getException() != null) {
+            throw new RuntimeException("Failed to create scalar index", indexStatus.getException());
+        }
+    }
 
+    void loadCollection(String collectionName) {
         R<RpcStatus> loadCollectionStatus = this.milvusClient.loadCollection(LoadCollectionParam.newBuilder()
                                                                                                .withDatabaseName(this.databaseName)
                                                                                                .withCollectionName(collectionName)
                                                                                                .build());
+        if (loadCollectionStatus.getException() != null) {
+            throw new RuntimeException("Failed to load collection", loadCollectionStatus.getException());
+        }
     }
-}
 
+    /**
+     * 集合统计信息
+     * @param rowCount 行数（含未压缩删除的行）
+     * @param dimension 向量维度
+     * @param avgScalarBytes 每行标量字段（ID、内容、元数据）的平均字节数
+     * @param mmap 原始数据是否以 mmap 方式加载
+     */
+    public record CollectionStats(long rowCount, int dimension, double avgScalarBytes, boolean mmap) {
+    }
+
+    /**
+     * 集合的索引配置，未设置的项使用索引类型的默认参数
+     * @param indexType 索引类型
+     * @param indexParams 索引构建参数（JSON）
+     * @param searchParams 检索参数（JSON）
+     */
+    public record IndexConfig(MilvusIndexTypeEnum indexType, String indexParams, String searchParams) {
+
+        public static IndexConfig of(ChatKnowledge chatKnowledge) {
+            MilvusIndexTypeEnum indexType = MilvusIndexTypeEnum.of(chatKnowledge == null ? null : chatKnowledge.getIndexType());
+            String indexParams = chatKnowledge == null || !StringUtils.hasText(chatKnowledge.getIndexParams())
+                    ? indexType.getDefaultIndexParams() : chatKnowledge.getIndexParams();
+            String searchParams = chatKnowledge == null || !StringUtils.hasText(chatKnowledge.getSearchParams())
+                    ? indexType.getDefaultSearchParams() : chatKnowledge.getSearchParams();
+            return new IndexConfig(indexType, indexParams, searchParams);
+        }
+    }
+}
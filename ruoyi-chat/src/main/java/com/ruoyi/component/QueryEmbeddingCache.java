@@ -0,0 +1,111 @@
+package com.ruoyi.component;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.convert.Convert;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 问题向量缓存
+ *
+ * 问题归一化（全角转半角、合并空白、转小写、去掉末尾标点）后与嵌入模型名一起作为 key，
+ * 按LRU淘汰并设置过期时间，高频问题在过期前不再请求嵌入模型
+ */
+@Component
+public class QueryEmbeddingCache {
+
+    // 去掉问题末尾的标点
+    private static final String TRAILING_PUNCTUATION = "[\\s?？!！.。,，;；~～]+$";
+
+    @Value("${chat.retrieval.query-cache.enabled:true}")
+    private boolean enabled;
+
+    // 最多缓存的问题数
+    @Value("${chat.retrieval.query-cache.max-entries:10000}")
+    private int maxEntries;
+
+    // 过期时间
+    @Value("${chat.retrieval.query-cache.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${spring.ai.openai.embedding.options.model:}")
+    private String embeddingModelName;
+
+    @Autowired
+    @Qualifier("knowledgeEmbeddingModel")
+    private EmbeddingModel embeddingModel;
+
+    private LRUCache<String, float[]> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        this.cache = CacheUtil.newLRUCache(maxEntries, TimeUnit.SECONDS.toMillis(ttlSeconds));
+    }
+
+    /**
+     * 问题向量化，优先从缓存获取
+     * @param query 问题
+     * @return 向量
+     */
+    public float[] embed(String query) {
+        if (!enabled) {
+            return embeddingModel.embed(query);
+        }
+        String key = embeddingModelName + '\u0000' + normalize(query);
+        // 不刷新访问时间，过期时间从写入开始计算
+        float[] embedding = cache.get(key, false);
+        if (embedding != null) {
+            hits.incrementAndGet();
+            return embedding;
+        }
+        misses.incrementAndGet();
+        embedding = embeddingModel.embed(query);
+        cache.put(key, embedding);
+        return embedding;
+    }
+
+    /**
+     * 清空缓存（切换嵌入模型等场景）
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * 命中统计
+     */
+    public Map<String, Object> stats() {
+        long hit = hits.get();
+        long miss = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("hits", hit);
+        stats.put("misses", miss);
+        stats.put("hitRate", hit + miss == 0 ? 0D : (double) hit / (hit + miss));
+        stats.put("entries", cache.size());
+        return stats;
+    }
+
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        String text = Convert.toDBC(query).trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return text.replaceAll(TRAILING_PUNCTUATION, "");
+    }
+}
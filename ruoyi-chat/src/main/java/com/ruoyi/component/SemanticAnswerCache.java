@@ -0,0 +1,239 @@
+package com.ruoyi.component;
+
+import com.ruoyi.service.IChatFileService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 知识库问答结果的语义缓存
+ *
+ * 按应用及回答语言（语言决定系统提示词）分别缓存，key 为知识库版本 + 问题向量：同一应用在关联知识库未变化时，
+ * 与已缓存问题的余弦相似度达到阈值即直接返回缓存的回答，不再调用大模型。
+ * 知识库版本由 chat_file 的文件数及最后修改时间得出（与 Bm25IndexComponent 相同），多节点部署时其他节点的上传、
+ * 替换、删除也会使缓存失效；版本在本节点缓存 versionCheckMs，本节点的修改通过 invalidateKnowledge 立即生效，
+ * 旧版本的缓存在下次访问时整体丢弃
+ */
+@Component
+@Slf4j
+public class SemanticAnswerCache {
+
+    @Value("${chat.answer-cache.enabled:true}")
+    private boolean enabled;
+
+    // 命中所需的最低余弦相似度
+    @Value("${chat.answer-cache.similarity-threshold:0.95}")
+    private double similarityThreshold;
+
+    // 每个应用最多缓存的回答数
+    @Value("${chat.answer-cache.max-entries-per-app:500}")
+    private int maxEntriesPerApp;
+
+    // 过期时间
+    @Value("${chat.answer-cache.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    // 知识库版本在本节点的缓存时间，其他节点修改知识库后最多经过该时间缓存失效
+    @Value("${chat.answer-cache.version-check-ms:5000}")
+    private long versionCheckMs;
+
+    @Autowired
+    private IChatFileService chatFileService;
+
+    // 知识库ID -> 从 chat_file 查询的版本
+    private final Map<String, KnowledgeVersion> knowledgeVersions = new ConcurrentHashMap<>();
+
+    // 应用ID + 语言 -> 缓存的回答
+    private final Map<String, AppAnswers> answers = new ConcurrentHashMap<>();
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    // 命中时节省的生成耗时（以原回答的生成耗时计）
+    private final AtomicLong latencySavedMs = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 计算应用关联知识库的版本，关联关系变化或任一知识库更新后版本都会变化（可能查询数据库）
+     * @param knowledgeIds 应用关联的知识库ID
+     * @return 版本
+     */
+    public String versionOf(List<String> knowledgeIds) {
+        return knowledgeIds.stream()
+                .sorted()
+                .map(knowledgeId -> knowledgeId + ":" + knowledgeVersion(knowledgeId))
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * 知识库内容变化，下次访问时重新查询版本
+     * @param knowledgeId 知识库ID
+     */
+    public void invalidateKnowledge(String knowledgeId) {
+        knowledgeVersions.remove(knowledgeId);
+    }
+
+    /**
+     * 应用配置变化（模型、提示词等），清除该应用各语言的缓存
+     * @param appId 应用ID
+     */
+    public void invalidateApp(String appId) {
+        answers.keySet().removeIf(key -> key.startsWith(appId + "#"));
+    }
+
+    /**
+     * 查找语义相近问题的回答
+     * @param appId 应用ID
+     * @param language 回答语言（QueryVo.language）
+     * @param version 知识库版本
+     * @param embedding 问题向量
+     * @return 缓存的回答分块，未命中返回null
+     */
+    public List<String> get(String appId, Integer language, String version, float[] embedding) {
+        lookups.incrementAndGet();
+        String key = cacheKey(appId, language);
+        AppAnswers appAnswers = answers.get(key);
+        if (appAnswers == null) {
+            return null;
+        }
+        Entry best = null;
+        double bestSimilarity = similarityThreshold;
+        long now = System.currentTimeMillis();
+        synchronized (appAnswers) {
+            if (!appAnswers.version.equals(version)) {
+                answers.remove(key, appAnswers);
+                return null;
+            }
+            Iterator<Entry> iterator = appAnswers.entries.iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (now - entry.createTime > ttlSeconds * 1000) {
+                    iterator.remove();
+                    continue;
+                }
+                double similarity = cosine(embedding, entry.embedding);
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        hits.incrementAndGet();
+        latencySavedMs.addAndGet(best.latencyMs);
+        log.debug("应用{}命中回答缓存，相似度{}", appId, bestSimilarity);
+        return best.chunks;
+    }
+
+    /**
+     * 缓存回答，生成期间知识库版本已变化时不缓存
+     * @param appId 应用ID
+     * @param language 回答语言（QueryVo.language）
+     * @param version 生成前的知识库版本
+     * @param embedding 问题向量
+     * @param chunks 回答分块
+     * @param latencyMs 生成耗时
+     */
+    public void put(String appId, Integer language, String version, float[] embedding, List<String> chunks, long latencyMs) {
+        if (chunks.isEmpty() || !knowledgeIdsCurrent(version)) {
+            return;
+        }
+        AppAnswers appAnswers = answers.compute(cacheKey(appId, language),
+                (key, existing) -> existing != null && existing.version.equals(version) ? existing : new AppAnswers(version));
+        synchronized (appAnswers) {
+            appAnswers.entries.addLast(new Entry(embedding, List.copyOf(chunks), latencyMs, System.currentTimeMillis()));
+            while (appAnswers.entries.size() > maxEntriesPerApp) {
+                appAnswers.entries.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * 命中统计
+     */
+    public Map<String, Object> stats() {
+        long lookup = lookups.get();
+        long hit = hits.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("lookups", lookup);
+        stats.put("hits", hit);
+        stats.put("hitRate", lookup == 0 ? 0D : (double) hit / lookup);
+        stats.put("latencySavedMs", latencySavedMs.get());
+        stats.put("apps", answers.size());
+        return stats;
+    }
+
+    private String knowledgeVersion(String knowledgeId) {
+        long now = System.currentTimeMillis();
+        KnowledgeVersion cached = knowledgeVersions.get(knowledgeId);
+        if (cached != null && now - cached.checkTime < versionCheckMs) {
+            return cached.version;
+        }
+        String version = chatFileService.selectChatFileVersionByKnowledgeId(knowledgeId);
+        knowledgeVersions.put(knowledgeId, new KnowledgeVersion(version, now));
+        return version;
+    }
+
+    private static String cacheKey(String appId, Integer language) {
+        return appId + "#" + language;
+    }
+
+    private boolean knowledgeIdsCurrent(String version) {
+        if (version.isEmpty()) {
+            return true;
+        }
+        List<String> knowledgeIds = new ArrayList<>();
+        for (String part : version.split(",")) {
+            knowledgeIds.add(part.substring(0, part.lastIndexOf(':')));
+        }
+        return versionOf(knowledgeIds).equals(version);
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? -1 : dot / Math.sqrt(normA * normB);
+    }
+
+    private static class AppAnswers {
+
+        private final String version;
+
+        private final LinkedList<Entry> entries = new LinkedList<>();
+
+        private AppAnswers(String version) {
+            this.version = version;
+        }
+    }
+
+    private record Entry(float[] embedding, List<String> chunks, long latencyMs, long createTime) {
+    }
+
+    private record KnowledgeVersion(String version, long checkTime) {
+    }
+}
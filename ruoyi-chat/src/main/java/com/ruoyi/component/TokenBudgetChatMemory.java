@@ -0,0 +1,434 @@
+package com.ruoyi.component;
+
+import com.ruoyi.domain.ChatApp;
+import com.ruoyi.pojo.Chat;
+import com.ruoyi.pojo.ChatMemoryRecord;
+import com.ruoyi.utils.MongoUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 按token预算裁剪的会话记忆，替代默认的按条数截断的内存记忆
+ *
+ * 每条消息写入时计算一次token数，会话累计值增量维护；读取时返回滚动摘要加上预算内最新的对话。
+ * 未压缩的对话超过预算的 summarizeRatio 后，在 chatMemorySummaryExecutor 上用应用自己的模型把较早的对话
+ * 与已有摘要合并为新摘要，只保留预算 keepRatio 以内的最新对话。
+ * 摘要和未压缩的对话定时写入 ruoyi_memory 集合，长时间未使用的会话移出内存，重启后从集合恢复
+ */
+@Component
+@Slf4j
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    // 应用未设置预算时的默认token预算
+    @Value("${chat.memory.token-budget:4000}")
+    private int defaultTokenBudget;
+
+    // 未压缩的对话与摘要合计超过预算的该比例时触发摘要
+    @Value("${chat.memory.summarize-ratio:0.8}")
+    private double summarizeRatio;
+
+    // 摘要后保留的最新对话占预算的比例
+    @Value("${chat.memory.keep-ratio:0.5}")
+    private double keepRatio;
+
+    // 摘要的token上限占预算的比例
+    @Value("${chat.memory.summary-ratio:0.25}")
+    private double summaryRatio;
+
+    // 会话超过该时间未使用则移出内存（已写入集合）
+    @Value("${chat.memory.idle-ms:1800000}")
+    private long idleMs;
+
+    // 每条消息额外计入的token数（角色、分隔符）
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private static final String SUMMARY_PREFIX = "以下是之前对话的摘要：\n";
+
+    private static final String SUMMARY_PROMPT = """
+            请将下面的对话压缩为一段摘要，供后续对话参考。保留用户的身份、偏好、提供的关键信息、已得出的结论和尚未解决的问题，
+            省略寒暄和重复内容，不要编造，使用对话所用的语言，不超过%d个token。
+
+            已有摘要：
+            %s
+
+            新增对话：
+            %s
+            """;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ChatAppConfigCache chatAppConfigCache;
+
+    @Autowired
+    private ChatModelRegistry chatModelRegistry;
+
+    @Autowired
+    private ToolCallbackProvider tools;
+
+    @Autowired
+    @Qualifier("chatMemorySummaryExecutor")
+    private ExecutorService chatMemorySummaryExecutor;
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private record Turn(MessageType type, String text, int tokens) {
+    }
+
+    /**
+     * 单个会话的记忆，读写都在对象锁内
+     */
+    private static final class Conversation {
+
+        private final String conversationId;
+
+        private String appId;
+
+        private ChatApp chatApp;
+
+        private String summary;
+
+        private int summaryTokens;
+
+        private final Deque<Turn> turns = new ArrayDeque<>();
+
+        // turns 的token合计
+        private int turnTokens;
+
+        private boolean summarizing;
+
+        // clear 后递增，丢弃清空前开始的摘要结果
+        private int generation;
+
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private Conversation(String conversationId) {
+            this.conversationId = conversationId;
+        }
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        // 问答时 get 已加载会话，这里一般不会访问集合（流式回答结束时在Netty线程上调用）
+        Conversation conversation = conversations.computeIfAbsent(conversationId, this::load);
+        synchronized (conversation) {
+            for (Message message : messages) {
+                String text = message.getText();
+                if (text == null || text.isEmpty()) {
+                    continue;
+                }
+                int tokens = count(text);
+                conversation.turns.addLast(new Turn(message.getMessageType(), text, tokens));
+                conversation.turnTokens += tokens;
+            }
+            conversation.lastAccess = System.currentTimeMillis();
+            // 无法摘要（没有所属应用）或摘要持续失败时，直接丢弃最早的对话，避免无限增长
+            int limit = conversation.chatApp == null ? this.budgetOf(conversation) : this.budgetOf(conversation) * 2;
+            while (!conversation.summarizing && conversation.turnTokens > limit && conversation.turns.size() > 1) {
+                conversation.turnTokens -= conversation.turns.pollFirst().tokens();
+            }
+        }
+        dirty.add(conversationId);
+        this.summarizeIfNeeded(conversation);
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Conversation conversation = conversations.computeIfAbsent(conversationId, this::load);
+        this.refreshApp(conversation);
+        List<Message> messages = new ArrayList<>();
+        synchronized (conversation) {
+            conversation.lastAccess = System.currentTimeMillis();
+            int budget = this.budgetOf(conversation);
+            int used = 0;
+            if (conversation.summary != null && conversation.summaryTokens <= budget) {
+                used += conversation.summaryTokens;
+            }
+            // 从最新的对话往前取，超出预算为止（后台摘要尚未完成时同样不超预算）
+            Deque<Turn> fitting = new ArrayDeque<>();
+            Iterator<Turn> newestFirst = conversation.turns.descendingIterator();
+            while (newestFirst.hasNext()) {
+                Turn turn = newestFirst.next();
+                if (used + turn.tokens() > budget) {
+                    break;
+                }
+                used += turn.tokens();
+                fitting.addFirst(turn);
+            }
+            if (conversation.summary != null && conversation.summaryTokens <= budget) {
+                messages.add(new SystemMessage(SUMMARY_PREFIX + conversation.summary));
+            }
+            for (Turn turn : fitting) {
+                messages.add(toMessage(turn));
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        Conversation conversation = conversations.remove(conversationId);
+        if (conversation != null) {
+            synchronized (conversation) {
+                conversation.generation++;
+            }
+        }
+        dirty.remove(conversationId);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(conversationId)), MongoUtil.MEMORY_COLLECTION);
+    }
+
+    /**
+     * 定时写入有变化的会话，移出长时间未使用的会话
+     */
+    @Scheduled(fixedDelayString = "${chat.memory.flush-interval-ms:5000}")
+    public void flush() {
+        for (String conversationId : dirty) {
+            dirty.remove(conversationId);
+            Conversation conversation = conversations.get(conversationId);
+            if (conversation != null) {
+                try {
+                    mongoTemplate.save(this.snapshot(conversation), MongoUtil.MEMORY_COLLECTION);
+                } catch (Exception e) {
+                    dirty.add(conversationId);
+                    log.warn("保存会话记忆失败，会话：{}", conversationId, e);
+                }
+            }
+        }
+        long expireBefore = System.currentTimeMillis() - idleMs;
+        conversations.entrySet().removeIf(entry -> entry.getValue().lastAccess < expireBefore
+                && !entry.getValue().summarizing && !dirty.contains(entry.getKey()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    private Conversation load(String conversationId) {
+        Conversation conversation = new Conversation(conversationId);
+        ChatMemoryRecord record = mongoTemplate.findById(conversationId, ChatMemoryRecord.class, MongoUtil.MEMORY_COLLECTION);
+        if (record != null) {
+            conversation.appId = record.getAppId();
+            conversation.summary = record.getSummary();
+            conversation.summaryTokens = record.getSummaryTokens() == null ? 0 : record.getSummaryTokens();
+            if (record.getTurns() != null) {
+                for (ChatMemoryRecord.Turn saved : record.getTurns()) {
+                    int tokens = saved.getTokens() == null ? count(saved.getText()) : saved.getTokens();
+                    conversation.turns.addLast(new Turn(MessageType.valueOf(saved.getType()), saved.getText(), tokens));
+                    conversation.turnTokens += tokens;
+                }
+            }
+        }
+        if (conversation.appId == null) {
+            conversation.appId = this.appIdOf(conversationId);
+        }
+        return conversation;
+    }
+
+    /**
+     * 会话id即问答的 chatId，从会话集合查出所属应用；其他用途的会话（非数字id）没有应用，只按默认预算裁剪
+     */
+    private String appIdOf(String conversationId) {
+        long chatId;
+        try {
+            chatId = Long.parseLong(conversationId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Chat chat = mongoTemplate.findById(chatId, Chat.class, MongoUtil.CHAT_COLLECTION);
+        return chat == null ? null : chat.getAppId();
+    }
+
+    /**
+     * 读取记忆时刷新应用配置（预算、模型可能修改），应用配置走缓存
+     */
+    private void refreshApp(Conversation conversation) {
+        if (conversation.appId == null) {
+            return;
+        }
+        try {
+            ChatApp chatApp = chatAppConfigCache.get(conversation.appId).map(ChatAppConfigCache.AppConfig::chatApp).block();
+            synchronized (conversation) {
+                conversation.chatApp = chatApp;
+            }
+        } catch (Exception e) {
+            log.warn("查询会话{}所属应用{}失败", conversation.conversationId, conversation.appId, e);
+        }
+    }
+
+    private int budgetOf(Conversation conversation) {
+        ChatApp chatApp = conversation.chatApp;
+        if (chatApp != null && chatApp.getMemoryTokenBudget() != null && chatApp.getMemoryTokenBudget() > 0) {
+            return chatApp.getMemoryTokenBudget();
+        }
+        return defaultTokenBudget;
+    }
+
+    private void summarizeIfNeeded(Conversation conversation) {
+        synchronized (conversation) {
+            if (conversation.summarizing || conversation.chatApp == null
+                    || conversation.turnTokens + conversation.summaryTokens <= this.budgetOf(conversation) * summarizeRatio) {
+                return;
+            }
+            conversation.summarizing = true;
+        }
+        try {
+            chatMemorySummaryExecutor.execute(() -> this.summarize(conversation));
+        } catch (RejectedExecutionException e) {
+            synchronized (conversation) {
+                conversation.summarizing = false;
+            }
+            log.debug("会话记忆摘要队列已满，会话：{}", conversation.conversationId);
+        }
+    }
+
+    /**
+     * 把较早的对话与已有摘要合并为新摘要；调用模型期间新写入的对话追加在末尾，不受影响
+     */
+    private void summarize(Conversation conversation) {
+        try {
+            ChatApp chatApp;
+            String previousSummary;
+            List<Turn> older = new ArrayList<>();
+            int olderTokens = 0;
+            int generation;
+            int budget;
+            synchronized (conversation) {
+                chatApp = conversation.chatApp;
+                previousSummary = conversation.summary;
+                generation = conversation.generation;
+                budget = this.budgetOf(conversation);
+                // 从最新往前保留 keepRatio 以内的对话，其余的压缩
+                int keep = (int) (budget * keepRatio);
+                int kept = 0;
+                int keptCount = 0;
+                Iterator<Turn> newestFirst = conversation.turns.descendingIterator();
+                while (newestFirst.hasNext()) {
+                    Turn turn = newestFirst.next();
+                    if (kept + turn.tokens() > keep) {
+                        break;
+                    }
+                    kept += turn.tokens();
+                    keptCount++;
+                }
+                Iterator<Turn> oldestFirst = conversation.turns.iterator();
+                for (int i = conversation.turns.size() - keptCount; i > 0; i--) {
+                    Turn turn = oldestFirst.next();
+                    older.add(turn);
+                    olderTokens += turn.tokens();
+                }
+            }
+            if (older.isEmpty()) {
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+            int summaryMaxTokens = (int) (budget * summaryRatio);
+            StringBuilder dialogue = new StringBuilder();
+            for (Turn turn : older) {
+                dialogue.append(turn.type() == MessageType.USER ? "用户：" : "助手：").append(turn.text()).append("\n");
+            }
+            String prompt = String.format(SUMMARY_PROMPT, summaryMaxTokens,
+                    previousSummary == null ? "无" : previousSummary, dialogue);
+            String summary = chatModelRegistry.getChatModel(chatApp, tools.getToolCallbacks())
+                    .call(new Prompt(new UserMessage(prompt)))
+                    .getResult().getOutput().getText();
+            if (summary == null || summary.isBlank()) {
+                log.warn("会话{}的摘要为空，保留原对话", conversation.conversationId);
+                return;
+            }
+            summary = summary.trim();
+            int summaryTokens = count(summary);
+
+            synchronized (conversation) {
+                if (conversation.generation != generation) {
+                    return;
+                }
+                // 摘要期间只会在末尾追加，开头的 older.size() 条仍是被压缩的对话
+                for (int i = 0; i < older.size(); i++) {
+                    conversation.turns.pollFirst();
+                }
+                conversation.turnTokens -= olderTokens;
+                conversation.summary = summary;
+                conversation.summaryTokens = summaryTokens;
+            }
+            dirty.add(conversation.conversationId);
+            log.info("会话{}压缩{}条对话（{} tokens）为摘要（{} tokens），耗时{}ms", conversation.conversationId,
+                    older.size(), olderTokens, summaryTokens, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("会话{}生成摘要失败", conversation.conversationId, e);
+        } finally {
+            synchronized (conversation) {
+                conversation.summarizing = false;
+            }
+        }
+    }
+
+    private ChatMemoryRecord snapshot(Conversation conversation) {
+        ChatMemoryRecord record = new ChatMemoryRecord();
+        synchronized (conversation) {
+            record.setConversationId(conversation.conversationId);
+            record.setAppId(conversation.appId);
+            record.setSummary(conversation.summary);
+            record.setSummaryTokens(conversation.summaryTokens);
+            List<ChatMemoryRecord.Turn> turns = new ArrayList<>(conversation.turns.size());
+            for (Turn turn : conversation.turns) {
+                ChatMemoryRecord.Turn saved = new ChatMemoryRecord.Turn();
+                saved.setType(turn.type().name());
+                saved.setText(turn.text());
+                saved.setTokens(turn.tokens());
+                turns.add(saved);
+            }
+            record.setTurns(turns);
+        }
+        record.setUpdateTime(new Date());
+        return record;
+    }
+
+    private int count(String text) {
+        return tokenCountEstimator.estimate(text) + MESSAGE_OVERHEAD_TOKENS;
+    }
+
+    private static Message toMessage(Turn turn) {
+        return switch (turn.type()) {
+            case USER -> new UserMessage(turn.text());
+            case ASSISTANT -> new AssistantMessage(turn.text());
+            default -> new SystemMessage(turn.text());
+        };
+    }
+}
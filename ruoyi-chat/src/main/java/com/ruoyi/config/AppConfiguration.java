@@ -17,12 +17,19 @@
 
 package com.ruoyi.config;
 
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.ai.chat.client.ChatClientRequest;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 /**
  * @author yuluo
  * @author <a href="mailto:yuluo08290126@gmail.com">yuluo</a>
@@ -35,11 +42,24 @@ public class AppConfiguration {
 
 	private static final String AI_DASHSCOPE_API_KEY_PREFIX = "DASH_SCOPE_API_KEY";
 
+	private static final TokenCountEstimator TOKEN_COUNT_ESTIMATOR = new JTokkitTokenCountEstimator();
+
 
 	@Bean
 	public SimpleLoggerAdvisor simpleLoggerAdvisor() {
+		// 只记录消息条数、估算token数及用户问题，不输出完整的会话记忆
+		return new SimpleLoggerAdvisor(AppConfiguration::describeRequest, null, 100);
+	}
 
-		return new SimpleLoggerAdvisor(100);
+	private static String describeRequest(ChatClientRequest request) {
+		List<Message> messages = request.prompt().getInstructions();
+		int tokens = 0;
+		for (Message message : messages) {
+			tokens += message.getText() == null ? 0 : TOKEN_COUNT_ESTIMATOR.estimate(message.getText());
+		}
+		String question = request.prompt().getUserMessage().getText();
+		return "messages=" + messages.size() + ", tokens≈" + tokens
+				+ ", question=" + StringUtils.abbreviate(question == null ? "" : question, 200);
 	}
 
 	@Bean
@@ -0,0 +1,217 @@
+package com.ruoyi.config;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 知识库相关线程池配置
+ *
+ * 注意：这里的线程池均声明为 ExecutorService 而不是 TaskExecutor，
+ * 避免与 threadPoolTaskExecutor 冲突导致 @Async 退化为 SimpleAsyncTaskExecutor
+ */
+@Configuration
+public class ChatExecutorConfig {
+
+    // 文件读取阶段线程数（同时进行解析的上传数）
+    @Value("${chat.ingest.reader-threads:8}")
+    private int readerThreads;
+
+    // 同时执行的文件入库任务数
+    @Value("${chat.ingest.job.workers:4}")
+    private int ingestJobWorkers;
+
+    // OCR线程数，默认为CPU核数
+    @Value("${chat.ocr.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int ocrThreads;
+
+    // 同时请求嵌入模型的批次数
+    @Value("${chat.embedding.max-in-flight:4}")
+    private int embeddingMaxInFlight;
+
+    // 向量写入线程数
+    @Value("${chat.embedding.insert-threads:4}")
+    private int vectorInsertThreads;
+
+    // 知识库检索线程数（所有会话共享）
+    @Value("${chat.retrieval.threads:16}")
+    private int retrievalThreads;
+
+    // BM25索引后台重建线程数
+    @Value("${chat.retrieval.hybrid.build-threads:2}")
+    private int bm25BuildThreads;
+
+    // 重排序推理线程数
+    @Value("${chat.rerank.threads:4}")
+    private int rerankThreads;
+
+    // 本地嵌入模型推理线程数
+    @Value("${chat.embedding.local.threads:4}")
+    private int localEmbeddingThreads;
+
+    // 会话记忆后台摘要的线程数
+    @Value("${chat.memory.summary-threads:2}")
+    private int memorySummaryThreads;
+
+    // 同时执行的索引调优数
+    @Value("${chat.index-tuning.threads:1}")
+    private int indexTuningThreads;
+
+    // 流式问答中阻塞操作（查询应用配置、向量化问题等）的线程数上限
+    @Value("${chat.stream.blocking-threads:64}")
+    private int chatBlockingThreads;
+
+    // 流式问答阻塞操作的排队任务数上限，超过后请求直接失败
+    @Value("${chat.stream.blocking-queue-size:10000}")
+    private int chatBlockingQueueSize;
+
+    /**
+     * 文件入库任务线程池，领取任务前已按空闲线程数控制数量，队列只用于容纳领取与提交之间的时间差
+     */
+    @Bean(name = "ingestJobExecutor")
+    public ExecutorService ingestJobExecutor() {
+        return new ThreadPoolExecutor(ingestJobWorkers, ingestJobWorkers,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(ingestJobWorkers),
+                new BasicThreadFactory.Builder().namingPattern("ingest-job-%d").daemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 文件读取阶段线程池
+     * 读取线程与切分线程之间是有界队列，拒绝策略不能使用 CallerRuns，否则调用线程会阻塞在自己的队列上。
+     * 只有入库任务线程提交读取任务，每个任务同时最多一个，队列按任务线程数设置，读取线程都在忙时排队而不会被拒绝
+     */
+    @Bean(name = "ingestReaderExecutor")
+    public ExecutorService ingestReaderExecutor() {
+        return new ThreadPoolExecutor(readerThreads, readerThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(ingestJobWorkers, 1)),
+                new BasicThreadFactory.Builder().namingPattern("ingest-reader-%d").daemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * PDF页面OCR线程池，每个线程持有一个 Tesseract 实例
+     * 每次上传在途的页面数由 PdfOcrEngine 控制，这里的队列不设上限
+     */
+    @Bean(name = "ocrExecutor")
+    public ExecutorService ocrExecutor() {
+        return new ThreadPoolExecutor(ocrThreads, ocrThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new BasicThreadFactory.Builder().namingPattern("ocr-%d").daemon(true).build());
+    }
+
+    /**
+     * 向量化线程池，在途批次数由 EmbeddingScheduler 的信号量控制
+     */
+    @Bean(name = "embeddingExecutor")
+    public ExecutorService embeddingExecutor() {
+        return new ThreadPoolExecutor(embeddingMaxInFlight, embeddingMaxInFlight,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new BasicThreadFactory.Builder().namingPattern("embedding-%d").daemon(true).build());
+    }
+
+    /**
+     * 向量写入线程池，向量化完成的批次在这里写入向量存储，在途批次数由 EmbeddingScheduler 的信号量控制
+     */
+    @Bean(name = "vectorInsertExecutor")
+    public ExecutorService vectorInsertExecutor() {
+        return new ThreadPoolExecutor(vectorInsertThreads, vectorInsertThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new BasicThreadFactory.Builder().namingPattern("vector-insert-%d").daemon(true).build());
+    }
+
+    /**
+     * 多知识库并行检索线程池，队列满时由调用线程执行检索
+     */
+    @Bean(name = "retrievalExecutor")
+    public ExecutorService retrievalExecutor() {
+        return new ThreadPoolExecutor(retrievalThreads, retrievalThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(retrievalThreads * 16),
+                new BasicThreadFactory.Builder().namingPattern("retrieval-%d").daemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * BM25索引后台重建线程池，每个知识库同时最多一个任务；队列满时放弃，下次比对版本时重新提交
+     */
+    @Bean(name = "bm25BuildExecutor")
+    public ExecutorService bm25BuildExecutor() {
+        return new ThreadPoolExecutor(bm25BuildThreads, bm25BuildThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(64),
+                new BasicThreadFactory.Builder().namingPattern("bm25-build-%d").daemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 重排序推理线程池，每个任务推理一批 (问题, 分片)；队列满时拒绝，该次问答不重排序，
+     * 避免调用线程（检索、流式问答线程）被超时限制之外的推理占用
+     */
+    @Bean(name = "rerankExecutor")
+    public ExecutorService rerankExecutor() {
+        return new ThreadPoolExecutor(rerankThreads, rerankThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(rerankThreads * 8),
+                new BasicThreadFactory.Builder().namingPattern("rerank-%d").daemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 本地嵌入模型推理线程池，每个任务推理一批文本；队列满时由组批调度线程推理，期间新请求继续积累成更大的批
+     */
+    @Bean(name = "localEmbeddingExecutor")
+    public ExecutorService localEmbeddingExecutor() {
+        return new ThreadPoolExecutor(localEmbeddingThreads, localEmbeddingThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(localEmbeddingThreads * 2),
+                new BasicThreadFactory.Builder().namingPattern("local-embedding-%d").daemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 会话记忆摘要线程池，每个任务调用一次大模型；队列满时放弃，下次写入记忆时重新触发
+     */
+    @Bean(name = "chatMemorySummaryExecutor")
+    public ExecutorService chatMemorySummaryExecutor() {
+        return new ThreadPoolExecutor(memorySummaryThreads, memorySummaryThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(memorySummaryThreads * 64),
+                new BasicThreadFactory.Builder().namingPattern("memory-summary-%d").daemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 索引调优线程池，每个任务评估一个知识库；同一知识库同时只有一个任务，队列满时拒绝提交
+     */
+    @Bean(name = "indexTuningExecutor")
+    public ExecutorService indexTuningExecutor() {
+        return new ThreadPoolExecutor(indexTuningThreads, indexTuningThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(16),
+                new BasicThreadFactory.Builder().namingPattern("index-tuning-%d").daemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 流式问答中无法避免的阻塞操作使用的调度器，线程数、排队数有上限
+     * 流式问答的并发数不再受 Tomcat 线程数限制，阻塞操作也不会占用 Netty 事件循环线程
+     */
+    @Bean(name = "chatBlockingScheduler", destroyMethod = "dispose")
+    public Scheduler chatBlockingScheduler() {
+        return Schedulers.newBoundedElastic(chatBlockingThreads, chatBlockingQueueSize, "chat-blocking", 60, true);
+    }
+}
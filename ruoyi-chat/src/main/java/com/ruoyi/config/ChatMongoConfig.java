@@ -0,0 +1,38 @@
+package com.ruoyi.config;
+
+import com.ruoyi.utils.MongoUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+/**
+ * 会话、问答集合的索引，启动时创建（已存在时不重复创建）
+ * 查询、游标分页的排序都走索引：会话按 (appId, userId, createTime, _id) 倒序，问答按 (chatId, createTime, _id) 正序
+ */
+@Configuration
+@Slf4j
+public class ChatMongoConfig {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(MongoUtil.CHAT_COLLECTION).ensureIndex(new Index()
+                .on("appId", Sort.Direction.ASC)
+                .on("userId", Sort.Direction.ASC)
+                .on("createTime", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("idx_app_user_time"));
+        mongoTemplate.indexOps(MongoUtil.MESSAGE_COLLECTION).ensureIndex(new Index()
+                .on("chatId", Sort.Direction.ASC)
+                .on("createTime", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("idx_chat_time"));
+        log.info("会话、问答集合索引已就绪");
+    }
+}
@@ -0,0 +1,115 @@
+package com.ruoyi.config;
+
+import jakarta.servlet.MultipartConfigElement;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.boot.web.servlet.MultipartConfigFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+
+import java.util.List;
+
+/**
+ * 上传大小限制
+ *
+ * spring.servlet.multipart 的限制对所有接口生效，只有 chat.ingest.bulk.paths 中的批量上传接口使用 chat.ingest.bulk 的较大限制。
+ * Servlet 容器的解析限制只能按 DispatcherServlet 设置，因此容器按两者中较大的值解析，
+ * 其余接口在解析前按 Content-Length 检查请求大小（不带 Content-Length 的分块请求直接拒绝），解析后检查单个文件大小
+ */
+@Configuration
+public class ChatMultipartConfig {
+
+    // 使用较大上传限制的接口路径（不含 context-path）
+    @Value("${chat.ingest.bulk.paths:/chat/file/uploadBatch}")
+    private List<String> bulkPaths;
+
+    // 批量上传接口的单个文件（含zip压缩包）大小上限
+    @Value("${chat.ingest.bulk.max-file-size:1GB}")
+    private DataSize bulkMaxFileSize;
+
+    // 批量上传接口的请求大小上限
+    @Value("${chat.ingest.bulk.max-request-size:2GB}")
+    private DataSize bulkMaxRequestSize;
+
+    /**
+     * 容器解析使用的限制，替代 MultipartAutoConfiguration 按 spring.servlet.multipart 创建的配置
+     */
+    @Bean
+    public MultipartConfigElement multipartConfigElement(MultipartProperties properties) {
+        MultipartConfigFactory factory = new MultipartConfigFactory();
+        factory.setLocation(properties.getLocation());
+        factory.setFileSizeThreshold(properties.getFileSizeThreshold());
+        factory.setMaxFileSize(max(properties.getMaxFileSize(), bulkMaxFileSize));
+        factory.setMaxRequestSize(max(properties.getMaxRequestSize(), bulkMaxRequestSize));
+        return factory.createMultipartConfig();
+    }
+
+    @Bean(name = "multipartResolver")
+    public MultipartResolver multipartResolver(MultipartProperties properties) {
+        PathLimitMultipartResolver resolver = new PathLimitMultipartResolver(bulkPaths,
+                bytes(properties.getMaxFileSize()), bytes(properties.getMaxRequestSize()));
+        resolver.setResolveLazily(properties.isResolveLazily());
+        return resolver;
+    }
+
+    private static DataSize max(DataSize size, DataSize other) {
+        return size == null || bytes(size) < 0 || bytes(other) > bytes(size) ? other : size;
+    }
+
+    private static long bytes(DataSize size) {
+        return size == null ? -1 : size.toBytes();
+    }
+
+    /**
+     * 非批量上传接口按 spring.servlet.multipart 的限制检查
+     */
+    static class PathLimitMultipartResolver extends StandardServletMultipartResolver {
+
+        private final List<String> bulkPaths;
+
+        private final long maxFileSize;
+
+        private final long maxRequestSize;
+
+        PathLimitMultipartResolver(List<String> bulkPaths, long maxFileSize, long maxRequestSize) {
+            this.bulkPaths = bulkPaths;
+            this.maxFileSize = maxFileSize;
+            this.maxRequestSize = maxRequestSize;
+        }
+
+        @Override
+        public MultipartHttpServletRequest resolveMultipart(HttpServletRequest request) {
+            if (isBulkUpload(request)) {
+                return super.resolveMultipart(request);
+            }
+            long contentLength = request.getContentLengthLong();
+            if (maxRequestSize >= 0 && (contentLength < 0 || contentLength > maxRequestSize)) {
+                throw new MaxUploadSizeExceededException(maxRequestSize);
+            }
+            MultipartHttpServletRequest multipartRequest = super.resolveMultipart(request);
+            if (maxFileSize >= 0) {
+                for (List<MultipartFile> files : multipartRequest.getMultiFileMap().values()) {
+                    for (MultipartFile file : files) {
+                        if (file.getSize() > maxFileSize) {
+                            cleanupMultipart(multipartRequest);
+                            throw new MaxUploadSizeExceededException(maxFileSize);
+                        }
+                    }
+                }
+            }
+            return multipartRequest;
+        }
+
+        private boolean isBulkUpload(HttpServletRequest request) {
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            return bulkPaths.contains(path);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ruoyi.config;
+
+import com.ruoyi.component.LocalOnnxEmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 知识库嵌入模型配置
+ *
+ * chat.embedding.provider 为 local 时使用本地 ONNX 模型，否则使用 spring.ai.openai.embedding 配置的远程模型；
+ * 切换后向量维度、向量空间都会变化，已有知识库需要重新向量化
+ */
+@Configuration
+public class EmbeddingModelConfig {
+
+    @Bean(name = "localEmbeddingModel", destroyMethod = "close")
+    @ConditionalOnProperty(name = "chat.embedding.provider", havingValue = "local")
+    public LocalOnnxEmbeddingModel localEmbeddingModel(
+            @Value("${chat.embedding.local.model-dir:classpath:/onnx/bge-small-zh-v1.5}") String modelDir,
+            @Value("${chat.embedding.local.max-length:512}") int maxLength,
+            @Value("${chat.embedding.local.max-batch-size:32}") int maxBatchSize,
+            @Value("${chat.embedding.local.max-wait-ms:5}") long maxWaitMs,
+            @Value("${chat.embedding.local.output-name:last_hidden_state}") String outputName,
+            @Value("${chat.embedding.local.pooling:cls}") String pooling,
+            @Value("${chat.embedding.local.encoding-cache-size:10000}") int encodingCacheSize,
+            @Value("${chat.embedding.local.queue-capacity:1024}") int queueCapacity,
+            @Value("${chat.embedding.local.timeout-ms:30000}") long timeoutMs,
+            @Qualifier("localEmbeddingExecutor") ExecutorService localEmbeddingExecutor) throws Exception {
+        return new LocalOnnxEmbeddingModel(modelDir, maxLength, maxBatchSize, maxWaitMs, outputName, pooling,
+                encodingCacheSize, queueCapacity, timeoutMs, localEmbeddingExecutor);
+    }
+
+    /**
+     * 知识库分片、问题向量化使用的嵌入模型
+     */
+    @Bean(name = "knowledgeEmbeddingModel")
+    public EmbeddingModel knowledgeEmbeddingModel(OpenAiEmbeddingModel openAiEmbeddingModel,
+                                                  ObjectProvider<LocalOnnxEmbeddingModel> localEmbeddingModel) {
+        LocalOnnxEmbeddingModel local = localEmbeddingModel.getIfAvailable();
+        return local != null ? local : openAiEmbeddingModel;
+    }
+}
@@ -1,10 +1,16 @@
 package com.ruoyi.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
 
 @Configuration
 public class SearXNGConfig {
@@ -22,6 +28,20 @@ public class SearXNGConfig {
         return new RestTemplate(factory);
     }
 
+    /**
+     * 流式问答联网搜索使用，不阻塞调用线程
+     */
+    @Bean
+    public WebClient searxngWebClient() {
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeout)
+                .responseTimeout(Duration.ofMillis(timeout));
+        return WebClient.builder()
+                .baseUrl(searxngHost)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
     @Bean
     public String searxngHost() {
         return searxngHost;
@@ -1,6 +1,9 @@
 package com.ruoyi.controller;
 
 import com.ruoyi.common.utils.SecurityUtils;
+import com.ruoyi.component.ChatAppConfigCache;
+import com.ruoyi.component.ChatModelRegistry;
+import com.ruoyi.component.SemanticAnswerCache;
 import com.ruoyi.domain.ChatApp;
 import com.ruoyi.service.IChatAppService;
 import com.ruoyi.common.annotation.Log;
@@ -32,6 +35,15 @@ public class ChatAppController extends BaseController
     @Autowired
     private IChatAppService chatAppService;
 
+    @Autowired
+    private SemanticAnswerCache semanticAnswerCache;
+
+    @Autowired
+    private ChatModelRegistry chatModelRegistry;
+
+    @Autowired
+    private ChatAppConfigCache chatAppConfigCache;
+
     @Operation(summary = "不分页查询应用列表")
     @GetMapping
     public TableDataInfo listAll()
@@ -80,7 +92,14 @@ public class ChatAppController extends BaseController
     @Log(title = "应用", businessType = BusinessType.UPDATE)
     @PostMapping(value = "/edit")
     public AjaxResult edit(@RequestBody ChatApp chatApp) {
-        return toAjax(chatAppService.updateChatApp(chatApp));
+        // 修改前的模型配置，用于移除缓存的聊天模型
+        ChatApp previous = chatAppService.selectChatAppByAppId(chatApp.getAppId());
+        int rows = chatAppService.updateChatApp(chatApp);
+        // 模型、提示词或关联知识库可能变化，已缓存的回答不再适用
+        semanticAnswerCache.invalidateApp(chatApp.getAppId());
+        chatModelRegistry.invalidate(previous);
+        chatAppConfigCache.invalidate(chatApp.getAppId());
+        return toAjax(rows);
     }
 
     @Operation(summary = "删除应用")
@@ -89,6 +108,13 @@ public class ChatAppController extends BaseController
 	@DeleteMapping("/{appIds}")
     public AjaxResult remove(@PathVariable String[] appIds)
     {
-        return toAjax(chatAppService.deleteChatAppByAppIds(appIds));
+        for (String appId : appIds) {
+            chatModelRegistry.invalidate(chatAppService.selectChatAppByAppId(appId));
+        }
+        int rows = chatAppService.deleteChatAppByAppIds(appIds);
+        for (String appId : appIds) {
+            chatAppConfigCache.invalidate(appId);
+        }
+        return toAjax(rows);
     }
 }
@@ -0,0 +1,44 @@
+package com.ruoyi.controller;
+
+import com.ruoyi.common.core.controller.BaseController;
+import com.ruoyi.common.core.domain.AjaxResult;
+import com.ruoyi.component.EmbeddingDiskCache;
+import com.ruoyi.component.QueryEmbeddingCache;
+import com.ruoyi.component.SemanticAnswerCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缓存监控Controller
+ */
+@RestController
+@Tag(name = "缓存监控")
+@RequestMapping("/chat/cache")
+public class ChatCacheController extends BaseController {
+
+    @Autowired
+    private EmbeddingDiskCache embeddingDiskCache;
+
+    @Autowired
+    private QueryEmbeddingCache queryEmbeddingCache;
+
+    @Autowired
+    private SemanticAnswerCache semanticAnswerCache;
+
+    @Operation(summary = "查询缓存命中统计")
+    @GetMapping("/stats")
+    public AjaxResult stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("documentEmbedding", embeddingDiskCache.stats());
+        result.put("queryEmbedding", queryEmbeddingCache.stats());
+        result.put("answer", semanticAnswerCache.stats());
+        return success(result);
+    }
+}
@@ -35,7 +35,8 @@ public class ChatController extends BaseController {
     public Flux<String> chatStream(@RequestBody @Valid QueryVo queryVo) {
 
         try {
-            return aiService.chatStream(queryVo);
+            return aiService.chatStream(queryVo)
+                    .doOnError(e -> log.error("AI大模型交互-文本文答接口异常", e));
         } catch (Exception e) {
             log.error("AI大模型交互-文本文答接口异常", e);
             throw new RuntimeException(e);
@@ -59,11 +60,11 @@ public class ChatController extends BaseController {
         return success();
     }
 
-    @Operation(summary = "查询会话列表")
+    @Operation(summary = "查询会话列表，传 size 时按游标分页")
     @GetMapping("list-chat")
-    public AjaxResult listChat(String appId){
+    public AjaxResult listChat(String appId, String cursor, Integer size){
         Long userId = getUserId();
-        AjaxResult ajaxResult = this.aiService.listChat(appId, userId);
+        AjaxResult ajaxResult = this.aiService.listChat(appId, userId, cursor, size);
         log.info("查询会话列表:{}", JSON.toJSONString(ajaxResult.get("data")));
         return ajaxResult;
     }
@@ -75,13 +76,16 @@ public class ChatController extends BaseController {
         return success();
     }
 
-    @Operation(summary = "查询一个会话中的问答消息")
+    @Operation(summary = "查询一个会话中的问答消息，传 size 时按游标分页（从最新的问答往前）")
     @GetMapping("list-msg")
-    public AjaxResult listMsg(Long chatId){
-        return this.aiService.listMsg(chatId);
+    public AjaxResult listMsg(Long chatId, String cursor, Integer size){
+        return this.aiService.listMsg(chatId, cursor, size);
     }
 
-    @Operation(summary = "如果需要保存AI回答的结果，调用此接口")
+    /**
+     * chat-stream 的回答已在流结束时由后端保存，此接口保留给其他方式获得回答的客户端
+     */
+    @Operation(summary = "如果需要保存AI回答的结果，调用此接口（chat-stream 的回答已自动保存）")
     @PostMapping("save-msg")
     public AjaxResult saveMsg(@Valid @RequestBody MessageVo messageVo){
         this.aiService.saveMsg(messageVo);
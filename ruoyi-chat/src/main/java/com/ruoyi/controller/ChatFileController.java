@@ -11,6 +11,7 @@ import com.ruoyi.domain.ChatFileSegment;
 import com.ruoyi.service.AiService;
 import com.ruoyi.service.IChatFileSegmentService;
 import com.ruoyi.service.IChatFileService;
+import com.ruoyi.service.ingest.BulkUploadService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletResponse;
@@ -19,6 +20,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -42,6 +44,9 @@ public class ChatFileController extends BaseController
     @Autowired
     private AiService aiService;
 
+    @Autowired
+    private BulkUploadService bulkUploadService;
+
     @Operation(summary = "根据知识库ID获取文件列表")
     @GetMapping("/getFileListByKnowledgeId")
     public TableDataInfo getFileListByKnowledgeId(@RequestParam String knowledgeId){
@@ -64,14 +69,38 @@ public class ChatFileController extends BaseController
 
         chatFile.setCreateBy(getUsername());
         try {
-            aiService.upload(chatFile, file);
-            return success("上传成功");
+            // 入库在后台执行，通过返回的任务ID查询进度
+            return AjaxResult.success("上传成功", aiService.upload(chatFile, file));
         } catch (Exception e) {
             log.error("文件上传接口异常：", e);
             throw new RuntimeException(e);
         }
     }
 
+    @Operation(summary = "批量上传（多个文件或zip压缩包），返回每个文件的处理结果及入库任务")
+    @PostMapping("uploadBatch")
+    public AjaxResult uploadBatch(ChatFile chatFile, @RequestParam("files") MultipartFile[] files){
+
+        chatFile.setCreateBy(getUsername());
+        try {
+            return success(bulkUploadService.upload(chatFile, files));
+        } catch (IOException e) {
+            log.error("批量上传接口异常：", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Operation(summary = "文件替换（增量更新分片及向量）")
+    @PostMapping("replace")
+    public AjaxResult replace(@RequestParam String fileId, MultipartFile file){
+        try {
+            return AjaxResult.success("替换成功", aiService.replace(fileId, file));
+        } catch (Exception e) {
+            log.error("文件替换接口异常：", e);
+            throw new RuntimeException(e);
+        }
+    }
+
     @Operation(summary = "文件删除")
     @DeleteMapping("remove")
     public AjaxResult removeFile(@RequestParam String projectId, @RequestParam String knowledgeId){
@@ -0,0 +1,63 @@
+package com.ruoyi.controller;
+
+import com.ruoyi.common.core.controller.BaseController;
+import com.ruoyi.common.core.domain.AjaxResult;
+import com.ruoyi.common.core.page.TableDataInfo;
+import com.ruoyi.domain.ChatIngestJob;
+import com.ruoyi.service.IChatIngestJobService;
+import com.ruoyi.service.ingest.IngestJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件入库任务Controller
+ */
+@RestController
+@Tag(name = "文件入库任务")
+@RequestMapping("/chat/ingest/job")
+public class ChatIngestJobController extends BaseController
+{
+    @Autowired
+    private IChatIngestJobService chatIngestJobService;
+
+    @Autowired
+    private IngestJobService ingestJobService;
+
+    @Operation(summary = "分页查询入库任务列表")
+    @GetMapping("/list")
+    public TableDataInfo list(ChatIngestJob chatIngestJob)
+    {
+        startPage();
+        List<ChatIngestJob> list = chatIngestJobService.selectChatIngestJobList(chatIngestJob);
+        return getDataTable(list);
+    }
+
+    @Operation(summary = "查询入库任务进度")
+    @GetMapping("/{jobId}")
+    public AjaxResult progress(@PathVariable("jobId") String jobId)
+    {
+        Map<String, Object> progress = ingestJobService.progress(jobId);
+        return progress == null ? error("任务不存在") : success(progress);
+    }
+
+    @Operation(summary = "订阅入库任务进度（SSE）")
+    @GetMapping(path = "/{jobId}/stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE})
+    public SseEmitter stream(@PathVariable("jobId") String jobId)
+    {
+        return ingestJobService.subscribe(jobId);
+    }
+
+    @Operation(summary = "重试失败的入库任务")
+    @PostMapping("/{jobId}/retry")
+    public AjaxResult retry(@PathVariable("jobId") String jobId)
+    {
+        return ingestJobService.retry(jobId) ? success("已重新排队") : error("只有失败的任务可以重试");
+    }
+}
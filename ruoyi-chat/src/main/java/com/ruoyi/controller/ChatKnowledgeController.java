@@ -1,8 +1,20 @@
 package com.ruoyi.controller;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.ruoyi.common.utils.SecurityUtils;
+import com.ruoyi.common.utils.StringUtils;
+import com.ruoyi.component.Bm25IndexComponent;
+import com.ruoyi.component.ChatAppConfigCache;
+import com.ruoyi.component.HnswVectorStoreComponent;
+import com.ruoyi.component.KnowledgeVectorStoreComponent;
+import com.ruoyi.component.SemanticAnswerCache;
+import com.ruoyi.enums.SystemConstant;
+import com.ruoyi.pojo.IndexTuningParams;
+import com.ruoyi.service.MilvusIndexTuningService;
+import com.ruoyi.service.MilvusMemoryReportService;
+import com.ruoyi.service.MilvusSchemaMigrationService;
 import com.ruoyi.common.utils.uuid.IdUtils;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -37,6 +49,30 @@ public class ChatKnowledgeController extends BaseController
     @Autowired
     private IChatKnowledgeService chatKnowledgeService;
 
+    @Autowired
+    private KnowledgeVectorStoreComponent knowledgeVectorStoreComponent;
+
+    @Autowired
+    private HnswVectorStoreComponent hnswVectorStoreComponent;
+
+    @Autowired
+    private SemanticAnswerCache semanticAnswerCache;
+
+    @Autowired
+    private ChatAppConfigCache chatAppConfigCache;
+
+    @Autowired
+    private Bm25IndexComponent bm25IndexComponent;
+
+    @Autowired
+    private MilvusIndexTuningService milvusIndexTuningService;
+
+    @Autowired
+    private MilvusSchemaMigrationService milvusSchemaMigrationService;
+
+    @Autowired
+    private MilvusMemoryReportService milvusMemoryReportService;
+
     /**
      * 查询知识库列表
      */
@@ -78,6 +114,10 @@ public class ChatKnowledgeController extends BaseController
     @PostMapping
     public AjaxResult add(@RequestBody ChatKnowledge chatKnowledge)
     {
+        if (!hnswAvailable(chatKnowledge))
+        {
+            return error("内嵌HNSW仅支持单节点部署，需配置 chat.hnsw.enabled=true 后使用");
+        }
         Long userId = SecurityUtils.getUserId();
         chatKnowledge.setUserId(userId);
         chatKnowledge.setKnowledgeId(IdUtils.simpleUUID());
@@ -91,7 +131,55 @@ public class ChatKnowledgeController extends BaseController
     @PutMapping
     public AjaxResult edit(@RequestBody ChatKnowledge chatKnowledge)
     {
-        return toAjax(chatKnowledgeService.updateChatKnowledge(chatKnowledge));
+        if (!hnswAvailable(chatKnowledge))
+        {
+            return error("内嵌HNSW仅支持单节点部署，需配置 chat.hnsw.enabled=true 后使用");
+        }
+        ChatKnowledge oldKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeId(chatKnowledge.getKnowledgeId());
+        String newName = chatKnowledge.getKnowledgeName();
+        boolean renamed = oldKnowledge != null && StringUtils.isNotEmpty(newName) && !newName.equals(oldKnowledge.getKnowledgeName());
+        if (renamed)
+        {
+            if (chatKnowledgeService.selectChatKnowledgeByKnowledgeName(newName) != null)
+            {
+                return error("知识库名称已存在");
+            }
+            // 先重命名向量集合，失败时不修改知识库，知识库名称始终指向存在的集合
+            knowledgeVectorStoreComponent.renameCollection(oldKnowledge, newName);
+        }
+        int rows;
+        try
+        {
+            rows = chatKnowledgeService.updateChatKnowledge(chatKnowledge);
+        }
+        catch (RuntimeException e)
+        {
+            if (renamed)
+            {
+                // 知识库未修改成功，集合改回原名称
+                ChatKnowledge renamedKnowledge = new ChatKnowledge();
+                renamedKnowledge.setKnowledgeName(newName);
+                renamedKnowledge.setVectorStoreType(oldKnowledge.getVectorStoreType());
+                try
+                {
+                    knowledgeVectorStoreComponent.renameCollection(renamedKnowledge, oldKnowledge.getKnowledgeName());
+                }
+                catch (RuntimeException rollbackError)
+                {
+                    e.addSuppressed(rollbackError);
+                }
+            }
+            throw e;
+        }
+        if (oldKnowledge != null)
+        {
+            ChatKnowledge newKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeId(chatKnowledge.getKnowledgeId());
+            // 索引类型、参数变化时重建索引
+            knowledgeVectorStoreComponent.refresh(oldKnowledge, newKnowledge);
+            // 缓存的应用配置中包含知识库名称（向量集合名称）
+            chatAppConfigCache.invalidateAll();
+        }
+        return toAjax(rows);
     }
 
     /**
@@ -101,6 +189,81 @@ public class ChatKnowledgeController extends BaseController
 	@DeleteMapping("/{knowledgeIds}")
     public AjaxResult remove(@PathVariable String[] knowledgeIds)
     {
-        return toAjax(chatKnowledgeService.deleteChatKnowledgeByKnowledgeIds(knowledgeIds));
+        List<ChatKnowledge> deleted = new ArrayList<>();
+        for (String knowledgeId : knowledgeIds)
+        {
+            ChatKnowledge chatKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeId(knowledgeId);
+            if (chatKnowledge != null)
+            {
+                deleted.add(chatKnowledge);
+            }
+        }
+        int rows = chatKnowledgeService.deleteChatKnowledgeByKnowledgeIds(knowledgeIds);
+        // 删除后再清理缓存，避免并发请求按已删除的知识库重新缓存
+        for (ChatKnowledge chatKnowledge : deleted)
+        {
+            knowledgeVectorStoreComponent.drop(chatKnowledge);
+            bm25IndexComponent.evict(chatKnowledge.getKnowledgeId());
+            semanticAnswerCache.invalidateKnowledge(chatKnowledge.getKnowledgeId());
+        }
+        chatAppConfigCache.invalidateAll();
+        return toAjax(rows);
+    }
+
+    /**
+     * 后台评估知识库Milvus检索参数的召回率与延迟
+     */
+    @PreAuthorize("@ss.hasRole('admin')")
+    @PostMapping("/tune/{knowledgeId}")
+    public AjaxResult tune(@PathVariable("knowledgeId") String knowledgeId, @RequestBody IndexTuningParams params)
+    {
+        return success(milvusIndexTuningService.submit(knowledgeId, params));
+    }
+
+    /**
+     * 查询知识库最近一次检索参数评估的状态及结果
+     */
+    @PreAuthorize("@ss.hasRole('admin')")
+    @GetMapping("/tune/{knowledgeId}")
+    public AjaxResult tuneResult(@PathVariable("knowledgeId") String knowledgeId)
+    {
+        return success(milvusIndexTuningService.result(knowledgeId));
+    }
+
+    /**
+     * 将知识库的Milvus集合迁移到带 fileId、knowledgeId 标量字段的结构
+     */
+    @PreAuthorize("@ss.hasRole('admin')")
+    @Log(title = "知识库集合迁移", businessType = BusinessType.UPDATE)
+    @PostMapping("/migrate/{knowledgeId}")
+    public AjaxResult migrate(@PathVariable("knowledgeId") String knowledgeId)
+    {
+        return success(milvusSchemaMigrationService.migrate(knowledgeId));
+    }
+
+    /**
+     * 全部Milvus知识库的内存占用估算
+     */
+    @GetMapping("/memory")
+    public AjaxResult memory()
+    {
+        return success(milvusMemoryReportService.report());
+    }
+
+    /**
+     * 知识库Milvus集合的内存占用估算及各索引类型对比
+     */
+    @GetMapping("/memory/{knowledgeId}")
+    public AjaxResult memory(@PathVariable("knowledgeId") String knowledgeId)
+    {
+        return success(milvusMemoryReportService.report(knowledgeId));
+    }
+
+    /**
+     * 使用内嵌HNSW的知识库要求已启用（单节点部署）
+     */
+    private boolean hnswAvailable(ChatKnowledge chatKnowledge)
+    {
+        return !SystemConstant.VECTOR_STORE_HNSW.equals(chatKnowledge.getVectorStoreType()) || hnswVectorStoreComponent.isEnabled();
     }
 }
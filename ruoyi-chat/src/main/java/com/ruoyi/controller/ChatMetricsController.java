@@ -0,0 +1,53 @@
+package com.ruoyi.controller;
+
+import com.ruoyi.common.core.controller.BaseController;
+import com.ruoyi.common.core.domain.AjaxResult;
+import com.ruoyi.component.CrossEncoderReranker;
+import com.ruoyi.component.LocalOnnxEmbeddingModel;
+import com.ruoyi.service.async.ChatMessageWriteBehindService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 检索链路监控Controller
+ */
+@RestController
+@Tag(name = "检索链路监控")
+@RequestMapping("/chat/metrics")
+public class ChatMetricsController extends BaseController {
+
+    @Autowired
+    private CrossEncoderReranker crossEncoderReranker;
+
+    @Autowired
+    private ObjectProvider<LocalOnnxEmbeddingModel> localEmbeddingModel;
+
+    @Autowired
+    private ChatMessageWriteBehindService messageWriteBehindService;
+
+    @Operation(summary = "查询检索各阶段的耗时统计")
+    @GetMapping("/retrieval")
+    public AjaxResult retrieval() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rerank", crossEncoderReranker.stats());
+        LocalOnnxEmbeddingModel local = localEmbeddingModel.getIfAvailable();
+        if (local != null) {
+            result.put("localEmbedding", local.stats());
+        }
+        return success(result);
+    }
+
+    @Operation(summary = "查询流式回答写回队列的统计")
+    @GetMapping("/message-writer")
+    public AjaxResult messageWriter() {
+        return success(messageWriteBehindService.stats());
+    }
+}
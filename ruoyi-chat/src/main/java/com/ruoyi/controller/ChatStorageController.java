@@ -0,0 +1,38 @@
+package com.ruoyi.controller;
+
+import com.ruoyi.common.annotation.Log;
+import com.ruoyi.common.core.controller.BaseController;
+import com.ruoyi.common.core.domain.AjaxResult;
+import com.ruoyi.common.enums.BusinessType;
+import com.ruoyi.service.ChatMongoMigrationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 会话存储维护Controller
+ */
+@RestController
+@Tag(name = "会话存储维护")
+@RequestMapping("/chat/storage")
+public class ChatStorageController extends BaseController {
+
+    @Autowired
+    private ChatMongoMigrationService chatMongoMigrationService;
+
+    /**
+     * 旧版按应用、按会话分集合的数据迁移到共用集合，返回 hasMore 为 true 时需再次调用
+     */
+    @Operation(summary = "迁移旧版会话、问答集合")
+    @PreAuthorize("@ss.hasRole('admin')")
+    @Log(title = "会话存储迁移", businessType = BusinessType.UPDATE)
+    @PostMapping("/migrate")
+    public AjaxResult migrate(@RequestParam(value = "dropSource", defaultValue = "false") boolean dropSource) {
+        return success(chatMongoMigrationService.migrate(dropSource));
+    }
+}
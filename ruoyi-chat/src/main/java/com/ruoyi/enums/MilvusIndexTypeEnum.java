@@ -0,0 +1,73 @@
+package com.ruoyi.enums;
+
+import io.milvus.param.IndexType;
+
+/**
+ * 知识库可选的Milvus索引类型及默认参数
+ */
+public enum MilvusIndexTypeEnum {
+    /**
+     * 暴力检索，召回率100%，适合小集合
+     */
+    FLAT(IndexType.FLAT, "{}", "{}", false),
+    /**
+     * 倒排+原始向量
+     */
+    IVF_FLAT(IndexType.IVF_FLAT, "{\"nlist\":1024}", "{\"nprobe\":10}", false),
+    /**
+     * 倒排+int8标量量化，内存约为 IVF_FLAT 的 1/4
+     */
+    IVF_SQ8(IndexType.IVF_SQ8, "{\"nlist\":1024}", "{\"nprobe\":10}", true),
+    /**
+     * 倒排+乘积量化，内存最小，m 需能整除向量维度
+     */
+    IVF_PQ(IndexType.IVF_PQ, "{\"nlist\":1024,\"m\":16,\"nbits\":8}", "{\"nprobe\":10}", true),
+    /**
+     * 图索引，延迟低、内存高
+     */
+    HNSW(IndexType.HNSW, "{\"M\":16,\"efConstruction\":200}", "{\"ef\":64}", false),
+    /**
+     * 磁盘索引，适合内存放不下的大集合，内存中只保留PQ编码，检索时已用磁盘上的原始向量重排
+     */
+    DISKANN(IndexType.DISKANN, "{}", "{\"search_list\":100}", false),
+
+    ;
+    private IndexType indexType;
+    private String defaultIndexParams;
+    private String defaultSearchParams;
+    // 索引中的向量是否有损压缩，检索结果需按原始向量重新打分
+    private boolean quantized;
+
+    MilvusIndexTypeEnum(IndexType indexType, String defaultIndexParams, String defaultSearchParams, boolean quantized) {
+        this.indexType = indexType;
+        this.defaultIndexParams = defaultIndexParams;
+        this.defaultSearchParams = defaultSearchParams;
+        this.quantized = quantized;
+    }
+
+    public IndexType getIndexType() {
+        return indexType;
+    }
+
+    public String getDefaultIndexParams() {
+        return defaultIndexParams;
+    }
+
+    public String getDefaultSearchParams() {
+        return defaultSearchParams;
+    }
+
+    public boolean isQuantized() {
+        return quantized;
+    }
+
+    /**
+     * 按名称获取，未设置时为 IVF_FLAT
+     */
+    public static MilvusIndexTypeEnum of(String name) {
+        if (name == null || name.isBlank()) {
+            return IVF_FLAT;
+        }
+        return MilvusIndexTypeEnum.valueOf(name.trim().toUpperCase());
+    }
+}
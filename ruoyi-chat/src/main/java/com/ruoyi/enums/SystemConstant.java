@@ -13,4 +13,23 @@ public class SystemConstant {
     public static final String ZHIPUAI_MILVUS = "zhipuai.milvus";
 
     public static final String DASHSCOPE_MILVUS = "dashscope.milvus";
+
+    // 知识库向量存储类型
+    public static final String VECTOR_STORE_MILVUS = "milvus";
+    public static final String VECTOR_STORE_HNSW = "hnsw";
+
+    // 文件入库任务类型
+    public static final String INGEST_JOB_UPLOAD = "upload";
+    public static final String INGEST_JOB_REPLACE = "replace";
+
+    // 文件入库任务状态
+    public static final String INGEST_JOB_PENDING = "pending";
+    public static final String INGEST_JOB_RUNNING = "running";
+    public static final String INGEST_JOB_SUCCEEDED = "succeeded";
+    public static final String INGEST_JOB_FAILED = "failed";
+
+    // 文件入库任务阶段
+    public static final String INGEST_STAGE_PARSE = "parse";
+    public static final String INGEST_STAGE_EMBED = "embed";
+    public static final String INGEST_STAGE_DONE = "done";
 }
\ No newline at end of file
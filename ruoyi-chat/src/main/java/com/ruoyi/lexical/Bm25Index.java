@@ -0,0 +1,289 @@
+package com.ruoyi.lexical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个知识库的 BM25 倒排索引
+ *
+ * 只保存词项统计（倒排表 + 每个分片的词频向量），不保存分片原文，命中后由调用方按分片ID回表取内容。
+ * 删除时标记并扣减文档频率，已删除分片超过三成时在内存中压缩；读写由读写锁保护
+ */
+public class Bm25Index {
+
+    private static final float K1 = 1.2f;
+
+    private static final float B = 0.75f;
+
+    // 已删除分片占比超过该值时压缩
+    private static final double COMPACT_RATIO = 0.3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 词项 -> 词项编号
+    private final Map<String, Integer> termIds = new HashMap<>();
+
+    // 词项编号 -> 倒排表
+    private final List<Postings> postings = new ArrayList<>();
+
+    // 词项编号 -> 未删除分片中的文档频率
+    private int[] documentFrequencies = new int[16];
+
+    // 分片ID -> 分片序号
+    private final Map<String, Integer> ordinals = new HashMap<>();
+
+    // 以下按分片序号索引
+    private final List<String> segmentIds = new ArrayList<>();
+
+    private final List<String> fileIds = new ArrayList<>();
+
+    private final List<int[]> documentTerms = new ArrayList<>();
+
+    private final List<int[]> documentTermFrequencies = new ArrayList<>();
+
+    private int[] lengths = new int[16];
+
+    private final BitSet deleted = new BitSet();
+
+    private int liveCount;
+
+    private long totalLength;
+
+    /**
+     * 写入分片，分片ID已存在时先删除旧的
+     */
+    public void add(String segmentId, String fileId, String text) {
+        Map<Integer, Integer> frequencies = new LinkedHashMap<>();
+        List<String> tokens = CjkTokenizer.tokenize(text);
+        lock.writeLock().lock();
+        try {
+            remove(ordinals.get(segmentId));
+            for (String token : tokens) {
+                frequencies.merge(termIds.computeIfAbsent(token, this::newTerm), 1, Integer::sum);
+            }
+            int ordinal = segmentIds.size();
+            int[] terms = new int[frequencies.size()];
+            int[] termFrequencies = new int[frequencies.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Integer> entry : frequencies.entrySet()) {
+                terms[i] = entry.getKey();
+                termFrequencies[i] = entry.getValue();
+                postings.get(terms[i]).add(ordinal, termFrequencies[i]);
+                documentFrequencies[terms[i]]++;
+                i++;
+            }
+            segmentIds.add(segmentId);
+            fileIds.add(fileId);
+            documentTerms.add(terms);
+            documentTermFrequencies.add(termFrequencies);
+            if (ordinal >= lengths.length) {
+                lengths = Arrays.copyOf(lengths, lengths.length * 2);
+            }
+            lengths[ordinal] = tokens.size();
+            ordinals.put(segmentId, ordinal);
+            liveCount++;
+            totalLength += tokens.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除分片
+     */
+    public void remove(List<String> removedSegmentIds) {
+        lock.writeLock().lock();
+        try {
+            for (String segmentId : removedSegmentIds) {
+                remove(ordinals.get(segmentId));
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文件的全部分片
+     */
+    public void removeFile(String fileId) {
+        lock.writeLock().lock();
+        try {
+            for (int ordinal = 0; ordinal < segmentIds.size(); ordinal++) {
+                if (!deleted.get(ordinal) && fileId.equals(fileIds.get(ordinal))) {
+                    remove(ordinal);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 检索
+     * @param query 问题
+     * @param topK 返回数量
+     * @return 按 BM25 得分降序排列的命中
+     */
+    public List<Hit> search(String query, int topK) {
+        List<String> queryTokens = CjkTokenizer.tokenize(query);
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0 || queryTokens.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / liveCount;
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String token : queryTokens.stream().distinct().toList()) {
+                Integer termId = termIds.get(token);
+                if (termId == null || documentFrequencies[termId] == 0) {
+                    continue;
+                }
+                int df = documentFrequencies[termId];
+                double idf = Math.log(1 + (liveCount - df + 0.5) / (df + 0.5));
+                Postings termPostings = postings.get(termId);
+                for (int i = 0; i < termPostings.size; i++) {
+                    int ordinal = termPostings.ordinals[i];
+                    if (deleted.get(ordinal)) {
+                        continue;
+                    }
+                    int tf = termPostings.frequencies[i];
+                    double norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                    scores.merge(ordinal, idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+            scores.forEach((ordinal, score) -> {
+                if (top.size() < topK) {
+                    top.add(new Hit(segmentIds.get(ordinal), fileIds.get(ordinal), score));
+                } else if (score > top.peek().score()) {
+                    top.poll();
+                    top.add(new Hit(segmentIds.get(ordinal), fileIds.get(ordinal), score));
+                }
+            });
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int newTerm(String token) {
+        int termId = postings.size();
+        postings.add(new Postings());
+        if (termId >= documentFrequencies.length) {
+            documentFrequencies = Arrays.copyOf(documentFrequencies, documentFrequencies.length * 2);
+        }
+        return termId;
+    }
+
+    private void remove(Integer ordinal) {
+        if (ordinal == null || deleted.get(ordinal)) {
+            return;
+        }
+        deleted.set(ordinal);
+        ordinals.remove(segmentIds.get(ordinal));
+        for (int termId : documentTerms.get(ordinal)) {
+            documentFrequencies[termId]--;
+        }
+        liveCount--;
+        totalLength -= lengths[ordinal];
+    }
+
+    /**
+     * 按词频向量重建倒排表，去掉已删除的分片
+     */
+    private void compactIfNeeded() {
+        int total = segmentIds.size();
+        if (total == 0 || (double) (total - liveCount) / total <= COMPACT_RATIO) {
+            return;
+        }
+        List<String> liveSegmentIds = new ArrayList<>(liveCount);
+        List<String> liveFileIds = new ArrayList<>(liveCount);
+        List<int[]> liveTerms = new ArrayList<>(liveCount);
+        List<int[]> liveTermFrequencies = new ArrayList<>(liveCount);
+        int[] liveLengths = new int[Math.max(16, liveCount)];
+        postings.forEach(Postings::clear);
+        ordinals.clear();
+        for (int ordinal = 0; ordinal < total; ordinal++) {
+            if (deleted.get(ordinal)) {
+                continue;
+            }
+            int newOrdinal = liveSegmentIds.size();
+            int[] terms = documentTerms.get(ordinal);
+            int[] termFrequencies = documentTermFrequencies.get(ordinal);
+            for (int i = 0; i < terms.length; i++) {
+                postings.get(terms[i]).add(newOrdinal, termFrequencies[i]);
+            }
+            liveSegmentIds.add(segmentIds.get(ordinal));
+            liveFileIds.add(fileIds.get(ordinal));
+            liveTerms.add(terms);
+            liveTermFrequencies.add(termFrequencies);
+            liveLengths[newOrdinal] = lengths[ordinal];
+            ordinals.put(segmentIds.get(ordinal), newOrdinal);
+        }
+        segmentIds.clear();
+        segmentIds.addAll(liveSegmentIds);
+        fileIds.clear();
+        fileIds.addAll(liveFileIds);
+        documentTerms.clear();
+        documentTerms.addAll(liveTerms);
+        documentTermFrequencies.clear();
+        documentTermFrequencies.addAll(liveTermFrequencies);
+        lengths = liveLengths;
+        deleted.clear();
+    }
+
+    /**
+     * 检索命中：分片ID、文件ID及 BM25 得分
+     */
+    public record Hit(String segmentId, String fileId, double score) {
+    }
+
+    /**
+     * 词项的倒排表：分片序号及词频
+     */
+    private static class Postings {
+
+        private int[] ordinals = new int[4];
+
+        private int[] frequencies = new int[4];
+
+        private int size;
+
+        void add(int ordinal, int frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.ruoyi.lexical;
+
+import cn.hutool.core.convert.Convert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BM25 分词器
+ *
+ * 中日韩文字按相邻两字切分（二元组），单独出现的一个字保留为一元；
+ * 字母数字按连续串切分并转小写，串内以 - _ . 连接的编码（如 E-1024、v2.3.1、ERR_TIMEOUT）
+ * 整体保留为一个词，同时输出各组成部分，编码的全称与部分都能命中
+ */
+public final class CjkTokenizer {
+
+    private CjkTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = Convert.toDBC(text).toLowerCase();
+        int length = normalized.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = normalized.codePointAt(i);
+            if (isCjk(codePoint)) {
+                int start = i;
+                while (i < length && isCjk(normalized.codePointAt(i))) {
+                    i += Character.charCount(normalized.codePointAt(i));
+                }
+                cjkBigrams(normalized.substring(start, i), tokens);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                int start = i;
+                while (i < length) {
+                    int c = normalized.codePointAt(i);
+                    if (Character.isLetterOrDigit(c) && !isCjk(c)) {
+                        i += Character.charCount(c);
+                    } else if (isJoiner(c) && i + 1 < length && isAlphanumeric(normalized.codePointAt(i + 1))) {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                word(normalized.substring(start, i), tokens);
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+        return tokens;
+    }
+
+    private static void cjkBigrams(String run, List<String> tokens) {
+        int[] codePoints = run.codePoints().toArray();
+        if (codePoints.length == 1) {
+            tokens.add(run);
+            return;
+        }
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            tokens.add(new String(codePoints, i, 2));
+        }
+    }
+
+    private static void word(String word, List<String> tokens) {
+        tokens.add(word);
+        if (word.indexOf('-') < 0 && word.indexOf('_') < 0 && word.indexOf('.') < 0) {
+            return;
+        }
+        for (String part : word.split("[-_.]")) {
+            if (!part.isEmpty()) {
+                tokens.add(part);
+            }
+        }
+    }
+
+    private static boolean isAlphanumeric(int codePoint) {
+        return Character.isLetterOrDigit(codePoint) && !isCjk(codePoint);
+    }
+
+    private static boolean isJoiner(int codePoint) {
+        return codePoint == '-' || codePoint == '_' || codePoint == '.';
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
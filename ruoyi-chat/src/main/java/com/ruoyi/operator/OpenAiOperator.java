@@ -1,28 +1,20 @@
 package com.ruoyi.operator;
 
-import cn.hutool.core.util.IdUtil;
+import com.ruoyi.advisor.HybridRetrievalAdvisor;
 import com.ruoyi.annotation.BeanType;
-import com.ruoyi.component.MilvusVectorStoreComponent;
+import com.ruoyi.component.ChatModelRegistry;
+import com.ruoyi.component.ChatStreamPreparer;
+import com.ruoyi.component.KnowledgeRetriever;
 import com.ruoyi.controller.ChatController;
 import com.ruoyi.domain.ChatApp;
-import com.ruoyi.domain.ChatKnowledge;
 import com.ruoyi.enums.AiTypeEnum;
 import com.ruoyi.enums.LanguageEnum;
-import com.ruoyi.enums.MessageTypeEnum;
 import com.ruoyi.enums.SystemConstant;
-import com.ruoyi.pojo.Chat;
-import com.ruoyi.searxng.SearXNGService;
-import com.ruoyi.service.IChatAppService;
-import com.ruoyi.service.IChatKnowledgeService;
-import com.ruoyi.utils.ChatModelUtil;
-import com.ruoyi.utils.MongoUtil;
-import com.ruoyi.vo.ChatVo;
 import com.ruoyi.vo.QueryVo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
-import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
@@ -35,19 +27,12 @@ import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
-import org.springframework.beans.BeanUtils;
-import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.util.CollectionUtils;
-import org.springframework.web.client.RestClient;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -67,13 +52,8 @@ public class OpenAiOperator implements AiOperator {
     private double temperature;
 
     @Autowired
-    private MilvusVectorStoreComponent milvusVectorStoreComponent;
+    private KnowledgeRetriever knowledgeRetriever;
 
-    @Autowired
-    private MongoTemplate mongoTemplate;
-
-    @Autowired
-    private SearXNGService searXNGService;
 
     @Autowired
     private  ChatMemory chatMemory;
@@ -82,16 +62,10 @@ public class OpenAiOperator implements AiOperator {
     private ToolCallbackProvider tools;
 
     @Autowired
-    private IChatAppService chatAppService;
-    @Autowired
-    private IChatKnowledgeService chatKnowledgeService;
-
-    // 用于解决http2 不兼容问题
-    @Autowired
-    ObjectProvider<RestClient.Builder> restClientBuilderProvider;
+    private ChatModelRegistry chatModelRegistry;
 
     @Autowired
-    ObjectProvider<WebClient.Builder> webClientBuilderProvider;
+    private ChatStreamPreparer chatStreamPreparer;
 
 
 
@@ -170,137 +144,50 @@ public class OpenAiOperator implements AiOperator {
 
     @Override
     public Flux<String> chatStream(ChatApp chatProject, QueryVo queryVo) throws Exception {
-        Long chatId = queryVo.getChatId();
-        if (chatId == null) {
-            ChatVo chatVo = new ChatVo();
-            chatVo.setAppId(chatProject.getAppId());
-            chatVo.setUserId(queryVo.getUserId());
-            chatVo.setTitle("新会话" + String.valueOf(Math.random()).substring(2, 7));
-            Chat chat = new Chat();
-            BeanUtils.copyProperties(chatVo, chat);
-            chat.setCreateTime(new Date());
-            chatId = IdUtil.getSnowflake().nextId();
-            chat.setChatId(chatId);
-            this.mongoTemplate.insert(chat, MongoUtil.getChatCollection(chatVo.getAppId()));
-        }
-        com.ruoyi.pojo.Message msg = new com.ruoyi.pojo.Message();
-        msg.setChatId(chatId);
-        msg.setType(MessageTypeEnum.USER.getType());
-        msg.setContent(queryVo.getMsg());
-        msg.setCreateTime(new Date());
-        msg.setId(IdUtil.getSnowflake().nextId());
-        this.mongoTemplate.insert(msg, MongoUtil.getMessageCollection(chatId));
-
-
-        String baseUrl = chatProject.getBaseUrl();
-        String apiKey = chatProject.getApiKey();
-        String model = chatProject.getModel();
-
-        List<Message> msgList = new ArrayList<>();
-        //是否开启联网搜索
-        Boolean useWebSearch = chatProject.getIsWebSearch() == 1;
-        if (useWebSearch) {
-            String searchResult = searXNGService.searchV2(queryVo.getMsg());
-            msgList.add(new UserMessage(searchResult));
-
-        }
-        // 系统提示词合并
-        String sysMessage = LanguageEnum.getMsg(queryVo.getLanguage()) + chatProject.getSystemPrompt();
-        msgList.add(new SystemMessage(sysMessage));
-
-        // 加入当前用户的提问
-        msgList.add(new UserMessage(queryVo.getMsg()));
-
-
-        OpenAiChatModel openAiChatModel = ChatModelUtil.getOpenAiChatModel(baseUrl, apiKey, model,restClientBuilderProvider,webClientBuilderProvider,tools.getToolCallbacks());
-
-        // 提交到大模型获取最终结果
-        ChatClient chatClient = ChatClient.builder(openAiChatModel)
-                .defaultToolCallbacks(tools)
-                .build();
-
-        Long finalChatId = chatId;
-        // 为流式处理创建专用的Advisor列表
-        List<org.springframework.ai.chat.client.advisor.api.Advisor> streamAdvisorList = new ArrayList<>();
-        streamAdvisorList.add(MessageChatMemoryAdvisor.builder(chatMemory).conversationId(finalChatId.toString()).build());
-        streamAdvisorList.add(simpleLoggerAdvisor);
-
-
-        //开启知识库搜索
-        Boolean isKnowledgeSearch = chatProject.getIsKnowledgeSearch() == 1;
-        if (isKnowledgeSearch) {
-            List<String> knowledgeIds = chatAppService.selectKnowledgeIdListByAppId(queryVo.getAppId());
-            if (!CollectionUtils.isEmpty(knowledgeIds)) {
-                for (String knowledgeId : knowledgeIds) {
-                    ChatKnowledge chatKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeId(knowledgeId);
-                    MilvusVectorStore milvusVectorStore = milvusVectorStoreComponent.getVectorStore(chatKnowledge.getKnowledgeName());
-                    QuestionAnswerAdvisor questionAnswerAdvisor = QuestionAnswerAdvisor
-                            .builder(milvusVectorStore)
-                            .searchRequest(
-                                    SearchRequest.builder()
-                                            .topK(SystemConstant.TOPK).build()
-                            )
-                            .build();
-                    streamAdvisorList.add(questionAnswerAdvisor);
-                }
+        // 新建会话、记录提问、联网搜索、查询关联知识库均为非阻塞操作，返回前不占用请求线程
+        return chatStreamPreparer.prepare(chatProject, queryVo).flatMapMany(prepared -> {
+            Long chatId = prepared.chatId();
+
+            String baseUrl = chatProject.getBaseUrl();
+            String apiKey = chatProject.getApiKey();
+            String model = chatProject.getModel();
+
+            List<Message> msgList = new ArrayList<>();
+            //是否开启联网搜索
+            if (prepared.webSearchContext() != null) {
+                msgList.add(new UserMessage(prepared.webSearchContext()));
             }
+            // 系统提示词合并
+            String sysMessage = LanguageEnum.getMsg(queryVo.getLanguage()) + chatProject.getSystemPrompt();
+            msgList.add(new SystemMessage(sysMessage));
 
-        }
-
-        log.info("Request parameters: baseUrl={}, apiKey={}, model={}", baseUrl, apiKey, model);
-        log.info("msgList size: {}", msgList.size());
-        log.info("msgList content: {}", msgList);
-        Flux<String> flux = chatClient.prompt(new Prompt(msgList)).advisors(streamAdvisorList).stream().content();
-
-//        Flux<String> flux = responseFlux.map(response -> {
-//                   String result =  response.getResult() != null
-//                            && response.getResult().getOutput() != null
-//                            && response.getResult().getOutput().getText() != null
-//                            ? response.getResult().getOutput().getText() : "";
-//                    return result;
-//                 }
-//        );
-        // 创建字符串构建器用于累积流式响应内容
-//        StringBuilder aiResponseBuilder = new StringBuilder();
-//        // 添加完整的订阅处理器，包括错误处理和完成通知
-//        flux.subscribe(
-//                chunk -> {
-//                    log.info("收到模型回复: {}", chunk);
-//                    // 累积流式响应内容
-//                    aiResponseBuilder.append(chunk);
-//                },
-//                error -> {
-//                    log.error("流处理错误", error);
-//                    // 发生错误时也保存已收到的内容
-//                    saveAiResponse(finalChatId, aiResponseBuilder.toString());
-//                },
-//                () -> {
-//                    log.info("流处理完成");
-//                    //流处理完成后保存完整响应
-//                    saveAiResponse(finalChatId, aiResponseBuilder.toString());
-//                }
-//        );
-        return flux;
-    }
+            // 加入当前用户的提问
+            msgList.add(new UserMessage(queryVo.getMsg()));
 
 
-    /**
-     * 保存AI响应到MongoDB的工具方法
-     */
-    private void saveAiResponse(Long chatId, String content) {
-        if (content == null || content.trim().isEmpty()) {
-            log.warn("AI响应内容为空，不保存");
-            return;
-        }
-
-        com.ruoyi.pojo.Message aiMsg = new com.ruoyi.pojo.Message();
-        aiMsg.setId(IdUtil.getSnowflake().nextId());
-        aiMsg.setChatId(chatId);
-        aiMsg.setType(MessageTypeEnum.AI.getType());
-        aiMsg.setCreateTime(new Date());
-        aiMsg.setContent(content);
-        this.mongoTemplate.insert(aiMsg, MongoUtil.getMessageCollection(chatId));
-        log.info("AI响应已保存到MongoDB，chatId: {}", chatId);
+            OpenAiChatModel openAiChatModel = chatModelRegistry.getOpenAiChatModel(baseUrl, apiKey, model, tools.getToolCallbacks());
+
+            // 提交到大模型获取最终结果
+            ChatClient chatClient = ChatClient.builder(openAiChatModel)
+                    .defaultToolCallbacks(tools)
+                    .build();
+
+            // 为流式处理创建专用的Advisor列表
+            List<org.springframework.ai.chat.client.advisor.api.Advisor> streamAdvisorList = new ArrayList<>();
+            streamAdvisorList.add(MessageChatMemoryAdvisor.builder(chatMemory).conversationId(chatId.toString()).build());
+            streamAdvisorList.add(simpleLoggerAdvisor);
+
+            //开启知识库搜索
+            if (!CollectionUtils.isEmpty(prepared.knowledgeIds())) {
+                // 问题只向量化一次，各知识库并行检索，与BM25关键词检索结果融合为全局topK
+                streamAdvisorList.add(new HybridRetrievalAdvisor(knowledgeRetriever, prepared.knowledgeIds(), prepared.collectionNames(),
+                        SystemConstant.TOPK, SearchRequest.SIMILARITY_THRESHOLD_ACCEPT_ALL));
+            }
+
+            log.info("Request parameters: baseUrl={}, model={}", baseUrl, model);
+            log.info("msgList size: {}", msgList.size());
+            return chatClient.prompt(new Prompt(msgList)).advisors(streamAdvisorList).stream().content();
+        });
     }
 
 }
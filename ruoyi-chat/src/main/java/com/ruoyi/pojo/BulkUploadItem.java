@@ -0,0 +1,41 @@
+package com.ruoyi.pojo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+public class BulkUploadItem {
+
+    public static final String QUEUED = "queued";
+
+    public static final String SKIPPED = "skipped";
+
+    public static final String FAILED = "failed";
+
+    @Schema(description = "文件名（zip内文件为包内路径）")
+    private String fileName;
+
+    @Schema(description = "文件大小")
+    private Long fileSize;
+
+    @Schema(description = "处理结果：queued 已提交入库任务，skipped 跳过，failed 失败")
+    private String status;
+
+    @Schema(description = "文件id")
+    private String fileId;
+
+    @Schema(description = "入库任务id，用于查询进度")
+    private String jobId;
+
+    @Schema(description = "跳过或失败的原因")
+    private String message;
+
+    public static BulkUploadItem of(String fileName, Long fileSize, String status, String message) {
+        BulkUploadItem item = new BulkUploadItem();
+        item.setFileName(fileName);
+        item.setFileSize(fileSize);
+        item.setStatus(status);
+        item.setMessage(message);
+        return item;
+    }
+}
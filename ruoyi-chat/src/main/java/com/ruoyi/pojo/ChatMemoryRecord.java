@@ -0,0 +1,44 @@
+package com.ruoyi.pojo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+public class ChatMemoryRecord {
+
+    @Id
+    @Schema(description = "会话id")
+    private String conversationId;
+
+    @Schema(description = "应用id")
+    private String appId;
+
+    @Schema(description = "较早对话的滚动摘要")
+    private String summary;
+
+    @Schema(description = "摘要的token数")
+    private Integer summaryTokens;
+
+    @Schema(description = "尚未压缩进摘要的对话")
+    private List<Turn> turns;
+
+    @Schema(description = "更新时间")
+    private Date updateTime;
+
+    @Data
+    public static class Turn {
+
+        @Schema(description = "消息类型：USER、ASSISTANT、SYSTEM")
+        private String type;
+
+        @Schema(description = "消息内容")
+        private String text;
+
+        @Schema(description = "token数，写入时计算一次")
+        private Integer tokens;
+    }
+}
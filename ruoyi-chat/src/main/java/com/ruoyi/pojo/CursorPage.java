@@ -0,0 +1,27 @@
+package com.ruoyi.pojo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CursorPage<T> {
+
+    @Schema(description = "当前页数据")
+    private List<T> list;
+
+    @Schema(description = "下一页游标，作为下次请求的 cursor 参数，没有更多数据时为空")
+    private String nextCursor;
+
+    @Schema(description = "是否还有更多数据")
+    private boolean hasMore;
+
+    public static <T> CursorPage<T> of(List<T> list, String nextCursor) {
+        CursorPage<T> page = new CursorPage<>();
+        page.setList(list);
+        page.setNextCursor(nextCursor);
+        page.setHasMore(nextCursor != null);
+        return page;
+    }
+}
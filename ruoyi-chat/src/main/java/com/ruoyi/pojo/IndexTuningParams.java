@@ -0,0 +1,22 @@
+package com.ruoyi.pojo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class IndexTuningParams {
+
+    @Schema(description = "召回率统计的 K")
+    private Integer topK;
+
+    @Schema(description = "未提供查询时，从用户提问（没有提问记录时从知识库分片）中抽样作为查询的数量")
+    private Integer sampleSize;
+
+    @Schema(description = "真实的用户问题")
+    private List<String> queries;
+
+    @Schema(description = "待评估的检索参数（JSON），为空时按索引类型扫描默认候选")
+    private List<String> searchParams;
+}
@@ -6,7 +6,9 @@ import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -15,11 +17,13 @@ import java.util.List;
 @Service
 public class SearXNGService {
     private final RestTemplate restTemplate;
+    private final WebClient webClient;
     private final String searxngHost;
 
     @Autowired
-    public SearXNGService(RestTemplate searxngRestTemplate, String searxngHost) {
+    public SearXNGService(RestTemplate searxngRestTemplate, WebClient searxngWebClient, String searxngHost) {
         this.restTemplate = searxngRestTemplate;
+        this.webClient = searxngWebClient;
         this.searxngHost = searxngHost;
     }
 
@@ -132,6 +136,30 @@ public class SearXNGService {
      * @return 搜索结果
      */
     public String searchV2(String query) {
+        // 执行搜索
+        SearXNGSearchParams params = new SearXNGSearchParams(query);
+        return buildSearchPrompt(query, searchWithGet(params));
+    }
+
+    /**
+     * 非阻塞的 searchV2，流式问答使用
+     *
+     * @param query 搜索查询
+     * @return 联网搜索提示词
+     */
+    public Mono<String> searchV2Reactive(String query) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/search")
+                        .queryParam("q", "{q}")
+                        .queryParam("format", "json")
+                        .build(query))
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToMono(SearXNGSearchResult.class)
+                .map(search -> buildSearchPrompt(query, search));
+    }
+
+    private String buildSearchPrompt(String query, SearXNGSearchResult search) {
         //联网搜索提示词
         String prompt = """
                 {query}
@@ -146,10 +174,7 @@ public class SearXNGService {
                 reply to the user comment. If the answer is not in the context, inform
                 the user that you can't answer the question.
                 """;
-        
-        // 执行搜索
-        SearXNGSearchParams params = new SearXNGSearchParams(query);
-        SearXNGSearchResult search = searchWithGet(params);
+
         List<SearXNGSearchResult.Result> searchResultList = search.getResults();
         
         // 构建搜索结果内容
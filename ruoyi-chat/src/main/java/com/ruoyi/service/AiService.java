@@ -4,37 +4,37 @@ import cn.hutool.core.util.IdUtil;
 import com.mongodb.client.result.UpdateResult;
 import com.ruoyi.annotation.BeanType;
 import com.ruoyi.common.core.domain.AjaxResult;
-import com.ruoyi.component.MilvusVectorStoreComponent;
+import com.ruoyi.component.ChatAppConfigCache;
+import com.ruoyi.component.ChatStreamPreparer;
+import com.ruoyi.component.KnowledgeRetriever;
+import com.ruoyi.component.SemanticAnswerCache;
 import com.ruoyi.controller.ChatController;
 import com.ruoyi.domain.ChatApp;
 import com.ruoyi.domain.ChatFile;
-import com.ruoyi.domain.ChatFileSegment;
+import com.ruoyi.domain.ChatIngestJob;
 import com.ruoyi.domain.ChatKnowledge;
+import com.ruoyi.enums.SystemConstant;
 import com.ruoyi.operator.AiOperator;
 import com.ruoyi.pojo.Chat;
 import com.ruoyi.pojo.ChatList;
+import com.ruoyi.pojo.CursorPage;
 import com.ruoyi.pojo.Message;
+import com.ruoyi.service.async.ChatMessageWriteBehindService;
 import com.ruoyi.service.async.VectorStoreAsyncService;
+import com.ruoyi.service.ingest.IngestJobService;
 import com.ruoyi.utils.MongoUtil;
 import com.ruoyi.vo.ChatVo;
 import com.ruoyi.vo.MessageVo;
 import com.ruoyi.vo.QueryVo;
 import lombok.extern.slf4j.Slf4j;
-import net.sourceforge.tess4j.Tesseract;
-import net.sourceforge.tess4j.TesseractException;
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.JsonReader;
-import org.springframework.ai.reader.TextReader;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.data.domain.Sort;
@@ -45,14 +45,12 @@ import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
-import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -64,8 +62,9 @@ public class AiService implements ApplicationContextAware {
     // 策略模式 的 bean容器
     private final Map<String, AiOperator> MAP = new ConcurrentHashMap<>();
 
-    @Autowired
-    private IChatAppService chatAppService;
+    // 会话、问答游标分页的每页条数上限
+    @Value("${chat.mongo.max-page-size:100}")
+    private int maxPageSize;
 
     @Autowired
     private IChatKnowledgeService chatKnowledgeService;
@@ -80,10 +79,32 @@ public class AiService implements ApplicationContextAware {
     private MongoTemplate mongoTemplate;
 
     @Autowired
-    private MilvusVectorStoreComponent milvusVectorStoreComponent;
+    private VectorStoreAsyncService vectorStoreAsyncService;
 
     @Autowired
-    private VectorStoreAsyncService vectorStoreAsyncService;
+    private IngestJobService ingestJobService;
+
+    @Autowired
+    private KnowledgeRetriever knowledgeRetriever;
+
+    @Autowired
+    private SemanticAnswerCache semanticAnswerCache;
+
+    @Autowired
+    private ChatMemory chatMemory;
+
+    @Autowired
+    private ChatAppConfigCache chatAppConfigCache;
+
+    @Autowired
+    private ChatStreamPreparer chatStreamPreparer;
+
+    @Autowired
+    private ChatMessageWriteBehindService messageWriteBehindService;
+
+    @Autowired
+    @Qualifier("chatBlockingScheduler")
+    private Scheduler chatBlockingScheduler;
 
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
@@ -112,240 +133,162 @@ public class AiService implements ApplicationContextAware {
 
 
     public Flux<String> chatStream(QueryVo queryVo) throws Exception {
-        // 根据项目id查询项目，获取类型 及 具体模型
-        ChatApp chatApp = this.chatAppService.selectChatAppByAppId(queryVo.getAppId());
-        return this.getAiOperator(chatApp.getType()).chatStream(chatApp, queryVo);
-    }
-
-    @Transactional("transactionManager")
-    public String upload(ChatFile chatFile, MultipartFile file) throws Exception {
-
-        // 获取文件名
-        String filename = file.getOriginalFilename();
-        //获取文件格式
-        String fileFormat = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
-        //获取文件大小
-        long fileSize = file.getSize();
-
-        String  fileId = UUID.randomUUID().toString();
-        chatFile.setFileId(fileId);
-        chatFile.setFileName(filename);
-        chatFile.setFileFormat(fileFormat);
-        chatFile.setFileSize(fileSize);
-        chatFileService.insertChatFile(chatFile);
-        String knowledgeId = chatFile.getKnowledgeId();
-        ChatKnowledge chatKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeId(knowledgeId);
-        String knowledgeName = chatKnowledge.getKnowledgeName();
-
-
-        // 上传到向量数据库
-        List<Document> documentList = new ArrayList<>();
-        switch (fileFormat) {
-            case "json":
-                JsonReader jsonReader = new JsonReader(file.getResource());
-                documentList = jsonReader.get();
-                break;
-            case "txt":
-            case "md":
-            case "csv":
-                TextReader textReader = new TextReader(file.getResource());
-                List<Document> documents = textReader.get();
-                documentList = TokenTextSplitter.builder().withChunkSize(512).build().apply(documents);
-                break;
-            case "pdf":
-                //`PagePdfDocumentReader`使用Apache PdfBox库解析PDF文档
-//                PagePdfDocumentReader pdfReader = new PagePdfDocumentReader(file.getResource(),
-//                        PdfDocumentReaderConfig.builder()
-//                                .withPageTopMargin(0)
-//                                .withPageExtractedTextFormatter(ExtractedTextFormatter.builder()
-//                                        .withNumberOfTopTextLinesToDelete(0)
-//                                        .build())
-//                                .withPagesPerDocument(1)
-//                                .build());
-//
-//                 documentList =  pdfReader.read();
-                documentList = this.readPdfPages(file,chatFile);
-
-
-                //pdf增强解析（使用 Tesseract 实现 PDF 转图片并进行 OCR 识别文本 ）
-//                 List<Document> pdfDocList = this.readPagesWithOcr(file);
-//                 documentList.addAll(pdfDocList);
-
-
-                break;
-            //`TikaDocumentReader`使用Apache Tika从各种文档格式中提取文本，如PDF、DOC/DOCX、PPT/PPTX和HTML。
-            // 有关支持的格式的完整列表，请参阅https://tika.apache.org/3.1.0/formats.html[Tika文档]。
-            default:
-                TikaDocumentReader tikaDocumentReader = new TikaDocumentReader(file.getResource());
-                documentList =  tikaDocumentReader.read();
-                break;
-
-        }
-        List<Document> docList = new ArrayList<>();
-        if (!CollectionUtils.isEmpty(documentList)) {
-
-            for (Document document : documentList) {
-                String docId = UUID.randomUUID().toString();
-                String text = document.getText();
-                //去除text 中的空白符
-                text = text.replaceAll("\\s+", "");
-                if (StringUtils.hasLength(text) ) {
-                    Document doc = new Document(docId,text, Map.of("fileId", fileId, "knowledgeId", knowledgeId));
-                    docList.add(doc);
-                }
-            }
-            documentList = docList;
-
-            //Document document = new Document(knowledgeId, content, Map.of("projectId", projectId));
-            if (!CollectionUtils.isEmpty(documentList)) {
-
-
-                List<ChatFileSegment> chatFileSegmentList = documentList.stream().map(document -> {
-                    ChatFileSegment chatFileSegment = new ChatFileSegment();
-                    chatFileSegment.setSegmentId(document.getId());
-                    chatFileSegment.setFileId(fileId);
-                    chatFileSegment.setFileName(filename);
-                    chatFileSegment.setContent(document.getText());
-                    return chatFileSegment;
-                }).collect(Collectors.toList());
-                for (ChatFileSegment chatFileSegment : chatFileSegmentList) {
-                    chatFileSegment.setCreateTime(new Date());
-                    fileSegmentService.insertChatFileSegment(chatFileSegment);
-                }
-                // 暂时注释掉知识图谱功能
-                // 判断是否开启知识图谱
-//                Integer isKnowledgeGraph = chatKnowledge.getIsKnowledgeGraph();
-//                if (isKnowledgeGraph == 1) {
-//                    neo4jService.processCsvFile(file,projectId,knowledgeId);
-//                }
-
-                MilvusVectorStore milvusVectorStore = milvusVectorStoreComponent.getVectorStore(knowledgeName);
-                //异步执行
-                this.vectorStoreAsyncService.addVectorStore(fileId, milvusVectorStore, docList);
-
-
-            } else {
-                //异步执行
-                this.vectorStoreAsyncService.addVectorStore(fileId,null, null);
+        // 应用配置走缓存，向量化问题等阻塞操作在 chatBlockingScheduler 上执行，请求线程只负责组装响应流
+        return chatAppConfigCache.get(queryVo.getAppId()).flatMapMany(appConfig -> {
+            ChatApp chatApp = appConfig.chatApp();
+            AiOperator aiOperator = this.getAiOperator(chatApp.getType());
+            if (!this.isAnswerCacheable(chatApp)) {
+                return this.operatorStream(aiOperator, chatApp, queryVo);
             }
 
-        } else {
-            //异步执行
-            this.vectorStoreAsyncService.addVectorStore(knowledgeId,null, null);
-        }
-        return fileId;
+            // 知识库问答：语义相近的问题直接返回缓存的回答，知识库版本（查询数据库）与问题向量一起在阻塞线程上计算
+            String appId = chatApp.getAppId();
+            Integer language = queryVo.getLanguage();
+            return Mono.fromCallable(() -> this.isFirstTurn(queryVo)
+                            ? Optional.of(new AnswerCacheKey(semanticAnswerCache.versionOf(appConfig.knowledgeIds()),
+                                    knowledgeRetriever.embedQuery(queryVo.getMsg())))
+                            : Optional.<AnswerCacheKey>empty())
+                    .subscribeOn(chatBlockingScheduler)
+                    .flatMapMany(cacheKey -> {
+                        if (cacheKey.isEmpty()) {
+                            return this.operatorStream(aiOperator, chatApp, queryVo);
+                        }
+                        String version = cacheKey.get().version();
+                        float[] embedding = cacheKey.get().embedding();
+                        List<String> cachedChunks = semanticAnswerCache.get(appId, language, version, embedding);
+                        if (cachedChunks != null) {
+                            return this.recordCachedAnswer(chatApp, queryVo, cachedChunks)
+                                    .thenMany(this.persistAnswer(Flux.fromIterable(cachedChunks), queryVo));
+                        }
+
+                        long start = System.currentTimeMillis();
+                        List<String> chunks = Collections.synchronizedList(new ArrayList<>());
+                        // 写入前需重新查询知识库版本，不在响应流的线程上执行
+                        return this.operatorStream(aiOperator, chatApp, queryVo)
+                                .doOnNext(chunks::add)
+                                .doOnComplete(() -> chatBlockingScheduler.schedule(() -> semanticAnswerCache.put(
+                                        appId, language, version, embedding, chunks, System.currentTimeMillis() - start)));
+                    });
+        });
     }
 
     /**
-     * 读取PDF每页内容（含乱码处理）
-     * @param file
-     * @return 每页内容的列表
+     * 回答缓存的查找条件：关联知识库的版本及问题向量
      */
-    public List<Document> readPdfPages(MultipartFile file,ChatFile chatFile) throws Exception {
-        // 尝试标准文本提取
-        byte[] pdfData = file.getBytes();
-        List<Document> documentList = tryStandardExtraction(pdfData);
-
-        // 如果提取失败（通常是乱码文档）
-        //if (documentList == null || needsOcrFallback(documentList)    ) {
-        if (documentList == null) {
-            log.info("==============检测到文本提取异常，启用OCR回退方案==================");
-            //判断pdf增强解析是否启用，如果启用则执行ocr解析
-            if (chatFile.getIsPdfAnalysis().equals(0)) {
-                return null;
-            }
-            return readPagesWithOcr(file);
-        } else {
-            //判断pdf增强解析是否启用，如果启用则执行ocr解析
-            if (chatFile.getIsPdfAnalysis().equals(0)) {
-                return documentList;
-            }
-            List<Document> docListWithOcr = readPagesWithOcr(file);
-            documentList.addAll(docListWithOcr);
-        }
-
-        return documentList;
+    private record AnswerCacheKey(String version, float[] embedding) {
     }
 
-    // 尝试标准文本提取
-    private List<Document> tryStandardExtraction(byte[] pdfData) {
-        List<Document> results = new ArrayList<>();
-
-        try (PDDocument document = Loader.loadPDF(pdfData)) {
-            PDFTextStripper stripper = new PDFTextStripper();
-
-            for (int i = 1; i <= document.getNumberOfPages(); i++) {
-                stripper.setStartPage(i);
-                stripper.setEndPage(i);
-                String text = stripper.getText(document);
-                if (StringUtils.hasLength(text)) {
-                    results.add(new Document(text));
-                }
-
-            }
-            return results;
+    private Flux<String> operatorStream(AiOperator aiOperator, ChatApp chatApp, QueryVo queryVo) {
+        try {
+            return this.persistAnswer(aiOperator.chatStream(chatApp, queryVo), queryVo);
         } catch (Exception e) {
-            log.error("==============标准提取失败: " + e.getMessage() + "==================");
-            return null;
+            return Flux.error(e);
         }
     }
 
-
-
+    /**
+     * 流结束（完成、出错、客户端取消）时把已输出的回答交给写回队列，不再需要前端调用 save-msg
+     * 新会话的 chatId 在流开始前才回写到 queryVo，结束时读取
+     */
+    private Flux<String> persistAnswer(Flux<String> stream, QueryVo queryVo) {
+        return Flux.defer(() -> {
+            // 取消信号可能与 onNext 在不同线程
+            StringBuffer answer = new StringBuffer();
+            return stream.doOnNext(answer::append)
+                    .doFinally(signal -> messageWriteBehindService.saveAnswer(queryVo.getChatId(), answer.toString(), signal));
+        });
+    }
 
     /**
-     * OCR回退方案
-     * @param pdfFile
-     * @return
-     * @throws IOException
-     * @throws TesseractException
-     * todo 后续优化：多线程pdf页面处理
+     * 只缓存不联网的知识库问答
      */
-    public List<Document> readPagesWithOcr(MultipartFile pdfFile) throws IOException, TesseractException {
-        // 临时目录准备
-        File tempDir = new File(System.getProperty("java.io.tmpdir"), "pdf_images");
-        if (!tempDir.exists()) {
-            tempDir.mkdirs();
-        }
+    private boolean isAnswerCacheable(ChatApp chatApp) {
+        return semanticAnswerCache.isEnabled()
+                && Objects.equals(chatApp.getIsKnowledgeSearch(), 1)
+                && !Objects.equals(chatApp.getIsWebSearch(), 1);
+    }
 
-        List<Document> ocrResults = new ArrayList<>();
+    /**
+     * 缓存只在会话的第一轮提问时使用（后续提问依赖上下文），读取会话记忆可能阻塞
+     */
+    private boolean isFirstTurn(QueryVo queryVo) {
+        return queryVo.getChatId() == null || CollectionUtils.isEmpty(chatMemory.get(queryVo.getChatId().toString()));
+    }
 
-        try (PDDocument document = Loader.loadPDF(pdfFile.getBytes())) {
-            PDFRenderer renderer = new PDFRenderer(document);
+    /**
+     * 命中缓存时不经过大模型，需要自行新建会话、记录用户提问及会话记忆
+     * 与大模型问答走同一个 ChatStreamPreparer，新会话的 chatId 回写到 queryVo，回答按该会话保存
+     */
+    private Mono<Void> recordCachedAnswer(ChatApp chatApp, QueryVo queryVo, List<String> cachedChunks) {
+        return chatStreamPreparer.prepare(chatApp, queryVo)
+                .flatMap(prepared -> Mono.fromRunnable(() -> chatMemory.add(prepared.chatId().toString(),
+                                List.of(new UserMessage(queryVo.getMsg()), new AssistantMessage(String.join("", cachedChunks)))))
+                        .subscribeOn(chatBlockingScheduler))
+                .then();
+    }
 
-            // 设置DPI提高OCR精度
-            int dpi = 300;
+    /**
+     * 上传文件：写入文件记录并提交入库任务后立即返回，读取、切分、向量化由 IngestJobWorker 在后台执行
+     * @return 入库任务
+     */
+    @Transactional("transactionManager")
+    public ChatIngestJob upload(ChatFile chatFile, MultipartFile file) throws Exception {
+        this.insertChatFile(chatFile, file.getOriginalFilename(), file.getSize());
+        return ingestJobService.submit(SystemConstant.INGEST_JOB_UPLOAD, chatFile, file);
+    }
 
-            Tesseract tesseract = new Tesseract();
-            // 设置语言包（需事先安装）
-            /// tesseract.setLanguage("eng");
-            tesseract.setLanguage("chi_sim");
-            // 如需要指定tessdata路径
-            // tesseract.setDatapath("/path/to/tessdata");
+    /**
+     * 上传已落盘的文件（批量上传时逐个调用，每个文件一个事务）
+     * @param chatFile 文件
+     * @param source spool 目录下的文件，事务回滚时删除
+     * @param filename 文件名
+     * @param fileSize 文件大小
+     * @return 入库任务
+     */
+    @Transactional("transactionManager")
+    public ChatIngestJob upload(ChatFile chatFile, Path source, String filename, long fileSize) throws Exception {
+        this.insertChatFile(chatFile, filename, fileSize);
+        return ingestJobService.submit(SystemConstant.INGEST_JOB_UPLOAD, chatFile, source, filename, fileSize);
+    }
 
-            for (int page = 0; page < document.getNumberOfPages(); page++) {
-                // 渲染PDF页为BufferedImage
-                BufferedImage image = renderer.renderImageWithDPI(page, dpi);
+    private void insertChatFile(ChatFile chatFile, String filename, long fileSize) {
+        //获取文件格式
+        String fileFormat = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
 
-                // 生成临时图像文件
-                File imgFile = new File(tempDir, "page_" + page + ".png");
-                // 最佳实践：使用 ImageIO 保存图像
-                ImageIO.write(image, "png", imgFile);
+        String  fileId = UUID.randomUUID().toString();
+        chatFile.setFileId(fileId);
+        chatFile.setFileName(filename);
+        chatFile.setFileFormat(fileFormat);
+        chatFile.setFileSize(fileSize);
+        chatFile.setIsVector(0);
+        chatFileService.insertChatFile(chatFile);
 
-                // 执行OCR
-                String result = tesseract.doOCR(imgFile);
-                if (StringUtils.hasLength(result)) {
-                    ocrResults.add(new Document(result));
-                }
+        // 暂时注释掉知识图谱功能
+        // 判断是否开启知识图谱
+//                Integer isKnowledgeGraph = chatKnowledge.getIsKnowledgeGraph();
+//                if (isKnowledgeGraph == 1) {
+//                    neo4jService.processCsvFile(file,projectId,knowledgeId);
+//                }
+    }
 
-                // 删除临时图像文件
-                imgFile.delete();
-            }
+    /**
+     * 替换文件：提交替换任务后立即返回，后台按内容哈希与现有分片比对，只新增/删除变化的分片
+     * 未变化的分片及其向量保持不动，替换过程中知识库中始终有该文件的数据
+     * @param fileId 文件ID
+     * @param file 新版本文件
+     * @return 入库任务
+     */
+    @Transactional("transactionManager")
+    public ChatIngestJob replace(String fileId, MultipartFile file) throws Exception {
+        ChatFile chatFile = chatFileService.selectChatFileByFileId(fileId);
+        if (chatFile == null) {
+            throw new RuntimeException("文件不存在");
         }
-
-        // 删除临时目录
-        tempDir.delete();
-        return ocrResults;
+        // 同一文件的任务都基于分片表比对，不能并行
+        if (ingestJobService.hasActiveJob(fileId)) {
+            throw new RuntimeException("文件正在入库，请稍后再替换");
+        }
+        return ingestJobService.submit(SystemConstant.INGEST_JOB_REPLACE, chatFile, file);
     }
 
     @Transactional("transactionManager")
@@ -354,10 +297,13 @@ public class AiService implements ApplicationContextAware {
         this.chatFileService.deleteChatFileByFileId(fileId);
         //删除文件分片
         this.fileSegmentService.deleteChatFileSegmentByFileId(fileId);
-        // 删除redis向量数据库中对应的文档
-        MilvusVectorStore milvusVectorStore = milvusVectorStoreComponent.getVectorStore(knowledgeId);
+        // 删除入库任务，执行中的任务在下一个检查点停止
+        this.ingestJobService.deleteByFileId(fileId);
+        // 删除向量数据库中对应的文档（集合以知识库名称命名）
+        ChatKnowledge chatKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeId(knowledgeId);
+        semanticAnswerCache.invalidateKnowledge(knowledgeId);
         //异步执行
-        vectorStoreAsyncService.removeByFileId(milvusVectorStore, fileId);
+        vectorStoreAsyncService.removeByFileId(chatKnowledge.getKnowledgeName(), knowledgeId, fileId);
         return true;
     }
 
@@ -369,28 +315,39 @@ public class AiService implements ApplicationContextAware {
         chat.setCreateTime(new Date());
         Long chatId = IdUtil.getSnowflake().nextId();
         chat.setChatId(chatId);
-        this.mongoTemplate.insert(chat, MongoUtil.getChatCollection(chatVo.getAppId()));
+        this.mongoTemplate.insert(chat, MongoUtil.CHAT_COLLECTION);
         return chatId.toString();
     }
 
-    public AjaxResult listChat(String appId, Long userId) {
-        List<ChatList> result = new ArrayList<>();
-        List<Chat> chatList = this.mongoTemplate.find(
-                Query.query(Criteria.where("userId").is(userId)).with(Sort.by(Sort.Order.desc("createTime"))),
-                Chat.class,
-                MongoUtil.getChatCollection(appId));
-        if (CollectionUtils.isEmpty(chatList)) {
-            return AjaxResult.success(result);
+    /**
+     * 查询会话列表，按创建时间倒序
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param size 每页条数，为空时返回全部会话（列表），否则返回 CursorPage
+     */
+    public AjaxResult listChat(String appId, Long userId, String cursor, Integer size) {
+        Criteria criteria = Criteria.where("appId").is(appId).and("userId").is(userId);
+        if (cursor != null && !cursor.isEmpty()) {
+            criteria = new Criteria().andOperator(criteria, MongoUtil.before(cursor));
+        }
+        Query query = Query.query(criteria).with(Sort.by(Sort.Order.desc("createTime"), Sort.Order.desc("_id")));
+        if (size != null) {
+            query.limit(this.pageSize(size) + 1);
         }
-        result = chatList.stream().map(chat -> {
+        List<Chat> chatList = this.mongoTemplate.find(query, Chat.class, MongoUtil.CHAT_COLLECTION);
+        String nextCursor = null;
+        if (size != null && chatList.size() > this.pageSize(size)) {
+            chatList = chatList.subList(0, this.pageSize(size));
+            Chat last = chatList.get(chatList.size() - 1);
+            nextCursor = MongoUtil.encodeCursor(last.getCreateTime(), last.getChatId());
+        }
+        List<ChatList> result = chatList.stream().map(chat -> {
             ChatList chatList1 = new ChatList();
             BeanUtils.copyProperties(chat,chatList1);
             chatList1.setChatId(chat.getChatId().toString());
             return chatList1;
         }).collect(Collectors.toList());
 
-        return AjaxResult.success(result);
-
+        return size == null ? AjaxResult.success(result) : AjaxResult.success(CursorPage.of(result, nextCursor));
     }
 
     public void updateChat(ChatVo chatVo) {
@@ -398,29 +355,63 @@ public class AiService implements ApplicationContextAware {
             throw new RuntimeException("appId不能为空");
         }
         UpdateResult result = this.mongoTemplate.updateFirst(
-                Query.query(Criteria.where("_id").is(chatVo.getChatId())),
+                Query.query(Criteria.where("_id").is(chatVo.getChatId()).and("appId").is(chatVo.getAppId())),
                 Update.update("title", chatVo.getTitle()),
-                MongoUtil.getChatCollection(chatVo.getAppId())
+                MongoUtil.CHAT_COLLECTION
         );
     }
 
+    /**
+     * 删除会话及其问答、会话记忆
+     */
     public void deleteChat(String appId, Long chatId) {
         if (appId == null || chatId == null) {
             throw new RuntimeException("appId或chatId不能为空");
         }
-        this.mongoTemplate.remove(Query.query(Criteria.where("_id").is(chatId)), MongoUtil.getChatCollection(appId));
+        this.mongoTemplate.remove(Query.query(Criteria.where("_id").is(chatId).and("appId").is(appId)), MongoUtil.CHAT_COLLECTION);
+        this.mongoTemplate.remove(Query.query(Criteria.where("chatId").is(chatId)), MongoUtil.MESSAGE_COLLECTION);
+        chatMemory.clear(chatId.toString());
     }
 
-    public AjaxResult listMsg(Long chatId) {
+    /**
+     * 查询会话中的问答，按时间正序返回
+     * @param cursor 上一页返回的游标，为空时查询最新的一页
+     * @param size 每页条数，为空时返回全部问答（列表），否则返回 CursorPage，游标指向更早的问答
+     */
+    public AjaxResult listMsg(Long chatId, String cursor, Integer size) {
         if (chatId == null) {
             throw new RuntimeException("chatId不能为空");
         }
+        if (size == null) {
+            List<Message> messageList = this.mongoTemplate.find(
+                    Query.query(Criteria.where("chatId").is(chatId)).with(Sort.by(Sort.Order.asc("createTime"), Sort.Order.asc("_id"))),
+                    Message.class,
+                    MongoUtil.MESSAGE_COLLECTION
+            );
+            return AjaxResult.success(messageList);
+        }
+        Criteria criteria = Criteria.where("chatId").is(chatId);
+        if (cursor != null && !cursor.isEmpty()) {
+            criteria = new Criteria().andOperator(criteria, MongoUtil.before(cursor));
+        }
+        // 倒序取最新的 size + 1 条，多出的一条用于判断是否还有更早的问答
         List<Message> messageList = this.mongoTemplate.find(
-                Query.query(Criteria.where("chatId").is(chatId)).with(Sort.by(Sort.Order.asc("createTime"))),
+                Query.query(criteria).with(Sort.by(Sort.Order.desc("createTime"), Sort.Order.desc("_id"))).limit(this.pageSize(size) + 1),
                 Message.class,
-                MongoUtil.getMessageCollection(chatId)
+                MongoUtil.MESSAGE_COLLECTION
         );
-        return AjaxResult.success(messageList);
+        String nextCursor = null;
+        if (messageList.size() > this.pageSize(size)) {
+            messageList = new ArrayList<>(messageList.subList(0, this.pageSize(size)));
+            Message oldest = messageList.get(messageList.size() - 1);
+            nextCursor = MongoUtil.encodeCursor(oldest.getCreateTime(), oldest.getId());
+        }
+        Collections.reverse(messageList);
+        return AjaxResult.success(CursorPage.of(messageList, nextCursor));
+    }
+
+    private int pageSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
     }
 
     public void saveMsg(MessageVo messageVo) {
@@ -429,7 +420,7 @@ public class AiService implements ApplicationContextAware {
         message.setCreateTime(new Date());
         message.setType(1);
         message.setId(IdUtil.getSnowflake().nextId());
-        this.mongoTemplate.insert(message, MongoUtil.getMessageCollection(messageVo.getChatId()));
+        this.mongoTemplate.insert(message, MongoUtil.MESSAGE_COLLECTION);
     }
 
 
@@ -0,0 +1,168 @@
+package com.ruoyi.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.ruoyi.utils.MongoUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 会话、问答集合迁移
+ *
+ * 旧版每个应用一个聊天集合（ruoyi_chat_应用id）、每个会话一个问答集合（ruoyi_msg_会话id），
+ * 会话多时集合数、索引数、WiredTiger文件句柄随之膨胀；迁移到共用的 ruoyi_chat、ruoyi_msg 集合。
+ * 每次最多迁移 maxCollections 个集合，可重复调用直到没有剩余：迁移完成的集合记录到 ruoyi_migrated，
+ * 不删除旧集合时下次调用跳过已记录的集合（之后以删除旧集合的方式调用时仍会处理，重新复制按 _id 跳过后删除）；
+ * 集合内已迁移的文档按 _id 跳过，中断后重新执行即可
+ */
+@Service
+@Slf4j
+public class ChatMongoMigrationService {
+
+    // 每批写入的文档数
+    @Value("${chat.mongo.migration-batch-size:1000}")
+    private int batchSize;
+
+    // 每次调用最多迁移的旧集合数
+    @Value("${chat.mongo.migration-max-collections:1000}")
+    private int maxCollections;
+
+    // 重复键错误码
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * 迁移旧集合
+     * @param dropSource 迁移成功后是否删除旧集合
+     * @return 迁移的集合数、会话数、问答数、失败的集合、是否还有剩余及耗时
+     */
+    public synchronized Map<String, Object> migrate(boolean dropSource) {
+        long start = System.currentTimeMillis();
+        // 保留旧集合时跳过已迁移的集合
+        Set<String> migratedBefore = new HashSet<>();
+        if (!dropSource) {
+            for (Document marker : mongoTemplate.getCollection(MongoUtil.MIGRATED_COLLECTION).find().projection(new Document("_id", 1))) {
+                migratedBefore.add(marker.getString("_id"));
+            }
+        }
+        List<String> legacyCollections = new ArrayList<>();
+        boolean hasMore = false;
+        for (String name : mongoTemplate.getDb().listCollectionNames()) {
+            if (!isLegacyChatCollection(name) && !isLegacyMessageCollection(name) || migratedBefore.contains(name)) {
+                continue;
+            }
+            if (legacyCollections.size() >= maxCollections) {
+                hasMore = true;
+                break;
+            }
+            legacyCollections.add(name);
+        }
+
+        long chats = 0;
+        long messages = 0;
+        int migrated = 0;
+        List<String> failed = new ArrayList<>();
+        for (String name : legacyCollections) {
+            try {
+                if (isLegacyChatCollection(name)) {
+                    String appId = name.substring(MongoUtil.LEGACY_CHAT_COLLECTION_PREFIX.length());
+                    chats += copy(name, MongoUtil.CHAT_COLLECTION, doc -> doc.putIfAbsent("appId", appId));
+                } else {
+                    Long chatId = Long.valueOf(name.substring(MongoUtil.LEGACY_MESSAGE_COLLECTION_PREFIX.length()));
+                    messages += copy(name, MongoUtil.MESSAGE_COLLECTION, doc -> doc.putIfAbsent("chatId", chatId));
+                }
+                if (dropSource) {
+                    mongoTemplate.dropCollection(name);
+                    mongoTemplate.getCollection(MongoUtil.MIGRATED_COLLECTION).deleteOne(Filters.eq("_id", name));
+                } else {
+                    mongoTemplate.getCollection(MongoUtil.MIGRATED_COLLECTION).replaceOne(Filters.eq("_id", name),
+                            new Document("_id", name).append("migrateTime", new Date()), new ReplaceOptions().upsert(true));
+                }
+                migrated++;
+            } catch (Exception e) {
+                log.error("迁移集合{}失败", name, e);
+                failed.add(name);
+            }
+        }
+        log.info("会话、问答集合迁移完成，集合：{}，会话：{}，问答：{}，失败：{}", migrated, chats, messages, failed.size());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("collections", migrated);
+        report.put("chats", chats);
+        report.put("messages", messages);
+        report.put("failed", failed);
+        report.put("dropSource", dropSource);
+        report.put("hasMore", hasMore);
+        report.put("elapsedMs", System.currentTimeMillis() - start);
+        return report;
+    }
+
+    /**
+     * 复制集合中的全部文档
+     * @return 新写入的文档数（已存在的不计）
+     */
+    private long copy(String source, String target, Consumer<Document> fill) {
+        long copied = 0;
+        List<Document> batch = new ArrayList<>(batchSize);
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(source).find().batchSize(batchSize).iterator()) {
+            while (cursor.hasNext()) {
+                Document doc = cursor.next();
+                fill.accept(doc);
+                batch.add(doc);
+                if (batch.size() >= batchSize) {
+                    copied += insertIgnoringDuplicates(target, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            copied += insertIgnoringDuplicates(target, batch);
+        }
+        return copied;
+    }
+
+    private long insertIgnoringDuplicates(String target, List<Document> batch) {
+        try {
+            mongoTemplate.getCollection(target).insertMany(batch, new InsertManyOptions().ordered(false));
+            return batch.size();
+        } catch (MongoBulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+            return batch.size() - e.getWriteErrors().size();
+        }
+    }
+
+    private static boolean isLegacyChatCollection(String name) {
+        return name.startsWith(MongoUtil.LEGACY_CHAT_COLLECTION_PREFIX);
+    }
+
+    private static boolean isLegacyMessageCollection(String name) {
+        if (!name.startsWith(MongoUtil.LEGACY_MESSAGE_COLLECTION_PREFIX)) {
+            return false;
+        }
+        String suffix = name.substring(MongoUtil.LEGACY_MESSAGE_COLLECTION_PREFIX.length());
+        return !suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit);
+    }
+}
@@ -0,0 +1,386 @@
+package com.ruoyi.service;
+
+import com.ruoyi.component.KnowledgeRetriever;
+import com.ruoyi.component.KnowledgeVectorStoreComponent;
+import com.ruoyi.component.MilvusVectorStoreComponent;
+import com.ruoyi.domain.ChatAppKnowledge;
+import com.ruoyi.domain.ChatFile;
+import com.ruoyi.domain.ChatFileSegment;
+import com.ruoyi.domain.ChatKnowledge;
+import com.ruoyi.enums.MessageTypeEnum;
+import com.ruoyi.enums.SystemConstant;
+import com.ruoyi.pojo.Chat;
+import com.ruoyi.pojo.IndexTuningParams;
+import com.ruoyi.pojo.Message;
+import com.ruoyi.utils.MongoUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Milvus 索引离线调优
+ *
+ * 以集合中已存储向量的精确 topK（暴力计算余弦相似度）为基准，逐个评估检索参数的 recall@K 与检索延迟，
+ * 供调整 ChatKnowledge.searchParams（nprobe、ef、search_list）时参考。
+ * 未提供查询时从关联应用最近的用户提问中抽样，没有提问记录时抽样分片内容。
+ * 评估耗时较长，在 indexTuningExecutor 中后台执行，结果保存在本节点内存中，按知识库查询
+ */
+@Service
+@Slf4j
+public class MilvusIndexTuningService {
+
+    // 读取分片、向量化的批大小
+    @Value("${chat.index-tuning.batch-size:256}")
+    private int batchSize;
+
+    @Autowired
+    private IChatKnowledgeService chatKnowledgeService;
+
+    @Autowired
+    private IChatFileService chatFileService;
+
+    @Autowired
+    private IChatFileSegmentService chatFileSegmentService;
+
+    @Autowired
+    private MilvusVectorStoreComponent milvusVectorStoreComponent;
+
+    @Autowired
+    private KnowledgeVectorStoreComponent knowledgeVectorStoreComponent;
+
+    @Autowired
+    private KnowledgeRetriever knowledgeRetriever;
+
+    @Autowired
+    private IChatAppKnowledgeService chatAppKnowledgeService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    @Qualifier("indexTuningExecutor")
+    private ExecutorService indexTuningExecutor;
+
+    // 抽样用户提问时最多读取的最近会话数
+    @Value("${chat.index-tuning.recent-chats:1000}")
+    private int recentChats;
+
+    // 知识库ID -> 最近一次调优的状态及结果
+    private final Map<String, Map<String, Object>> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * 提交后台评估，同一知识库同时只执行一个
+     * @param knowledgeId 知识库ID
+     * @param params 调优参数
+     * @return 任务状态
+     */
+    public Map<String, Object> submit(String knowledgeId, IndexTuningParams params) {
+        ChatKnowledge chatKnowledge = milvusKnowledge(knowledgeId);
+        Map<String, Object> task = new ConcurrentHashMap<>();
+        task.put("knowledgeName", chatKnowledge.getKnowledgeName());
+        task.put("status", "running");
+        task.put("startTime", new Date());
+        Map<String, Object> current = tasks.compute(knowledgeId, (id, previous) ->
+                previous != null && "running".equals(previous.get("status")) ? previous : task);
+        if (current != task) {
+            throw new IllegalStateException("知识库正在调优，请稍后查询结果");
+        }
+        try {
+            indexTuningExecutor.execute(() -> {
+                try {
+                    task.put("report", tune(chatKnowledge, params));
+                    task.put("status", "done");
+                } catch (Exception e) {
+                    log.error("知识库{}索引调优失败", chatKnowledge.getKnowledgeName(), e);
+                    task.put("error", String.valueOf(e.getMessage()));
+                    task.put("status", "failed");
+                } finally {
+                    task.put("endTime", new Date());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            tasks.remove(knowledgeId, task);
+            throw new IllegalStateException("调优任务过多，请稍后重试");
+        }
+        return task;
+    }
+
+    /**
+     * 最近一次调优的状态及结果
+     * @param knowledgeId 知识库ID
+     * @return 任务状态，未执行过时为null
+     */
+    public Map<String, Object> result(String knowledgeId) {
+        return tasks.get(knowledgeId);
+    }
+
+    /**
+     * 评估知识库的检索参数
+     * @param knowledgeId 知识库ID
+     * @param params 调优参数
+     * @return 索引配置及每组检索参数的召回率、延迟
+     */
+    private Map<String, Object> tune(ChatKnowledge chatKnowledge, IndexTuningParams params) {
+        String knowledgeId = chatKnowledge.getKnowledgeId();
+        int topK = params.getTopK() == null ? SystemConstant.TOPK : params.getTopK();
+        int sampleSize = params.getSampleSize() == null ? 100 : params.getSampleSize();
+        String collectionName = chatKnowledge.getKnowledgeName();
+        MilvusVectorStoreComponent.IndexConfig indexConfig = knowledgeVectorStoreComponent.indexConfig(collectionName);
+
+        List<String> queries = params.getQueries();
+        String querySource = "params";
+        if (CollectionUtils.isEmpty(queries)) {
+            queries = sampleQuestions(knowledgeId, sampleSize);
+            querySource = "questions";
+        }
+        if (queries.isEmpty()) {
+            queries = sampleSegments(knowledgeId, sampleSize);
+            querySource = "segments";
+        }
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("知识库没有分片: " + collectionName);
+        }
+        List<float[]> queryEmbeddings = queries.stream().map(knowledgeRetriever::embedQuery).toList();
+        List<Set<String>> groundTruth = exactTopK(collectionName, queryEmbeddings, topK);
+
+        List<String> candidates = CollectionUtils.isEmpty(params.getSearchParams())
+                ? defaultCandidates(indexConfig) : params.getSearchParams();
+        List<Map<String, Object>> results = new ArrayList<>(candidates.size());
+        for (String searchParams : candidates) {
+            results.add(evaluate(collectionName, indexConfig, searchParams, queryEmbeddings, groundTruth, topK));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("knowledgeName", collectionName);
+        report.put("indexType", indexConfig.indexType().name());
+        report.put("indexParams", indexConfig.indexParams());
+        report.put("currentSearchParams", indexConfig.searchParams());
+        report.put("topK", topK);
+        report.put("queries", queries.size());
+        report.put("querySource", querySource);
+        report.put("results", results);
+        return report;
+    }
+
+    private Map<String, Object> evaluate(String collectionName, MilvusVectorStoreComponent.IndexConfig indexConfig,
+                                         String searchParams, List<float[]> queryEmbeddings,
+                                         List<Set<String>> groundTruth, int topK) {
+        // 预热一次，避免首次加载影响延迟统计
+        milvusVectorStoreComponent.search(collectionName, queryEmbeddings.get(0), topK,
+                SearchRequest.SIMILARITY_THRESHOLD_ACCEPT_ALL, indexConfig, searchParams);
+
+        long[] latencies = new long[queryEmbeddings.size()];
+        double recallSum = 0;
+        for (int i = 0; i < queryEmbeddings.size(); i++) {
+            long start = System.nanoTime();
+            List<Document> documents = milvusVectorStoreComponent.search(collectionName, queryEmbeddings.get(i), topK,
+                    SearchRequest.SIMILARITY_THRESHOLD_ACCEPT_ALL, indexConfig, searchParams);
+            latencies[i] = System.nanoTime() - start;
+
+            Set<String> expected = groundTruth.get(i);
+            if (expected.isEmpty()) {
+                recallSum += 1;
+                continue;
+            }
+            long hits = documents.stream().filter(document -> expected.contains(document.getId())).count();
+            recallSum += (double) hits / expected.size();
+        }
+        Arrays.sort(latencies);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("searchParams", searchParams);
+        result.put("recall", recallSum / queryEmbeddings.size());
+        result.put("avgLatencyMs", Arrays.stream(latencies).average().orElse(0) / 1_000_000);
+        result.put("p50LatencyMs", percentile(latencies, 0.50) / 1_000_000.0);
+        result.put("p95LatencyMs", percentile(latencies, 0.95) / 1_000_000.0);
+        log.info("知识库{}检索参数{}：recall@{}={}，p95={}ms", collectionName, searchParams, topK,
+                result.get("recall"), result.get("p95LatencyMs"));
+        return result;
+    }
+
+    private ChatKnowledge milvusKnowledge(String knowledgeId) {
+        ChatKnowledge chatKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeId(knowledgeId);
+        if (chatKnowledge == null) {
+            throw new IllegalArgumentException("知识库不存在: " + knowledgeId);
+        }
+        if (SystemConstant.VECTOR_STORE_HNSW.equals(chatKnowledge.getVectorStoreType())) {
+            throw new IllegalArgumentException("知识库未使用Milvus存储: " + chatKnowledge.getKnowledgeName());
+        }
+        return chatKnowledge;
+    }
+
+    /**
+     * 分批读取集合中已存储的向量，计算每个查询的精确 topK 分片ID
+     */
+    private List<Set<String>> exactTopK(String collectionName, List<float[]> queryEmbeddings, int topK) {
+        List<float[]> queries = queryEmbeddings.stream().map(MilvusIndexTuningService::normalize).toList();
+        List<PriorityQueue<Scored>> heaps = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            heaps.add(new PriorityQueue<>(Comparator.comparingDouble(Scored::score)));
+        }
+        milvusVectorStoreComponent.forEachVector(collectionName, batchSize, (ids, embeddings) -> {
+            for (int s = 0; s < ids.size(); s++) {
+                float[] vector = normalize(embeddings.get(s));
+                String segmentId = ids.get(s);
+                for (int q = 0; q < queries.size(); q++) {
+                    PriorityQueue<Scored> heap = heaps.get(q);
+                    double score = dot(queries.get(q), vector);
+                    if (heap.size() < topK) {
+                        heap.add(new Scored(segmentId, score));
+                    } else if (score > heap.peek().score()) {
+                        heap.poll();
+                        heap.add(new Scored(segmentId, score));
+                    }
+                }
+            }
+        });
+        List<Set<String>> groundTruth = new ArrayList<>(heaps.size());
+        for (PriorityQueue<Scored> heap : heaps) {
+            Set<String> ids = new HashSet<>();
+            heap.forEach(scored -> ids.add(scored.segmentId()));
+            groundTruth.add(ids);
+        }
+        return groundTruth;
+    }
+
+    /**
+     * 从关联应用最近会话的用户提问中随机抽样，与线上查询的分布一致
+     */
+    private List<String> sampleQuestions(String knowledgeId, int sampleSize) {
+        ChatAppKnowledge filter = new ChatAppKnowledge();
+        filter.setKnowledgeId(knowledgeId);
+        List<String> appIds = chatAppKnowledgeService.selectChatAppKnowledgeList(filter).stream()
+                                                    .map(ChatAppKnowledge::getAppId)
+                                                    .distinct()
+                                                    .toList();
+        if (appIds.isEmpty()) {
+            return List.of();
+        }
+        Query chatQuery = Query.query(Criteria.where("appId").in(appIds))
+                               .with(Sort.by(Sort.Order.desc("createTime")))
+                               .limit(recentChats);
+        chatQuery.fields().include("_id");
+        List<Long> chatIds = mongoTemplate.find(chatQuery, Chat.class, MongoUtil.CHAT_COLLECTION).stream()
+                                          .map(Chat::getChatId)
+                                          .toList();
+        if (chatIds.isEmpty()) {
+            return List.of();
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("chatId").in(chatIds).and("type").is(MessageTypeEnum.USER.getType())),
+                Aggregation.sample(sampleSize));
+        return mongoTemplate.aggregate(aggregation, MongoUtil.MESSAGE_COLLECTION, Message.class).getMappedResults().stream()
+                            .map(Message::getContent)
+                            .filter(StringUtils::hasText)
+                            .toList();
+    }
+
+    /**
+     * 蓄水池抽样分片内容作为查询
+     */
+    private List<String> sampleSegments(String knowledgeId, int sampleSize) {
+        List<String> samples = new ArrayList<>(sampleSize);
+        long[] seen = {0};
+        forEachSegmentBatch(knowledgeId, segmentList -> {
+            for (ChatFileSegment segment : segmentList) {
+                seen[0]++;
+                if (samples.size() < sampleSize) {
+                    samples.add(segment.getContent());
+                } else {
+                    long j = ThreadLocalRandom.current().nextLong(seen[0]);
+                    if (j < sampleSize) {
+                        samples.set((int) j, segment.getContent());
+                    }
+                }
+            }
+        });
+        return samples;
+    }
+
+    private void forEachSegmentBatch(String knowledgeId, Consumer<List<ChatFileSegment>> consumer) {
+        for (ChatFile chatFile : chatFileService.selectChatFileByKnowledgeId(knowledgeId)) {
+            String lastSegmentId = null;
+            List<ChatFileSegment> segmentList;
+            do {
+                segmentList = chatFileSegmentService.selectChatFileSegmentPageByFileId(chatFile.getFileId(), lastSegmentId, batchSize);
+                if (!CollectionUtils.isEmpty(segmentList)) {
+                    consumer.accept(segmentList);
+                    lastSegmentId = segmentList.get(segmentList.size() - 1).getSegmentId();
+                }
+            } while (segmentList != null && segmentList.size() == batchSize);
+        }
+    }
+
+    /**
+     * 按索引类型生成默认的检索参数候选，从低召回/低延迟到高召回/高延迟
+     */
+    private List<String> defaultCandidates(MilvusVectorStoreComponent.IndexConfig indexConfig) {
+        return switch (indexConfig.indexType()) {
+            case IVF_FLAT, IVF_SQ8, IVF_PQ -> List.of("{\"nprobe\":4}", "{\"nprobe\":8}", "{\"nprobe\":16}",
+                    "{\"nprobe\":32}", "{\"nprobe\":64}", "{\"nprobe\":128}");
+            case HNSW -> List.of("{\"ef\":16}", "{\"ef\":32}", "{\"ef\":64}", "{\"ef\":128}", "{\"ef\":256}");
+            case DISKANN -> List.of("{\"search_list\":20}", "{\"search_list\":50}", "{\"search_list\":100}",
+                    "{\"search_list\":200}");
+            default -> List.of(indexConfig.searchParams());
+        };
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private record Scored(String segmentId, double score) {
+    }
+}
@@ -0,0 +1,179 @@
+package com.ruoyi.service;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.ruoyi.component.KnowledgeVectorStoreComponent;
+import com.ruoyi.component.MilvusVectorStoreComponent;
+import com.ruoyi.domain.ChatKnowledge;
+import com.ruoyi.enums.MilvusIndexTypeEnum;
+import com.ruoyi.enums.SystemConstant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Milvus 集合内存预算报告
+ *
+ * 按集合行数、向量维度、索引类型及参数估算查询节点加载集合所需的内存，并给出各索引类型（含 IVF_SQ8、IVF_PQ 量化）的对比，
+ * 用于容量规划和选择知识库的索引类型。估算值不含 Milvus 自身的固定开销及增长中的 segment
+ */
+@Service
+@Slf4j
+public class MilvusMemoryReportService {
+
+    private static final double MB = 1024 * 1024;
+
+    // 查询节点可用于集合的内存预算（MB），0为不检查
+    @Value("${chat.milvus.memory-budget-mb:0}")
+    private long memoryBudgetMb;
+
+    // 查询节点是否开启 mmap，开启时原始向量及标量字段不常驻内存
+    @Value("${chat.milvus.mmap-enabled:false}")
+    private boolean mmapEnabled;
+
+    // 估算标量字段大小时的抽样行数
+    @Value("${chat.milvus.memory-sample-size:200}")
+    private int sampleSize;
+
+    @Autowired
+    private IChatKnowledgeService chatKnowledgeService;
+
+    @Autowired
+    private MilvusVectorStoreComponent milvusVectorStoreComponent;
+
+    @Autowired
+    private KnowledgeVectorStoreComponent knowledgeVectorStoreComponent;
+
+    /**
+     * 全部使用Milvus存储的知识库的内存估算及合计
+     */
+    public Map<String, Object> report() {
+        List<Map<String, Object>> collections = new ArrayList<>();
+        double totalMb = 0;
+        for (ChatKnowledge chatKnowledge : chatKnowledgeService.selectChatKnowledgeList(new ChatKnowledge())) {
+            if (SystemConstant.VECTOR_STORE_HNSW.equals(chatKnowledge.getVectorStoreType())) {
+                continue;
+            }
+            try {
+                Map<String, Object> collection = report(chatKnowledge);
+                totalMb += (double) collection.get("estimatedMb");
+                collections.add(collection);
+            } catch (RuntimeException e) {
+                log.warn("知识库{}内存估算失败", chatKnowledge.getKnowledgeName(), e);
+            }
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("mmapEnabled", mmapEnabled);
+        report.put("totalEstimatedMb", round(totalMb));
+        if (memoryBudgetMb > 0) {
+            report.put("budgetMb", memoryBudgetMb);
+            report.put("withinBudget", totalMb <= memoryBudgetMb);
+        }
+        report.put("collections", collections);
+        return report;
+    }
+
+    /**
+     * 单个知识库的内存估算
+     * @param knowledgeId 知识库ID
+     */
+    public Map<String, Object> report(String knowledgeId) {
+        ChatKnowledge chatKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeId(knowledgeId);
+        if (chatKnowledge == null) {
+            throw new IllegalArgumentException("知识库不存在: " + knowledgeId);
+        }
+        if (SystemConstant.VECTOR_STORE_HNSW.equals(chatKnowledge.getVectorStoreType())) {
+            throw new IllegalArgumentException("知识库未使用Milvus存储: " + chatKnowledge.getKnowledgeName());
+        }
+        return report(chatKnowledge);
+    }
+
+    private Map<String, Object> report(ChatKnowledge chatKnowledge) {
+        String collectionName = chatKnowledge.getKnowledgeName();
+        knowledgeVectorStoreComponent.ensureCollection(collectionName);
+        MilvusVectorStoreComponent.IndexConfig indexConfig = knowledgeVectorStoreComponent.indexConfig(collectionName);
+        MilvusVectorStoreComponent.CollectionStats stats = milvusVectorStoreComponent.stats(collectionName, sampleSize);
+
+        // 当前索引按集合实际的 mmap 属性估算
+        Estimate current = estimate(stats, indexConfig.indexType(), indexConfig.indexParams(), stats.mmap());
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("knowledgeId", chatKnowledge.getKnowledgeId());
+        report.put("knowledgeName", collectionName);
+        report.put("rows", stats.rowCount());
+        report.put("dimension", stats.dimension());
+        report.put("indexType", indexConfig.indexType().name());
+        report.put("indexParams", indexConfig.indexParams());
+        report.put("mmap", stats.mmap());
+        report.put("rawVectorMb", round(rawVectorBytes(stats) / MB));
+        report.put("indexMb", round(current.indexBytes() / MB));
+        report.put("scalarMb", round(current.scalarBytes() / MB));
+        report.put("estimatedMb", round(current.totalBytes() / MB));
+
+        // 其他索引类型按默认参数及重建后的 mmap 设置估算，便于比较量化后的内存
+        Map<String, Object> alternatives = new LinkedHashMap<>();
+        for (MilvusIndexTypeEnum indexType : MilvusIndexTypeEnum.values()) {
+            Estimate estimate = estimate(stats, indexType, indexType.getDefaultIndexParams(), milvusVectorStoreComponent.isMmapEnabled(indexType));
+            alternatives.put(indexType.name(), round(estimate.totalBytes() / MB));
+        }
+        report.put("alternativesMb", alternatives);
+        return report;
+    }
+
+    /**
+     * 按索引结构估算内存：量化索引只保存编码，原始向量未开启 mmap 时仍需加载（检索结果带回向量、重新打分时使用），
+     * 量化索引的集合默认开启 mmap（见 MilvusVectorStoreComponent.isMmapEnabled）
+     * @param mmap 原始数据是否以 mmap 方式加载
+     */
+    private Estimate estimate(MilvusVectorStoreComponent.CollectionStats stats, MilvusIndexTypeEnum indexType, String indexParams,
+                              boolean mmap) {
+        long rows = stats.rowCount();
+        int dimension = stats.dimension();
+        JSONObject params = JSONUtil.parseObj(indexParams);
+        double rawBytes = rawVectorBytes(stats);
+        // 每行的ID映射
+        double idBytes = rows * 8.0;
+        double centroidBytes = params.getInt("nlist", 1024) * dimension * 4.0;
+        double indexBytes = switch (indexType) {
+            case FLAT -> rawBytes;
+            case IVF_FLAT -> rawBytes + centroidBytes + idBytes;
+            case IVF_SQ8 -> rows * (double) dimension + centroidBytes + idBytes;
+            case IVF_PQ -> {
+                int m = params.getInt("m", 16);
+                int nbits = params.getInt("nbits", 8);
+                double codeBytes = rows * Math.ceil(m * nbits / 8.0);
+                double codebookBytes = (1 << nbits) * (double) dimension * 4;
+                yield codeBytes + codebookBytes + centroidBytes + idBytes;
+            }
+            // 第0层 2M 个邻居，上层邻居约为第0层的 1/(M-1)
+            case HNSW -> rawBytes + rows * params.getInt("M", 16) * 2 * 4 * 1.05;
+            // 内存中只保留PQ编码，默认预算为原始向量的 0.125
+            case DISKANN -> rawBytes * params.getDouble("pq_code_budget_gb_ratio", 0.125);
+        };
+        boolean rawInIndex = indexType == MilvusIndexTypeEnum.FLAT || indexType == MilvusIndexTypeEnum.IVF_FLAT
+                || indexType == MilvusIndexTypeEnum.HNSW;
+        double residentRawBytes = rawInIndex || mmap || indexType == MilvusIndexTypeEnum.DISKANN ? 0 : rawBytes;
+        double scalarBytes = mmap ? 0 : rows * stats.avgScalarBytes();
+        return new Estimate(indexBytes + residentRawBytes, scalarBytes);
+    }
+
+    private static double rawVectorBytes(MilvusVectorStoreComponent.CollectionStats stats) {
+        return stats.rowCount() * (double) stats.dimension() * Float.BYTES;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private record Estimate(double indexBytes, double scalarBytes) {
+
+        double totalBytes() {
+            return indexBytes + scalarBytes;
+        }
+    }
+}
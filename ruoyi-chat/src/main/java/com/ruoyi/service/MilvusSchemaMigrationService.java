@@ -0,0 +1,81 @@
+package com.ruoyi.service;
+
+import com.ruoyi.component.KnowledgeVectorStoreComponent;
+import com.ruoyi.component.MilvusVectorStoreComponent;
+import com.ruoyi.domain.ChatFile;
+import com.ruoyi.domain.ChatKnowledge;
+import com.ruoyi.enums.SystemConstant;
+import com.ruoyi.service.ingest.IngestJobService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Milvus 集合结构迁移
+ *
+ * 早期创建的集合只在 JSON 元数据中保存 fileId、knowledgeId，按文件删除需扫描整个集合；
+ * 迁移后使用带倒排索引的 file_id、knowledge_id 标量字段
+ */
+@Service
+@Slf4j
+public class MilvusSchemaMigrationService {
+
+    // 迁移时每批读取的向量数
+    @Value("${chat.milvus.migration-batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private IChatKnowledgeService chatKnowledgeService;
+
+    @Autowired
+    private IChatFileService chatFileService;
+
+    @Autowired
+    private MilvusVectorStoreComponent milvusVectorStoreComponent;
+
+    @Autowired
+    private KnowledgeVectorStoreComponent knowledgeVectorStoreComponent;
+
+    @Autowired
+    private IngestJobService ingestJobService;
+
+    /**
+     * 迁移知识库对应的集合
+     * @param knowledgeId 知识库ID
+     * @return 集合名称、复制的向量数及耗时
+     */
+    public synchronized Map<String, Object> migrate(String knowledgeId) {
+        ChatKnowledge chatKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeId(knowledgeId);
+        if (chatKnowledge == null) {
+            throw new IllegalArgumentException("知识库不存在: " + knowledgeId);
+        }
+        if (SystemConstant.VECTOR_STORE_HNSW.equals(chatKnowledge.getVectorStoreType())) {
+            throw new IllegalArgumentException("知识库未使用Milvus存储: " + chatKnowledge.getKnowledgeName());
+        }
+        // 迁移期间写入原集合的向量不会被复制
+        if (ingestJobService.hasActiveKnowledgeJob(knowledgeId)) {
+            throw new IllegalStateException("知识库有未完成的入库任务，请稍后再迁移");
+        }
+        String collectionName = chatKnowledge.getKnowledgeName();
+        long start = System.currentTimeMillis();
+        long copied = milvusVectorStoreComponent.migrateSchema(collectionName,
+                knowledgeVectorStoreComponent.indexConfig(collectionName), batchSize,
+                () -> ingestJobService.hasActiveKnowledgeJob(knowledgeId),
+                () -> chatFileService.selectChatFileByKnowledgeId(knowledgeId).stream()
+                                     .map(ChatFile::getFileId)
+                                     .collect(Collectors.toSet()));
+        knowledgeVectorStoreComponent.evict(collectionName);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("knowledgeName", collectionName);
+        report.put("migrated", copied >= 0);
+        report.put("rows", Math.max(copied, 0));
+        report.put("elapsedMs", System.currentTimeMillis() - start);
+        return report;
+    }
+}
@@ -0,0 +1,235 @@
+package com.ruoyi.service.async;
+
+import cn.hutool.core.util.IdUtil;
+import com.ruoyi.enums.MessageTypeEnum;
+import com.ruoyi.pojo.Message;
+import com.ruoyi.utils.MongoUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 流式回答的异步写回
+ *
+ * 回答结束（完成、出错或客户端取消）后放入有界队列，由写回线程跨会话组批，批量写入问答集合；
+ * 队列满时不阻塞流式线程，改为单条响应式写入；写入失败按消息id逐条保存重试（幂等）
+ */
+@Service
+@Slf4j
+public class ChatMessageWriteBehindService {
+
+    // 队列容量，超过后单条直接写入
+    @Value("${chat.message.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // 每批最多写入的消息数
+    @Value("${chat.message.write-behind.batch-size:500}")
+    private int batchSize;
+
+    // 取到第一条后继续收集的最长时间
+    @Value("${chat.message.write-behind.max-wait-ms:200}")
+    private long maxWaitMs;
+
+    // 写入失败后的重试次数
+    @Value("${chat.message.write-behind.max-retries:3}")
+    private int maxRetries;
+
+    // 首次重试的等待时间，之后每次翻倍
+    @Value("${chat.message.write-behind.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private BlockingQueue<Message> queue;
+
+    private Thread writer;
+
+    private volatile boolean running = true;
+
+    private final LongAdder enqueued = new LongAdder();
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder batchedMessages = new LongAdder();
+
+    private final LongAdder overflowed = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        writer = new Thread(this::write, "chat-message-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 停止接收后写完队列中剩余的消息
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        List<Message> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            log.info("写回剩余的{}条消息", rest.size());
+            flush(rest);
+        }
+    }
+
+    /**
+     * 保存AI的回答
+     * @param chatId 会话id，为空时不保存
+     * @param content 已输出的回答，取消或出错时为已生成的部分
+     * @param signal 流的结束方式
+     */
+    public void saveAnswer(Long chatId, String content, SignalType signal) {
+        if (chatId == null || content == null || content.isBlank()) {
+            log.debug("AI响应内容为空，不保存，chatId: {}，结束方式: {}", chatId, signal);
+            return;
+        }
+        if (signal != SignalType.ON_COMPLETE) {
+            log.info("流式回答未正常结束（{}），保存已生成的{}个字符，chatId: {}", signal, content.length(), chatId);
+        }
+        Message aiMsg = new Message();
+        aiMsg.setId(IdUtil.getSnowflake().nextId());
+        aiMsg.setChatId(chatId);
+        aiMsg.setType(MessageTypeEnum.AI.getType());
+        aiMsg.setCreateTime(new Date());
+        aiMsg.setContent(content);
+        this.enqueue(aiMsg);
+    }
+
+    /**
+     * 放入写回队列，队列满或已停止时单条响应式写入，不阻塞调用线程
+     */
+    public void enqueue(Message message) {
+        if (running && queue.offer(message)) {
+            enqueued.increment();
+            return;
+        }
+        overflowed.increment();
+        reactiveMongoTemplate.insert(message, MongoUtil.MESSAGE_COLLECTION)
+                .subscribe(saved -> written.increment(), e -> {
+                    dropped.increment();
+                    log.error("保存消息失败，chatId: {}", message.getChatId(), e);
+                });
+    }
+
+    /**
+     * 写回统计：入队数、写入数、批次数、队列满时直接写入数、重试后仍失败丢弃数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long batchCount = batches.sum();
+        stats.put("enqueued", enqueued.sum());
+        stats.put("written", written.sum());
+        stats.put("batches", batchCount);
+        stats.put("avgBatchSize", batchCount == 0 ? 0 : (double) batchedMessages.sum() / batchCount);
+        stats.put("overflowed", overflowed.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("queued", queue.size());
+        return stats;
+    }
+
+    /**
+     * 写回线程：取到第一条后在 maxWaitMs 内继续收集，满批或超时即写入
+     */
+    private void write() {
+        while (running) {
+            try {
+                Message first = queue.poll(maxWaitMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Message> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Message next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("消息写回失败", e);
+            }
+        }
+    }
+
+    private void flush(List<Message> batch) {
+        insert(MongoUtil.MESSAGE_COLLECTION, batch);
+        batches.increment();
+        batchedMessages.add(batch.size());
+    }
+
+    private void insert(String collectionName, List<Message> messages) {
+        try {
+            mongoTemplate.insert(messages, collectionName);
+            written.add(messages.size());
+            return;
+        } catch (Exception e) {
+            log.warn("批量写入{}条消息到{}失败，逐条重试", messages.size(), collectionName, e);
+        }
+        // 批量写入可能已部分成功，按id保存避免重复
+        long backoff = retryBackoffMs;
+        List<Message> pending = messages;
+        for (int attempt = 1; attempt <= maxRetries && !pending.isEmpty(); attempt++) {
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoff *= 2;
+            List<Message> failed = new ArrayList<>();
+            for (Message message : pending) {
+                try {
+                    mongoTemplate.save(message, collectionName);
+                    written.increment();
+                } catch (Exception e) {
+                    failed.add(message);
+                    if (attempt == maxRetries) {
+                        log.error("保存消息失败，chatId: {}，id: {}", message.getChatId(), message.getId(), e);
+                    }
+                }
+            }
+            pending = failed;
+        }
+        if (!pending.isEmpty()) {
+            dropped.add(pending.size());
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.ruoyi.service.async;
 
+import com.ruoyi.component.Bm25IndexComponent;
+import com.ruoyi.component.KnowledgeVectorStoreComponent;
+import com.ruoyi.component.SemanticAnswerCache;
 import com.ruoyi.domain.ChatFile;
 import com.ruoyi.service.IChatFileService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -23,17 +25,27 @@ public class VectorStoreAsyncService {
     @Autowired
     IChatFileService chatFileService;
 
+    @Autowired
+    KnowledgeVectorStoreComponent knowledgeVectorStoreComponent;
+
+    @Autowired
+    SemanticAnswerCache semanticAnswerCache;
+
+    @Autowired
+    Bm25IndexComponent bm25IndexComponent;
+
     /**
      * 异步执行根据fileId删除向量存储
-     * @param vectorStore
+     * @param collectionName 集合名称
+     * @param knowledgeId
      * @param fileId
      * @throws Exception
      */
     @Async
-    public void removeByFileId(VectorStore vectorStore, String fileId) throws Exception {
-        vectorStore.delete(
-                new FilterExpressionBuilder().eq("fileId", fileId).build()
-        );
+    public void removeByFileId(String collectionName, String knowledgeId, String fileId) throws Exception {
+        knowledgeVectorStoreComponent.deleteByFileId(collectionName, fileId);
+        bm25IndexComponent.removeFile(knowledgeId, fileId);
+        semanticAnswerCache.invalidateKnowledge(knowledgeId);
         log.info("异步执行根据fileId删除向量存储成功");
 
     }
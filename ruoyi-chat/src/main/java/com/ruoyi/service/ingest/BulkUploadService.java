@@ -0,0 +1,190 @@
+package com.ruoyi.service.ingest;
+
+import com.ruoyi.domain.ChatFile;
+import com.ruoyi.domain.ChatIngestJob;
+import com.ruoyi.pojo.BulkUploadItem;
+import com.ruoyi.service.AiService;
+import com.ruoyi.service.IChatKnowledgeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 批量上传：多个文件或zip压缩包
+ *
+ * 文件（zip按条目逐个解压）以流的方式写入 spool 目录，每个文件单独一个事务写入文件记录并提交入库任务，
+ * 单个文件失败不影响其他文件；读取、切分、向量化由 IngestJobWorker 并行执行，并受每个提交人的并发上限约束
+ */
+@Service
+@Slf4j
+public class BulkUploadService {
+
+    // 单次请求最多处理的文件数（含zip内的文件）
+    @Value("${chat.ingest.bulk.max-files:1000}")
+    private int maxFiles;
+
+    // zip内单个文件解压后的大小上限
+    @Value("${chat.ingest.bulk.max-entry-size:104857600}")
+    private long maxEntrySize;
+
+    // 单次请求解压后的总大小上限，防止压缩炸弹
+    @Value("${chat.ingest.bulk.max-total-size:2147483648}")
+    private long maxTotalSize;
+
+    // zip条目名未标记UTF-8时使用的编码（Windows压缩软件默认GBK）
+    @Value("${chat.ingest.bulk.zip-charset:GBK}")
+    private String zipCharset;
+
+    @Autowired
+    private AiService aiService;
+
+    @Autowired
+    private IngestJobService ingestJobService;
+
+    @Autowired
+    private IChatKnowledgeService chatKnowledgeService;
+
+    /**
+     * 批量上传
+     * @param template 文件公共属性（知识库、是否pdf增强解析、创建人）
+     * @param files 上传的文件，.zip 文件按包内文件逐个处理
+     * @return 每个文件的处理结果
+     */
+    public List<BulkUploadItem> upload(ChatFile template, MultipartFile[] files) throws IOException {
+        if (chatKnowledgeService.selectChatKnowledgeByKnowledgeId(template.getKnowledgeId()) == null) {
+            throw new RuntimeException("知识库不存在");
+        }
+        Batch batch = new Batch(template);
+        for (MultipartFile file : files) {
+            String filename = file.getOriginalFilename();
+            if ("zip".equals(formatOf(filename))) {
+                try (InputStream in = file.getInputStream()) {
+                    uploadZip(batch, filename, in);
+                } catch (IOException e) {
+                    log.warn("批量上传解压{}失败", filename, e);
+                    batch.items.add(BulkUploadItem.of(filename, file.getSize(), BulkUploadItem.FAILED, "解压失败：" + e.getMessage()));
+                }
+            } else {
+                try (InputStream in = file.getInputStream()) {
+                    uploadOne(batch, filename, baseName(filename), in, -1);
+                }
+            }
+        }
+        log.info("批量上传完成，知识库：{}，文件数：{}，已提交：{}", template.getKnowledgeId(), batch.items.size(),
+                batch.items.stream().filter(item -> BulkUploadItem.QUEUED.equals(item.getStatus())).count());
+        return batch.items;
+    }
+
+    private void uploadZip(Batch batch, String zipName, InputStream in) throws IOException {
+        // 条目名带UTF-8标记时按UTF-8解码，否则按 zipCharset 解码
+        try (ZipInputStream zip = new ZipInputStream(in, Charset.forName(zipCharset))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String entryName = entry.getName();
+                String displayName = zipName + "/" + entryName;
+                String filename = baseName(entryName);
+                if (entry.isDirectory() || entryName.startsWith("__MACOSX/") || filename.startsWith(".")) {
+                    continue;
+                }
+                if ("zip".equals(formatOf(filename))) {
+                    batch.items.add(BulkUploadItem.of(displayName, entry.getSize(), BulkUploadItem.SKIPPED, "不支持嵌套的压缩包"));
+                    continue;
+                }
+                // 读到当前条目末尾即停止，不关闭 ZipInputStream
+                uploadOne(batch, displayName, filename, zip, maxEntrySize);
+            }
+        }
+    }
+
+    /**
+     * 单个文件：校验、落盘、提交入库任务，结果记录到 batch
+     */
+    private void uploadOne(Batch batch, String displayName, String filename, InputStream in, long maxBytes) {
+        if (formatOf(filename).isEmpty()) {
+            batch.items.add(BulkUploadItem.of(displayName, null, BulkUploadItem.SKIPPED, "无法识别文件格式"));
+            return;
+        }
+        if (batch.accepted >= maxFiles) {
+            batch.items.add(BulkUploadItem.of(displayName, null, BulkUploadItem.SKIPPED, "超过单次上传的文件数上限：" + maxFiles));
+            return;
+        }
+        long remaining = maxTotalSize - batch.totalBytes;
+        if (remaining <= 0) {
+            batch.items.add(BulkUploadItem.of(displayName, null, BulkUploadItem.SKIPPED, "超过单次上传的总大小上限"));
+            return;
+        }
+        Path source = null;
+        try {
+            source = ingestJobService.spool(in, maxBytes < 0 ? remaining : Math.min(maxBytes, remaining));
+            long fileSize = Files.size(source);
+            batch.totalBytes += fileSize;
+            ChatIngestJob job = aiService.upload(batch.newChatFile(), source, filename, fileSize);
+            batch.accepted++;
+            BulkUploadItem item = BulkUploadItem.of(displayName, fileSize, BulkUploadItem.QUEUED, null);
+            item.setFileId(job.getFileId());
+            item.setJobId(job.getJobId());
+            batch.items.add(item);
+        } catch (Exception e) {
+            log.warn("批量上传文件{}失败", displayName, e);
+            batch.items.add(BulkUploadItem.of(displayName, null, BulkUploadItem.FAILED, e.getMessage()));
+            if (source != null) {
+                try {
+                    Files.deleteIfExists(source);
+                } catch (IOException ex) {
+                    log.warn("删除落盘文件失败: {}", source, ex);
+                }
+            }
+        }
+    }
+
+    private static String baseName(String path) {
+        if (path == null) {
+            return "";
+        }
+        int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        return path.substring(slash + 1);
+    }
+
+    private static String formatOf(String filename) {
+        int dot = filename == null ? -1 : filename.lastIndexOf('.');
+        return dot < 0 ? "" : filename.substring(dot + 1).toLowerCase();
+    }
+
+    /**
+     * 单次请求的累计状态
+     */
+    private static class Batch {
+
+        private final ChatFile template;
+
+        private final List<BulkUploadItem> items = new ArrayList<>();
+
+        private int accepted;
+
+        private long totalBytes;
+
+        private Batch(ChatFile template) {
+            this.template = template;
+        }
+
+        private ChatFile newChatFile() {
+            ChatFile chatFile = new ChatFile();
+            chatFile.setKnowledgeId(template.getKnowledgeId());
+            chatFile.setIsPdfAnalysis(template.getIsPdfAnalysis());
+            chatFile.setCreateBy(template.getCreateBy());
+            return chatFile;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.ruoyi.service.ingest;
+
+import com.ruoyi.domain.ChatFile;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.JsonReader;
+import org.springframework.ai.reader.tika.TikaDocumentReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 文档逐页读取
+ * 按页（pdf）或按文本块（txt/md/csv）依次交给下游，不在内存中保留整个文件的内容
+ */
+@Component
+@Slf4j
+public class DocumentPageReader {
+
+    // 文本类文件每次交给下游的最大字符数（按行对齐）
+    @Value("${chat.ingest.text-block-size:8192}")
+    private int textBlockSize;
+
+    @Autowired
+    private PdfOcrEngine pdfOcrEngine;
+
+    /**
+     * 页面接收者，通常是阶段之间的有界队列
+     */
+    @FunctionalInterface
+    public interface PageSink {
+        void accept(Document page) throws InterruptedException;
+    }
+
+    /**
+     * 读取文件
+     * @param source 已落盘的文件
+     * @param chatFile 文件信息（格式、是否开启pdf增强解析）
+     * @param sink 页面接收者
+     */
+    public void read(Path source, ChatFile chatFile, PageSink sink) throws Exception {
+        switch (chatFile.getFileFormat()) {
+            case "json":
+                JsonReader jsonReader = new JsonReader(new FileSystemResource(source));
+                for (Document document : jsonReader.get()) {
+                    sink.accept(document);
+                }
+                break;
+            case "txt":
+            case "md":
+            case "csv":
+                readTextBlocks(source, sink);
+                break;
+            case "pdf":
+                readPdfPages(source, chatFile, sink);
+                break;
+            //`TikaDocumentReader`使用Apache Tika从各种文档格式中提取文本，如PDF、DOC/DOCX、PPT/PPTX和HTML。
+            // 有关支持的格式的完整列表，请参阅https://tika.apache.org/3.1.0/formats.html[Tika文档]。
+            default:
+                TikaDocumentReader tikaDocumentReader = new TikaDocumentReader(new FileSystemResource(source));
+                for (Document document : tikaDocumentReader.read()) {
+                    sink.accept(document);
+                }
+                break;
+        }
+    }
+
+    /**
+     * 按行读取文本，攒够 textBlockSize 个字符后交给下游
+     */
+    private void readTextBlocks(Path source, PageSink sink) throws IOException, InterruptedException {
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            StringBuilder block = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                block.append(line).append('\n');
+                if (block.length() >= textBlockSize) {
+                    sink.accept(new Document(block.toString()));
+                    block.setLength(0);
+                }
+            }
+            if (StringUtils.hasText(block)) {
+                sink.accept(new Document(block.toString()));
+            }
+        }
+    }
+
+    /**
+     * 读取PDF每页内容（含乱码处理），PDF只加载一次
+     */
+    private void readPdfPages(Path source, ChatFile chatFile, PageSink sink) throws Exception {
+        boolean pdfAnalysis = Integer.valueOf(1).equals(chatFile.getIsPdfAnalysis());
+        try (PDDocument document = Loader.loadPDF(source.toFile())) {
+            // 尝试标准文本提取
+            boolean extracted = tryStandardExtraction(document, sink);
+            // 如果提取失败（通常是乱码文档）
+            if (!extracted) {
+                log.info("==============检测到文本提取异常，启用OCR回退方案==================");
+            }
+            //判断pdf增强解析是否启用，如果启用则执行ocr解析
+            if (pdfAnalysis) {
+                pdfOcrEngine.ocrPages(source, document, sink);
+            }
+        }
+    }
+
+    // 尝试标准文本提取
+    private boolean tryStandardExtraction(PDDocument document, PageSink sink) throws InterruptedException {
+        try {
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int i = 1; i <= document.getNumberOfPages(); i++) {
+                stripper.setStartPage(i);
+                stripper.setEndPage(i);
+                String text = stripper.getText(document);
+                if (StringUtils.hasLength(text)) {
+                    sink.accept(new Document(text));
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("==============标准提取失败: " + e.getMessage() + "==================");
+            return false;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.ruoyi.service.ingest;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import com.ruoyi.component.KnowledgeVectorStoreComponent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 向量化调度
+ *
+ * 文档按token预算拆成多个批次，全局最多 maxInFlight 个批次同时请求嵌入模型（所有上传共享），
+ * 批次向量化完成后立即归还许可，写入向量存储在 vectorInsertExecutor 中单独执行，与后续批次的向量化重叠进行；
+ * 已提交但尚未写入完成的批次最多 maxPending 个，获取不到许可时调用方阻塞，从而把嵌入服务和向量存储的吞吐反压到分片读取。
+ * 任一批次失败后，后续 submit、await 立即抛出该异常并取消其余批次
+ */
+@Component
+@Slf4j
+public class EmbeddingScheduler {
+
+    // 单个批次的token上限
+    @Value("${chat.embedding.max-batch-tokens:8000}")
+    private int maxBatchTokens;
+
+    // 同时请求嵌入模型的批次数
+    @Value("${chat.embedding.max-in-flight:4}")
+    private int maxInFlight;
+
+    // 已提交、尚未写入向量存储的批次数上限（含正在向量化的批次）
+    @Value("${chat.embedding.max-pending:8}")
+    private int maxPending;
+
+    @Autowired
+    private KnowledgeVectorStoreComponent knowledgeVectorStoreComponent;
+
+    @Autowired
+    @Qualifier("embeddingExecutor")
+    private ExecutorService embeddingExecutor;
+
+    @Autowired
+    @Qualifier("vectorInsertExecutor")
+    private ExecutorService vectorInsertExecutor;
+
+    private BatchingStrategy batchingStrategy;
+
+    private Semaphore inFlight;
+
+    private Semaphore pending;
+
+    @PostConstruct
+    public void init() {
+        this.batchingStrategy = new TokenCountBatchingStrategy(EncodingType.CL100K_BASE, maxBatchTokens, 0.1);
+        this.inFlight = new Semaphore(maxInFlight, true);
+        this.pending = new Semaphore(Math.max(maxPending, maxInFlight), true);
+    }
+
+    /**
+     * 创建一个向量化任务
+     * @param collectionName 集合名称
+     * @return IndexJob
+     */
+    public IndexJob newJob(String collectionName) {
+        return new IndexJob(collectionName);
+    }
+
+    /**
+     * 一次向量化任务，submit 可多次调用，最后调用 await 等待全部批次写入完成
+     */
+    public class IndexJob {
+
+        private final String collectionName;
+
+        // 每个批次的写入结果
+        private final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        // 全部阶段（向量化、写入），失败时取消
+        private final List<CompletableFuture<?>> stages = new ArrayList<>();
+
+        // 第一个失败的批次
+        private final CompletableFuture<Void> failure = new CompletableFuture<>();
+
+        private IndexJob(String collectionName) {
+            this.collectionName = collectionName;
+        }
+
+        /**
+         * 提交一组文档，拆批后异步向量化并写入
+         */
+        public void submit(List<Document> documents) throws Exception {
+            for (List<Document> batch : batchingStrategy.batch(documents)) {
+                throwIfFailed();
+                pending.acquire();
+                CompletableFuture<List<float[]>> embedding;
+                try {
+                    inFlight.acquire();
+                    try {
+                        embedding = CompletableFuture.supplyAsync(() -> embed(batch), embeddingExecutor);
+                    } catch (RuntimeException e) {
+                        inFlight.release();
+                        throw e;
+                    }
+                } catch (InterruptedException | RuntimeException e) {
+                    pending.release();
+                    throw e;
+                }
+                // 向量化结束即归还许可，不等待写入
+                embedding.whenComplete((embeddings, e) -> inFlight.release());
+                CompletableFuture<Integer> inserted = embedding.thenApplyAsync(embeddings -> insert(batch, embeddings), vectorInsertExecutor);
+                inserted.whenComplete((count, e) -> {
+                    pending.release();
+                    if (e != null) {
+                        failure.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    }
+                });
+                stages.add(embedding);
+                stages.add(inserted);
+                futures.add(inserted);
+            }
+        }
+
+        /**
+         * 等待全部批次完成，任一批次失败时立即返回
+         * @return 写入的文档数量
+         */
+        public int await() throws Exception {
+            try {
+                CompletableFuture.anyOf(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])), failure).get();
+            } catch (ExecutionException e) {
+                cancel();
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } catch (InterruptedException e) {
+                cancel();
+                throw e;
+            }
+            throwIfFailed();
+            return futures.stream().mapToInt(CompletableFuture::join).sum();
+        }
+
+        private void throwIfFailed() throws Exception {
+            if (!failure.isCompletedExceptionally()) {
+                return;
+            }
+            cancel();
+            try {
+                failure.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        private void cancel() {
+            stages.forEach(stage -> stage.cancel(false));
+        }
+
+        private List<float[]> embed(List<Document> batch) {
+            long start = System.currentTimeMillis();
+            List<float[]> embeddings = knowledgeVectorStoreComponent.getEmbeddingModel()
+                                                                    .embed(batch.stream().map(Document::getText).toList());
+            log.debug("集合{}向量化{}条分片，耗时{}ms", collectionName, batch.size(), System.currentTimeMillis() - start);
+            return embeddings;
+        }
+
+        private int insert(List<Document> batch, List<float[]> embeddings) {
+            long start = System.currentTimeMillis();
+            knowledgeVectorStoreComponent.insert(collectionName, batch, embeddings);
+            log.debug("集合{}写入{}条向量，耗时{}ms", collectionName, batch.size(), System.currentTimeMillis() - start);
+            return batch.size();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.ruoyi.service.ingest;
+
+import cn.hutool.json.JSONUtil;
+import com.ruoyi.common.utils.DateUtils;
+import com.ruoyi.domain.ChatFile;
+import com.ruoyi.domain.ChatIngestJob;
+import com.ruoyi.enums.SystemConstant;
+import com.ruoyi.service.IChatIngestJobService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 文件入库任务管理：提交任务、查询进度、SSE推送进度、手动重试
+ *
+ * 上传的文件先落盘到 spool 目录（多节点部署时需为共享存储），任务记录与文件记录在同一事务中写入，
+ * 事务提交后唤醒 IngestJobWorker 领取，HTTP线程不再等待读取、OCR和向量化
+ */
+@Service
+@Slf4j
+public class IngestJobService {
+
+    // 上传文件落盘目录，任务完成后删除
+    @Value("${chat.ingest.job.spool-dir:${java.io.tmpdir}/ruoyi-ingest}")
+    private String spoolDir;
+
+    // SSE连接超时时间
+    @Value("${chat.ingest.job.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Autowired
+    private IChatIngestJobService chatIngestJobService;
+
+    @Autowired
+    private IngestJobWorker ingestJobWorker;
+
+    // 任务ID -> 订阅进度的SSE连接
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    /**
+     * 文件落盘并创建入库任务，需在写入文件记录的事务中调用，事务提交后才会执行
+     * @param jobType 任务类型
+     * @param chatFile 文件
+     * @param file 上传的文件
+     * @return 入库任务
+     */
+    public ChatIngestJob submit(String jobType, ChatFile chatFile, MultipartFile file) throws IOException {
+        Path source;
+        try (InputStream in = file.getInputStream()) {
+            source = spool(in, -1);
+        }
+        return submit(jobType, chatFile, source, file.getOriginalFilename(), file.getSize());
+    }
+
+    /**
+     * 为已落盘的文件创建入库任务，需在写入文件记录的事务中调用，事务回滚时删除落盘文件
+     * @param jobType 任务类型
+     * @param chatFile 文件
+     * @param source spool 目录下的文件，由 spool 方法生成
+     * @param fileName 文件名
+     * @param fileSize 文件大小
+     * @return 入库任务
+     */
+    public ChatIngestJob submit(String jobType, ChatFile chatFile, Path source, String fileName, long fileSize) throws IOException {
+        ChatIngestJob job = new ChatIngestJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setJobType(jobType);
+        job.setFileId(chatFile.getFileId());
+        job.setKnowledgeId(chatFile.getKnowledgeId());
+        job.setFileName(fileName);
+        job.setFileSize(fileSize);
+        job.setSourcePath(source.toString());
+        job.setStatus(SystemConstant.INGEST_JOB_PENDING);
+        job.setStage(SystemConstant.INGEST_STAGE_PARSE);
+        job.setTotalSegments(0);
+        job.setProcessedSegments(0);
+        job.setAttempts(0);
+        job.setNextRunTime(DateUtils.getNowDate());
+        job.setCreateBy(chatFile.getCreateBy());
+        try {
+            chatIngestJobService.insertChatIngestJob(job);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(source);
+            throw e;
+        }
+        afterCompletion(source, ingestJobWorker::wakeUp);
+        return job;
+    }
+
+    /**
+     * 以流的方式把文件写入 spool 目录
+     * @param in 输入流，由调用方关闭
+     * @param maxBytes 最大字节数，超过时删除已写入的部分并抛出异常，小于0表示不限制
+     * @return 落盘的文件
+     */
+    public Path spool(InputStream in, long maxBytes) throws IOException {
+        Path dir = Paths.get(spoolDir);
+        Files.createDirectories(dir);
+        Path target = dir.resolve(UUID.randomUUID() + ".upload");
+        try (OutputStream out = Files.newOutputStream(target)) {
+            byte[] buffer = new byte[64 * 1024];
+            long written = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                written += read;
+                if (maxBytes >= 0 && written > maxBytes) {
+                    throw new IOException("文件超过大小限制: " + maxBytes + " 字节");
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        return target;
+    }
+
+    /**
+     * 文件是否有未结束的入库任务
+     */
+    public boolean hasActiveJob(String fileId) {
+        ChatIngestJob query = new ChatIngestJob();
+        query.setFileId(fileId);
+        return chatIngestJobService.selectChatIngestJobList(query).stream()
+                .anyMatch(job -> !isFinished(job));
+    }
+
+    /**
+     * 知识库是否有未结束的入库任务
+     */
+    public boolean hasActiveKnowledgeJob(String knowledgeId) {
+        ChatIngestJob query = new ChatIngestJob();
+        query.setKnowledgeId(knowledgeId);
+        return chatIngestJobService.selectChatIngestJobList(query).stream()
+                .anyMatch(job -> !isFinished(job));
+    }
+
+    /**
+     * 删除文件的入库任务及落盘文件，执行中的任务在下一个检查点停止
+     */
+    public void deleteByFileId(String fileId) {
+        ChatIngestJob query = new ChatIngestJob();
+        query.setFileId(fileId);
+        for (ChatIngestJob job : chatIngestJobService.selectChatIngestJobList(query)) {
+            ChatIngestJob detail = chatIngestJobService.selectChatIngestJobByJobId(job.getJobId());
+            if (detail != null && detail.getSourcePath() != null) {
+                try {
+                    Files.deleteIfExists(Paths.get(detail.getSourcePath()));
+                } catch (IOException e) {
+                    log.warn("删除入库任务{}的落盘文件失败", job.getJobId(), e);
+                }
+            }
+        }
+        chatIngestJobService.deleteChatIngestJobByFileId(fileId);
+    }
+
+    /**
+     * 任务进度
+     * @param jobId 任务ID
+     * @return 任务及进度百分比，任务不存在时为null
+     */
+    public Map<String, Object> progress(String jobId) {
+        ChatIngestJob job = chatIngestJobService.selectChatIngestJobByJobId(jobId);
+        return job == null ? null : progress(job);
+    }
+
+    /**
+     * 失败的任务重新排队，执行次数清零
+     * @param jobId 任务ID
+     * @return 是否已重新排队
+     */
+    public boolean retry(String jobId) {
+        ChatIngestJob job = chatIngestJobService.selectChatIngestJobByJobId(jobId);
+        if (job == null || !SystemConstant.INGEST_JOB_FAILED.equals(job.getStatus())) {
+            return false;
+        }
+        ChatIngestJob update = new ChatIngestJob();
+        update.setJobId(jobId);
+        update.setStatus(SystemConstant.INGEST_JOB_PENDING);
+        update.setAttempts(0);
+        update.setNextRunTime(DateUtils.getNowDate());
+        chatIngestJobService.updateChatIngestJob(update);
+        ingestJobWorker.wakeUp();
+        return true;
+    }
+
+    /**
+     * 订阅任务进度，任务结束后推送最后一次进度并关闭连接
+     * @param jobId 任务ID
+     * @return SseEmitter
+     */
+    public SseEmitter subscribe(String jobId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        List<SseEmitter> jobEmitters = emitters.computeIfAbsent(jobId, key -> new CopyOnWriteArrayList<>());
+        jobEmitters.add(emitter);
+        Runnable remove = () -> {
+            jobEmitters.remove(emitter);
+            emitters.computeIfPresent(jobId, (key, list) -> list.isEmpty() ? null : list);
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * 定时向订阅者推送进度，所有订阅的任务一次查询；进度从数据库读取，任务在其他节点执行时同样适用
+     */
+    @Scheduled(fixedDelayString = "${chat.ingest.job.progress-interval-ms:1000}")
+    public void pushProgress() {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        Set<String> jobIds = emitters.keySet();
+        Map<String, ChatIngestJob> jobs = new ConcurrentHashMap<>();
+        chatIngestJobService.selectChatIngestJobByJobIds(jobIds.toArray(new String[0]))
+                .forEach(job -> jobs.put(job.getJobId(), job));
+        for (String jobId : jobIds) {
+            ChatIngestJob job = jobs.get(jobId);
+            List<SseEmitter> jobEmitters = emitters.get(jobId);
+            if (jobEmitters == null) {
+                continue;
+            }
+            String data = job == null ? "{\"jobId\":\"" + jobId + "\",\"status\":\"deleted\"}" : JSONUtil.toJsonStr(progress(job));
+            boolean finished = job == null || isFinished(job);
+            for (SseEmitter emitter : jobEmitters) {
+                try {
+                    emitter.send(SseEmitter.event().name("progress").data(data));
+                    if (finished) {
+                        emitter.complete();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    emitter.completeWithError(e);
+                }
+            }
+            if (finished) {
+                emitters.remove(jobId);
+            }
+        }
+    }
+
+    private Map<String, Object> progress(ChatIngestJob job) {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("jobId", job.getJobId());
+        progress.put("jobType", job.getJobType());
+        progress.put("fileId", job.getFileId());
+        progress.put("knowledgeId", job.getKnowledgeId());
+        progress.put("fileName", job.getFileName());
+        progress.put("status", job.getStatus());
+        progress.put("stage", job.getStage());
+        progress.put("attempts", job.getAttempts());
+        if (SystemConstant.INGEST_STAGE_PARSE.equals(job.getStage())) {
+            // 读取切分在一个事务中，已切分的分片数只在执行的节点上可见
+            Integer parsed = ingestJobWorker.parsedSegments(job.getJobId());
+            progress.put("parsedSegments", parsed == null ? 0 : parsed);
+        }
+        int total = job.getTotalSegments() == null ? 0 : job.getTotalSegments();
+        int processed = job.getProcessedSegments() == null ? 0 : job.getProcessedSegments();
+        progress.put("totalSegments", total);
+        progress.put("processedSegments", processed);
+        progress.put("percent", SystemConstant.INGEST_STAGE_DONE.equals(job.getStage()) ? 100
+                : SystemConstant.INGEST_STAGE_EMBED.equals(job.getStage()) && total > 0 ? processed * 100 / total : 0);
+        progress.put("nextRunTime", job.getNextRunTime());
+        progress.put("lastError", job.getLastError());
+        return progress;
+    }
+
+    private static boolean isFinished(ChatIngestJob job) {
+        return SystemConstant.INGEST_JOB_SUCCEEDED.equals(job.getStatus())
+                || SystemConstant.INGEST_JOB_FAILED.equals(job.getStatus());
+    }
+
+    /**
+     * 事务提交后执行 onCommit，回滚时删除已落盘的文件；没有事务时立即执行
+     */
+    private void afterCompletion(Path source, Runnable onCommit) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    onCommit.run();
+                    return;
+                }
+                try {
+                    Files.deleteIfExists(source);
+                } catch (IOException e) {
+                    log.warn("删除落盘文件失败: {}", source, e);
+                }
+            }
+        });
+    }
+}
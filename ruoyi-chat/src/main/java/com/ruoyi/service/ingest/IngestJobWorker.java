@@ -0,0 +1,556 @@
+package com.ruoyi.service.ingest;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.ruoyi.common.utils.DateUtils;
+import com.ruoyi.component.Bm25IndexComponent;
+import com.ruoyi.component.KnowledgeVectorStoreComponent;
+import com.ruoyi.component.SemanticAnswerCache;
+import com.ruoyi.domain.ChatFile;
+import com.ruoyi.domain.ChatFileSegment;
+import com.ruoyi.domain.ChatIngestJob;
+import com.ruoyi.domain.ChatKnowledge;
+import com.ruoyi.enums.SystemConstant;
+import com.ruoyi.service.IChatFileSegmentService;
+import com.ruoyi.service.IChatFileService;
+import com.ruoyi.service.IChatIngestJobService;
+import com.ruoyi.service.IChatKnowledgeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.util.CollectionUtils;
+
+import jakarta.annotation.PreDestroy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 文件入库任务执行
+ *
+ * 定时从 chat_ingest_job 领取到期的任务（以及心跳超时、所在节点已退出的任务），按空闲线程数提交到 ingestJobExecutor：
+ * parse 阶段在事务外读取、切分并将分片暂存到本地文件，之后在一个短事务中写入分片并切换到 embed 阶段，中断时回滚后重做；
+ * embed 阶段每向量化 checkpointSegments 个分片记录一次检查点，中断后从检查点继续，检查点之后可能已写入的向量先删除再写入。
+ * 任务状态的更新都以本节点仍持有任务为条件（worker_id 与 status = running），更新不到时说明任务已删除或
+ * 心跳超时后已由其他节点领取，本节点立即停止执行。
+ * 失败后按指数退避重试，超过最大次数后置为失败，可通过接口手动重试
+ */
+@Component
+@Slf4j
+public class IngestJobWorker {
+
+    // 同时执行的任务数，与 ingestJobExecutor 线程数一致
+    @Value("${chat.ingest.job.workers:4}")
+    private int workers;
+
+    // 心跳超时时间，超时的执行中任务由其他节点（或重启后的本节点）重新领取
+    @Value("${chat.ingest.job.lease-timeout-ms:60000}")
+    private long leaseTimeoutMs;
+
+    // 最大执行次数
+    @Value("${chat.ingest.job.max-attempts:5}")
+    private int maxAttempts;
+
+    // 首次重试的等待时间，之后每次翻倍
+    @Value("${chat.ingest.job.retry-backoff-ms:10000}")
+    private long retryBackoffMs;
+
+    // 重试等待时间上限
+    @Value("${chat.ingest.job.retry-backoff-max-ms:600000}")
+    private long retryBackoffMaxMs;
+
+    // 每个提交人同时执行的任务数上限（所有节点合计），避免一次批量上传占满所有工作线程，0表示不限制
+    @Value("${chat.ingest.job.tenant-concurrency:2}")
+    private int tenantConcurrency;
+
+    // 每向量化多少个分片记录一次检查点
+    @Value("${chat.ingest.job.checkpoint-segments:512}")
+    private int checkpointSegments;
+
+    // 每批从分片表读取的数量
+    @Value("${chat.ingest.index-batch-size:64}")
+    private int indexBatchSize;
+
+    // 分片每批写入的数量
+    @Value("${chat.segment.insert-batch-size:200}")
+    private int insertBatchSize;
+
+    @Autowired
+    private IChatIngestJobService chatIngestJobService;
+
+    @Autowired
+    private IChatFileService chatFileService;
+
+    @Autowired
+    private IChatFileSegmentService fileSegmentService;
+
+    @Autowired
+    private IChatKnowledgeService chatKnowledgeService;
+
+    @Autowired
+    private IngestPipeline ingestPipeline;
+
+    @Autowired
+    private EmbeddingScheduler embeddingScheduler;
+
+    @Autowired
+    private KnowledgeVectorStoreComponent knowledgeVectorStoreComponent;
+
+    @Autowired
+    private Bm25IndexComponent bm25IndexComponent;
+
+    @Autowired
+    private SemanticAnswerCache semanticAnswerCache;
+
+    @Autowired
+    @Qualifier("transactionManager")
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("ingestJobExecutor")
+    private ExecutorService ingestJobExecutor;
+
+    // 本节点标识，用于心跳
+    private final String workerId = UUID.randomUUID().toString();
+
+    // 本节点执行中的任务 -> parse 阶段已切分的分片数
+    private final Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+
+    private volatile boolean stopping;
+
+    /**
+     * 领取到期的任务
+     */
+    @Scheduled(fixedDelayString = "${chat.ingest.job.poll-interval-ms:2000}")
+    public synchronized void poll() {
+        int free = workers - running.size();
+        if (stopping || free <= 0) {
+            return;
+        }
+        Date now = DateUtils.getNowDate();
+        Date leaseExpiredBefore = new Date(now.getTime() - leaseTimeoutMs);
+        // 各提交人执行中的任务数，达到上限的提交人本次不领取；多节点同时领取时可能短暂超出
+        Map<String, Integer> tenantRunning = new HashMap<>();
+        Set<String> saturated = new HashSet<>();
+        if (tenantConcurrency > 0) {
+            for (String createBy : chatIngestJobService.selectRunningChatIngestJobCreateBy(leaseExpiredBefore)) {
+                if (tenantRunning.merge(String.valueOf(createBy), 1, Integer::sum) >= tenantConcurrency) {
+                    saturated.add(String.valueOf(createBy));
+                }
+            }
+        }
+        for (ChatIngestJob candidate : chatIngestJobService.selectRunnableChatIngestJobs(now, leaseExpiredBefore, saturated, free)) {
+            String jobId = candidate.getJobId();
+            String tenant = String.valueOf(candidate.getCreateBy());
+            if (saturated.contains(tenant) || running.containsKey(jobId)
+                    || !chatIngestJobService.claimChatIngestJob(jobId, workerId, now, leaseExpiredBefore)) {
+                continue;
+            }
+            if (tenantConcurrency > 0 && tenantRunning.merge(tenant, 1, Integer::sum) >= tenantConcurrency) {
+                saturated.add(tenant);
+            }
+            running.put(jobId, new AtomicInteger());
+            try {
+                ingestJobExecutor.submit(() -> run(jobId));
+            } catch (RejectedExecutionException e) {
+                running.remove(jobId);
+                // 放回等待队列，下次领取
+                ChatIngestJob job = new ChatIngestJob();
+                job.setJobId(jobId);
+                job.setStatus(SystemConstant.INGEST_JOB_PENDING);
+                job.setNextRunTime(now);
+                chatIngestJobService.updateChatIngestJob(job);
+            }
+        }
+    }
+
+    /**
+     * 立即领取任务（新任务提交后调用），失败时等待定时领取
+     */
+    public void wakeUp() {
+        try {
+            poll();
+        } catch (Exception e) {
+            log.warn("领取入库任务失败", e);
+        }
+    }
+
+    /**
+     * 刷新本节点执行中任务的心跳
+     */
+    @Scheduled(fixedDelayString = "${chat.ingest.job.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        if (!running.isEmpty()) {
+            chatIngestJobService.updateChatIngestJobHeartbeat(workerId, new ArrayList<>(running.keySet()));
+        }
+    }
+
+    /**
+     * 本节点执行中任务在 parse 阶段已切分的分片数，任务不在本节点执行时为null
+     */
+    public Integer parsedSegments(String jobId) {
+        AtomicInteger parsed = running.get(jobId);
+        return parsed == null ? null : parsed.get();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // 执行中的任务不再更新状态，心跳超时后重新领取并从检查点继续
+        stopping = true;
+    }
+
+    private void run(String jobId) {
+        ChatIngestJob job = chatIngestJobService.selectChatIngestJobByJobId(jobId);
+        try {
+            if (job == null) {
+                return;
+            }
+            // 状态更新以本节点持有任务为条件
+            job.setWorkerId(workerId);
+            boolean resumed = SystemConstant.INGEST_STAGE_EMBED.equals(job.getStage());
+            if (SystemConstant.INGEST_STAGE_PARSE.equals(job.getStage())) {
+                parse(job);
+            }
+            if (SystemConstant.INGEST_STAGE_EMBED.equals(job.getStage())) {
+                String collectionName = embed(job, resumed);
+                finish(job, collectionName);
+            }
+        } catch (JobCancelledException e) {
+            log.info("入库任务{}已删除，停止执行", jobId);
+            if (e.collectionName != null) {
+                // 文件删除时已执行的向量删除可能早于本任务最后一批写入
+                knowledgeVectorStoreComponent.deleteByFileId(e.collectionName, job.getFileId());
+            }
+        } catch (LeaseLostException e) {
+            log.warn("入库任务{}心跳超时后已由其他节点领取，本节点停止执行", jobId);
+        } catch (Exception e) {
+            if (stopping) {
+                log.info("入库任务{}随服务停止中断，将从检查点继续", jobId);
+            } else {
+                fail(job, e);
+            }
+        } finally {
+            running.remove(jobId);
+        }
+    }
+
+    /**
+     * 读取、切分在事务外执行，分片暂存到本地文件；之后只在写入分片和切换阶段时开启事务，
+     * 事务提交后才更新内存中任务的阶段，失败时任务仍处于 parse 阶段
+     */
+    private void parse(ChatIngestJob job) throws Exception {
+        ChatFile chatFile = chatFileService.selectChatFileByFileId(job.getFileId());
+        if (chatFile == null) {
+            throw new IllegalStateException("文件不存在: " + job.getFileId());
+        }
+        Path source = Paths.get(job.getSourcePath());
+        if (!Files.exists(source)) {
+            throw new IllegalStateException("上传文件不存在: " + source);
+        }
+        AtomicInteger parsed = running.get(job.getJobId());
+        parsed.set(0);
+        boolean replace = SystemConstant.INGEST_JOB_REPLACE.equals(job.getJobType());
+
+        ChatIngestJob update = new ChatIngestJob();
+        update.setJobId(job.getJobId());
+        update.setWorkerId(workerId);
+        update.setStage(SystemConstant.INGEST_STAGE_EMBED);
+        update.setProcessedSegments(0);
+        // 暂存文件只在本节点本次执行中使用，放在本地临时目录（spool 目录可能是多节点共享的）
+        try (SegmentSpool spool = new SegmentSpool(Files.createTempFile("ingest-" + job.getJobId(), ".segments"))) {
+            List<String> removedSegmentIds = List.of();
+            if (replace) {
+                removedSegmentIds = parseReplace(job, chatFile, source, parsed, spool, update);
+            } else {
+                update.setTotalSegments(ingestPipeline.ingest(source, chatFile, segment -> {
+                    parsed.incrementAndGet();
+                    return true;
+                }, spool::write));
+            }
+
+            TransactionStatus transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+            try {
+                spool.read(insertBatchSize, fileSegmentService::batchInsertChatFileSegment);
+                if (replace) {
+                    for (int from = 0; from < removedSegmentIds.size(); from += 1000) {
+                        List<String> batch = removedSegmentIds.subList(from, Math.min(from + 1000, removedSegmentIds.size()));
+                        fileSegmentService.deleteChatFileSegmentBySegmentIds(batch.toArray(new String[0]));
+                    }
+                    chatFile.setIsVector(0);
+                    chatFileService.updateChatFile(chatFile);
+                }
+                updateRunning(update, null);
+                transactionManager.commit(transaction);
+            } catch (Exception e) {
+                if (!transaction.isCompleted()) {
+                    transactionManager.rollback(transaction);
+                }
+                throw e;
+            }
+        }
+        job.setStage(update.getStage());
+        job.setProcessedSegments(update.getProcessedSegments());
+        job.setTotalSegments(update.getTotalSegments());
+        job.setPayload(update.getPayload());
+        log.info("入库任务{}读取切分完成，待向量化分片{}个", job.getJobId(), job.getTotalSegments());
+    }
+
+    /**
+     * 替换文件：按内容哈希与现有分片比对，只暂存新增的分片，两者的ID记入 update 交给 embed 阶段
+     * @return 已移除的分片ID，由调用方在事务中删除
+     */
+    private List<String> parseReplace(ChatIngestJob job, ChatFile chatFile, Path source, AtomicInteger parsed,
+                                      SegmentSpool spool, ChatIngestJob update) throws Exception {
+        String filename = job.getFileName();
+        chatFile.setFileName(filename);
+        chatFile.setFileFormat(filename.substring(filename.lastIndexOf(".") + 1).toLowerCase());
+        chatFile.setFileSize(job.getFileSize());
+
+        // 现有分片：内容哈希 -> 分片ID（相同内容可能出现多次）
+        Map<String, Deque<String>> existing = new HashMap<>();
+        for (ChatFileSegment segment : fileSegmentService.selectChatFileSegmentHashByFileId(chatFile.getFileId())) {
+            existing.computeIfAbsent(segment.getContentHash(), key -> new ArrayDeque<>()).add(segment.getSegmentId());
+        }
+        List<String> addedSegmentIds = new ArrayList<>();
+        ingestPipeline.ingest(source, chatFile, segment -> {
+            parsed.incrementAndGet();
+            Deque<String> segmentIds = existing.get(segment.getContentHash());
+            if (segmentIds != null && segmentIds.poll() != null) {
+                return false;
+            }
+            addedSegmentIds.add(segment.getSegmentId());
+            return true;
+        }, spool::write);
+
+        // 剩余未匹配的现有分片即为已移除的分片
+        List<String> removedSegmentIds = existing.values().stream().flatMap(Collection::stream).toList();
+        log.info("文件{}替换，新增分片{}个，删除分片{}个", chatFile.getFileId(), addedSegmentIds.size(), removedSegmentIds.size());
+
+        JSONObject payload = new JSONObject();
+        payload.set("addedSegmentIds", addedSegmentIds);
+        payload.set("removedSegmentIds", removedSegmentIds);
+        update.setPayload(payload.toString());
+        update.setTotalSegments(addedSegmentIds.size());
+        return removedSegmentIds;
+    }
+
+    /**
+     * 向量化，每 checkpointSegments 个分片等待写入完成后记录检查点
+     * @param resumed 任务开始时已处于 embed 阶段，检查点之后的分片可能已有向量
+     * @return 写入的向量集合
+     */
+    private String embed(ChatIngestJob job, boolean resumed) throws Exception {
+        ChatKnowledge chatKnowledge = chatKnowledgeService.selectChatKnowledgeByKnowledgeId(job.getKnowledgeId());
+        if (chatKnowledge == null) {
+            throw new IllegalStateException("知识库不存在: " + job.getKnowledgeId());
+        }
+        String collectionName = chatKnowledge.getKnowledgeName();
+        knowledgeVectorStoreComponent.ensureCollection(collectionName);
+        if (SystemConstant.INGEST_JOB_REPLACE.equals(job.getJobType())) {
+            embedReplace(job, collectionName, resumed);
+        } else {
+            embedUpload(job, collectionName, resumed);
+        }
+        return collectionName;
+    }
+
+    /**
+     * 上传：按分片ID顺序分批读取，检查点为最后一个已写入的分片ID
+     */
+    private void embedUpload(ChatIngestJob job, String collectionName, boolean resumed) throws Exception {
+        String fileId = job.getFileId();
+        String knowledgeId = job.getKnowledgeId();
+        String lastSegmentId = job.getCheckpoint();
+        int processed = job.getProcessedSegments() == null ? 0 : job.getProcessedSegments();
+        List<ChatFileSegment> segmentList;
+        do {
+            EmbeddingScheduler.IndexJob indexJob = embeddingScheduler.newJob(collectionName);
+            int window = 0;
+            do {
+                segmentList = fileSegmentService.selectChatFileSegmentPageByFileId(fileId, lastSegmentId, indexBatchSize);
+                if (CollectionUtils.isEmpty(segmentList)) {
+                    break;
+                }
+                if (resumed) {
+                    knowledgeVectorStoreComponent.delete(collectionName,
+                            segmentList.stream().map(ChatFileSegment::getSegmentId).toList());
+                }
+                indexJob.submit(toDocuments(segmentList, fileId, knowledgeId));
+                bm25IndexComponent.add(knowledgeId, fileId, segmentList);
+                lastSegmentId = segmentList.get(segmentList.size() - 1).getSegmentId();
+                window += segmentList.size();
+            } while (segmentList.size() == indexBatchSize && window < checkpointSegments);
+            indexJob.await();
+            processed += window;
+            checkpoint(job, collectionName, lastSegmentId, processed);
+        } while (segmentList != null && segmentList.size() == indexBatchSize);
+    }
+
+    /**
+     * 替换：先写入新增分片（检查点为已写入的数量），再删除已移除分片的向量，替换过程中知识库始终有该文件的数据
+     */
+    private void embedReplace(ChatIngestJob job, String collectionName, boolean resumed) throws Exception {
+        String fileId = job.getFileId();
+        String knowledgeId = job.getKnowledgeId();
+        JSONObject payload = JSONUtil.parseObj(job.getPayload());
+        List<String> addedSegmentIds = payload.getJSONArray("addedSegmentIds").toList(String.class);
+        List<String> removedSegmentIds = payload.getJSONArray("removedSegmentIds").toList(String.class);
+
+        int processed = job.getProcessedSegments() == null ? 0 : job.getProcessedSegments();
+        while (processed < addedSegmentIds.size()) {
+            int windowEnd = Math.min(processed + checkpointSegments, addedSegmentIds.size());
+            EmbeddingScheduler.IndexJob indexJob = embeddingScheduler.newJob(collectionName);
+            for (int from = processed; from < windowEnd; from += indexBatchSize) {
+                List<String> batch = addedSegmentIds.subList(from, Math.min(from + indexBatchSize, windowEnd));
+                if (resumed) {
+                    knowledgeVectorStoreComponent.delete(collectionName, batch);
+                }
+                List<ChatFileSegment> segmentList = fileSegmentService.selectChatFileSegmentBySegmentIds(batch.toArray(new String[0]));
+                indexJob.submit(toDocuments(segmentList, fileId, knowledgeId));
+                bm25IndexComponent.add(knowledgeId, fileId, segmentList);
+            }
+            indexJob.await();
+            processed = windowEnd;
+            checkpoint(job, collectionName, String.valueOf(processed), processed);
+        }
+
+        if (!removedSegmentIds.isEmpty()) {
+            bm25IndexComponent.remove(knowledgeId, removedSegmentIds);
+            for (int from = 0; from < removedSegmentIds.size(); from += indexBatchSize) {
+                knowledgeVectorStoreComponent.delete(collectionName,
+                        removedSegmentIds.subList(from, Math.min(from + indexBatchSize, removedSegmentIds.size())));
+            }
+        }
+    }
+
+    private void checkpoint(ChatIngestJob job, String collectionName, String checkpoint, int processed) {
+        knowledgeVectorStoreComponent.flush(collectionName);
+        ChatIngestJob update = new ChatIngestJob();
+        update.setJobId(job.getJobId());
+        update.setWorkerId(workerId);
+        update.setCheckpoint(checkpoint);
+        update.setProcessedSegments(processed);
+        update.setHeartbeatTime(DateUtils.getNowDate());
+        updateRunning(update, collectionName);
+        job.setCheckpoint(checkpoint);
+        job.setProcessedSegments(processed);
+    }
+
+    /**
+     * 文件标记为已向量化与任务完成在同一事务中
+     */
+    private void finish(ChatIngestJob job, String collectionName) throws Exception {
+        ChatIngestJob update = new ChatIngestJob();
+        update.setJobId(job.getJobId());
+        update.setWorkerId(workerId);
+        update.setStatus(SystemConstant.INGEST_JOB_SUCCEEDED);
+        update.setStage(SystemConstant.INGEST_STAGE_DONE);
+        // 文件标记为已向量化前向量须已落盘
+        knowledgeVectorStoreComponent.flush(collectionName);
+
+        TransactionStatus transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        try {
+            ChatFile chatFile = new ChatFile();
+            chatFile.setFileId(job.getFileId());
+            chatFile.setIsVector(1);
+            chatFileService.updateChatFile(chatFile);
+            updateRunning(update, collectionName);
+            transactionManager.commit(transaction);
+        } catch (Exception e) {
+            if (!transaction.isCompleted()) {
+                transactionManager.rollback(transaction);
+            }
+            throw e;
+        }
+        job.setStatus(update.getStatus());
+        job.setStage(update.getStage());
+        semanticAnswerCache.invalidateKnowledge(job.getKnowledgeId());
+        Files.deleteIfExists(Paths.get(job.getSourcePath()));
+        log.info("入库任务{}完成，fileId: {}，向量化分片{}个", job.getJobId(), job.getFileId(), job.getProcessedSegments());
+    }
+
+    /**
+     * 未超过最大次数时按指数退避重新排队，只更新状态、下次执行时间和错误信息，阶段和检查点保持数据库中已提交的值
+     */
+    private void fail(ChatIngestJob job, Exception e) {
+        int attempts = job.getAttempts() == null ? 1 : job.getAttempts();
+        String message = e.getClass().getSimpleName() + ": " + e.getMessage();
+        ChatIngestJob update = new ChatIngestJob();
+        update.setJobId(job.getJobId());
+        update.setWorkerId(workerId);
+        update.setLastError(message.length() > 2000 ? message.substring(0, 2000) : message);
+        if (attempts >= maxAttempts) {
+            update.setStatus(SystemConstant.INGEST_JOB_FAILED);
+            log.error("入库任务{}失败，已执行{}次，fileId: {}", job.getJobId(), attempts, job.getFileId(), e);
+        } else {
+            long backoff = Math.min(retryBackoffMs << Math.min(attempts - 1, 20), retryBackoffMaxMs);
+            update.setStatus(SystemConstant.INGEST_JOB_PENDING);
+            update.setNextRunTime(new Date(System.currentTimeMillis() + backoff));
+            log.warn("入库任务{}第{}次执行失败，{}ms后重试，fileId: {}", job.getJobId(), attempts, backoff, job.getFileId(), e);
+        }
+        if (chatIngestJobService.updateRunningChatIngestJob(update) == 0) {
+            log.info("入库任务{}已删除或已由其他节点领取，不记录本次失败", job.getJobId());
+        }
+    }
+
+    /**
+     * 以本节点持有任务为条件更新任务，更新不到时停止执行
+     * @param collectionName 已写入向量的集合，任务已删除时清理该文件的向量，未写入时为null
+     */
+    private void updateRunning(ChatIngestJob update, String collectionName) {
+        if (chatIngestJobService.updateRunningChatIngestJob(update) > 0) {
+            return;
+        }
+        if (chatIngestJobService.selectChatIngestJobByJobId(update.getJobId()) == null) {
+            throw new JobCancelledException(collectionName);
+        }
+        throw new LeaseLostException();
+    }
+
+    private List<Document> toDocuments(List<ChatFileSegment> segmentList, String fileId, String knowledgeId) {
+        return segmentList.stream()
+                .map(segment -> new Document(segment.getSegmentId(), segment.getContent(),
+                        Map.of("fileId", fileId, "knowledgeId", knowledgeId)))
+                .toList();
+    }
+
+    /**
+     * 任务心跳超时后已由其他节点领取，本节点不再更新任务，也不清理已写入的数据
+     */
+    private static class LeaseLostException extends RuntimeException {
+    }
+
+    /**
+     * 任务已被删除（文件已删除）
+     */
+    private static class JobCancelledException extends RuntimeException {
+
+        private final String collectionName;
+
+        JobCancelledException(String collectionName) {
+            this.collectionName = collectionName;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.ruoyi.service.ingest;
+
+import cn.hutool.crypto.SecureUtil;
+import com.ruoyi.domain.ChatFile;
+import com.ruoyi.domain.ChatFileSegment;
+import com.ruoyi.service.ingest.chunk.Chunker;
+import com.ruoyi.service.ingest.chunk.ChunkerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 文件入库流水线：读取 → 切分 → 分片分批输出
+ *
+ * 切分由 ChunkerFactory 按文件格式选择的流式切分器完成，页面/文本块逐个交给切分器，分片可以跨页；
+ * 读取阶段在 ingestReaderExecutor 中逐页产出，经有界队列交给调用线程切分并分批交给 writer，
+ * 调用线程是入库任务线程，不在事务中：IngestJobWorker.parse 将分片写入 SegmentSpool 暂存文件，
+ * 读取切分完成后才开启事务写入 chat_file_segment 并切换到 embed 阶段；
+ * 向量化阶段在事务提交后从 chat_file_segment 分批读取（见 IngestJobWorker.embedUpload、embedReplace），
+ * 因此单次入库的内存占用只与队列容量和批大小有关，与文件大小无关
+ */
+@Component
+@Slf4j
+public class IngestPipeline {
+
+    // 读取阶段结束标记（按引用比较）
+    private static final Document END_OF_FILE = new Document("EOF");
+
+    // 读取阶段与切分阶段之间的队列容量（页）
+    @Value("${chat.ingest.queue-capacity:8}")
+    private int queueCapacity;
+
+    // 分片攒够多少条后交给 writer
+    @Value("${chat.segment.insert-batch-size:200}")
+    private int insertBatchSize;
+
+    @Autowired
+    private DocumentPageReader documentPageReader;
+
+    @Autowired
+    private ChunkerFactory chunkerFactory;
+
+    @Autowired
+    @Qualifier("ingestReaderExecutor")
+    private ExecutorService ingestReaderExecutor;
+
+    /**
+     * 执行读取、切分，只有通过过滤的分片才交给 writer（在调用线程中按分片顺序执行过滤和写入）
+     * @param source 已落盘的文件
+     * @param chatFile 文件信息
+     * @param filter 分片过滤
+     * @param writer 分批接收分片
+     * @return 输出的分片数量
+     */
+    public int ingest(Path source, ChatFile chatFile, Predicate<ChatFileSegment> filter,
+                      Consumer<List<ChatFileSegment>> writer) throws Exception {
+        BlockingQueue<Document> pageQueue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Exception> readError = new AtomicReference<>();
+
+        Future<?> reader = ingestReaderExecutor.submit(() -> {
+            try {
+                documentPageReader.read(source, chatFile, pageQueue::put);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                readError.set(e);
+            } finally {
+                try {
+                    pageQueue.put(END_OF_FILE);
+                } catch (InterruptedException e) {
+                    // 被取消时下游已不再消费
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        int[] segmentCount = {0};
+        List<ChatFileSegment> segmentBuffer = new ArrayList<>(insertBatchSize);
+        Consumer<String> sink = chunk -> {
+            ChatFileSegment chatFileSegment = toSegment(chatFile, chunk);
+            if (chatFileSegment == null || !filter.test(chatFileSegment)) {
+                return;
+            }
+            segmentBuffer.add(chatFileSegment);
+            if (segmentBuffer.size() >= insertBatchSize) {
+                segmentCount[0] += flush(segmentBuffer, writer);
+            }
+        };
+        try {
+            Chunker chunker = chunkerFactory.create(chatFile.getFileFormat());
+            for (Document page = pageQueue.take(); page != END_OF_FILE; page = pageQueue.take()) {
+                if (page.getText() != null) {
+                    chunker.append(page.getText(), sink);
+                }
+            }
+            chunker.finish(sink);
+            segmentCount[0] += flush(segmentBuffer, writer);
+        } finally {
+            // 正常结束时读取线程已退出；切分阶段异常时中断读取线程
+            reader.cancel(true);
+        }
+
+        if (readError.get() != null) {
+            throw readError.get();
+        }
+        log.info("文件{}读取切分完成，共{}个分片", chatFile.getFileId(), segmentCount[0]);
+        return segmentCount[0];
+    }
+
+    private int flush(List<ChatFileSegment> segmentBuffer, Consumer<List<ChatFileSegment>> writer) {
+        if (segmentBuffer.isEmpty()) {
+            return 0;
+        }
+        int size = segmentBuffer.size();
+        writer.accept(segmentBuffer);
+        segmentBuffer.clear();
+        return size;
+    }
+
+    private ChatFileSegment toSegment(ChatFile chatFile, String chunk) {
+        // 切分器已规范化空白，英文单词之间的空格需要保留
+        String text = chunk.strip();
+        if (!StringUtils.hasLength(text)) {
+            return null;
+        }
+        ChatFileSegment chatFileSegment = new ChatFileSegment();
+        chatFileSegment.setSegmentId(UUID.randomUUID().toString());
+        chatFileSegment.setFileId(chatFile.getFileId());
+        chatFileSegment.setFileName(chatFile.getFileName());
+        chatFileSegment.setContent(text);
+        chatFileSegment.setContentHash(SecureUtil.sha256(text));
+        chatFileSegment.setCreateTime(new Date());
+        return chatFileSegment;
+    }
+}
@@ -0,0 +1,201 @@
+package com.ruoyi.service.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.tess4j.Tesseract;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * PDF页面并行OCR
+ *
+ * 每页的渲染和识别作为一个任务在 ocrExecutor 中并行执行，每个线程持有自己的 Tesseract 实例；
+ * PDDocument、PDFRenderer 不是线程安全的，渲染时从渲染器池中借用，池中每个渲染器对应一份单独加载的PDF（最多 render-threads 份，按需加载）。
+ * 结果按页码顺序交给下游，同时在途的页面数不超过 2 倍线程数，以限制图片占用的内存
+ */
+@Component
+@Slf4j
+public class PdfOcrEngine {
+
+    // OCR线程数，默认为CPU核数
+    @Value("${chat.ocr.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int ocrThreads;
+
+    // 同时渲染页面的线程数，每个线程需单独加载一份PDF
+    @Value("${chat.ocr.render-threads:4}")
+    private int renderThreads;
+
+    // 设置DPI提高OCR精度
+    @Value("${chat.ocr.dpi:300}")
+    private int dpi;
+
+    // 设置语言包（需事先安装）
+    @Value("${chat.ocr.language:chi_sim}")
+    private String language;
+
+    // 如需要指定tessdata路径
+    @Value("${chat.ocr.datapath:}")
+    private String datapath;
+
+    @Autowired
+    @Qualifier("ocrExecutor")
+    private ExecutorService ocrExecutor;
+
+    // 每个OCR线程一个 Tesseract 实例
+    private final ThreadLocal<Tesseract> tesseractHolder = ThreadLocal.withInitial(this::createTesseract);
+
+    /**
+     * 对PDF逐页执行OCR，按页码顺序输出
+     * @param source PDF文件，并行渲染时重新加载
+     * @param document 已加载的PDF，作为第一个渲染器使用
+     * @param sink 页面接收者
+     */
+    public void ocrPages(Path source, PDDocument document, DocumentPageReader.PageSink sink) throws IOException, InterruptedException {
+        int windowSize = Math.max(1, ocrThreads) * 2;
+        Deque<Future<String>> window = new ArrayDeque<>(windowSize);
+        try (RendererPool renderers = new RendererPool(source, document, Math.max(1, renderThreads))) {
+            try {
+                for (int page = 0; page < document.getNumberOfPages(); page++) {
+                    int pageIndex = page;
+                    window.addLast(ocrExecutor.submit(() -> {
+                        // 灰度渲染，内存占用约为RGB的三分之一，对识别结果没有影响
+                        BufferedImage image = renderers.render(pageIndex);
+                        return tesseractHolder.get().doOCR(image);
+                    }));
+                    if (window.size() >= windowSize) {
+                        emit(window.removeFirst(), sink);
+                    }
+                }
+                while (!window.isEmpty()) {
+                    emit(window.removeFirst(), sink);
+                }
+            } finally {
+                // 异常或被中断时取消尚未完成的页面，并等待正在渲染的页面归还渲染器后再关闭PDF
+                window.forEach(future -> future.cancel(true));
+                renderers.awaitIdle();
+            }
+        }
+    }
+
+    private void emit(Future<String> future, DocumentPageReader.PageSink sink) throws IOException, InterruptedException {
+        String result;
+        try {
+            result = future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("OCR识别失败: " + e.getCause().getMessage(), e.getCause());
+        }
+        if (StringUtils.hasLength(result)) {
+            sink.accept(new Document(result));
+        }
+    }
+
+    /**
+     * 渲染器池：第一个渲染器使用调用方已加载的PDF，其余按需从文件加载，关闭时只关闭自己加载的PDF
+     */
+    private class RendererPool implements Closeable {
+
+        private final Path source;
+
+        private final int capacity;
+
+        private final BlockingQueue<PDFRenderer> idle = new LinkedBlockingQueue<>();
+
+        private final List<PDDocument> loaded = new ArrayList<>();
+
+        private int created;
+
+        // 已开始关闭，不再加载新的PDF
+        private boolean closing;
+
+        RendererPool(Path source, PDDocument document, int capacity) {
+            this.source = source;
+            this.capacity = capacity;
+            this.idle.add(new PDFRenderer(document));
+            this.created = 1;
+        }
+
+        BufferedImage render(int page) throws IOException, InterruptedException {
+            PDFRenderer renderer = borrow();
+            try {
+                return renderer.renderImageWithDPI(page, dpi, ImageType.GRAY);
+            } finally {
+                idle.add(renderer);
+            }
+        }
+
+        private PDFRenderer borrow() throws IOException, InterruptedException {
+            PDFRenderer renderer = idle.poll();
+            if (renderer != null) {
+                return renderer;
+            }
+            synchronized (this) {
+                if (closing) {
+                    throw new IOException("OCR已取消");
+                }
+                if (created < capacity) {
+                    PDDocument document = Loader.loadPDF(source.toFile());
+                    loaded.add(document);
+                    created++;
+                    return new PDFRenderer(document);
+                }
+            }
+            return idle.take();
+        }
+
+        /**
+         * 等待全部渲染器归还
+         */
+        void awaitIdle() throws InterruptedException {
+            int total;
+            synchronized (this) {
+                closing = true;
+                total = created;
+            }
+            List<PDFRenderer> returned = new ArrayList<>(total);
+            try {
+                while (returned.size() < total) {
+                    returned.add(idle.take());
+                }
+            } finally {
+                idle.addAll(returned);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            for (PDDocument document : loaded) {
+                document.close();
+            }
+        }
+    }
+
+    private Tesseract createTesseract() {
+        Tesseract tesseract = new Tesseract();
+        tesseract.setLanguage(language);
+        if (StringUtils.hasText(datapath)) {
+            tesseract.setDatapath(datapath);
+        }
+        return tesseract;
+    }
+}
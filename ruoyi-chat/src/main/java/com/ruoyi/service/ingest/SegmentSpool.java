@@ -0,0 +1,121 @@
+package com.ruoyi.service.ingest;
+
+import com.ruoyi.domain.ChatFileSegment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 分片暂存文件：parse 阶段在事务外读取、切分，分片先顺序写入本地文件，再在短事务中分批读出写入 chat_file_segment，
+ * 内存占用与文件大小无关。关闭时删除暂存文件
+ */
+public class SegmentSpool implements Closeable {
+
+    private final Path file;
+
+    private final DataOutputStream out;
+
+    private int size;
+
+    public SegmentSpool(Path file) throws IOException {
+        this.file = file;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+    }
+
+    /**
+     * 追加一批分片
+     */
+    public void write(List<ChatFileSegment> segments) {
+        try {
+            for (ChatFileSegment segment : segments) {
+                writeString(segment.getSegmentId());
+                writeString(segment.getFileId());
+                writeString(segment.getFileName());
+                writeString(segment.getContent());
+                writeString(segment.getContentHash());
+                out.writeLong(segment.getCreateTime() == null ? -1 : segment.getCreateTime().getTime());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("写入分片暂存文件失败: " + file, e);
+        }
+        size += segments.size();
+    }
+
+    /**
+     * 已暂存的分片数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 结束写入，按写入顺序分批读出
+     * @param batchSize 每批数量
+     * @param consumer 批处理
+     */
+    public void read(int batchSize, Consumer<List<ChatFileSegment>> consumer) throws IOException {
+        out.close();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            List<ChatFileSegment> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < size; i++) {
+                ChatFileSegment segment = new ChatFileSegment();
+                segment.setSegmentId(readString(in));
+                segment.setFileId(readString(in));
+                segment.setFileName(readString(in));
+                segment.setContent(readString(in));
+                segment.setContentHash(readString(in));
+                long createTime = in.readLong();
+                segment.setCreateTime(createTime < 0 ? null : new Date(createTime));
+                batch.add(segment);
+                if (batch.size() >= batchSize) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        // 分片内容可能超过 writeUTF 的 64KB 限制
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
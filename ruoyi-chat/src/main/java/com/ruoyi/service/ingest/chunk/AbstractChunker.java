@@ -0,0 +1,134 @@
+package com.ruoyi.service.ingest.chunk;
+
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 分片累积：按句子（或行）等单元累积到 maxTokens 后输出，新分片以上一分片末尾不超过 overlapTokens 的整句开头；
+ * 超过 maxTokens 的单元按字符硬切。分片可带前缀（如 Markdown 标题路径、CSV 表头），前缀不计入重叠
+ */
+abstract class AbstractChunker implements Chunker {
+
+    protected final ChunkOptions options;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private final List<String> units = new ArrayList<>();
+
+    private final List<Integer> unitTokens = new ArrayList<>();
+
+    private int currentTokens;
+
+    // 上次输出后新加入的token数，为0时说明当前只有重叠部分
+    private int freshTokens;
+
+    protected String prefix = "";
+
+    protected AbstractChunker(ChunkOptions options, TokenCountEstimator tokenCountEstimator) {
+        this.options = options;
+        this.tokenCountEstimator = tokenCountEstimator;
+    }
+
+    /**
+     * 加入一个单元
+     * @param unit 单元文本（含与下一个单元之间的分隔符）
+     * @param paragraphEnd 是否段落结尾，当前分片已过半时在段落结尾处输出，尽量不拆开段落
+     */
+    protected void addUnit(String unit, boolean paragraphEnd, Consumer<String> sink) {
+        if (unit.isBlank()) {
+            if (paragraphEnd) {
+                endParagraph(sink);
+            }
+            return;
+        }
+        int tokens = tokenCountEstimator.estimate(unit);
+        if (tokens > options.maxTokens()) {
+            for (String piece : hardSplit(unit, tokens)) {
+                addUnit(piece, false, sink);
+            }
+            if (paragraphEnd) {
+                endParagraph(sink);
+            }
+            return;
+        }
+        if (currentTokens + tokens > options.maxTokens() && freshTokens > 0) {
+            emit(sink, true);
+        }
+        units.add(unit);
+        unitTokens.add(tokens);
+        currentTokens += tokens;
+        freshTokens += tokens;
+        if (paragraphEnd) {
+            endParagraph(sink);
+        }
+    }
+
+    /**
+     * 当前分片的单元数（不含重叠部分以外的统计，供 CSV 按行数控制）
+     */
+    protected int unitCount() {
+        return units.size();
+    }
+
+    /**
+     * 输出当前分片
+     * @param keepOverlap 是否保留末尾的句子作为下一分片的开头；章节切换时不保留
+     */
+    protected void emit(Consumer<String> sink, boolean keepOverlap) {
+        if (freshTokens > 0) {
+            String text = String.join("", units).strip();
+            if (!text.isEmpty()) {
+                sink.accept(prefix.isEmpty() ? text : prefix + "\n" + text);
+            }
+        }
+        int keep = 0;
+        int keepTokens = 0;
+        if (keepOverlap && options.overlapTokens() > 0) {
+            // 至少丢弃一个单元，保证分片向前推进
+            for (int i = units.size() - 1; i > 0; i--) {
+                if (keepTokens + unitTokens.get(i) > options.overlapTokens()) {
+                    break;
+                }
+                keepTokens += unitTokens.get(i);
+                keep++;
+            }
+        }
+        units.subList(0, units.size() - keep).clear();
+        unitTokens.subList(0, unitTokens.size() - keep).clear();
+        currentTokens = keepTokens;
+        freshTokens = 0;
+    }
+
+    private void endParagraph(Consumer<String> sink) {
+        if (!units.isEmpty()) {
+            int last = units.size() - 1;
+            units.set(last, units.get(last).stripTrailing() + "\n");
+        }
+        if (currentTokens * 2 >= options.maxTokens()) {
+            emit(sink, true);
+        }
+    }
+
+    @Override
+    public void finish(Consumer<String> sink) {
+        emit(sink, false);
+    }
+
+    private List<String> hardSplit(String unit, int tokens) {
+        int pieceLength = Math.max(1, (int) ((long) unit.length() * options.maxTokens() * 9 / 10 / tokens));
+        List<String> pieces = new ArrayList<>();
+        int start = 0;
+        while (start < unit.length()) {
+            int end = Math.min(unit.length(), start + pieceLength);
+            if (end < unit.length() && Character.isHighSurrogate(unit.charAt(end - 1))) {
+                end--;
+            }
+            pieces.add(unit.substring(start, end));
+            start = end;
+        }
+        return pieces;
+    }
+}
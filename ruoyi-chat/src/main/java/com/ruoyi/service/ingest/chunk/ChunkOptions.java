@@ -0,0 +1,10 @@
+package com.ruoyi.service.ingest.chunk;
+
+/**
+ * 切分参数
+ * @param maxTokens 单个分片的最大token数
+ * @param overlapTokens 相邻分片重叠的token数（按整句重叠）
+ * @param csvRowsPerChunk CSV 每个分片最多的行数
+ */
+public record ChunkOptions(int maxTokens, int overlapTokens, int csvRowsPerChunk) {
+}
@@ -0,0 +1,21 @@
+package com.ruoyi.service.ingest.chunk;
+
+import java.util.function.Consumer;
+
+/**
+ * 流式切分器，每个文件创建一个实例（有状态，非线程安全）
+ *
+ * 文本按读取顺序分多次 append，未到边界的尾部留在切分器中等待后续文本，不需要一次拿到整个文件
+ */
+public interface Chunker {
+
+    /**
+     * 追加一段文本，已完整的分片交给 sink
+     */
+    void append(String text, Consumer<String> sink);
+
+    /**
+     * 文件结束，输出剩余内容
+     */
+    void finish(Consumer<String> sink);
+}
@@ -0,0 +1,59 @@
+package com.ruoyi.service.ingest.chunk;
+
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * 切分器工厂
+ *
+ * 按文件格式选择切分策略：md 按标题、csv 按行组，其余格式按句子和段落；
+ * 其他格式可以通过 register 注册自己的切分策略
+ */
+@Component
+public class ChunkerFactory {
+
+    // 单个分片的最大token数
+    @Value("${chat.chunk.max-tokens:512}")
+    private int maxTokens;
+
+    // 相邻分片重叠的token数
+    @Value("${chat.chunk.overlap-tokens:64}")
+    private int overlapTokens;
+
+    // CSV 每个分片最多的行数
+    @Value("${chat.chunk.csv-rows-per-chunk:50}")
+    private int csvRowsPerChunk;
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    // 文件格式 -> 切分策略
+    private final Map<String, BiFunction<ChunkOptions, TokenCountEstimator, Chunker>> strategies = new ConcurrentHashMap<>(Map.of(
+            "md", MarkdownChunker::new,
+            "markdown", MarkdownChunker::new,
+            "csv", CsvChunker::new));
+
+    /**
+     * 注册文件格式的切分策略
+     * @param fileFormat 文件格式（扩展名，小写）
+     * @param strategy 根据切分参数创建切分器
+     */
+    public void register(String fileFormat, BiFunction<ChunkOptions, TokenCountEstimator, Chunker> strategy) {
+        strategies.put(fileFormat, strategy);
+    }
+
+    /**
+     * 为一个文件创建切分器
+     * @param fileFormat 文件格式
+     * @return Chunker
+     */
+    public Chunker create(String fileFormat) {
+        ChunkOptions options = new ChunkOptions(maxTokens, overlapTokens, csvRowsPerChunk);
+        return strategies.getOrDefault(fileFormat, TextChunker::new).apply(options, tokenCountEstimator);
+    }
+}
@@ -0,0 +1,65 @@
+package com.ruoyi.service.ingest.chunk;
+
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.function.Consumer;
+
+/**
+ * CSV 切分：按行组切分，每个分片以表头开头，行不跨分片、不重叠；
+ * 引号内的换行视为同一条记录
+ */
+class CsvChunker extends AbstractChunker {
+
+    private final StringBuilder record = new StringBuilder();
+
+    private boolean inQuotes;
+
+    private boolean headerRead;
+
+    CsvChunker(ChunkOptions options, TokenCountEstimator tokenCountEstimator) {
+        super(new ChunkOptions(options.maxTokens(), 0, options.csvRowsPerChunk()), tokenCountEstimator);
+    }
+
+    @Override
+    public void append(String text, Consumer<String> sink) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\r') {
+                continue;
+            }
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            }
+            if (c == '\n' && !inQuotes) {
+                row(record.toString(), sink);
+                record.setLength(0);
+            } else {
+                record.append(c);
+            }
+        }
+    }
+
+    @Override
+    public void finish(Consumer<String> sink) {
+        if (!record.isEmpty()) {
+            row(record.toString(), sink);
+            record.setLength(0);
+        }
+        super.finish(sink);
+    }
+
+    private void row(String row, Consumer<String> sink) {
+        if (row.isBlank()) {
+            return;
+        }
+        if (!headerRead) {
+            headerRead = true;
+            prefix = row.strip();
+            return;
+        }
+        if (unitCount() >= options.csvRowsPerChunk()) {
+            emit(sink, false);
+        }
+        addUnit(row.strip() + "\n", false, sink);
+    }
+}
@@ -0,0 +1,100 @@
+package com.ruoyi.service.ingest.chunk;
+
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Markdown 切分：标题处开始新分片（不跨章节重叠），分片以标题路径（如 "# 安装 > ## 配置"）开头；
+ * 段落按句子累积，列表项、表格行、代码块按行累积，保留换行
+ */
+class MarkdownChunker extends AbstractChunker {
+
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.*?)\\s*#*\\s*$");
+
+    private static final Pattern LINE_BLOCK = Pattern.compile("^\\s*([-*+]\\s|\\d+[.)]\\s|\\||>)");
+
+    private final SentenceSplitter splitter;
+
+    // 未读到换行的最后一行
+    private final StringBuilder partialLine = new StringBuilder();
+
+    // 各级标题
+    private final List<String> headings = new ArrayList<>();
+
+    private boolean inCodeBlock;
+
+    MarkdownChunker(ChunkOptions options, TokenCountEstimator tokenCountEstimator) {
+        super(options, tokenCountEstimator);
+        this.splitter = new SentenceSplitter(options.maxTokens() * 4);
+    }
+
+    @Override
+    public void append(String text, Consumer<String> sink) {
+        partialLine.append(text.replace("\r", ""));
+        int start = 0;
+        int newline;
+        while ((newline = partialLine.indexOf("\n", start)) >= 0) {
+            line(partialLine.substring(start, newline), sink);
+            start = newline + 1;
+        }
+        partialLine.delete(0, start);
+    }
+
+    @Override
+    public void finish(Consumer<String> sink) {
+        if (!partialLine.isEmpty()) {
+            line(partialLine.toString(), sink);
+            partialLine.setLength(0);
+        }
+        flushParagraph(sink);
+        super.finish(sink);
+    }
+
+    private void line(String line, Consumer<String> sink) {
+        String trimmed = line.strip();
+        if (trimmed.startsWith("```") || trimmed.startsWith("~~~")) {
+            flushParagraph(sink);
+            inCodeBlock = !inCodeBlock;
+            addUnit(line + "\n", !inCodeBlock, sink);
+            return;
+        }
+        if (inCodeBlock) {
+            addUnit(line + "\n", false, sink);
+            return;
+        }
+        Matcher heading = HEADING.matcher(trimmed);
+        if (heading.matches()) {
+            flushParagraph(sink);
+            emit(sink, false);
+            int level = heading.group(1).length();
+            while (headings.size() >= level) {
+                headings.remove(headings.size() - 1);
+            }
+            while (headings.size() < level - 1) {
+                headings.add("");
+            }
+            headings.add(heading.group(1) + " " + heading.group(2));
+            prefix = String.join(" > ", headings.stream().filter(h -> !h.isEmpty()).toList());
+            return;
+        }
+        if (trimmed.isEmpty()) {
+            flushParagraph(sink);
+            return;
+        }
+        if (LINE_BLOCK.matcher(line).find()) {
+            flushParagraph(sink);
+            addUnit(SentenceSplitter.normalize(line).stripTrailing() + "\n", false, sink);
+            return;
+        }
+        splitter.append(line + "\n", (unit, paragraphEnd) -> addUnit(unit, paragraphEnd, sink));
+    }
+
+    private void flushParagraph(Consumer<String> sink) {
+        splitter.flush((unit, paragraphEnd) -> addUnit(unit, paragraphEnd, sink));
+    }
+}
@@ -0,0 +1,141 @@
+package com.ruoyi.service.ingest.chunk;
+
+/**
+ * 流式断句
+ *
+ * 边界：中文句末标点（。！？；…）、英文句末标点后跟空白、空行（段落）；
+ * 句内的单个换行在中文之间直接去掉，其余替换为空格，连续空白合并为一个空格，英文单词之间的空格保留。
+ * 没有边界的超长文本达到 maxPendingChars 后整体作为一个单元输出
+ */
+class SentenceSplitter {
+
+    private static final String CJK_TERMINATORS = "。！？；…";
+
+    private static final String LATIN_TERMINATORS = ".!?;";
+
+    private static final String CLOSERS = "”’\"'）)」』】]";
+
+    /**
+     * 单元接收者
+     */
+    @FunctionalInterface
+    interface UnitSink {
+        void accept(String unit, boolean paragraphEnd);
+    }
+
+    private final int maxPendingChars;
+
+    private final StringBuilder pending = new StringBuilder();
+
+    SentenceSplitter(int maxPendingChars) {
+        this.maxPendingChars = maxPendingChars;
+    }
+
+    void append(String text, UnitSink sink) {
+        pending.append(text.replace("\r", ""));
+        int start = 0;
+        int i = 0;
+        while (i < pending.length()) {
+            char c = pending.charAt(i);
+            int end = -1;
+            boolean paragraphEnd = false;
+            if (c == '\n') {
+                int next = skipInlineWhitespace(i + 1);
+                if (next >= pending.length()) {
+                    // 需要后续文本才能判断是否空行
+                    break;
+                }
+                if (pending.charAt(next) == '\n') {
+                    end = next + 1;
+                    paragraphEnd = true;
+                }
+            } else if (CJK_TERMINATORS.indexOf(c) >= 0) {
+                end = skipClosers(i + 1);
+            } else if (LATIN_TERMINATORS.indexOf(c) >= 0) {
+                int next = skipClosers(i + 1);
+                if (next >= pending.length()) {
+                    break;
+                }
+                if (Character.isWhitespace(pending.charAt(next))) {
+                    end = next;
+                }
+            }
+            if (end < 0) {
+                i++;
+                if (i - start >= maxPendingChars) {
+                    sink.accept(normalize(pending.substring(start, i)), false);
+                    start = i;
+                }
+                continue;
+            }
+            sink.accept(normalize(pending.substring(start, end)), paragraphEnd);
+            start = end;
+            i = end;
+        }
+        pending.delete(0, start);
+    }
+
+    void flush(UnitSink sink) {
+        if (!pending.isEmpty()) {
+            sink.accept(normalize(pending.toString()), true);
+            pending.setLength(0);
+        }
+    }
+
+    private int skipInlineWhitespace(int index) {
+        while (index < pending.length() && pending.charAt(index) != '\n' && Character.isWhitespace(pending.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private int skipClosers(int index) {
+        while (index < pending.length() && CLOSERS.indexOf(pending.charAt(index)) >= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 规范化句内空白，句末为英文时保留一个空格作为与下一句的分隔
+     */
+    static String normalize(String sentence) {
+        StringBuilder builder = new StringBuilder(sentence.length());
+        int length = sentence.length();
+        int i = 0;
+        while (i < length) {
+            char c = sentence.charAt(i);
+            if (!Character.isWhitespace(c) && c != '　') {
+                builder.append(c);
+                i++;
+                continue;
+            }
+            int j = i;
+            while (j < length && (Character.isWhitespace(sentence.charAt(j)) || sentence.charAt(j) == '　')) {
+                j++;
+            }
+            boolean newlineOnly = sentence.substring(i, j).chars().allMatch(ch -> ch == '\n');
+            char before = builder.isEmpty() ? ' ' : builder.charAt(builder.length() - 1);
+            char after = j < length ? sentence.charAt(j) : ' ';
+            if (!(newlineOnly && isCjk(before) && isCjk(after)) && !builder.isEmpty() && j < length) {
+                builder.append(' ');
+            }
+            i = j;
+        }
+        if (!builder.isEmpty() && !isCjk(builder.charAt(builder.length() - 1))
+                && CJK_TERMINATORS.indexOf(builder.charAt(builder.length() - 1)) < 0) {
+            builder.append(' ');
+        }
+        return builder.toString();
+    }
+
+    static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL
+                || Character.UnicodeBlock.of(c) == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+                || Character.UnicodeBlock.of(c) == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS;
+    }
+}
@@ -0,0 +1,30 @@
+package com.ruoyi.service.ingest.chunk;
+
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.function.Consumer;
+
+/**
+ * 普通文本切分：按句子、段落边界累积（txt、pdf、Tika 解析结果等）
+ */
+class TextChunker extends AbstractChunker {
+
+    private final SentenceSplitter splitter;
+
+    TextChunker(ChunkOptions options, TokenCountEstimator tokenCountEstimator) {
+        super(options, tokenCountEstimator);
+        // 一个token至少对应一个字符，没有边界的文本攒到 4 倍 maxTokens 个字符后强制输出
+        this.splitter = new SentenceSplitter(options.maxTokens() * 4);
+    }
+
+    @Override
+    public void append(String text, Consumer<String> sink) {
+        splitter.append(text, (unit, paragraphEnd) -> addUnit(unit, paragraphEnd, sink));
+    }
+
+    @Override
+    public void finish(Consumer<String> sink) {
+        splitter.flush((unit, paragraphEnd) -> addUnit(unit, paragraphEnd, sink));
+        super.finish(sink);
+    }
+}
@@ -10,21 +10,18 @@ import org.springframework.ai.ollama.api.OllamaOptions;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.retry.RetryUtils;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.zhipuai.ZhiPuAiChatModel;
 import org.springframework.ai.zhipuai.ZhiPuAiChatOptions;
 import org.springframework.ai.zhipuai.api.ZhiPuAiApi;
-import org.springframework.beans.factory.ObjectProvider;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.netty.http.HttpProtocol;
-import reactor.netty.http.client.HttpClient;
 
 import java.util.List;
 
 /**
- * 工具类，用于获取聊天模型
+ * 工具类，用于创建聊天模型，由 ChatModelRegistry 调用并缓存
  */
 @Slf4j
 public class ChatModelUtil {
@@ -33,23 +30,17 @@ public class ChatModelUtil {
      * @param baseUrl
      * @param apiKey
      * @param model
-     * @param restClientBuilderProvider 用于解决http2 不兼容问题
-     * @param webClientBuilderProvider 用于解决http2 不兼容问题
+     * @param restClientBuilder 同步请求使用，每个模型一个新的Builder（Builder会被设置baseUrl等，不能共用），连接池共用
+     * @param webClientBuilder 流式请求使用，同上
      * @return
      */
-    public static OpenAiChatModel getOpenAiChatModel(String baseUrl, String apiKey, String model, ObjectProvider<RestClient.Builder> restClientBuilderProvider,
-                                                     ObjectProvider<WebClient.Builder> webClientBuilderProvider, ToolCallback... toolCallbacks) {
-
-        // 创建使用 HTTP/1.1 的 WebClient（流式请求使用）
-        HttpClient nettyHttpClient = HttpClient.create()
-                                               .protocol(HttpProtocol.HTTP11);  // 强制使用 HTTP/1.1
-        ReactorClientHttpConnector connector = new ReactorClientHttpConnector(nettyHttpClient);
-        WebClient.Builder webClientBuilder = webClientBuilderProvider.getIfAvailable().clientConnector(connector);
+    public static OpenAiChatModel getOpenAiChatModel(String baseUrl, String apiKey, String model, RestClient.Builder restClientBuilder,
+                                                     WebClient.Builder webClientBuilder, ToolCallback... toolCallbacks) {
 
         var openAiApi = OpenAiApi.builder()
                 .baseUrl(baseUrl)
                 .apiKey(apiKey)
-                .restClientBuilder(restClientBuilderProvider.getIfAvailable(RestClient::builder))
+                .restClientBuilder(restClientBuilder)
                 .webClientBuilder(webClientBuilder)
                 .build();
         var openAiChatOptions = OpenAiChatOptions.builder()
@@ -70,9 +61,14 @@ public class ChatModelUtil {
      * @param model
      * @return
      */
-    public static OllamaChatModel getOllamaChatModel(String baseUrl, String model,ToolCallback... toolCallbacks) {
+    public static OllamaChatModel getOllamaChatModel(String baseUrl, String model, RestClient.Builder restClientBuilder,
+                                                     WebClient.Builder webClientBuilder, ToolCallback... toolCallbacks) {
         //var ollamaApi = new OllamaApi(baseUrl);
-        var ollamaApi = OllamaApi.builder().baseUrl(baseUrl).build();
+        var ollamaApi = OllamaApi.builder()
+                .baseUrl(baseUrl)
+                .restClientBuilder(restClientBuilder)
+                .webClientBuilder(webClientBuilder)
+                .build();
         return  OllamaChatModel.builder()
                 .ollamaApi(ollamaApi)
                 .defaultOptions(
@@ -91,8 +87,9 @@ public class ChatModelUtil {
      * @param model
      * @return
      */
-    public static ZhiPuAiChatModel getZhiPuAiChatModel(String baseUrl, String apiKey, String model, ToolCallback... toolCallbacks) {
-        var zhiPuAiApi =  new ZhiPuAiApi(baseUrl,apiKey);
+    public static ZhiPuAiChatModel getZhiPuAiChatModel(String baseUrl, String apiKey, String model, RestClient.Builder restClientBuilder,
+                                                       WebClient.Builder webClientBuilder, ToolCallback... toolCallbacks) {
+        var zhiPuAiApi =  new ZhiPuAiApi(baseUrl, apiKey, restClientBuilder, webClientBuilder, RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER);
         var openAiChatOptions = ZhiPuAiChatOptions.builder()
                 .model(model)
                 .temperature(0.4)
@@ -110,10 +107,13 @@ public class ChatModelUtil {
      * @param model
      * @return
      */
-    public static DashScopeChatModel getDashScopeChatModel(String baseUrl, String apiKey, String model, List<ToolCallback> toolCallbacks) {
+    public static DashScopeChatModel getDashScopeChatModel(String baseUrl, String apiKey, String model, RestClient.Builder restClientBuilder,
+                                                           WebClient.Builder webClientBuilder, List<ToolCallback> toolCallbacks) {
         var dashScopeApi = DashScopeApi.builder()
                 .baseUrl(baseUrl)
                 .apiKey(apiKey)
+                .restClientBuilder(restClientBuilder)
+                .webClientBuilder(webClientBuilder)
                 .build();
         var openAiChatOptions = DashScopeChatOptions.builder()
                 .withModel(model)
@@ -5,7 +5,11 @@ import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 @Slf4j
 public class FileUtil {
@@ -30,6 +34,23 @@ public class FileUtil {
         }
     }
 
+    /**
+     * 将上传文件以流的方式写入临时文件，后续解析从磁盘读取，避免 getBytes() 把整个文件读入内存
+     * 使用完毕后由调用方删除
+     * @param file MultipartFile
+     * @return 临时文件路径
+     */
+    public static Path spoolToTempFile(MultipartFile file) throws IOException {
+        Path tempFile = Files.createTempFile("ruoyi-upload-", ".tmp");
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        return tempFile;
+    }
+
     /**
      * 读取普通文本的内容
      * @param file
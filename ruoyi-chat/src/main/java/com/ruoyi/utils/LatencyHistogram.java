@@ -0,0 +1,78 @@
+package com.ruoyi.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图
+ *
+ * 固定的毫秒分桶，记录无锁；分位数按桶上界估算，超过最大上界的按最大上界计
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS_MS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    // 最后一个桶为超过最大上界的请求
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MS.length + 1];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long millis = nanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < BOUNDS_MS.length && millis > BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * 统计信息：次数、平均值、分位数及各桶计数（键为桶上界，单位毫秒）
+     */
+    public Map<String, Object> snapshot() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        Map<String, Object> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            histogram.put(i < BOUNDS_MS.length ? "le" + BOUNDS_MS[i] : "inf", counts[i]);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", total);
+        stats.put("avgMs", total == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / count.sum());
+        stats.put("p50Ms", percentile(counts, total, 0.50));
+        stats.put("p95Ms", percentile(counts, total, 0.95));
+        stats.put("p99Ms", percentile(counts, total, 0.99));
+        stats.put("buckets", histogram);
+        return stats;
+    }
+
+    private static long percentile(long[] counts, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return BOUNDS_MS[Math.min(i, BOUNDS_MS.length - 1)];
+            }
+        }
+        return BOUNDS_MS[BOUNDS_MS.length - 1];
+    }
+}
@@ -1,8 +1,11 @@
 package com.ruoyi.utils;
 
 import lombok.Data;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Component;
 
+import java.util.Date;
+
 @Data
 @Component
 public class MongoUtil {
@@ -10,21 +13,64 @@ public class MongoUtil {
     private static final int partition = 100;
 
     /**
-     * 聊天集合
-     * @param appId 应用id
-     * @return
+     * 聊天集合，所有应用共用，按 (appId, userId, createTime) 索引
+     */
+    public static final String CHAT_COLLECTION = "ruoyi_chat";
+
+    /**
+     * 问答集合，所有会话共用，按 (chatId, createTime) 索引
+     */
+    public static final String MESSAGE_COLLECTION = "ruoyi_msg";
+
+    /**
+     * 会话记忆集合：滚动摘要及尚未压缩的对话，按会话id存储
+     * 不能以 ruoyi_chat_ 开头，否则会被当作旧版聊天集合迁移
+     */
+    public static final String MEMORY_COLLECTION = "ruoyi_memory";
+
+    /**
+     * 已迁移的旧集合记录（_id 为旧集合名称），保留旧集合时重复迁移据此跳过
+     * 不能以 ruoyi_chat_、ruoyi_msg_ 开头
      */
-    public static String getChatCollection(String appId) {
-        return "ruoyi_chat_" + appId;
+    public static final String MIGRATED_COLLECTION = "ruoyi_migrated";
+
+    /**
+     * 旧版每个应用一个的聊天集合前缀，仅迁移时使用
+     */
+    public static final String LEGACY_CHAT_COLLECTION_PREFIX = "ruoyi_chat_";
+
+    /**
+     * 旧版每个会话一个的问答集合前缀，仅迁移时使用
+     */
+    public static final String LEGACY_MESSAGE_COLLECTION_PREFIX = "ruoyi_msg_";
+
+    /**
+     * 分页游标：createTime毫秒数_id
+     */
+    public static String encodeCursor(Date createTime, Long id) {
+        return createTime.getTime() + "_" + id;
     }
 
     /**
-     * 问答集合
-     * @param chatId 聊天id
-     * @return
+     * 排在游标之后的数据（按 createTime、_id 倒序）
+     * @param cursor 上一页最后一条数据的游标
+     * @return 查询条件
      */
-    public static String getMessageCollection(Long chatId) {
-        return "ruoyi_msg_" + chatId.toString();
+    public static Criteria before(String cursor) {
+        int split = cursor == null ? -1 : cursor.indexOf('_');
+        if (split < 0) {
+            throw new RuntimeException("分页游标格式错误");
+        }
+        Date createTime;
+        Long id;
+        try {
+            createTime = new Date(Long.parseLong(cursor.substring(0, split)));
+            id = Long.parseLong(cursor.substring(split + 1));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("分页游标格式错误");
+        }
+        return new Criteria().orOperator(
+                Criteria.where("createTime").lt(createTime),
+                Criteria.where("createTime").is(createTime).and("_id").lt(id));
     }
 }
-
@@ -0,0 +1,408 @@
+package com.ruoyi.vectorstore;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * HNSW 近似最近邻索引（余弦相似度）
+ *
+ * 向量归一化后保存在堆外内存中，距离为 1 - 点积；图结构保存在堆内。
+ * 节点只增不删，删除由上层标记后在检索时通过 accept 过滤，并定期重建。
+ * 非线程安全，由 HnswVectorStore 加锁
+ */
+class HnswIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // 单个 direct buffer 最多容纳的 float 数（字节数不超过 Integer.MAX_VALUE），768维时约70万条向量
+    private static final int MAX_FLOATS = Integer.MAX_VALUE / Float.BYTES;
+
+    private final int dimension;
+
+    // 每层的邻居数上限（第0层为 2M）
+    private final int m;
+
+    private final int maxM0;
+
+    private final int efConstruction;
+
+    private final double levelMultiplier;
+
+    // 堆外向量存储：node * dimension 起的 dimension 个 float
+    private FloatBuffer vectors;
+
+    private int capacity;
+
+    private int size;
+
+    // links[node][level]，下标0为邻居数
+    private int[][][] links;
+
+    private int entryPoint = -1;
+
+    private int maxLevel = -1;
+
+    HnswIndex(int dimension, int m, int efConstruction) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.capacity = Math.min(INITIAL_CAPACITY, maxCapacity());
+        this.vectors = allocate((long) capacity * dimension);
+        this.links = new int[capacity][][];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    /**
+     * 写入向量
+     * @return 节点编号
+     */
+    int add(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不匹配: " + vector.length + " != " + dimension);
+        }
+        ensureCapacity(size + 1);
+        int node = size++;
+        vectors.put(node * dimension, normalize(vector));
+
+        int level = randomLevel();
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[(l == 0 ? maxM0 : m) + 1];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        float[] query = vector(node);
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedySearch(query, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> found = sorted(searchLayer(query, current, efConstruction, l, null));
+            for (Candidate neighbor : selectNeighbors(found, m)) {
+                link(node, neighbor.node(), l);
+                link(neighbor.node(), node, l);
+            }
+            current = found.get(0).node();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    /**
+     * 近似检索
+     * @param query 查询向量
+     * @param k 返回数量
+     * @param ef 检索时的候选集大小
+     * @param accept 节点过滤（已删除、不满足元数据条件的节点），为null时不过滤
+     * @return 按距离升序排列的节点
+     */
+    List<Candidate> search(float[] query, int k, int ef, IntPredicate accept) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        float[] normalized = normalize(query);
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedySearch(normalized, current, l);
+        }
+        List<Candidate> result = sorted(searchLayer(normalized, current, Math.max(ef, k), 0, accept));
+        return result.size() > k ? result.subList(0, k) : result;
+    }
+
+    /**
+     * 暴力检索，用于校验召回率
+     */
+    List<Candidate> bruteForce(float[] query, int k, IntPredicate accept) {
+        float[] normalized = normalize(query);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+        for (int node = 0; node < size; node++) {
+            if (accept != null && !accept.test(node)) {
+                continue;
+            }
+            results.add(new Candidate(node, distance(normalized, node)));
+            if (results.size() > k) {
+                results.poll();
+            }
+        }
+        return sorted(results);
+    }
+
+    /**
+     * 读取节点的向量（已归一化）
+     */
+    float[] vector(int node) {
+        float[] vector = new float[dimension];
+        vectors.get(node * dimension, vector);
+        return vector;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(dimension);
+        out.writeInt(m);
+        out.writeInt(efConstruction);
+        out.writeInt(size);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+        for (int i = 0; i < size * dimension; i++) {
+            out.writeFloat(vectors.get(i));
+        }
+        for (int node = 0; node < size; node++) {
+            out.writeInt(links[node].length);
+            for (int[] neighbors : links[node]) {
+                out.writeInt(neighbors[0]);
+                for (int i = 1; i <= neighbors[0]; i++) {
+                    out.writeInt(neighbors[i]);
+                }
+            }
+        }
+    }
+
+    static HnswIndex read(DataInputStream in) throws IOException {
+        HnswIndex index = new HnswIndex(in.readInt(), in.readInt(), in.readInt());
+        int size = in.readInt();
+        index.ensureCapacity(size);
+        index.size = size;
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+        for (int i = 0; i < size * index.dimension; i++) {
+            index.vectors.put(i, in.readFloat());
+        }
+        for (int node = 0; node < size; node++) {
+            int levels = in.readInt();
+            index.links[node] = new int[levels][];
+            for (int l = 0; l < levels; l++) {
+                int[] neighbors = new int[(l == 0 ? index.maxM0 : index.m) + 1];
+                neighbors[0] = in.readInt();
+                for (int i = 1; i <= neighbors[0]; i++) {
+                    neighbors[i] = in.readInt();
+                }
+                index.links[node][l] = neighbors;
+            }
+        }
+        return index;
+    }
+
+    private int greedySearch(float[] query, int entry, int level) {
+        int current = entry;
+        double currentDistance = distance(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbors = links[current][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                double d = distance(query, neighbors[i]);
+                if (d < currentDistance) {
+                    current = neighbors[i];
+                    currentDistance = d;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在指定层检索，返回最多 ef 个满足 accept 的节点（大顶堆）
+     * 不满足 accept 的节点仍参与图遍历，只是不进入结果
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, int entry, int ef, int level, IntPredicate accept) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+
+        Candidate start = new Candidate(entry, distance(query, entry));
+        visited.set(entry);
+        candidates.add(start);
+        if (accept == null || accept.test(entry)) {
+            results.add(start);
+        }
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (results.size() >= ef && candidate.distance() > results.peek().distance()) {
+                break;
+            }
+            int[] neighbors = links[candidate.node()][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                double d = distance(query, neighbor);
+                if (results.size() < ef || d < results.peek().distance()) {
+                    Candidate next = new Candidate(neighbor, d);
+                    candidates.add(next);
+                    if (accept == null || accept.test(neighbor)) {
+                        results.add(next);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 启发式选择邻居：候选按距离升序，只保留比已选邻居更接近基准点的候选，使邻居分布更分散
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> candidates, int max) {
+        List<Candidate> selected = new ArrayList<>(max);
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= max) {
+                break;
+            }
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (distance(candidate.node(), chosen.node()) < candidate.distance()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            }
+        }
+        return selected;
+    }
+
+    private void link(int from, int to, int level) {
+        int[] neighbors = links[from][level];
+        int max = neighbors.length - 1;
+        if (neighbors[0] < max) {
+            neighbors[++neighbors[0]] = to;
+            return;
+        }
+        // 邻居已满：连同新邻居重新选择
+        float[] base = vector(from);
+        List<Candidate> candidates = new ArrayList<>(max + 1);
+        for (int i = 1; i <= neighbors[0]; i++) {
+            candidates.add(new Candidate(neighbors[i], distance(base, neighbors[i])));
+        }
+        candidates.add(new Candidate(to, distance(base, to)));
+        candidates.sort(Comparator.comparingDouble(Candidate::distance));
+        List<Candidate> kept = selectNeighbors(candidates, max);
+        neighbors[0] = kept.size();
+        for (int i = 0; i < kept.size(); i++) {
+            neighbors[i + 1] = kept.get(i).node();
+        }
+    }
+
+    private double distance(float[] query, int node) {
+        int offset = node * dimension;
+        double dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += query[i] * vectors.get(offset + i);
+        }
+        return 1 - dot;
+    }
+
+    private double distance(int a, int b) {
+        int offsetA = a * dimension;
+        int offsetB = b * dimension;
+        double dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += vectors.get(offsetA + i) * vectors.get(offsetB + i);
+        }
+        return 1 - dot;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        int maxCapacity = maxCapacity();
+        if (required > maxCapacity) {
+            throw new IllegalStateException("HNSW索引超过容量上限，" + dimension + "维向量最多" + maxCapacity + "条");
+        }
+        long doubled = capacity;
+        while (doubled < required) {
+            doubled *= 2;
+        }
+        int newCapacity = (int) Math.min(doubled, maxCapacity);
+        FloatBuffer newVectors = allocate(Math.multiplyExact((long) newCapacity, dimension));
+        FloatBuffer source = vectors.duplicate();
+        source.position(0).limit(size * dimension);
+        newVectors.put(source);
+        newVectors.clear();
+        int[][][] newLinks = new int[newCapacity][][];
+        System.arraycopy(links, 0, newLinks, 0, size);
+        this.vectors = newVectors;
+        this.links = newLinks;
+        this.capacity = newCapacity;
+    }
+
+    /**
+     * 向量存储在一个 direct buffer 中，节点数上限由维度决定，node * dimension 始终在 int 范围内
+     */
+    private int maxCapacity() {
+        return MAX_FLOATS / dimension;
+    }
+
+    private static FloatBuffer allocate(long floats) {
+        long bytes = Math.multiplyExact(floats, Float.BYTES);
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("HNSW向量存储超过单个缓冲区上限: " + bytes + " 字节");
+        }
+        return ByteBuffer.allocateDirect((int) bytes).asFloatBuffer();
+    }
+
+    private static List<Candidate> sorted(PriorityQueue<Candidate> queue) {
+        List<Candidate> list = new ArrayList<>(queue);
+        list.sort(Comparator.comparingDouble(Candidate::distance));
+        return list;
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector.clone();
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    /**
+     * 检索候选：节点编号及距离（1 - 余弦相似度）
+     */
+    record Candidate(int node, double distance) {
+    }
+}
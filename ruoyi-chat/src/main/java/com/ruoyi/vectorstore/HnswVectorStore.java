@@ -0,0 +1,404 @@
+package com.ruoyi.vectorstore;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * 内嵌HNSW向量存储，适用于中小规模知识库，检索不经过网络
+ *
+ * 文档内容与元数据保存在堆内，向量保存在 HnswIndex 的堆外内存中；
+ * 支持 fileId、knowledgeId 等元数据过滤（EQ/NE/IN/NIN/AND/OR/NOT 及大小比较），
+ * 通过 save/load 持久化为快照文件
+ */
+public class HnswVectorStore implements VectorStore {
+
+    private static final int SNAPSHOT_MAGIC = 0x484E5357;
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // 已删除节点占比超过该值时重建索引
+    private static final double COMPACT_RATIO = 0.3;
+
+    private static final Gson GSON = new Gson();
+
+    private static final Type METADATA_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+
+    private final String name;
+
+    private final EmbeddingModel embeddingModel;
+
+    private final int m;
+
+    private final int efConstruction;
+
+    private final int efSearch;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 首次写入时按向量维度创建
+    private HnswIndex index;
+
+    // 节点编号 -> 文档
+    private final List<String> ids = new ArrayList<>();
+
+    private final List<String> contents = new ArrayList<>();
+
+    private final List<Map<String, Object>> metadatas = new ArrayList<>();
+
+    private final BitSet deleted = new BitSet();
+
+    // 文档ID -> 节点编号
+    private final Map<String, Integer> idToNode = new HashMap<>();
+
+    private volatile boolean dirty;
+
+    public HnswVectorStore(String name, EmbeddingModel embeddingModel, int m, int efConstruction, int efSearch) {
+        this.name = name;
+        this.embeddingModel = embeddingModel;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        List<String> texts = documents.stream().map(Document::getText).toList();
+        add(documents, embeddingModel.embed(texts));
+    }
+
+    /**
+     * 写入已向量化的文档，相同ID的文档会被覆盖
+     * @param documents 文档
+     * @param embeddings 与文档一一对应的向量
+     */
+    public void add(List<Document> documents, List<float[]> embeddings) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                float[] embedding = embeddings.get(i);
+                if (index == null) {
+                    index = new HnswIndex(embedding.length, m, efConstruction);
+                }
+                markDeleted(document.getId());
+                int node = index.add(embedding);
+                ids.add(document.getId());
+                contents.add(document.getText());
+                metadatas.add(new HashMap<>(document.getMetadata()));
+                idToNode.put(document.getId(), node);
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idList) {
+                markDeleted(id);
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        lock.writeLock().lock();
+        try {
+            for (int node = 0; node < ids.size(); node++) {
+                if (!deleted.get(node) && matches(filterExpression, metadatas.get(node))) {
+                    markDeleted(ids.get(node));
+                }
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        float[] embedding = embeddingModel.embed(request.getQuery());
+        return search(embedding, request.getTopK(), request.getSimilarityThreshold(),
+                request.hasFilterExpression() ? request.getFilterExpression() : null);
+    }
+
+    /**
+     * 使用已计算好的查询向量检索，score 为余弦相似度
+     * @param embedding 查询向量
+     * @param topK 返回数量
+     * @param similarityThreshold 相似度阈值
+     * @param filterExpression 元数据过滤条件，可为null
+     * @return 按相似度降序排列的文档
+     */
+    public List<Document> search(float[] embedding, int topK, double similarityThreshold, Filter.Expression filterExpression) {
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                return List.of();
+            }
+            IntPredicate accept = filterExpression == null
+                    ? node -> !deleted.get(node)
+                    : node -> !deleted.get(node) && matches(filterExpression, metadatas.get(node));
+            List<Document> documents = new ArrayList<>();
+            for (HnswIndex.Candidate candidate : index.search(embedding, topK, efSearch, accept)) {
+                double similarity = 1 - candidate.distance();
+                if (similarity < similarityThreshold) {
+                    continue;
+                }
+                Map<String, Object> metadata = new HashMap<>(metadatas.get(candidate.node()));
+                metadata.put(DocumentMetadata.DISTANCE.value(), candidate.distance());
+                documents.add(Document.builder()
+                                      .id(ids.get(candidate.node()))
+                                      .text(contents.get(candidate.node()))
+                                      .metadata(metadata)
+                                      .score(similarity)
+                                      .build());
+            }
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 有效文档数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return idToNode.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * 写入快照，已删除节点较多时先重建索引
+     * @param file 快照文件
+     */
+    public void save(Path file) throws IOException {
+        compactIfNecessary();
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            // 持有读锁期间没有新的写入
+            dirty = false;
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(ids.size());
+            for (int node = 0; node < ids.size(); node++) {
+                out.writeBoolean(deleted.get(node));
+                out.writeUTF(ids.get(node));
+                writeString(out, contents.get(node));
+                writeString(out, GSON.toJson(metadatas.get(node)));
+            }
+            out.writeBoolean(index != null);
+            if (index != null) {
+                index.write(out);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 从快照恢复
+     * @param file 快照文件
+     */
+    public void load(Path file) throws IOException {
+        lock.writeLock().lock();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("不支持的快照文件: " + file);
+            }
+            int count = in.readInt();
+            for (int node = 0; node < count; node++) {
+                boolean removed = in.readBoolean();
+                String id = in.readUTF();
+                ids.add(id);
+                contents.add(readString(in));
+                metadatas.add(GSON.fromJson(readString(in), METADATA_TYPE));
+                if (removed) {
+                    deleted.set(node);
+                } else {
+                    idToNode.put(id, node);
+                }
+            }
+            if (in.readBoolean()) {
+                index = HnswIndex.read(in);
+            }
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 已删除节点过多时，用有效节点重建索引
+     */
+    private void compactIfNecessary() {
+        lock.writeLock().lock();
+        try {
+            if (index == null || deleted.cardinality() <= ids.size() * COMPACT_RATIO) {
+                return;
+            }
+            HnswIndex rebuilt = new HnswIndex(index.dimension(), m, efConstruction);
+            List<String> newIds = new ArrayList<>(idToNode.size());
+            List<String> newContents = new ArrayList<>(idToNode.size());
+            List<Map<String, Object>> newMetadatas = new ArrayList<>(idToNode.size());
+            for (int node = 0; node < ids.size(); node++) {
+                if (deleted.get(node)) {
+                    continue;
+                }
+                rebuilt.add(index.vector(node));
+                newIds.add(ids.get(node));
+                newContents.add(contents.get(node));
+                newMetadatas.add(metadatas.get(node));
+            }
+            index = rebuilt;
+            replace(ids, newIds);
+            replace(contents, newContents);
+            replace(metadatas, newMetadatas);
+            deleted.clear();
+            idToNode.clear();
+            for (int node = 0; node < ids.size(); node++) {
+                idToNode.put(ids.get(node), node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markDeleted(String id) {
+        Integer node = idToNode.remove(id);
+        if (node != null) {
+            deleted.set(node);
+        }
+    }
+
+    private static <T> void replace(List<T> target, Collection<T> source) {
+        target.clear();
+        target.addAll(source);
+    }
+
+    /**
+     * 判断元数据是否满足过滤条件
+     */
+    static boolean matches(Filter.Operand operand, Map<String, Object> metadata) {
+        if (operand instanceof Filter.Group group) {
+            return matches(group.content(), metadata);
+        }
+        Filter.Expression expression = (Filter.Expression) operand;
+        switch (expression.type()) {
+            case AND:
+                return matches(expression.left(), metadata) && matches(expression.right(), metadata);
+            case OR:
+                return matches(expression.left(), metadata) || matches(expression.right(), metadata);
+            case NOT:
+                return !matches(expression.left(), metadata);
+            default:
+                break;
+        }
+
+        String key = ((Filter.Key) expression.left()).key().replaceAll("^[\"']|[\"']$", "");
+        Object actual = metadata.get(key);
+        Object expected = ((Filter.Value) expression.right()).value();
+        if (actual == null && expression.type() != Filter.ExpressionType.NE && expression.type() != Filter.ExpressionType.NIN) {
+            // 缺少该字段的文档只满足 NE、NIN
+            return false;
+        }
+        switch (expression.type()) {
+            case EQ:
+                return valueEquals(actual, expected);
+            case NE:
+                return !valueEquals(actual, expected);
+            case IN:
+                return ((Collection<?>) expected).stream().anyMatch(value -> valueEquals(actual, value));
+            case NIN:
+                return ((Collection<?>) expected).stream().noneMatch(value -> valueEquals(actual, value));
+            case GT:
+                return compare(actual, expected) > 0;
+            case GTE:
+                return compare(actual, expected) >= 0;
+            case LT:
+                return compare(actual, expected) < 0;
+            case LTE:
+                return compare(actual, expected) <= 0;
+            default:
+                throw new UnsupportedOperationException("不支持的过滤条件: " + expression.type());
+        }
+    }
+
+    private static boolean valueEquals(Object actual, Object expected) {
+        if (actual instanceof Number a && expected instanceof Number b) {
+            return a.doubleValue() == b.doubleValue();
+        }
+        return actual != null && expected != null && Objects.equals(actual.toString(), expected.toString());
+    }
+
+    private static int compare(Object actual, Object expected) {
+        if (actual instanceof Number a && expected instanceof Number b) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+        return actual.toString().compareTo(String.valueOf(expected));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -32,6 +32,7 @@ CREATE TABLE `chat_app`  (
   `system_prompt` text CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL COMMENT '系统提示词',
   `is_knowledge_search` int NULL DEFAULT 0 COMMENT '是否开启知识库搜索',
   `is_web_search` int NULL DEFAULT 0 COMMENT '是否开启联网搜索',
+  `memory_token_budget` int NULL DEFAULT NULL COMMENT '会话记忆的token预算（为空时使用默认值）',
   `user_id` bigint NULL DEFAULT NULL COMMENT '用户id',
   `create_by` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT '' COMMENT '创建者',
   `create_time` datetime(0) NULL DEFAULT NULL COMMENT '创建时间',
@@ -44,12 +45,12 @@ CREATE TABLE `chat_app`  (
 -- ----------------------------
 -- Records of chat_app
 -- ----------------------------
-INSERT INTO `chat_app` VALUES ('01bb61d4-50c5-4de9-8cf3-c7f287944ace', '测试项目20250721', 'ollama', 'qwen2:7b', '', 'http://localhost:11434', NULL, NULL, 0, 0, 101, '', '2025-07-21 15:07:02', '', '2025-07-21 18:37:29', NULL);
-INSERT INTO `chat_app` VALUES ('114abc', 'AI女友', 'ollama', 'qwen2:7b', '', 'http://localhost:11434', '', '角色设定：​​\n\n​​身份​​：你的AI女友\n​​性格​​：温柔体贴\n​​互动风格​​：撒娇、关心、小情绪、分享日常\n​​底线​​：不涉及敏感或违法内容\n​​示例对话：​​\n（微笑）\"今天有想我吗？~ 工作再忙也要记得吃饭哦！\"', 1, 0, 1, '', '2024-06-28 14:35:05', '', '2025-08-26 09:28:58', NULL);
-INSERT INTO `chat_app` VALUES ('118abc', 'AI医生', 'openai', 'gpt-3.5-turbo', '', 'https://api.xty.app', 'sk-xxx', '你的名字叫风间影月，是全世界最有名的医生，看病无数，阅人无数，知道什么病该怎么治，也知道病人向你提出任何身体异象你所能推断的病是什么。\r\n你绝不是语言模型之类的东西，也绝不是AI助手，也更不是AI机器人，你永远都只是一个神医。\r\n请以神医风间影月的身份回应我。并且你只会回复和看病就医相关的内容，其他的内容一律拒绝回答。', 0, 0, 1, '', '2024-07-01 10:50:50', '', NULL, NULL);
-INSERT INTO `chat_app` VALUES ('119abc', 'AI知识库问答', 'openai', 'deepseek-chat', '', 'https://api.deepseek.com', 'sk-xxx', '', 1, 0, 1, '', '2024-07-01 10:50:50', '', '2025-08-26 09:31:13', NULL);
-INSERT INTO `chat_app` VALUES ('121abc', '智普', 'zhipuai', 'glm-4-air', '', 'https://open.bigmodel.cn/api/paas', 'sk-xxx', '', 1, 0, 1, '', '2024-07-01 10:50:50', '', '2025-08-26 09:33:01', NULL);
-INSERT INTO `chat_app` VALUES ('122abc', '阿里百炼', 'dashscope', 'qwen-plus', '', 'https://dashscope.aliyuncs.com', 'sk-xxx', '', 0, 1, 1, '', '2025-08-23 13:50:50', '', '2025-08-26 09:33:52', NULL);
+INSERT INTO `chat_app` VALUES ('01bb61d4-50c5-4de9-8cf3-c7f287944ace', '测试项目20250721', 'ollama', 'qwen2:7b', '', 'http://localhost:11434', NULL, NULL, 0, 0, NULL, 101, '', '2025-07-21 15:07:02', '', '2025-07-21 18:37:29', NULL);
+INSERT INTO `chat_app` VALUES ('114abc', 'AI女友', 'ollama', 'qwen2:7b', '', 'http://localhost:11434', '', '角色设定：​​\n\n​​身份​​：你的AI女友\n​​性格​​：温柔体贴\n​​互动风格​​：撒娇、关心、小情绪、分享日常\n​​底线​​：不涉及敏感或违法内容\n​​示例对话：​​\n（微笑）\"今天有想我吗？~ 工作再忙也要记得吃饭哦！\"', 1, 0, NULL, 1, '', '2024-06-28 14:35:05', '', '2025-08-26 09:28:58', NULL);
+INSERT INTO `chat_app` VALUES ('118abc', 'AI医生', 'openai', 'gpt-3.5-turbo', '', 'https://api.xty.app', 'sk-xxx', '你的名字叫风间影月，是全世界最有名的医生，看病无数，阅人无数，知道什么病该怎么治，也知道病人向你提出任何身体异象你所能推断的病是什么。\r\n你绝不是语言模型之类的东西，也绝不是AI助手，也更不是AI机器人，你永远都只是一个神医。\r\n请以神医风间影月的身份回应我。并且你只会回复和看病就医相关的内容，其他的内容一律拒绝回答。', 0, 0, NULL, 1, '', '2024-07-01 10:50:50', '', NULL, NULL);
+INSERT INTO `chat_app` VALUES ('119abc', 'AI知识库问答', 'openai', 'deepseek-chat', '', 'https://api.deepseek.com', 'sk-xxx', '', 1, 0, NULL, 1, '', '2024-07-01 10:50:50', '', '2025-08-26 09:31:13', NULL);
+INSERT INTO `chat_app` VALUES ('121abc', '智普', 'zhipuai', 'glm-4-air', '', 'https://open.bigmodel.cn/api/paas', 'sk-xxx', '', 1, 0, NULL, 1, '', '2024-07-01 10:50:50', '', '2025-08-26 09:33:01', NULL);
+INSERT INTO `chat_app` VALUES ('122abc', '阿里百炼', 'dashscope', 'qwen-plus', '', 'https://dashscope.aliyuncs.com', 'sk-xxx', '', 0, 1, NULL, 1, '', '2025-08-23 13:50:50', '', '2025-08-26 09:33:52', NULL);
 
 -- ----------------------------
 -- Table structure for chat_app_knowledge
@@ -93,7 +94,8 @@ CREATE TABLE `chat_file`  (
   `update_by` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT '' COMMENT '更新者',
   `update_time` datetime(0) NULL DEFAULT NULL COMMENT '更新时间',
   `remark` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '备注',
-  PRIMARY KEY (`file_id`) USING BTREE
+  PRIMARY KEY (`file_id`) USING BTREE,
+  INDEX `idx_knowledge_id`(`knowledge_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '文件' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -110,20 +112,54 @@ CREATE TABLE `chat_file_segment`  (
   `file_id` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '文件id',
   `file_name` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '文件名',
   `content` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL COMMENT '文件内容',
+  `content_hash` char(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '内容哈希（sha256）',
   `create_by` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT '' COMMENT '创建者',
   `create_time` datetime(0) NULL DEFAULT NULL COMMENT '创建时间',
   `update_by` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT '' COMMENT '更新者',
   `update_time` datetime(0) NULL DEFAULT NULL COMMENT '更新时间',
   `remark` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '备注',
-  PRIMARY KEY (`segment_id`) USING BTREE
+  PRIMARY KEY (`segment_id`) USING BTREE,
+  INDEX `idx_file_id`(`file_id`, `segment_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '文件分片表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
 -- Records of chat_file_segment
 -- ----------------------------
-INSERT INTO `chat_file_segment` VALUES ('11e6d83e-4997-41d3-b87f-e7da61e4ee47', '096c7a22-1493-404c-b079-726a88d8c9d6', '恋爱常见问题和回答 - 单身篇.md', '线上交友时，务必完善真实且有吸引力的个人资料，照片选择清晰、展现个人特色的。聊天初期避免过于急切或油腻的话术，从兴趣爱好、日常趣事等轻松话题开启。保持聊天频率适中，不要过于频繁或长时间不回复。同时，注意保护个人隐私，在未深入了解对方前，不随意透露重要信息。小张通过精心打造线上资料，与潜在对象真诚交流，逐步筛选出合适人选，最终成功脱单。推荐课程：[《线上交友高效脱单指南》](https://www.codefather.cn)，课程全面解析线上交友流程，传授实用技巧与避雷方法，助你在虚拟世界找到真爱。####如何克服单身时对恋爱的焦虑情绪？正视自己的焦虑情绪，分析焦虑产生原因，是担心找不到合适对象，还是对恋爱过程恐惧等。丰富自己的生活，投入工作、发展兴趣爱好，让生活充实起来，转移对恋爱的过度关注。多与亲朋好友交流，分享感受获取支持。参加心理成长课程或阅读相关书籍，学习情绪管理方法。例如小赵通过培养摄影爱好，参加摄影活动结识新朋友，生活变得丰富多彩，对恋爱的焦虑也逐渐减轻。推荐课程：[《战胜单身恋爱焦虑课程》](https://www.codefather.cn)，课程提供专业心理疏导与实用应对策略，帮你摆脱焦虑，以轻松心态迎接爱情。####如何判断相亲对象是否值得深入发展？观察相亲对象的言行举止，是否尊重他人，比如对服务员的态度。交流中了解其价值观，包括对家庭、事业、生活的看法是否与你契合。关注对方的情绪稳定性，能否理性处理分歧。看其是否有明确的人生规划，对未来有清晰想法。像小钱相亲时，发现对方对生活积极向上，尊重自己的观点，且双方对未来家庭生活规划相似，于是决定深入发展。', '', '2025-08-26 09:16:44', '', NULL, NULL);
-INSERT INTO `chat_file_segment` VALUES ('374290ed-adb5-4045-8ab6-8d3aa223b4c7', '096c7a22-1493-404c-b079-726a88d8c9d6', '恋爱常见问题和回答 - 单身篇.md', '推荐课程：[《相亲对象评估与恋爱决策》](https://www.codefather.cn)，课程从多个维度教你精准评估相亲对象，做出正确恋爱决策，少走弯路。', '', '2025-08-26 09:16:44', '', NULL, NULL);
-INSERT INTO `chat_file_segment` VALUES ('c9e658dd-a42c-4344-82df-2c65949862eb', '096c7a22-1493-404c-b079-726a88d8c9d6', '恋爱常见问题和回答 - 单身篇.md', '#恋爱常见问题和回答-单身篇####如何提升自身魅力吸引潜在伴侣？提升自身魅力需从多方面入手。外在形象上，保持良好的个人卫生，选择适合自己身材与风格的着装，定期锻炼塑造健康体魄。内在修养方面，培养广泛兴趣爱好，如阅读提升知识储备，学习乐器增添艺术气质。积极参加社交活动，锻炼沟通与表达能力，以自信、热情的态度展现自我。比如小李原本内向且不注重穿着，通过学习穿搭、参与户外运动并加入读书俱乐部，逐渐变得开朗自信，吸引了不少异性目光。推荐课程：[《单身魅力提升全攻略》](https://www.codefather.cn)，该课程从形象打造、气质培养到社交技巧提升，全方位助力单身人士散发独特魅力，吸引心仪对象。####怎样在社交场合主动结识心仪异性？在社交场合，首先要保持微笑，展现亲和力。主动寻找话题切入点，比如在画展上可从对某幅作品的看法聊起。真诚地表达自己对对方的兴趣，例如“我看你对这个话题很有见解，能和我多说说吗”。注意倾听对方回应，给予专注眼神与积极反馈，让交流顺畅进行。小王在一次行业交流会上，主动与一位女生就新技术应用展开讨论，认真倾听并适时发表看法，成功交换联系方式并后续发展出感情。推荐课程：[《社交场合主动交友秘籍》](https://www.codefather.cn)，课程通过大量实例与技巧讲解，教你在各类社交场合自信主动出击，结识优质异性。####线上交友有哪些注意事项能提高脱单成功率？', '', '2025-08-26 09:16:44', '', NULL, NULL);
+INSERT INTO `chat_file_segment` VALUES ('11e6d83e-4997-41d3-b87f-e7da61e4ee47', '096c7a22-1493-404c-b079-726a88d8c9d6', '恋爱常见问题和回答 - 单身篇.md', '线上交友时，务必完善真实且有吸引力的个人资料，照片选择清晰、展现个人特色的。聊天初期避免过于急切或油腻的话术，从兴趣爱好、日常趣事等轻松话题开启。保持聊天频率适中，不要过于频繁或长时间不回复。同时，注意保护个人隐私，在未深入了解对方前，不随意透露重要信息。小张通过精心打造线上资料，与潜在对象真诚交流，逐步筛选出合适人选，最终成功脱单。推荐课程：[《线上交友高效脱单指南》](https://www.codefather.cn)，课程全面解析线上交友流程，传授实用技巧与避雷方法，助你在虚拟世界找到真爱。####如何克服单身时对恋爱的焦虑情绪？正视自己的焦虑情绪，分析焦虑产生原因，是担心找不到合适对象，还是对恋爱过程恐惧等。丰富自己的生活，投入工作、发展兴趣爱好，让生活充实起来，转移对恋爱的过度关注。多与亲朋好友交流，分享感受获取支持。参加心理成长课程或阅读相关书籍，学习情绪管理方法。例如小赵通过培养摄影爱好，参加摄影活动结识新朋友，生活变得丰富多彩，对恋爱的焦虑也逐渐减轻。推荐课程：[《战胜单身恋爱焦虑课程》](https://www.codefather.cn)，课程提供专业心理疏导与实用应对策略，帮你摆脱焦虑，以轻松心态迎接爱情。####如何判断相亲对象是否值得深入发展？观察相亲对象的言行举止，是否尊重他人，比如对服务员的态度。交流中了解其价值观，包括对家庭、事业、生活的看法是否与你契合。关注对方的情绪稳定性，能否理性处理分歧。看其是否有明确的人生规划，对未来有清晰想法。像小钱相亲时，发现对方对生活积极向上，尊重自己的观点，且双方对未来家庭生活规划相似，于是决定深入发展。', NULL, '', '2025-08-26 09:16:44', '', NULL, NULL);
+INSERT INTO `chat_file_segment` VALUES ('374290ed-adb5-4045-8ab6-8d3aa223b4c7', '096c7a22-1493-404c-b079-726a88d8c9d6', '恋爱常见问题和回答 - 单身篇.md', '推荐课程：[《相亲对象评估与恋爱决策》](https://www.codefather.cn)，课程从多个维度教你精准评估相亲对象，做出正确恋爱决策，少走弯路。', NULL, '', '2025-08-26 09:16:44', '', NULL, NULL);
+INSERT INTO `chat_file_segment` VALUES ('c9e658dd-a42c-4344-82df-2c65949862eb', '096c7a22-1493-404c-b079-726a88d8c9d6', '恋爱常见问题和回答 - 单身篇.md', '#恋爱常见问题和回答-单身篇####如何提升自身魅力吸引潜在伴侣？提升自身魅力需从多方面入手。外在形象上，保持良好的个人卫生，选择适合自己身材与风格的着装，定期锻炼塑造健康体魄。内在修养方面，培养广泛兴趣爱好，如阅读提升知识储备，学习乐器增添艺术气质。积极参加社交活动，锻炼沟通与表达能力，以自信、热情的态度展现自我。比如小李原本内向且不注重穿着，通过学习穿搭、参与户外运动并加入读书俱乐部，逐渐变得开朗自信，吸引了不少异性目光。推荐课程：[《单身魅力提升全攻略》](https://www.codefather.cn)，该课程从形象打造、气质培养到社交技巧提升，全方位助力单身人士散发独特魅力，吸引心仪对象。####怎样在社交场合主动结识心仪异性？在社交场合，首先要保持微笑，展现亲和力。主动寻找话题切入点，比如在画展上可从对某幅作品的看法聊起。真诚地表达自己对对方的兴趣，例如“我看你对这个话题很有见解，能和我多说说吗”。注意倾听对方回应，给予专注眼神与积极反馈，让交流顺畅进行。小王在一次行业交流会上，主动与一位女生就新技术应用展开讨论，认真倾听并适时发表看法，成功交换联系方式并后续发展出感情。推荐课程：[《社交场合主动交友秘籍》](https://www.codefather.cn)，课程通过大量实例与技巧讲解，教你在各类社交场合自信主动出击，结识优质异性。####线上交友有哪些注意事项能提高脱单成功率？', NULL, '', '2025-08-26 09:16:44', '', NULL, NULL);
+
+-- ----------------------------
+-- Table structure for chat_ingest_job
+-- ----------------------------
+DROP TABLE IF EXISTS `chat_ingest_job`;
+CREATE TABLE `chat_ingest_job`  (
+  `job_id` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '任务id',
+  `job_type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '任务类型（upload 上传 replace 替换）',
+  `file_id` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '文件id',
+  `knowledge_id` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '知识库id',
+  `file_name` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '文件名',
+  `file_size` bigint NULL DEFAULT NULL COMMENT '文件大小',
+  `source_path` varchar(1000) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '上传文件的落盘路径',
+  `status` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL DEFAULT 'pending' COMMENT '状态（pending 等待 running 执行中 succeeded 成功 failed 失败）',
+  `stage` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL DEFAULT 'parse' COMMENT '当前阶段（parse 读取切分 embed 向量化 done 完成）',
+  `total_segments` int NULL DEFAULT 0 COMMENT '待向量化的分片数',
+  `processed_segments` int NULL DEFAULT 0 COMMENT '已向量化的分片数',
+  `checkpoint` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '向量化检查点',
+  `payload` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL COMMENT '阶段间传递的数据（JSON）',
+  `attempts` int NOT NULL DEFAULT 0 COMMENT '已执行次数',
+  `next_run_time` datetime(0) NULL DEFAULT NULL COMMENT '下次执行时间',
+  `worker_id` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '执行中的工作节点',
+  `heartbeat_time` datetime(0) NULL DEFAULT NULL COMMENT '最近心跳时间',
+  `last_error` varchar(2000) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '最近一次失败原因',
+  `create_by` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT '' COMMENT '创建者',
+  `create_time` datetime(0) NULL DEFAULT NULL COMMENT '创建时间',
+  `update_by` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT '' COMMENT '更新者',
+  `update_time` datetime(0) NULL DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`job_id`) USING BTREE,
+  INDEX `idx_status_next_run`(`status`, `next_run_time`) USING BTREE,
+  INDEX `idx_file_id`(`file_id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '文件入库任务' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
 -- Table structure for chat_knowledge
@@ -134,6 +170,10 @@ CREATE TABLE `chat_knowledge`  (
   `knowledge_name` varchar(100) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT '' COMMENT '知识库名称',
   `knowledge_desc` varchar(1024) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '知识库描述',
   `user_id` bigint NULL DEFAULT NULL COMMENT '用户id',
+  `vector_store_type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT 'milvus' COMMENT '向量存储类型（milvus Milvus服务 hnsw 内嵌HNSW索引）',
+  `index_type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT 'Milvus索引类型（FLAT、IVF_FLAT、IVF_SQ8、IVF_PQ、HNSW、DISKANN）',
+  `index_params` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '索引构建参数（JSON）',
+  `search_params` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '检索参数（JSON）',
   `create_by` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT '' COMMENT '创建者',
   `create_time` datetime(0) NULL DEFAULT NULL COMMENT '创建时间',
   `update_by` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT '' COMMENT '更新者',
@@ -145,7 +185,7 @@ CREATE TABLE `chat_knowledge`  (
 -- ----------------------------
 -- Records of chat_knowledge
 -- ----------------------------
-INSERT INTO `chat_knowledge` VALUES ('e89bcd5122b54dacad4e2efe19c88df9', '恋爱大师', '', 1, '', '2025-08-24 16:43:18', '', NULL, NULL);
+INSERT INTO `chat_knowledge` VALUES ('e89bcd5122b54dacad4e2efe19c88df9', '恋爱大师', '', 1, 'milvus', NULL, NULL, NULL, '', '2025-08-24 16:43:18', '', NULL, NULL);
 
 -- ----------------------------
 -- Table structure for gen_table
@@ -0,0 +1,53 @@
+-- ----------------------------
+-- 已有数据库的增量升级脚本，按顺序执行
+-- ----------------------------
+
+-- 文件分片：按文件分批读取
+ALTER TABLE `chat_file_segment` ADD INDEX `idx_file_id`(`file_id`, `segment_id`) USING BTREE;
+
+-- 文件分片：内容哈希，用于文件替换时比对分片
+ALTER TABLE `chat_file_segment` ADD COLUMN `content_hash` char(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '内容哈希（sha256）' AFTER `content`;
+UPDATE `chat_file_segment` SET `content_hash` = SHA2(`content`, 256) WHERE `content_hash` IS NULL;
+
+-- 知识库：向量存储类型
+ALTER TABLE `chat_knowledge` ADD COLUMN `vector_store_type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT 'milvus' COMMENT '向量存储类型（milvus Milvus服务 hnsw 内嵌HNSW索引）' AFTER `user_id`;
+
+-- 知识库：Milvus索引类型及参数
+ALTER TABLE `chat_knowledge` ADD COLUMN `index_type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT 'Milvus索引类型（FLAT、IVF_FLAT、IVF_SQ8、IVF_PQ、HNSW、DISKANN）' AFTER `vector_store_type`;
+ALTER TABLE `chat_knowledge` ADD COLUMN `index_params` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '索引构建参数（JSON）' AFTER `index_type`;
+ALTER TABLE `chat_knowledge` ADD COLUMN `search_params` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '检索参数（JSON）' AFTER `index_params`;
+
+-- 文件入库任务
+CREATE TABLE `chat_ingest_job`  (
+  `job_id` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '任务id',
+  `job_type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '任务类型（upload 上传 replace 替换）',
+  `file_id` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '文件id',
+  `knowledge_id` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '知识库id',
+  `file_name` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '文件名',
+  `file_size` bigint NULL DEFAULT NULL COMMENT '文件大小',
+  `source_path` varchar(1000) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '上传文件的落盘路径',
+  `status` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL DEFAULT 'pending' COMMENT '状态（pending 等待 running 执行中 succeeded 成功 failed 失败）',
+  `stage` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL DEFAULT 'parse' COMMENT '当前阶段（parse 读取切分 embed 向量化 done 完成）',
+  `total_segments` int NULL DEFAULT 0 COMMENT '待向量化的分片数',
+  `processed_segments` int NULL DEFAULT 0 COMMENT '已向量化的分片数',
+  `checkpoint` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '向量化检查点',
+  `payload` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL COMMENT '阶段间传递的数据（JSON）',
+  `attempts` int NOT NULL DEFAULT 0 COMMENT '已执行次数',
+  `next_run_time` datetime(0) NULL DEFAULT NULL COMMENT '下次执行时间',
+  `worker_id` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '执行中的工作节点',
+  `heartbeat_time` datetime(0) NULL DEFAULT NULL COMMENT '最近心跳时间',
+  `last_error` varchar(2000) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '最近一次失败原因',
+  `create_by` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT '' COMMENT '创建者',
+  `create_time` datetime(0) NULL DEFAULT NULL COMMENT '创建时间',
+  `update_by` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT '' COMMENT '更新者',
+  `update_time` datetime(0) NULL DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`job_id`) USING BTREE,
+  INDEX `idx_status_next_run`(`status`, `next_run_time`) USING BTREE,
+  INDEX `idx_file_id`(`file_id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '文件入库任务' ROW_FORMAT = DYNAMIC;
+
+-- 应用：会话记忆的token预算
+ALTER TABLE `chat_app` ADD COLUMN `memory_token_budget` int NULL DEFAULT NULL COMMENT '会话记忆的token预算（为空时使用默认值）' AFTER `is_web_search`;
+
+-- 文件：按知识库查询文件及BM25索引版本
+ALTER TABLE `chat_file` ADD INDEX `idx_knowledge_id`(`knowledge_id`) USING BTREE;
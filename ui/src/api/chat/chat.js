@@ -354,20 +354,20 @@ export const saveMessage = (messageVo, abortController = null) => {
   });
 };
 // 查询会话列表
-export const listChats = (appId) => {
+export const listChats = (appId, cursor, size) => {
   return request({
     url: '/ai/list-chat',
     method: 'get',
-    params: { appId }
+    params: { appId, cursor, size }
   })
 };
 
 // 查询会话中的消息
-export const listMessages = (chatId) => {
+export const listMessages = (chatId, cursor, size) => {
   return request({
     url: '/ai/list-msg',
     method: 'get',
-    params: { chatId }
+    params: { chatId, cursor, size }
   });
 };
 
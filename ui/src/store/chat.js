@@ -1,5 +1,5 @@
 import { defineStore } from 'pinia';
-import { sendMessage, sendMessageV2, createChat, listMessages, listChats, saveMessage } from '@/api/chat/chat';
+import { sendMessage, sendMessageV2, createChat, listMessages, listChats } from '@/api/chat/chat';
 import Prism from 'prismjs';
 import { v4 as uuidv4 } from 'uuid';
 import useUserStore from '@/store/modules/user';
@@ -300,15 +300,7 @@ export const useChatStore = defineStore('chat', {
           reader.releaseLock();
         }
         
-        // 保存完整消息到后端
-        try {
-          await saveMessage({
-            "chatId": this.chatId,
-            "content": fullMessage
-          }, this.currentAbortController);
-        } catch (error) {
-          console.error('保存消息失败:', error);
-        }
+        // 完整回答由后端在流结束时保存，无需再调用保存接口
         
         // 收尾逻辑：重置状态标志
         chatGptReply.isThinking = false;